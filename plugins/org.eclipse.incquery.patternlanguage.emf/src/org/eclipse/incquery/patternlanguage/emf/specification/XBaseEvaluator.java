@@ -38,6 +38,10 @@ import com.google.inject.Provider;
 
 /**
  * Evaluates an XBase XExpression inside Rete.
+ *
+ * <p>
+ * The expression is compiled to Java on its first evaluation by the {@link XBaseExpressionCompiler}; if this is not
+ * possible, it is interpreted.
  */
 @SuppressWarnings("restriction")
 public class XBaseEvaluator implements IExpressionEvaluator{
@@ -56,8 +60,13 @@ public class XBaseEvaluator implements IExpressionEvaluator{
     private IQualifiedNameConverter nameConverter;
     @Inject
     private IClassLoaderProvider classLoaderProvider;
+    @Inject
+    private XBaseExpressionCompiler expressionCompiler;
 
     private Iterable<String> usedNames;
+    private ClassLoader classLoader;
+    private boolean compilationAttempted = false;
+    private IExpressionEvaluator compiledEvaluator;
 
     /**
      * @param xExpression
@@ -72,7 +81,7 @@ public class XBaseEvaluator implements IExpressionEvaluator{
             XtextInjectorProvider.INSTANCE.getInjector().injectMembers(this);
             this.xExpression = xExpression;
             this.pattern = pattern;
-            ClassLoader classLoader = classLoaderProvider.getClassLoader(pattern);
+            classLoader = classLoaderProvider.getClassLoader(pattern);
             if (classLoader != null) {
                 interpreter.setClassLoader(classLoader);
             }
@@ -102,6 +111,13 @@ public class XBaseEvaluator implements IExpressionEvaluator{
 
     @Override
     public Object evaluateExpression(IValueProvider provider) throws Exception {
+        if (!compilationAttempted) {
+            compilationAttempted = true;
+            compiledEvaluator = expressionCompiler.getCompiledEvaluator(this, classLoader);
+        }
+        if (compiledEvaluator != null) {
+            return compiledEvaluator.evaluateExpression(provider);
+        }
 
         IEvaluationContext context = contextProvider.get();
         for (String name : getInputParameterNames()) {
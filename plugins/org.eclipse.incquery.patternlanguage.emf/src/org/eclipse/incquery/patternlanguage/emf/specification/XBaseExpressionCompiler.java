@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.patternlanguage.emf.specification;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.incquery.runtime.matchers.psystem.IExpressionEvaluator;
+import org.eclipse.incquery.runtime.matchers.psystem.IValueProvider;
+import org.eclipse.xtext.common.types.JvmFormalParameter;
+import org.eclipse.xtext.common.types.JvmIdentifiableElement;
+import org.eclipse.xtext.common.types.JvmOperation;
+import org.eclipse.xtext.common.types.JvmTypeReference;
+import org.eclipse.xtext.common.types.util.Primitives;
+import org.eclipse.xtext.util.Strings;
+import org.eclipse.xtext.xbase.XExpression;
+import org.eclipse.xtext.xbase.compiler.ImportManager;
+import org.eclipse.xtext.xbase.compiler.OnTheFlyJavaCompiler;
+import org.eclipse.xtext.xbase.compiler.XbaseCompiler;
+import org.eclipse.xtext.xbase.compiler.output.FakeTreeAppendable;
+import org.eclipse.xtext.xbase.compiler.output.ITreeAppendable;
+import org.eclipse.xtext.xbase.jvmmodel.IJvmModelAssociations;
+import org.eclipse.xtext.xbase.lib.Exceptions;
+
+import com.google.common.collect.MapMaker;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+/**
+ * Compiles the check() and eval() expressions of patterns into Java classes implementing {@link IExpressionEvaluator},
+ * so that generic query specifications evaluate them at the speed of generated code instead of interpreting them.
+ *
+ * <p>
+ * The expressions are translated by the Xbase compiler, the same way as in the generated query specifications, and the
+ * resulting classes are compiled on the fly and loaded in a separate class loader for each expression. The compiled
+ * evaluators are cached per expression. Expressions that cannot be compiled (e.g. because no Java compiler is
+ * available) are reported once, and are interpreted instead.
+ *
+ * @author Zoltan Ujhelyi
+ * @since 0.8
+ */
+@Singleton
+@SuppressWarnings("restriction")
+public class XBaseExpressionCompiler {
+
+    /**
+     * If false, expressions are always interpreted.
+     */
+    public static boolean compilationEnabled = true;
+
+    private static final String PACKAGE_NAME = "org.eclipse.incquery.patternlanguage.emf.specification.compiled";
+    private static final String PROVIDER_NAME = "provider";
+
+    @Inject
+    private Logger logger;
+    @Inject
+    private IJvmModelAssociations associations;
+    @Inject
+    private XbaseCompiler xbaseCompiler;
+    @Inject
+    private Provider<OnTheFlyJavaCompiler> javaCompilerProvider;
+    @Inject
+    private Primitives primitives;
+
+    private final Map<XExpression, IExpressionEvaluator> compiledEvaluators = new MapMaker().weakKeys().makeMap();
+    private final Set<XExpression> failedExpressions = Collections.newSetFromMap(new MapMaker().weakKeys()
+            .<XExpression, Boolean> makeMap());
+    private int compiledClassCount = 0;
+
+    /**
+     * Returns the compiled counterpart of the given evaluator.
+     *
+     * @param evaluator
+     *            the interpreting evaluator of the expression
+     * @param classLoader
+     *            the class loader of the pattern, used to load the types referenced by the expression; may be null
+     * @return the compiled evaluator, or null if the expression cannot be compiled
+     */
+    public synchronized IExpressionEvaluator getCompiledEvaluator(XBaseEvaluator evaluator, ClassLoader classLoader) {
+        if (!compilationEnabled) {
+            return null;
+        }
+        XExpression xExpression = evaluator.getExpression();
+        IExpressionEvaluator compiledEvaluator = compiledEvaluators.get(xExpression);
+        if (compiledEvaluator == null && !failedExpressions.contains(xExpression)) {
+            try {
+                compiledEvaluator = compile(evaluator, classLoader);
+                compiledEvaluators.put(xExpression, compiledEvaluator);
+            } catch (Exception e) {
+                reportFailure(evaluator, e);
+            } catch (LinkageError e) {
+                // e.g. the Java compiler is not available
+                reportFailure(evaluator, e);
+            }
+        }
+        return compiledEvaluator;
+    }
+
+    private void reportFailure(XBaseEvaluator evaluator, Throwable t) {
+        failedExpressions.add(evaluator.getExpression());
+        logger.warn(String.format("Could not compile expression %s, it will be interpreted instead.",
+                evaluator.getShortDescription()), t);
+    }
+
+    private IExpressionEvaluator compile(XBaseEvaluator evaluator, ClassLoader classLoader) throws Exception {
+        JvmIdentifiableElement container = associations.getLogicalContainer(evaluator.getExpression());
+        if (!(container instanceof JvmOperation)) {
+            throw new IllegalArgumentException("The expression is not associated with an inferred method.");
+        }
+        JvmOperation operation = (JvmOperation) container;
+        String className = "Expression" + (++compiledClassCount);
+
+        ImportManager importManager = new ImportManager(true);
+        ITreeAppendable body = new FakeTreeAppendable(importManager);
+        body.increaseIndentation().increaseIndentation();
+        body.declareVariable(PROVIDER_NAME, PROVIDER_NAME);
+        for (JvmFormalParameter parameter : operation.getParameters()) {
+            // the values are provided as objects
+            JvmTypeReference type = primitives.asWrapperTypeIfPrimitive(parameter.getParameterType());
+            String name = body.declareVariable(parameter, parameter.getSimpleName());
+            body.newLine().append("final ").append(type.getType()).append(" ").append(name).append(" = (")
+                    .append(type.getType()).append(") ").append(PROVIDER_NAME).append(".getValue(\"")
+                    .append(parameter.getSimpleName()).append("\");");
+        }
+        xbaseCompiler.compile(evaluator.getExpression(), body, operation.getReturnType());
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(PACKAGE_NAME).append(";\n\n");
+        for (String importedType : importManager.getImports()) {
+            source.append("import ").append(importedType).append(";\n");
+        }
+        source.append("\npublic class ").append(className).append(" implements ")
+                .append(IExpressionEvaluator.class.getName()).append(" {\n\n");
+        source.append("    public String getShortDescription() {\n");
+        source.append("        return \"").append(Strings.convertToJavaString(evaluator.getShortDescription()))
+                .append("\";\n    }\n\n");
+        source.append("    public Iterable<String> getInputParameterNames() {\n");
+        source.append("        return java.util.Arrays.asList(new String[] {");
+        for (String name : evaluator.getInputParameterNames()) {
+            source.append(" \"").append(name).append("\",");
+        }
+        source.append(" });\n    }\n\n");
+        source.append("    public Object evaluateExpression(").append(IValueProvider.class.getName()).append(" ")
+                .append(PROVIDER_NAME).append(") throws Exception {");
+        source.append(body.getContent());
+        source.append("\n    }\n\n}\n");
+
+        ClassLoader expressionClassLoader = new ExpressionClassLoader(classLoader);
+        OnTheFlyJavaCompiler javaCompiler = javaCompilerProvider.get();
+        javaCompiler.setParentClassLoader(expressionClassLoader);
+        javaCompiler.addClassPathOfClass(IExpressionEvaluator.class);
+        javaCompiler.addClassPathOfClass(Exceptions.class);
+        for (String importedType : importManager.getImports()) {
+            try {
+                javaCompiler.addClassPathOfClass(expressionClassLoader.loadClass(importedType));
+            } catch (ClassNotFoundException e) {
+                // e.g. nested classes; the compiler reports the type if it is not found on the class path otherwise
+            }
+        }
+        Class<?> compiledClass = javaCompiler.compileToClass(PACKAGE_NAME + "." + className, source.toString());
+        return (IExpressionEvaluator) compiledClass.newInstance();
+    }
+
+    /**
+     * Loads the classes visible to the pattern language, falling back to the class loader of the pattern.
+     */
+    private static final class ExpressionClassLoader extends ClassLoader {
+
+        private final ClassLoader patternClassLoader;
+
+        ExpressionClassLoader(ClassLoader patternClassLoader) {
+            super(XBaseExpressionCompiler.class.getClassLoader());
+            this.patternClassLoader = patternClassLoader;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (patternClassLoader == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return patternClassLoader.loadClass(name);
+        }
+    }
+
+}
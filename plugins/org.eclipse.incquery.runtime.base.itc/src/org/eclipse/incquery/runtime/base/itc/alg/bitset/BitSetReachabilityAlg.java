@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Tamas Szabo, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Tamas Szabo - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.base.itc.alg.bitset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.base.itc.alg.incscc.CollectionHelper;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.DFSPathFinder;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.GraphHelper;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.IGraphPathFinder;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.topsort.TopSort;
+import org.eclipse.incquery.runtime.base.itc.igraph.IBiDirectionalGraphDataSource;
+import org.eclipse.incquery.runtime.base.itc.igraph.IBiDirectionalWrapper;
+import org.eclipse.incquery.runtime.base.itc.igraph.IGraphDataSource;
+import org.eclipse.incquery.runtime.base.itc.igraph.IGraphObserver;
+import org.eclipse.incquery.runtime.base.itc.igraph.ITcDataSource;
+import org.eclipse.incquery.runtime.base.itc.igraph.ITcObserver;
+
+/**
+ * Maintains the transitive closure of an acyclic graph as a reachability index: the nodes get dense integer ids, and
+ * the sets of nodes reachable from each node (and the sets of nodes each node is reachable from) are stored as
+ * {@link CompressedBitSet}s of these ids. In contrast to {@link org.eclipse.incquery.runtime.base.itc.alg.counting.CountingAlg},
+ * no derivation count is stored for the pairs of the relation, so the relation takes a few bits per pair if it is
+ * dense, and at most a few bytes per pair otherwise.
+ *
+ * <p>
+ * An inserted edge extends the reachable sets of its source and of the nodes reaching the source. After an edge
+ * deletion, the reachable sets of the source and of the nodes reaching it are recomputed from their successors, in
+ * reverse topological order; the recomputation stops at the nodes whose reachable sets did not change.
+ *
+ * <p>
+ * The graph must not contain cycles; it is intended for the reduced graph of the SCCs in
+ * {@link org.eclipse.incquery.runtime.base.itc.alg.incscc.IncSCCAlg}.
+ *
+ * @author Tamas Szabo
+ *
+ * @param <V>
+ *            the type parameter of the nodes in the graph data source
+ */
+public class BitSetReachabilityAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
+
+    private IBiDirectionalGraphDataSource<V> gds = null;
+    private List<ITcObserver<V>> observers;
+
+    private Map<V, Integer> ids;
+    /**
+     * The nodes by their ids; null at the ids of deleted nodes.
+     */
+    private List<V> nodes;
+    /**
+     * The ids of deleted nodes, reused by new nodes so that the ids stay dense.
+     */
+    private LinkedList<Integer> freeIds;
+    /**
+     * The ids of the nodes reachable from the node with the given id.
+     */
+    private List<CompressedBitSet> targets;
+    /**
+     * The ids of the nodes from which the node with the given id is reachable.
+     */
+    private List<CompressedBitSet> sources;
+
+    /**
+     * Constructs the reachability index for the current contents of the graph data source and attaches itself on the
+     * graph data source as an observer.
+     *
+     * @param gds
+     *            the graph data source instance, it must not contain cycles
+     */
+    public BitSetReachabilityAlg(IGraphDataSource<V> gds) {
+        if (gds instanceof IBiDirectionalGraphDataSource<?>) {
+            this.gds = (IBiDirectionalGraphDataSource<V>) gds;
+        } else {
+            this.gds = new IBiDirectionalWrapper<V>(gds);
+        }
+        observers = new ArrayList<ITcObserver<V>>();
+        ids = new HashMap<V, Integer>();
+        nodes = new ArrayList<V>();
+        freeIds = new LinkedList<Integer>();
+        targets = new ArrayList<CompressedBitSet>();
+        sources = new ArrayList<CompressedBitSet>();
+
+        initTc();
+        gds.attachObserver(this);
+    }
+
+    /**
+     * Computes the reachable sets in bulk, successors first.
+     */
+    @SuppressWarnings("unchecked")
+    private void initTc() {
+        List<V> topologicalSorting = (List<V>) TopSort.getTopologicalSorting(gds);
+        Collections.reverse(topologicalSorting);
+        for (V node : topologicalSorting) {
+            int id = getId(node);
+            targets.set(id, computeTargets(node));
+        }
+        for (int id = 0; id < nodes.size(); id++) {
+            CompressedBitSet reachable = targets.get(id);
+            for (int target = reachable.nextSetBit(0); target >= 0; target = reachable.nextSetBit(target + 1)) {
+                sources.get(target).set(id);
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the node, assigning a new one if the node has none yet.
+     */
+    private int getId(V node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            if (freeIds.isEmpty()) {
+                id = nodes.size();
+                nodes.add(node);
+                targets.add(new CompressedBitSet());
+                sources.add(new CompressedBitSet());
+            } else {
+                id = freeIds.removeFirst();
+                nodes.set(id, node);
+            }
+            ids.put(node, id);
+        }
+        return id;
+    }
+
+    /**
+     * Computes the reachable set of the node from the reachable sets of its successors.
+     */
+    private CompressedBitSet computeTargets(V node) {
+        CompressedBitSet reachable = new CompressedBitSet();
+        List<V> targetNodes = gds.getTargetNodes(node);
+        if (targetNodes != null) {
+            for (V targetNode : targetNodes) {
+                int targetId = getId(targetNode);
+                if (reachable.set(targetId)) {
+                    reachable.or(targets.get(targetId));
+                }
+            }
+        }
+        return reachable;
+    }
+
+    @Override
+    public void edgeInserted(V source, V target) {
+        int sourceId = getId(source);
+        int targetId = getId(target);
+        if (sourceId == targetId || targets.get(sourceId).get(targetId)) {
+            // self-loop or parallel edge, nothing new is reachable
+            return;
+        }
+
+        CompressedBitSet newTargets = new CompressedBitSet();
+        newTargets.set(targetId);
+        newTargets.or(targets.get(targetId));
+
+        // the source and the nodes reaching the source reach the target and its reachable nodes
+        CompressedBitSet affected = new CompressedBitSet();
+        affected.set(sourceId);
+        affected.or(sources.get(sourceId));
+        for (int id = affected.nextSetBit(0); id >= 0; id = affected.nextSetBit(id + 1)) {
+            CompressedBitSet delta = newTargets.andNot(targets.get(id));
+            if (!delta.isEmpty()) {
+                targets.get(id).or(delta);
+                for (int newTarget = delta.nextSetBit(0); newTarget >= 0; newTarget = delta.nextSetBit(newTarget + 1)) {
+                    sources.get(newTarget).set(id);
+                    notifyTcObservers(nodes.get(id), nodes.get(newTarget), 1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void edgeDeleted(V source, V target) {
+        int sourceId = getId(source);
+        int targetId = getId(target);
+        if (sourceId == targetId) {
+            return;
+        }
+
+        // only the source and the nodes reaching the source may lose reachable nodes
+        CompressedBitSet affected = new CompressedBitSet();
+        affected.set(sourceId);
+        affected.or(sources.get(sourceId));
+
+        // number of edges from each affected node to unprocessed affected nodes
+        Map<Integer, Integer> pendingTargets = new HashMap<Integer, Integer>();
+        for (int id = affected.nextSetBit(0); id >= 0; id = affected.nextSetBit(id + 1)) {
+            int pending = 0;
+            List<V> targetNodes = gds.getTargetNodes(nodes.get(id));
+            if (targetNodes != null) {
+                for (V targetNode : targetNodes) {
+                    if (affected.get(getId(targetNode))) {
+                        pending++;
+                    }
+                }
+            }
+            pendingTargets.put(id, pending);
+        }
+
+        // the source has no affected successors in an acyclic graph, the rest follows in reverse topological order
+        CompressedBitSet changed = new CompressedBitSet();
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        queue.add(sourceId);
+        while (!queue.isEmpty()) {
+            int id = queue.removeFirst();
+            V node = nodes.get(id);
+            if (id == sourceId || hasChangedTarget(node, changed)) {
+                CompressedBitSet oldTargets = targets.get(id);
+                CompressedBitSet newTargets = computeTargets(node);
+                CompressedBitSet lostTargets = oldTargets.andNot(newTargets);
+                if (!lostTargets.isEmpty()) {
+                    changed.set(id);
+                    targets.set(id, newTargets);
+                    for (int lost = lostTargets.nextSetBit(0); lost >= 0; lost = lostTargets.nextSetBit(lost + 1)) {
+                        sources.get(lost).clear(id);
+                        notifyTcObservers(node, nodes.get(lost), -1);
+                    }
+                }
+            }
+            List<V> sourceNodes = gds.getSourceNodes(node);
+            if (sourceNodes != null) {
+                for (V sourceNode : sourceNodes) {
+                    int sourceNodeId = getId(sourceNode);
+                    if (affected.get(sourceNodeId)) {
+                        int pending = pendingTargets.get(sourceNodeId) - 1;
+                        pendingTargets.put(sourceNodeId, pending);
+                        if (pending == 0) {
+                            queue.add(sourceNodeId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean hasChangedTarget(V node, CompressedBitSet changed) {
+        List<V> targetNodes = gds.getTargetNodes(node);
+        if (targetNodes != null) {
+            for (V targetNode : targetNodes) {
+                if (changed.get(getId(targetNode))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void nodeInserted(V n) {
+        getId(n);
+    }
+
+    @Override
+    public void nodeDeleted(V n) {
+        Integer id = ids.remove(n);
+        if (id == null) {
+            return;
+        }
+        // the edges of the node are deleted before the node, the sets are cleared just in case
+        CompressedBitSet reachable = targets.get(id);
+        for (int target = reachable.nextSetBit(0); target >= 0; target = reachable.nextSetBit(target + 1)) {
+            sources.get(target).clear(id);
+        }
+        CompressedBitSet reaching = sources.get(id);
+        for (int source = reaching.nextSetBit(0); source >= 0; source = reaching.nextSetBit(source + 1)) {
+            targets.get(source).clear(id);
+        }
+        reachable.clear();
+        reaching.clear();
+        nodes.set(id, null);
+        freeIds.add(id);
+    }
+
+    @Override
+    public boolean isReachable(V source, V target) {
+        Integer sourceId = ids.get(source);
+        Integer targetId = ids.get(target);
+        return sourceId != null && targetId != null && targets.get(sourceId).get(targetId);
+    }
+
+    @Override
+    public Set<V> getAllReachableTargets(V source) {
+        Integer id = ids.get(source);
+        return id == null ? new HashSet<V>() : toNodes(targets.get(id));
+    }
+
+    @Override
+    public Set<V> getAllReachableSources(V target) {
+        Integer id = ids.get(target);
+        return id == null ? new HashSet<V>() : toNodes(sources.get(id));
+    }
+
+    private Set<V> toNodes(CompressedBitSet idSet) {
+        Set<V> result = new HashSet<V>();
+        for (int id = idSet.nextSetBit(0); id >= 0; id = idSet.nextSetBit(id + 1)) {
+            result.add(nodes.get(id));
+        }
+        return result;
+    }
+
+    @Override
+    public List<V> getReachabilityPath(V source, V target) {
+        if (!isReachable(source, target)) {
+            return null;
+        } else {
+            Set<V> nodesInSubGraph = CollectionHelper.intersection(this.getAllReachableSources(target),
+                    this.getAllReachableTargets(source));
+            nodesInSubGraph.add(source);
+            nodesInSubGraph.add(target);
+            return GraphHelper.constructPath(source, target, nodesInSubGraph, gds);
+        }
+    }
+
+    @Override
+    public void attachObserver(ITcObserver<V> to) {
+        this.observers.add(to);
+    }
+
+    @Override
+    public void detachObserver(ITcObserver<V> to) {
+        this.observers.remove(to);
+    }
+
+    private void notifyTcObservers(V source, V target, int dir) {
+        for (ITcObserver<V> o : observers) {
+            if (dir == 1)
+                o.tupleInserted(source, target);
+            if (dir == -1)
+                o.tupleDeleted(source, target);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        ids.clear();
+        nodes.clear();
+        freeIds.clear();
+        targets.clear();
+        sources.clear();
+        this.gds.detachObserver(this);
+    }
+
+    @Override
+    public IGraphPathFinder<V> getPathFinder() {
+        return new DFSPathFinder<V>(gds, this);
+    }
+
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Tamas Szabo, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Tamas Szabo - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.base.itc.alg.bitset;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative integers stored as a bit set, where only the non-zero 64-bit words are kept, together with
+ * their indices in ascending order. A set of k elements takes at most 12k bytes, however large the elements are, and
+ * 12 bytes per 64 elements if they are dense.
+ *
+ * @author Tamas Szabo
+ *
+ */
+public class CompressedBitSet {
+
+    private static final int[] NO_INDICES = new int[0];
+    private static final long[] NO_WORDS = new long[0];
+
+    /**
+     * The word indices of the non-zero words in ascending order, the first {@link #size} elements are used.
+     */
+    private int[] indices = NO_INDICES;
+    private long[] words = NO_WORDS;
+    private int size = 0;
+
+    private static int wordIndex(int bit) {
+        return bit >>> 6;
+    }
+
+    /**
+     * @return the position of the word with the given index, or (-(insertion point) - 1) if there is no such word
+     */
+    private int find(int wordIndex) {
+        return Arrays.binarySearch(indices, 0, size, wordIndex);
+    }
+
+    public boolean get(int bit) {
+        int position = find(wordIndex(bit));
+        return position >= 0 && (words[position] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return true if the bit was not set before
+     */
+    public boolean set(int bit) {
+        int wordIndex = wordIndex(bit);
+        int position = find(wordIndex);
+        if (position >= 0) {
+            long word = words[position];
+            words[position] = word | (1L << bit);
+            return word != words[position];
+        }
+        position = -position - 1;
+        if (size == indices.length) {
+            int capacity = Math.max(2, size + (size >> 1));
+            indices = Arrays.copyOf(indices, capacity);
+            words = Arrays.copyOf(words, capacity);
+        }
+        System.arraycopy(indices, position, indices, position + 1, size - position);
+        System.arraycopy(words, position, words, position + 1, size - position);
+        indices[position] = wordIndex;
+        words[position] = 1L << bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return true if the bit was set before
+     */
+    public boolean clear(int bit) {
+        int position = find(wordIndex(bit));
+        if (position < 0 || (words[position] & (1L << bit)) == 0) {
+            return false;
+        }
+        words[position] &= ~(1L << bit);
+        if (words[position] == 0) {
+            System.arraycopy(indices, position + 1, indices, position, size - position - 1);
+            System.arraycopy(words, position + 1, words, position, size - position - 1);
+            size--;
+        }
+        return true;
+    }
+
+    public void clear() {
+        indices = NO_INDICES;
+        words = NO_WORDS;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += Long.bitCount(words[i]);
+        }
+        return cardinality;
+    }
+
+    /**
+     * Returns the smallest element of the set that is greater than or equal to the given one.
+     *
+     * @return the element, or -1 if there is no such element
+     */
+    public int nextSetBit(int fromBit) {
+        int position = find(wordIndex(fromBit));
+        if (position >= 0) {
+            long word = words[position] & (-1L << fromBit);
+            if (word != 0) {
+                return (indices[position] << 6) + Long.numberOfTrailingZeros(word);
+            }
+            position++;
+        } else {
+            position = -position - 1;
+        }
+        return position < size ? (indices[position] << 6) + Long.numberOfTrailingZeros(words[position]) : -1;
+    }
+
+    /**
+     * Adds the elements of the other set to this set.
+     */
+    public void or(CompressedBitSet other) {
+        if (other.size == 0) {
+            return;
+        }
+        int[] newIndices = new int[size + other.size];
+        long[] newWords = new long[size + other.size];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && indices[i] < other.indices[j])) {
+                newIndices[k] = indices[i];
+                newWords[k++] = words[i++];
+            } else if (i == size || other.indices[j] < indices[i]) {
+                newIndices[k] = other.indices[j];
+                newWords[k++] = other.words[j++];
+            } else {
+                newIndices[k] = indices[i];
+                newWords[k++] = words[i++] | other.words[j++];
+            }
+        }
+        indices = newIndices;
+        words = newWords;
+        size = k;
+    }
+
+    /**
+     * @return a new set of the elements of this set that are not contained in the other set
+     */
+    public CompressedBitSet andNot(CompressedBitSet other) {
+        CompressedBitSet result = new CompressedBitSet();
+        result.indices = new int[size];
+        result.words = new long[size];
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.indices[j] < indices[i]) {
+                j++;
+            }
+            long word = words[i];
+            if (j < other.size && other.indices[j] == indices[i]) {
+                word &= ~other.words[j];
+            }
+            if (word != 0) {
+                result.indices[result.size] = indices[i];
+                result.words[result.size++] = word;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof CompressedBitSet)) {
+            return false;
+        }
+        CompressedBitSet other = (CompressedBitSet) obj;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (indices[i] != other.indices[i] || words[i] != other.words[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + indices[i];
+            hash = 31 * hash + (int) (words[i] ^ (words[i] >>> 32));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int bit = nextSetBit(0); bit >= 0; bit = nextSetBit(bit + 1)) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(bit);
+        }
+        return sb.append("}").toString();
+    }
+
+}
@@ -15,8 +15,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import org.eclipse.incquery.runtime.base.itc.alg.bitset.BitSetReachabilityAlg;
 import org.eclipse.incquery.runtime.base.itc.alg.counting.CountingAlg;
 import org.eclipse.incquery.runtime.base.itc.alg.dred.DRedTcRelation;
 import org.eclipse.incquery.runtime.base.itc.alg.misc.DFSPathFinder;
@@ -37,6 +39,13 @@ import org.eclipse.incquery.runtime.base.itc.igraph.ITcObserver;
 /**
  * Incremental SCC maintenance + counting algorithm.
  * 
+ * <p>
+ * The reachability between the SCCs is maintained on the reduced graph either by the {@link CountingAlg} (the
+ * default) or by a {@link BitSetReachabilityAlg}. The counting algorithm stores the number of derivations of each
+ * pair of the relation in hash maps, while the bit set index stores the pairs as compressed bit sets of dense node
+ * ids, which takes an order of magnitude less memory for large relations, e.g. for deep hierarchies. In turn, an edge
+ * deletion is handled by recomputing the reachable SCCs of the SCCs that may lose some.
+ * 
  * @author Tamas Szabo
  * 
  * @param <V>
@@ -48,13 +57,36 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
 
     public UnionFind<V> sccs;
     public IBiDirectionalGraphDataSource<V> gds;
-    private CountingAlg<V> counting;
+    private ITcDataSource<V> reducedGraphTc;
     private Graph<V> reducedGraph;
     private IBiDirectionalGraphDataSource<V> reducedGraphIndexer;
     private List<ITcObserver<V>> observers;
     private CountingListener<V> countingListener;
 
+    /**
+     * Constructs the algorithm for the current contents of the graph data source and attaches itself as an observer.
+     * The SCCs and the reachability relation of the reduced graph are computed in bulk, so when the initial edge set is
+     * known in advance, it is much cheaper to fill the graph before the construction than to insert the edges one by
+     * one afterwards.
+     * 
+     * @param graphDataSource
+     *            the graph data source instance
+     */
     public IncSCCAlg(IGraphDataSource<V> graphDataSource) {
+        this(graphDataSource, false);
+    }
+
+    /**
+     * Constructs the algorithm for the current contents of the graph data source and attaches itself as an observer.
+     * 
+     * @param graphDataSource
+     *            the graph data source instance
+     * @param compactReachability
+     *            if true, the reachability between the SCCs is stored in a {@link BitSetReachabilityAlg} instead of
+     *            the {@link CountingAlg}
+     * @see #IncSCCAlg(IGraphDataSource)
+     */
+    public IncSCCAlg(IGraphDataSource<V> graphDataSource, boolean compactReachability) {
 
         if (graphDataSource instanceof IBiDirectionalGraphDataSource<?>) {
             gds = (IBiDirectionalGraphDataSource<V>) graphDataSource;
@@ -66,11 +98,11 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
         reducedGraph = new Graph<V>();
         reducedGraphIndexer = new IBiDirectionalWrapper<V>(reducedGraph);
         countingListener = new CountingListener<V>(this);
-        initalizeInternalDataStructures();
+        initalizeInternalDataStructures(compactReachability);
         gds.attachObserver(this);
     }
 
-    private void initalizeInternalDataStructures() {
+    private void initalizeInternalDataStructures(boolean compactReachability) {
         SCCResult<V> _sccres = SCC.computeSCC(gds);
         Set<Set<V>> _sccs = _sccres.getSccs();
 
@@ -96,7 +128,11 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
                 }
         }
 
-        counting = new CountingAlg<V>(reducedGraph);
+        if (compactReachability) {
+            reducedGraphTc = new BitSetReachabilityAlg<V>(reducedGraph);
+        } else {
+            reducedGraphTc = new CountingAlg<V>(reducedGraph);
+        }
     }
 
     @Override
@@ -108,10 +144,10 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
         if (!sourceRoot.equals(targetRoot)) {
 
             // source is reachable from target?
-            if (counting.isReachable(targetRoot, sourceRoot)) {
+            if (reducedGraphTc.isReachable(targetRoot, sourceRoot)) {
 
-                Set<V> predecessorRoots = counting.getAllReachableSources(sourceRoot);
-                Set<V> successorRoots = counting.getAllReachableTargets(targetRoot);
+                Set<V> predecessorRoots = reducedGraphTc.getAllReachableSources(sourceRoot);
+                Set<V> successorRoots = reducedGraphTc.getAllReachableTargets(targetRoot);
 
                 // 1. intersection of source and target roots, these will be in the merged SCC
                 Set<V> isectRoots = CollectionHelper.intersection(predecessorRoots, successorRoots);
@@ -131,7 +167,7 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
                     // tracing back to actual nodes
                     for (V sourceSCC : sourceSCCs) {
                         for (V targetSCC : CollectionHelper.difference(targetSCCs,
-                                counting.getAllReachableTargets(sourceSCC))) {
+                                reducedGraphTc.getAllReachableTargets(sourceSCC))) {
                             boolean needsNotification = false;
 
                             //Case 1. sourceSCC and targetSCC are the same and it is a one sized scc. 
@@ -206,10 +242,10 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
                 }
             } else {
                 if (observers.size() > 0 && GraphHelper.getEdgeCount(source, target, gds) == 1) {
-                    counting.attachObserver(countingListener);
+                    reducedGraphTc.attachObserver(countingListener);
                 }
                 reducedGraph.insertEdge(sourceRoot, targetRoot);
-                counting.detachObserver(countingListener);
+                reducedGraphTc.detachObserver(countingListener);
             }
         } else {
             // Notifications about self-loops
@@ -227,10 +263,10 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
 
         if (!sourceRoot.equals(targetRoot)) {
             if (observers.size() > 0 && GraphHelper.getEdgeCount(source, target, gds) == 0) {
-                counting.attachObserver(countingListener);
+                reducedGraphTc.attachObserver(countingListener);
             }
             reducedGraph.deleteEdge(sourceRoot, targetRoot);
-            counting.detachObserver(countingListener);
+            reducedGraphTc.detachObserver(countingListener);
         } else {
             // get the graph for the scc whose root is sourceRoot
             Graph<V> g = GraphHelper.getSubGraph(sccs.setMap.get(sourceRoot), gds);
@@ -285,15 +321,15 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
                     V newSourceRoot = sccs.find(source);
                     V newTargetRoot = sccs.find(target);
 
-                    Set<V> sourceSCCs = counting.getAllReachableSources(newSourceRoot);
+                    Set<V> sourceSCCs = reducedGraphTc.getAllReachableSources(newSourceRoot);
                     sourceSCCs.add(newSourceRoot);
 
-                    Set<V> targetSCCs = counting.getAllReachableTargets(newTargetRoot);
+                    Set<V> targetSCCs = reducedGraphTc.getAllReachableTargets(newTargetRoot);
                     targetSCCs.add(newTargetRoot);
 
                     for (V sourceSCC : sourceSCCs) {
                         for (V targetSCC : CollectionHelper.difference(targetSCCs,
-                                counting.getAllReachableTargets(sourceSCC))) {
+                                reducedGraphTc.getAllReachableTargets(sourceSCC))) {
                             boolean needsNotification = false;
 
                             //Case 1. sourceSCC and targetSCC are the same and it is a one sized scc. 
@@ -370,7 +406,7 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
             targets.addAll(containedNodes);
         }
 
-        Set<V> rootSet = counting.getAllReachableTargets(sourceRoot);
+        Set<V> rootSet = reducedGraphTc.getAllReachableTargets(sourceRoot);
         if (rootSet != null) {
             for (V _root : rootSet) {
                 targets.addAll(sccs.setMap.get(_root));
@@ -390,7 +426,7 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
             sources.addAll(containedNodes);
         }
 
-        Set<V> rootSet = counting.getAllReachableSources(targetRoot);
+        Set<V> rootSet = reducedGraphTc.getAllReachableSources(targetRoot);
         if (rootSet != null) {
             for (V _root : rootSet) {
                 sources.addAll(sccs.setMap.get(_root));
@@ -407,7 +443,7 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
         if (sourceRoot.equals(targetRoot))
             return true;
         else
-            return counting.isReachable(sourceRoot, targetRoot);
+            return reducedGraphTc.isReachable(sourceRoot, targetRoot);
     }
     
     @Override
@@ -416,7 +452,7 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
     		return null;
     	}
     	else {
-    		Set<V> sccsInSubGraph = CollectionHelper.intersection(counting.getAllReachableTargets(source), counting.getAllReachableSources(target));
+    		Set<V> sccsInSubGraph = CollectionHelper.intersection(reducedGraphTc.getAllReachableTargets(source), reducedGraphTc.getAllReachableSources(target));
     		sccsInSubGraph.add(sccs.find(source));
     		sccsInSubGraph.add(sccs.find(target));
     		Set<V> nodesInSubGraph = new HashSet<V>();
@@ -439,8 +475,8 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
             }
         }
 
-        for (V root : counting.getTcRelation().getTupleStarts()) {
-            for (V end : counting.getTcRelation().getTupleEnds(root)) {
+        for (V root : sccs.setMap.keySet()) {
+            for (V end : reducedGraphTc.getAllReachableTargets(root)) {
                 for (V s : sccs.setMap.get(root)) {
                     for (V t : sccs.setMap.get(end)) {
                         if (!tc.containsTuple(s, t))
@@ -503,7 +539,7 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
     @Override
     public void dispose() {
         gds.detachObserver(this);
-        counting.dispose();
+        reducedGraphTc.dispose();
     }
 
     /**
@@ -537,30 +573,84 @@ public class IncSCCAlg<V> implements IGraphObserver<V>, ITcDataSource<V> {
 
     public Set<Tuple<V>> getTcRelation() {
         Set<Tuple<V>> resultSet = new HashSet<Tuple<V>>();
+        Iterator<Tuple<V>> iterator = getTcRelationIterator();
+        while (iterator.hasNext()) {
+            resultSet.add(iterator.next());
+        }
+        return resultSet;
+    }
 
-        for (V sourceRoot : sccs.setMap.keySet()) {
-            Set<V> sources = sccs.setMap.get(sourceRoot);
-            if (sources.size() > 1 || GraphHelper.getEdgeCount(sources.iterator().next(), gds) == 1) {
-                for (V source : sources) {
-                    for (V target : sources) {
-                        resultSet.add(new Tuple<V>(source, target));
-                    }
+    /**
+     * Returns an iterator over the transitive closure relation. In contrast to {@link #getTcRelation()}, the relation
+     * is not materialized: the tuples are enumerated from the SCCs and the reachability relation of the reduced graph on
+     * demand, so only the reachable nodes of a single SCC are stored at a time. Each tuple is returned exactly once.
+     * 
+     * <p>
+     * The graph must not be modified during the iteration.
+     * 
+     * @return the iterator of the tuples of the transitive closure relation
+     */
+    public Iterator<Tuple<V>> getTcRelationIterator() {
+        return new TcRelationIterator();
+    }
+
+    /**
+     * Enumerates the tuples of the transitive closure relation SCC by SCC: each node of an SCC reaches the same set of
+     * target nodes.
+     */
+    private class TcRelationIterator implements Iterator<Tuple<V>> {
+
+        private final Iterator<V> rootIterator = sccs.setMap.keySet().iterator();
+        private Iterator<V> sourceIterator = null;
+        private List<V> targets = new ArrayList<V>();
+        private V source = null;
+        private int targetIndex = 0;
+
+        @Override
+        public boolean hasNext() {
+            while (targetIndex >= targets.size()) {
+                if (sourceIterator != null && sourceIterator.hasNext()) {
+                    source = sourceIterator.next();
+                    targetIndex = 0;
+                } else if (rootIterator.hasNext()) {
+                    nextSCC(rootIterator.next());
+                } else {
+                    return false;
                 }
             }
+            return true;
+        }
 
-            Set<V> reachableTargets = counting.getAllReachableTargets(sourceRoot);
+        private void nextSCC(V sourceRoot) {
+            Set<V> sources = sccs.setMap.get(sourceRoot);
+            targets = new ArrayList<V>();
+            if (sources.size() > 1 || GraphHelper.getEdgeCount(sources.iterator().next(), gds) == 1) {
+                targets.addAll(sources);
+            }
+            Set<V> reachableTargets = reducedGraphTc.getAllReachableTargets(sourceRoot);
             if (reachableTargets != null) {
                 for (V targetRoot : reachableTargets) {
-                    for (V source : sources) {
-                        for (V target : sccs.setMap.get(targetRoot)) {
-                            resultSet.add(new Tuple<V>(source, target));
-                        }
-                    }
+                    targets.addAll(sccs.setMap.get(targetRoot));
                 }
             }
+            // the nodes of an SCC without reachable nodes have no tuples
+            sourceIterator = targets.isEmpty() ? null : sources.iterator();
+            source = null;
+            targetIndex = targets.size();
         }
 
-        return resultSet;
+        @Override
+        public Tuple<V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return new Tuple<V>(source, targets.get(targetIndex++));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 
     public boolean isIsolated(V node) {
@@ -57,6 +57,6 @@ public class Tuple<V> {
 
     @Override
     public int hashCode() {
-        return source.hashCode() + target.hashCode();
+        return 31 * source.hashCode() + target.hashCode();
     }
 }
@@ -11,9 +11,9 @@
 
 package org.eclipse.incquery.runtime.base.itc.alg.misc.scc;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,8 +47,8 @@ public class SCC<V> {
         // stores the lowlink and index information for the given node
         Map<V, SCCProperty> nodeMap = new HashMap<V, SCCProperty>();
         
-        // stores all target nodes of a given node - the list will be modified
-        Map<V, List<V>> targetNodeMap = new HashMap<V, List<V>>();
+        // stores the target nodes of a given node that have not been explored yet
+        Map<V, Iterator<V>> targetNodeMap = new HashMap<V, Iterator<V>>();
         
         // stores those target nodes for a given node which have not been visited 
         Map<V, Set<V>> notVisitedMap = new HashMap<V, Set<V>>();
@@ -59,6 +59,9 @@ public class SCC<V> {
         // stores the nodes which belong to an scc (there can be many sccs in the stack at the same time)
         Stack<V> sccStack = new Stack<V>();
 
+        // the contents of the scc stack, for constant time membership checks
+        Set<V> sccStackNodes = new HashSet<V>();
+
         boolean sink = false, finishedTraversal = true;
 
         // initialize all nodes with 0 index and 0 lowlink
@@ -81,6 +84,7 @@ public class SCC<V> {
                     if (nodeMap.get(currentNode).getIndex() == 0) {
                         index++;
                         sccStack.push(currentNode);
+                        sccStackNodes.add(currentNode);
                         prop.setIndex(index);
                         prop.setLowlink(index);
 
@@ -88,14 +92,14 @@ public class SCC<V> {
 
                         // storing the target nodes of the actual node
                         if (g.getTargetNodes(currentNode) != null) {
-                            targetNodeMap.put(currentNode, new ArrayList<V>(g.getTargetNodes(currentNode)));
+                            targetNodeMap.put(currentNode, g.getTargetNodes(currentNode).iterator());
                         }
                     }
 
                     if (targetNodeMap.get(currentNode) != null) {
                         
                         // remove node from stack, the exploration of its children has finished
-                        if (targetNodeMap.get(currentNode).size() == 0) {
+                        if (!targetNodeMap.get(currentNode).hasNext()) {
                             targetNodeMap.remove(currentNode);
 
                             nodeStack.pop();
@@ -106,7 +110,7 @@ public class SCC<V> {
                                     if (notVisitedMap.get(currentNode).contains(targetNode)) {
                                         prop.setLowlink(Math.min(prop.getLowlink(), nodeMap.get(targetNode)
                                                 .getLowlink()));
-                                    } else if (sccStack.contains(targetNode)) {
+                                    } else if (sccStackNodes.contains(targetNode)) {
                                         prop.setLowlink(Math.min(prop.getLowlink(), nodeMap.get(targetNode).getIndex()));
                                     }
                                 }
@@ -114,7 +118,7 @@ public class SCC<V> {
 
                             finishedTraversal = true;
                         } else {
-                            V targetNode = targetNodeMap.get(currentNode).remove(0);
+                            V targetNode = targetNodeMap.get(currentNode).next();
                             // if the targetNode has not yet been visited push it to the stack
                             // and mark it in the notVisitedMap
                             if (nodeMap.get(targetNode).getIndex() == 0) {
@@ -136,6 +140,7 @@ public class SCC<V> {
 
                         do {
                             targetNode = sccStack.pop();
+                            sccStackNodes.remove(targetNode);
                             sc.add(targetNode);
                         } while (!targetNode.equals(currentNode));
 
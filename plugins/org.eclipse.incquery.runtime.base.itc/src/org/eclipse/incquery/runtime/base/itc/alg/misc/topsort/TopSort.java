@@ -14,8 +14,10 @@ package org.eclipse.incquery.runtime.base.itc.alg.misc.topsort;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Stack;
 
 import org.eclipse.incquery.runtime.base.itc.igraph.IGraphDataSource;
 
@@ -74,21 +76,38 @@ public class TopSort<V> {
         Collections.reverse(topologicalSorting);
     }
 
-    private void oneDFS(int v) {
-        visited[v] = 1;
-        depthNumber[v] = ++depthCount;
-        List<V> targets = gds.getTargetNodes(forwardNodeMap.get(v));
-        if (targets != null) {
-            for (V t : targets) {
-
-                int u = backwardNodeMap.get(t);
+    /**
+     * Iterative depth-first traversal from the given node, as the recursion depth would be proportional to the length
+     * of the longest path in the graph.
+     */
+    private void oneDFS(int start) {
+        Stack<Integer> nodeStack = new Stack<Integer>();
+        Stack<Iterator<V>> targetStack = new Stack<Iterator<V>>();
+        visit(start, nodeStack, targetStack);
+
+        while (!nodeStack.isEmpty()) {
+            int v = nodeStack.peek();
+            Iterator<V> targets = targetStack.peek();
+            if (targets.hasNext()) {
+                int u = backwardNodeMap.get(targets.next());
                 sourceNumber[u] = v;
                 if (visited[u] == 0)
-                    oneDFS(u);
+                    visit(u, nodeStack, targetStack);
+            } else {
+                nodeStack.pop();
+                targetStack.pop();
+                finishNumber[v] = ++finishCount;
+                topologicalSorting.add(forwardNodeMap.get(v));
             }
         }
-        finishNumber[v] = ++finishCount;
-        topologicalSorting.add(forwardNodeMap.get(v));
+    }
+
+    private void visit(int v, Stack<Integer> nodeStack, Stack<Iterator<V>> targetStack) {
+        visited[v] = 1;
+        depthNumber[v] = ++depthCount;
+        List<V> targets = gds.getTargetNodes(forwardNodeMap.get(v));
+        nodeStack.push(v);
+        targetStack.push(targets == null ? Collections.<V> emptyList().iterator() : targets.iterator());
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -10,6 +10,15 @@
  *******************************************************************************/
 package org.eclipse.incquery.runtime.base.api;
 
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import com.google.common.base.Preconditions;
+
 /**
  * The base index options indicate how the indices are built.
  * 
@@ -28,6 +37,21 @@ package org.eclipse.incquery.runtime.base.api;
  * if duplicate EPackages with the same nsURI are encountered.
  * </p>
  * 
+ * <p>
+ * Finally, a <em>warm start snapshot</em> file may be specified, previously written by
+ * {@link NavigationHelper#saveSnapshot(File)}. Resources that have not changed since the snapshot was taken are then
+ * indexed from the snapshot instead of being traversed.
+ * </p>
+ * 
+ * <p>
+ * The resources of large models may also be traversed on multiple threads, see {@link #setTraversalThreadCount(int)}.
+ * </p>
+ * 
+ * <p>
+ * The directions in which the values of each feature are indexed can be restricted by {@link IndexingProfile}s, see
+ * {@link #setIndexingProfile(EStructuralFeature, IndexingProfile)}.
+ * </p>
+ * 
  * @author Abel Hegedus
  * 
  */
@@ -53,6 +77,11 @@ public class BaseIndexOptions {
     protected boolean dynamicEMFMode = DYNAMIC_EMF_MODE_DEFAULT;
     protected boolean traverseOnlyWellBehavingDerivedFeatures = TRAVERS_ONLY_WELLBEHAVING_DERIVED_FEATURES_DEFAULT;
     protected boolean wildcardMode = WILDCARD_MODE_DEFAULT;
+    protected File warmStartSnapshot = null;
+    protected int traversalThreadCount = 1;
+    protected boolean compactStorage = false;
+    protected IndexingProfile defaultIndexingProfile = IndexingProfile.INVERSE_ONLY;
+    protected Map<EStructuralFeature, IndexingProfile> indexingProfiles = new HashMap<EStructuralFeature, IndexingProfile>();
 
     /**
      * Creates a base index options with the default values.
@@ -97,6 +126,110 @@ public class BaseIndexOptions {
         return wildcardMode;
     }
 
+    /**
+     * @param warmStartSnapshot
+     *            a snapshot file written by {@link NavigationHelper#saveSnapshot(File)}, or null to always traverse the
+     *            model
+     * @since 0.8
+     */
+    public void setWarmStartSnapshot(File warmStartSnapshot) {
+        this.warmStartSnapshot = warmStartSnapshot;
+    }
+
+    /**
+     * @return the snapshot file used to warm-start the base index, or null if none
+     * @since 0.8
+     */
+    public File getWarmStartSnapshot() {
+        return warmStartSnapshot;
+    }
+
+    /**
+     * @param traversalThreadCount
+     *            the number of threads used to traverse the resources of the model when new types are registered; if
+     *            greater than one, the resources are traversed in parallel. The model must not be modified during
+     *            the traversal, even from other threads.
+     * @since 0.8
+     */
+    public void setTraversalThreadCount(int traversalThreadCount) {
+        Preconditions.checkArgument(traversalThreadCount > 0, "The traversal thread count must be positive");
+        this.traversalThreadCount = traversalThreadCount;
+    }
+
+    /**
+     * @return the number of threads used to traverse the resources of the model; 1 for sequential traversal
+     * @since 0.8
+     */
+    public int getTraversalThreadCount() {
+        return traversalThreadCount;
+    }
+
+    /**
+     * @param compactStorage
+     *            if true, the sets of instances, feature holders and feature values, as well as the features of
+     *            each holder and value, are stored in a representation optimized for small sets and maps, as in
+     *            typical models most values have a single holder. This reduces the heap usage of the index
+     *            considerably, at the cost of slightly slower updates of large sets.
+     * @since 0.8
+     */
+    public void setCompactStorage(boolean compactStorage) {
+        this.compactStorage = compactStorage;
+    }
+
+    /**
+     * @return whether the base index stores its sets in a representation optimized for memory usage
+     * @since 0.8
+     */
+    public boolean isCompactStorage() {
+        return compactStorage;
+    }
+
+    /**
+     * @param defaultIndexingProfile
+     *            the profile of the features that have neither an indexing profile set in these options, nor
+     *            requested by {@link NavigationHelper#registerEStructuralFeatures(java.util.Set, IndexingProfile)}. The
+     *            default is {@link IndexingProfile#INVERSE_ONLY}, the forward direction is then only built for the
+     *            features that are actually queried in that direction.
+     * @since 0.8
+     */
+    public void setDefaultIndexingProfile(IndexingProfile defaultIndexingProfile) {
+        this.defaultIndexingProfile = Preconditions.checkNotNull(defaultIndexingProfile);
+    }
+
+    /**
+     * @return the profile of the features without a specific indexing profile
+     * @since 0.8
+     */
+    public IndexingProfile getDefaultIndexingProfile() {
+        return defaultIndexingProfile;
+    }
+
+    /**
+     * Sets the directions in which the values of the given feature are indexed. Profiles requested by the clients of
+     * the index, such as the pattern matcher, may extend the directions, but never restrict them.
+     * 
+     * @param feature
+     *            the feature to index with the given profile
+     * @param profile
+     *            the indexing profile of the feature, or null to use the default profile
+     * @since 0.8
+     */
+    public void setIndexingProfile(EStructuralFeature feature, IndexingProfile profile) {
+        if (profile == null) {
+            indexingProfiles.remove(feature);
+        } else {
+            indexingProfiles.put(feature, profile);
+        }
+    }
+
+    /**
+     * @return the indexing profiles set for specific features
+     * @since 0.8
+     */
+    public Map<EStructuralFeature, IndexingProfile> getIndexingProfiles() {
+        return Collections.unmodifiableMap(indexingProfiles);
+    }
+
     /**
      * Creates an independent copy of itself. The values of each option will be the same as this options. This method is
      * used when a provided option must be copied to avoid external option changes afterward.
@@ -106,6 +239,11 @@ public class BaseIndexOptions {
     public BaseIndexOptions copy() {
         BaseIndexOptions baseIndexOptions = new BaseIndexOptions(this.dynamicEMFMode, this.wildcardMode);
         baseIndexOptions.traverseOnlyWellBehavingDerivedFeatures = this.traverseOnlyWellBehavingDerivedFeatures;
+        baseIndexOptions.warmStartSnapshot = this.warmStartSnapshot;
+        baseIndexOptions.traversalThreadCount = this.traversalThreadCount;
+        baseIndexOptions.compactStorage = this.compactStorage;
+        baseIndexOptions.defaultIndexingProfile = this.defaultIndexingProfile;
+        baseIndexOptions.indexingProfiles = new HashMap<EStructuralFeature, IndexingProfile>(this.indexingProfiles);
         return baseIndexOptions;
     }
 
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.base.api;
+
+/**
+ * Determines in which directions the values of an indexed {@link org.eclipse.emf.ecore.EStructuralFeature} are stored
+ * by the base index, see {@link BaseIndexOptions#setIndexingProfile(org.eclipse.emf.ecore.EStructuralFeature,
+ * IndexingProfile)}.
+ *
+ * <p>
+ * The <em>forward</em> direction maps holders to their values, serving e.g.
+ * {@link NavigationHelper#getFeatureTargets(org.eclipse.emf.ecore.EObject, org.eclipse.emf.ecore.EStructuralFeature)}
+ * ; the <em>inverse</em> direction maps values to their holders, serving e.g.
+ * {@link NavigationHelper#findByFeatureValue(Object, org.eclipse.emf.ecore.EStructuralFeature)}. The instances of the
+ * feature can be enumerated in either direction. The number of values and the set of holders of the feature are
+ * available with any profile.
+ *
+ * <p>
+ * If a feature is queried in a direction that is not indexed, its profile is extended, and the missing direction is
+ * built from the other one. This is not possible for features indexed as {@link #COUNT_ONLY}, which throw
+ * {@link IllegalStateException} instead.
+ *
+ * @author Gabor Bergmann
+ * @since 0.8
+ */
+public enum IndexingProfile {
+
+    /**
+     * Only the number of values and the holders of the feature are indexed; the values can not be enumerated.
+     * Derived features that can only be sampled (see
+     * {@link org.eclipse.incquery.runtime.base.comprehension.EMFModelComprehension#onlySamplingFeature(org.eclipse.emf.ecore.EStructuralFeature)})
+     * are indexed as {@link #FORWARD_ONLY} instead, as their old values are needed for resampling.
+     */
+    COUNT_ONLY(false, false),
+    /**
+     * The values are indexed by their holders.
+     */
+    FORWARD_ONLY(true, false),
+    /**
+     * The holders are indexed by the values.
+     */
+    INVERSE_ONLY(false, true),
+    /**
+     * The values are indexed in both directions.
+     */
+    BOTH(true, true);
+
+    private final boolean forward;
+    private final boolean inverse;
+
+    private IndexingProfile(boolean forward, boolean inverse) {
+        this.forward = forward;
+        this.inverse = inverse;
+    }
+
+    /**
+     * @return whether the values of the feature are indexed by their holders
+     */
+    public boolean isForward() {
+        return forward;
+    }
+
+    /**
+     * @return whether the holders of the feature are indexed by the values
+     */
+    public boolean isInverse() {
+        return inverse;
+    }
+
+    /**
+     * @return the narrowest profile that indexes the directions of both this and the other profile
+     */
+    public IndexingProfile union(IndexingProfile other) {
+        return of(forward || other.forward, inverse || other.inverse);
+    }
+
+    /**
+     * @return the profile indexing exactly the given directions
+     */
+    public static IndexingProfile of(boolean forward, boolean inverse) {
+        if (forward) {
+            return inverse ? BOTH : FORWARD_ONLY;
+        } else {
+            return inverse ? INVERSE_ONLY : COUNT_ONLY;
+        }
+    }
+
+}
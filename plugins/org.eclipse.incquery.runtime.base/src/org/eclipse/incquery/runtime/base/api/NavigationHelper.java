@@ -11,6 +11,8 @@
 
 package org.eclipse.incquery.runtime.base.api;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.Map;
@@ -110,7 +112,7 @@ public interface NavigationHelper {
      * <p>
      * <strong>Precondition:</strong> Will only find those EAttributes that have already been registered using
      * {@link #registerEStructuralFeatures(Set)}, unless running in <em>wildcard mode</em> (see
-     * {@link #isInWildcardMode()}).
+     * {@link #isInWildcardMode()}). EAttributes indexed as {@link IndexingProfile#COUNT_ONLY} are not found.
      * 
      * @param value
      *            the value of the attribute
@@ -239,7 +241,7 @@ public interface NavigationHelper {
      * <p>
      * <strong>Precondition:</strong> Results will be returned only for those references that have already been
      * registered using {@link #registerEStructuralFeatures(Set)}, or all references if running in
-     * <em>wildcard mode</em> (see {@link #isInWildcardMode()}).
+     * <em>wildcard mode</em> (see {@link #isInWildcardMode()}). References indexed as {@link IndexingProfile#COUNT_ONLY} are not found.
      * 
      * @param target
      *            the EObject pointed to by the references
@@ -356,6 +358,76 @@ public interface NavigationHelper {
      */
     public Set<EObject> getHoldersOfFeature(EStructuralFeature feature);
 
+    /**
+     * Tells whether the instances of the given {@link EClass} are fully indexed, i.e. whether
+     * {@link #getAllInstances(EClass)} and {@link #countAllInstances(EClass)} reflect the contents of the model. This is
+     * the case if the EClass (or any superclass) has been registered and the model has been traversed to gather its
+     * instances, or if running in <em>wildcard mode</em>.
+     * 
+     * @param clazz
+     *            an EClass
+     * @return true if the instances of the EClass are available from the index
+     * @since 0.8
+     */
+    public boolean isIndexed(EClass clazz);
+
+    /**
+     * Tells whether the values of the given feature are fully indexed, i.e. whether {@link #getHoldersOfFeature(EStructuralFeature)}
+     * and {@link #countFeatureValues(EStructuralFeature)} reflect the contents of the model. This is the case if the
+     * feature has been registered and the model has been traversed to gather its values, or if running in
+     * <em>wildcard mode</em>.
+     * 
+     * @param feature
+     *            a structural feature
+     * @return true if the values of the feature are available from the index
+     * @since 0.8
+     */
+    public boolean isIndexed(EStructuralFeature feature);
+
+    /**
+     * Returns the number of {@link EObject} instances of the given {@link EClass}, including instances of subclasses.
+     * Equivalent to, but cheaper than <code>getAllInstances(clazz).size()</code>.
+     * 
+     * <p>
+     * <strong>Precondition:</strong> Same as {@link #getAllInstances(EClass)}; see also {@link #isIndexed(EClass)}.
+     * 
+     * @param clazz
+     *            an EClass
+     * @return the number of instances of the given EClass and any of its subclasses
+     * @since 0.8
+     */
+    public int countAllInstances(EClass clazz);
+
+    /**
+     * Returns the number of (holder, value) pairs of the given feature, i.e. the number of edges in case of
+     * references.
+     * 
+     * <p>
+     * <strong>Precondition:</strong> Same as {@link #getHoldersOfFeature(EStructuralFeature)}; see also
+     * {@link #isIndexed(EStructuralFeature)}.
+     * 
+     * @param feature
+     *            a structural feature
+     * @return the number of non-null values of the feature, summed over all holders
+     * @since 0.8
+     */
+    public int countFeatureValues(EStructuralFeature feature);
+
+    /**
+     * Returns the number of distinct {@link EObject}s that have some value for the given feature. Equivalent to, but
+     * cheaper than <code>getHoldersOfFeature(feature).size()</code>.
+     * 
+     * <p>
+     * <strong>Precondition:</strong> Same as {@link #getHoldersOfFeature(EStructuralFeature)}; see also
+     * {@link #isIndexed(EStructuralFeature)}.
+     * 
+     * @param feature
+     *            a structural feature
+     * @return the number of holders of the feature
+     * @since 0.8
+     */
+    public int countHoldersOfFeature(EStructuralFeature feature);
+
     /**
      * Call this method to dispose the NavigationHelper. 
      * 
@@ -490,6 +562,34 @@ public interface NavigationHelper {
      */
     public void registerEStructuralFeatures(Set<? extends EStructuralFeature> features);
 
+    /**
+     * Manually turns on indexing for the given features, requesting that their values are indexed (at least) in the
+     * directions of the given profile. Features registered without a profile, or not registered at all, are indexed
+     * with the profile set in the {@link BaseIndexOptions}. Profiles are never restricted by a request: features that
+     * are already indexed in other directions as well will stay so.
+     * <b> Not usable in <em>wildcard mode</em>.</b>
+     * @throws IllegalStateException if in wildcard mode, or if the values of an already indexed feature have to be
+     *             indexed in a new direction, but the feature has been indexed as {@link IndexingProfile#COUNT_ONLY}
+     *
+     * @param features
+     *            the set of features to observe
+     * @param profile
+     *            the directions required by the caller
+     * @since 0.8
+     */
+    public void registerEStructuralFeatures(Set<? extends EStructuralFeature> features, IndexingProfile profile);
+
+    /**
+     * Returns the directions in which the values of the given feature are indexed, or would be indexed if it was
+     * registered without a profile.
+     *
+     * @param feature
+     *            the feature to check
+     * @return the current indexing profile of the feature
+     * @since 0.8
+     */
+    public IndexingProfile getIndexingProfile(EStructuralFeature feature);
+
     /**
      * Manually turns off indexing for the given features (indexing of other features are unaffected). Note that if the
      * unregistered features are re-registered later, the whole attached model needs to be visited again.
@@ -560,6 +660,47 @@ public interface NavigationHelper {
      */
     public <V> V coalesceTraversals(Callable<V> callable) throws InvocationTargetException;
 
+    /**
+     * Starts buffering feature value changes of the model: until the matching {@link #commitTransaction()}, changes
+     * notified on (holder, feature, value) triples are not applied to the index (and thus not delivered to the
+     * listeners), but collected instead, so that additions and removals of the same triple cancel out. Transactions may
+     * be nested; only the outermost commit flushes the buffered changes.
+     * 
+     * <p>
+     * While a transaction is in progress, the index may not reflect the latest feature values of the model. Changes of
+     * the containment hierarchy are still processed immediately, flushing the changes buffered so far.
+     * 
+     * @since 0.8
+     */
+    public void beginTransaction();
+
+    /**
+     * Ends the transaction started by the matching {@link #beginTransaction()}. If no other transaction is in progress,
+     * the net effect of the buffered changes is applied to the index and delivered to the listeners.
+     * 
+     * @throws IllegalStateException
+     *             if no transaction is in progress
+     * @since 0.8
+     */
+    public void commitTransaction();
+
+    /**
+     * Writes the current contents of the index into the given file, so that a later index on the same (unchanged)
+     * resources can be built from it instead of traversing the model, see
+     * {@link BaseIndexOptions#setWarmStartSnapshot(File)}.
+     * 
+     * <p>
+     * Only the contents of resources that are unmodified since they were loaded are written; the contents of other
+     * resources (and of EObjects that are not in a resource) will be traversed upon warm start.
+     * 
+     * @param file
+     *            the target file, overwritten if exists
+     * @throws IOException
+     *             if the snapshot could not be written
+     * @since 0.8
+     */
+    public void saveSnapshot(File file) throws IOException;
+
     /**
      * Adds a coarse-grained listener that will be invoked after the NavigationHelper index or the underlying model is changed. Can be used
      * e.g. to check model contents. Not intended for general use.
@@ -577,6 +718,27 @@ public interface NavigationHelper {
      * @param listener
      */
     public void removeBaseIndexChangeListener(IncQueryBaseIndexChangeListener listener);
+
+    /**
+     * Adds a callback that will be run after each update of the NavigationHelper index or the underlying model, before
+     * any {@link IncQueryBaseIndexChangeListener} is notified. Can be used e.g. to release resources held during the
+     * update. Not intended for general use.
+     * 
+     * <p/> See {@link #removeAfterUpdateCallback(Runnable)}
+     * @param callback
+     * @since 0.8
+     */
+    public void addAfterUpdateCallback(Runnable callback);
+
+    /**
+     * Removes a registered callback.
+     * 
+     * <p/> See {@link #addAfterUpdateCallback(Runnable)}
+     * 
+     * @param callback
+     * @since 0.8
+     */
+    public void removeAfterUpdateCallback(Runnable callback);
     
     /**
      * Adds an additional EMF model root.
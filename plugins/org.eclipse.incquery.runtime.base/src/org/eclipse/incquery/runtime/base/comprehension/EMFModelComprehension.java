@@ -166,12 +166,12 @@ public class EMFModelComprehension {
                 continue;
 
             if (feature.isMany()) {
-                Collection<?> targets = (Collection<?>) source.eGet(feature);
+                Collection<?> targets = (Collection<?>) source.eGet(feature, visitor.allowProxyResolution());
                 for (Object target : targets) {
                     traverseFeatureInternal(visitor, source, feature, target, visitorPrunes);
                 }
             } else {
-                Object target = source.eGet(feature);
+                Object target = source.eGet(feature, visitor.allowProxyResolution());
                 if (target != null)
                     traverseFeatureInternal(visitor, source, feature, target, visitorPrunes);
             }
@@ -107,6 +107,14 @@ public class EMFVisitor {
         return true;
     }
 
+    /**
+     * @return false if the values of the traversed features must be read without resolving proxies (e.g. because the
+     *         traversal runs concurrently with others); proxies are visited unresolved in this case
+     */
+    public boolean allowProxyResolution() {
+        return true;
+    }
+
 	/**
 	 * @return if objects should be visited before their outgoing edges
 	 */
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.base.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map optimized for memory usage when it has only a few entries, as the rows of the base index tables: most holders
+ * have only a few features set, and most values are held through a single feature. Up to {@link #ARRAY_LIMIT} entries
+ * are stored in parallel key and value arrays and looked up by linear search; larger maps are stored in a
+ * {@link HashMap}. The counterpart of {@link CompactSet} for the row maps of the tables.
+ *
+ * <p>
+ * Null keys and values are not permitted. Not thread-safe. Not part of the API, only public to be accessible to tests.
+ *
+ * @author Gabor Bergmann
+ */
+public final class CompactMap<K, V> extends AbstractMap<K, V> {
+
+    public static final int ARRAY_LIMIT = 8;
+
+    /**
+     * the keys and values in the first {@link #size} positions; null if the entries are stored in {@link #hashMap}
+     */
+    private Object[] keys = new Object[1];
+    private Object[] values = new Object[1];
+    private int size = 0;
+    private HashMap<K, V> hashMap = null;
+    private int modCount = 0;
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size; ++i) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return hashMap != null ? hashMap.containsKey(key) : key != null && indexOf(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (hashMap != null) {
+            return hashMap.get(key);
+        }
+        int index = key == null ? -1 : indexOf(key);
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        if (hashMap != null) {
+            return hashMap.put(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            V old = value(index);
+            values[index] = value;
+            return old;
+        }
+        if (size == ARRAY_LIMIT) {
+            hashMap = new HashMap<K, V>(ARRAY_LIMIT * 4);
+            for (int i = 0; i < size; ++i) {
+                hashMap.put(key(i), value(i));
+            }
+            hashMap.put(key, value);
+            keys = null;
+            values = null;
+            size = 0;
+        } else {
+            if (size == keys.length) {
+                int capacity = Math.min(ARRAY_LIMIT, size * 2);
+                Object[] grownKeys = new Object[capacity];
+                Object[] grownValues = new Object[capacity];
+                System.arraycopy(keys, 0, grownKeys, 0, size);
+                System.arraycopy(values, 0, grownValues, 0, size);
+                keys = grownKeys;
+                values = grownValues;
+            }
+            keys[size] = key;
+            values[size++] = value;
+        }
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (hashMap != null) {
+            return hashMap.remove(key);
+        }
+        int index = key == null ? -1 : indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V old = value(index);
+        removeAt(index);
+        return old;
+    }
+
+    private void removeAt(int index) {
+        // the order of the entries is irrelevant, so the last one is moved to the gap
+        keys[index] = keys[--size];
+        values[index] = values[size];
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int index) {
+        return (K) keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int index) {
+        return (V) values[index];
+    }
+
+    @Override
+    public int size() {
+        return hashMap != null ? hashMap.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        hashMap = null;
+        keys = new Object[1];
+        values = new Object[1];
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return hashMap != null ? hashMap.entrySet().iterator() : new ArrayEntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Iterates the entries stored in the arrays; fails fast if the map is modified other than through the iterator,
+     * including when it switches to hash based storage.
+     */
+    private final class ArrayEntryIterator implements Iterator<Entry<K, V>> {
+
+        private int next = 0;
+        private int expectedModCount = modCount;
+        private boolean removable = false;
+
+        @Override
+        public boolean hasNext() {
+            checkForComodification();
+            return next < size;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            checkForComodification();
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            removable = true;
+            final int index = next++;
+            final int entryModCount = modCount;
+            return new SimpleEntry<K, V>(key(index), value(index)) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public V setValue(V value) {
+                    if (value == null) {
+                        throw new NullPointerException();
+                    }
+                    if (entryModCount != modCount) {
+                        // the entry may have been moved or removed since
+                        throw new ConcurrentModificationException();
+                    }
+                    values[index] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (!removable) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removable = false;
+            // the last entry is moved to the removed position, which has to be visited again
+            removeAt(--next);
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+}
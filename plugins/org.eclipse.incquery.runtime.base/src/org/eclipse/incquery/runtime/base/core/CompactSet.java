@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.base.core;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set optimized for memory usage when it has only a few elements, as most holder and value sets of the base index.
+ * Up to {@link #ARRAY_LIMIT} elements are stored in an array and looked up by linear search; larger sets are stored in a
+ * {@link HashSet}. A single element costs about a quarter of the memory of a {@link HashSet}.
+ *
+ * <p>
+ * Null elements are not permitted. Not thread-safe. Not part of the API, only public to be accessible to tests.
+ *
+ * @author Gabor Bergmann
+ */
+public final class CompactSet<E> extends AbstractSet<E> {
+
+    public static final int ARRAY_LIMIT = 8;
+
+    /**
+     * the elements in the first {@link #size} positions; null if the elements are stored in {@link #hashSet}
+     */
+    private Object[] elements = new Object[1];
+    private int size = 0;
+    private HashSet<E> hashSet = null;
+    private int modCount = 0;
+
+    private int indexOf(Object o) {
+        for (int i = 0; i < size; ++i) {
+            if (elements[i].equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return hashSet != null ? hashSet.contains(o) : o != null && indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean add(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (hashSet != null) {
+            return hashSet.add(e);
+        }
+        if (indexOf(e) >= 0) {
+            return false;
+        }
+        if (size == ARRAY_LIMIT) {
+            hashSet = new HashSet<E>(ARRAY_LIMIT * 4);
+            for (int i = 0; i < size; ++i) {
+                hashSet.add(element(i));
+            }
+            hashSet.add(e);
+            elements = null;
+            size = 0;
+        } else {
+            if (size == elements.length) {
+                Object[] grown = new Object[Math.min(ARRAY_LIMIT, size * 2)];
+                System.arraycopy(elements, 0, grown, 0, size);
+                elements = grown;
+            }
+            elements[size++] = e;
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (hashSet != null) {
+            return hashSet.remove(o);
+        }
+        int index = o == null ? -1 : indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    private void removeAt(int index) {
+        // the order of the elements is irrelevant, so the last one is moved to the gap
+        elements[index] = elements[--size];
+        elements[size] = null;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E element(int index) {
+        return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return hashSet != null ? hashSet.size() : size;
+    }
+
+    @Override
+    public void clear() {
+        hashSet = null;
+        elements = new Object[1];
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        if (hashSet != null) {
+            return hashSet.iterator();
+        }
+        return new Iterator<E>() {
+
+            private int next = 0;
+            private int expectedModCount = modCount;
+            private boolean removable = false;
+
+            @Override
+            public boolean hasNext() {
+                // fails fast instead of reporting the end if the elements were moved to a hash set meanwhile
+                checkForComodification();
+                return next < size;
+            }
+
+            @Override
+            public E next() {
+                checkForComodification();
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                removable = true;
+                return element(next++);
+            }
+
+            @Override
+            public void remove() {
+                if (!removable) {
+                    throw new IllegalStateException();
+                }
+                checkForComodification();
+                removable = false;
+                // the last element is moved to the removed position, which has to be visited again
+                removeAt(--next);
+                expectedModCount = modCount;
+            }
+
+            private void checkForComodification() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+}
@@ -12,8 +12,10 @@ package org.eclipse.incquery.runtime.base.core;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -39,6 +41,7 @@ import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.util.EContentAdapter;
 import org.eclipse.incquery.runtime.base.api.DataTypeListener;
 import org.eclipse.incquery.runtime.base.api.FeatureListener;
+import org.eclipse.incquery.runtime.base.api.IndexingProfile;
 import org.eclipse.incquery.runtime.base.api.InstanceListener;
 import org.eclipse.incquery.runtime.base.api.LightweightEObjectObserver;
 import org.eclipse.incquery.runtime.base.comprehension.EMFModelComprehension;
@@ -47,6 +50,7 @@ import org.eclipse.incquery.runtime.base.exception.IncQueryBaseException;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.HashMultiset;
@@ -56,6 +60,7 @@ import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.collect.Table.Cell;
+import com.google.common.collect.Tables;
 
 public class NavigationHelperContentAdapter extends EContentAdapter {
 
@@ -70,18 +75,30 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
 
     /**
      *  value -> feature (EAttribute or EReference) -> holder(s)
+     *  only for the features indexed in the inverse direction
      */
     private final Table<Object, Object, Set<EObject>> valueToFeatureToHolderMap;
 
     /** feature ((String id or EStructuralFeature) -> holder(s)
-     *  constructed on-demand
+     *  constructed on-demand, except for the features indexed as count-only
      */
-    private Map<Object, Multiset<EObject>> featureToHolderMap;
+    private final Map<Object, Multiset<EObject>> featureToHolderMap;
+    /**
+     *  whether the featureToHolderMap has been constructed for all features
+     */
+    private boolean featureToHolderMapComplete = false;
 
     /** holder -> feature (String id or EStructuralFeature) -> value(s)
-     *  constructed on-demand
+     *  only for the features indexed in the forward direction
+     */
+    private final Table<EObject, Object, Set<Object>> holderToFeatureToValueMap;
+
+    /**
+     *  feature (String id or EStructuralFeature) -> directions in which its values are indexed;
+     *  features without an entry have no values in the index yet, and are indexed with the default profile
      */
-    private Table<EObject, Object, Set<Object>> holderToFeatureToValueMap;
+    private final Map<Object, IndexingProfile> featureProfiles = new HashMap<Object, IndexingProfile>();
+    private final IndexingProfile defaultIndexingProfile;
 
     /**
      *  key (String id or EClass instance) -> instance(s)
@@ -133,14 +150,37 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
 
     private final EMFModelComprehension comprehension;
     private final boolean isDynamicModel;
+    /**
+     * if true, the sets of the index tables are {@link CompactSet}s and the rows of the tables are {@link CompactMap}s
+     */
+    private final boolean compactStorage;
+
+    /**
+     *  nesting depth of transactions in progress; feature updates are buffered while positive
+     */
+    private int transactionDepth = 0;
+
+    /**
+     *  buffered feature update -> net number of insertions (negative for removals), in the order of first occurrence
+     */
+    private final Map<BufferedFeatureUpdate, Integer> bufferedFeatureUpdates = new LinkedHashMap<BufferedFeatureUpdate, Integer>();
 
     public NavigationHelperContentAdapter(final NavigationHelperImpl navigationHelper) {
         this.navigationHelper = navigationHelper;
         this.comprehension = navigationHelper.getComprehension();
         this.isDynamicModel = navigationHelper.getBaseIndexOptions().isDynamicEMFMode();
-        this.valueToFeatureToHolderMap = HashBasedTable.create();
+        this.compactStorage = navigationHelper.getBaseIndexOptions().isCompactStorage();
+        this.valueToFeatureToHolderMap = createTable();
+        this.featureToHolderMap = new HashMap<Object, Multiset<EObject>>();
+        this.holderToFeatureToValueMap = createTable();
         this.instanceMap = new HashMap<Object, Set<EObject>>();
         this.dataTypeMap = new HashMap<Object, Map<Object, Integer>>();
+        this.defaultIndexingProfile = navigationHelper.getBaseIndexOptions().getDefaultIndexingProfile();
+        for (Entry<EStructuralFeature, IndexingProfile> entry : navigationHelper.getBaseIndexOptions()
+                .getIndexingProfiles().entrySet()) {
+            final Object featureKey = toKey(entry.getKey());
+            featureProfiles.put(featureKey, samplableProfile(featureKey, entry.getValue()));
+        }
     }
 
     // key representative of the EObject class
@@ -202,6 +242,7 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
 
             final Object oFeature = notification.getFeature();
             final Object oNotifier = notification.getNotifier();
+            invalidateWarmStartSnapshot(notification, oNotifier);
             if (oNotifier instanceof EObject && oFeature instanceof EStructuralFeature) {
                 final EObject notifier = (EObject) oNotifier;
                 final EStructuralFeature feature = (EStructuralFeature) oFeature;
@@ -220,6 +261,27 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
 
     }
 
+    /**
+     * Discards the warm start snapshot of the resource whose contents have been changed by the notification.
+     */
+    private void invalidateWarmStartSnapshot(final Notification notification, final Object oNotifier) {
+        final int eventType = notification.getEventType();
+        if (eventType == Notification.RESOLVE || eventType == Notification.REMOVING_ADAPTER || notification.isTouch()) {
+            return;
+        }
+        Resource resource = null;
+        if (oNotifier instanceof EObject) {
+            resource = ((EObject) oNotifier).eResource();
+        } else if (oNotifier instanceof Resource
+                && notification.getFeatureID(Resource.class) == Resource.RESOURCE__CONTENTS) {
+            resource = (Resource) oNotifier;
+        }
+        // contents being loaded are described by the time stamp of the resource
+        if (resource != null && !(resource instanceof Resource.Internal && ((Resource.Internal) resource).isLoading())) {
+            navigationHelper.invalidateWarmStartSnapshot(resource);
+        }
+    }
+
     @SuppressWarnings("deprecation")
     private boolean handleNotification(final Notification notification, final EObject notifier,
             final EStructuralFeature feature) {
@@ -276,15 +338,107 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
     }
 
     private void featureUpdate(final boolean isInsertion, final EObject notifier, final EStructuralFeature feature, final Object value) {
-        // this is a safe visitation, no reads will happen, thus no danger of notifications or matcher construction
-        comprehension.traverseFeature(visitor(isInsertion), notifier, feature, value);
+        if (transactionDepth > 0) {
+            bufferFeatureUpdate(isInsertion, notifier, feature, value);
+        } else {
+            // this is a safe visitation, no reads will happen, thus no danger of notifications or matcher construction
+            comprehension.traverseFeature(visitor(isInsertion), notifier, feature, value);
+        }
+    }
+
+    // START ********* Transactions *********
+    public void beginTransaction() {
+        transactionDepth++;
+    }
+
+    public void commitTransaction() {
+        Preconditions.checkState(transactionDepth > 0, "No transaction in progress");
+        if (--transactionDepth == 0) {
+            flushBufferedFeatureUpdates();
+            notifyBaseIndexChangeListeners();
+        }
+    }
+
+    private void bufferFeatureUpdate(final boolean isInsertion, final EObject holder, final EStructuralFeature feature, final Object value) {
+        if (value == null) {
+            return; // not traversed anyway
+        }
+        final BufferedFeatureUpdate update = new BufferedFeatureUpdate(holder, feature, value);
+        final Integer oldCount = bufferedFeatureUpdates.get(update);
+        final int count = (oldCount == null ? 0 : oldCount) + (isInsertion ? 1 : -1);
+        if (count == 0) {
+            bufferedFeatureUpdates.remove(update);
+        } else {
+            bufferedFeatureUpdates.put(update, count);
+        }
+    }
+
+    /**
+     * Applies the net effect of the feature updates buffered by the transaction in progress, if any.
+     * Must be called before reading the model to update the index, so that the index does not lag behind the model.
+     */
+    public void flushBufferedFeatureUpdates() {
+        if (bufferedFeatureUpdates.isEmpty()) {
+            return;
+        }
+        // copy, as the flush may trigger further notifications
+        final Map<BufferedFeatureUpdate, Integer> updates =
+                new LinkedHashMap<BufferedFeatureUpdate, Integer>(bufferedFeatureUpdates);
+        bufferedFeatureUpdates.clear();
+        for (final Entry<BufferedFeatureUpdate, Integer> entry : updates.entrySet()) {
+            final BufferedFeatureUpdate update = entry.getKey();
+            final int count = entry.getValue();
+            try {
+                for (int i = Math.abs(count); i > 0; --i) {
+                    comprehension.traverseFeature(visitor(count > 0), update.holder, update.feature, update.value);
+                }
+            } catch (final Exception ex) {
+                processingFatal(ex, "flush the buffered update of feature " + update.feature.getName() + " of "
+                        + update.holder + " to the value " + update.value);
+            }
+        }
+    }
+
+    /**
+     * A (holder, feature, value) triple whose update is buffered by a transaction.
+     */
+    private static final class BufferedFeatureUpdate {
+        private final EObject holder;
+        private final EStructuralFeature feature;
+        private final Object value;
+
+        public BufferedFeatureUpdate(final EObject holder, final EStructuralFeature feature, final Object value) {
+            this.holder = holder;
+            this.feature = feature;
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(holder, feature, value);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof BufferedFeatureUpdate)) {
+                return false;
+            }
+            final BufferedFeatureUpdate other = (BufferedFeatureUpdate) obj;
+            return holder == other.holder && feature == other.feature && Objects.equal(value, other.value);
+        }
     }
+    // END ********* Transactions *********
 
     @Override
     protected void addAdapter(final Notifier notifier) {
         if (notifier == ignoreInsertionAndDeletion) {
             return;
         }
+        // the traversal below reads the current model, so the index must not lag behind it
+        flushBufferedFeatureUpdates();
         try {
             this.navigationHelper.coalesceTraversals(new Callable<Void>() {
                 @Override
@@ -310,6 +464,7 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
         if (notifier == ignoreInsertionAndDeletion) {
             return;
         }
+        flushBufferedFeatureUpdates();
         try {
             this.navigationHelper.coalesceTraversals(new Callable<Void>() {
                 @Override
@@ -344,6 +499,29 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
         return new NavigationHelperVisitor.ChangeVisitor(navigationHelper, isInsertion);
     }
 
+    /**
+     * Creates a set for the index tables, according to the storage option.
+     */
+    private <T> Set<T> createSet() {
+        return compactStorage ? new CompactSet<T>() : new HashSet<T>();
+    }
+
+    /**
+     * Creates an index table according to the storage option; with compact storage, the rows are {@link CompactMap}s,
+     * as most holders have only a few features set and most values are held through a single feature.
+     */
+    private <R, C, V> Table<R, C, V> createTable() {
+        if (!compactStorage) {
+            return HashBasedTable.create();
+        }
+        return Tables.newCustomTable(new HashMap<R, Map<C, V>>(), new Supplier<Map<C, V>>() {
+            @Override
+            public Map<C, V> get() {
+                return new CompactMap<C, V>();
+            }
+        });
+    }
+
     /**
      * This method uses the original {@link EStructuralFeature} instance or the String id.
      */
@@ -351,7 +529,7 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
         Set<EObject> setVal = valueToFeatureToHolderMap.get(value, featureKey);
 
         if (setVal == null) {
-            setVal = new HashSet<EObject>();
+            setVal = createSet();
             valueToFeatureToHolderMap.put(value, featureKey, setVal);
 
         }
@@ -378,7 +556,7 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
         Set<Object> setVal = holderToFeatureToValueMap.get(holder, feature);
 
         if (setVal == null) {
-            setVal = new HashSet<Object>();
+            setVal = createSet();
             holderToFeatureToValueMap.put(holder, feature, setVal);
         }
         setVal.add(value);
@@ -422,17 +600,24 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
             setVal.remove(value);
 
             if (setVal.isEmpty()) {
-                valueToFeatureToHolderMap.remove(holder, feature);
+                holderToFeatureToValueMap.remove(holder, feature);
             }
         }
     }
 
     public void insertFeatureTuple(final Object featureKey, final Object value, final EObject holder) {
-        addToFeatureMap(featureKey, value, holder);
-        if (featureToHolderMap != null) {
+        IndexingProfile profile = featureProfiles.get(featureKey);
+        if (profile == null) {
+            profile = samplableProfile(featureKey, defaultIndexingProfile);
+            featureProfiles.put(featureKey, profile);
+        }
+        if (profile.isInverse()) {
+            addToFeatureMap(featureKey, value, holder);
+        }
+        if (featureToHolderMapComplete || profile == IndexingProfile.COUNT_ONLY) {
             addToReversedFeatureMap(featureKey, holder);
         }
-        if (holderToFeatureToValueMap != null) {
+        if (profile.isForward()) {
             addToDirectFeatureMap(holder, featureKey, value);
         }
 
@@ -441,11 +626,14 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
     }
 
     public void removeFeatureTuple(final Object featureKey, final Object value, final EObject holder) {
-        removeFromFeatureMap(featureKey, value, holder);
-        if (featureToHolderMap != null) {
+        final IndexingProfile profile = getIndexingProfile(featureKey);
+        if (profile.isInverse()) {
+            removeFromFeatureMap(featureKey, value, holder);
+        }
+        if (featureToHolderMapComplete || profile == IndexingProfile.COUNT_ONLY) {
             removeFromReversedFeatureMap(featureKey, holder);
         }
-        if (holderToFeatureToValueMap != null) {
+        if (profile.isForward()) {
             removeFromDirectFeatureMap(holder, featureKey, value);
         }
 
@@ -454,6 +642,13 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
     }
 
     // START ********* InstanceSet *********
+    /**
+     * @return the instanceMap
+     */
+    protected Map<Object, Set<EObject>> getInstanceMap() {
+        return instanceMap;
+    }
+
     public Set<EObject> getInstanceSet(final Object keyClass) {
         return instanceMap.get(keyClass);
     }
@@ -465,7 +660,7 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
     public void insertIntoInstanceSet(final Object keyClass, final EObject value) {
         Set<EObject> set = instanceMap.get(keyClass);
         if (set == null) {
-            set = new HashSet<EObject>();
+            set = createSet();
             instanceMap.put(keyClass, set);
         }
         set.add(value);
@@ -694,19 +889,141 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
                 addToReversedFeatureMap(feature, holder);
             }
         }
+        // features indexed only in the forward direction
+        for (final Cell<EObject, Object, Set<Object>> holderToFeatureValueMap : holderToFeatureToValueMap.cellSet()) {
+            final Object feature = holderToFeatureValueMap.getColumnKey();
+            if (getIndexingProfile(feature) == IndexingProfile.FORWARD_ONLY) {
+                for (int i = 0; i < holderToFeatureValueMap.getValue().size(); ++i) {
+                    addToReversedFeatureMap(feature, holderToFeatureValueMap.getRowKey());
+                }
+            }
+        }
     }
 
-    private void initDirectFeatureMap() {
-        for (final Cell<Object, Object, Set<EObject>> valueToFeatureHolderMap : valueToFeatureToHolderMap
-                .cellSet()) {
-            final Object value = valueToFeatureHolderMap.getRowKey();
-            final Object feature = valueToFeatureHolderMap.getColumnKey();
-            for (final EObject holder : valueToFeatureHolderMap.getValue()) {
-                addToDirectFeatureMap(holder, feature, value);
+    /**
+     * @return the directions in which the values of the feature are indexed
+     */
+    public IndexingProfile getIndexingProfile(final Object featureKey) {
+        final IndexingProfile profile = featureProfiles.get(featureKey);
+        return profile == null ? samplableProfile(featureKey, defaultIndexingProfile) : profile;
+    }
+
+    /**
+     * Features that can only be sampled are resampled by comparing their current values with the indexed ones, so
+     * they are indexed in the forward direction instead of being only counted.
+     */
+    private IndexingProfile samplableProfile(final Object featureKey, final IndexingProfile profile) {
+        if (profile == IndexingProfile.COUNT_ONLY) {
+            final EStructuralFeature feature = getKnownFeatureForKey(featureKey);
+            if (feature != null && comprehension.onlySamplingFeature(feature)) {
+                return IndexingProfile.FORWARD_ONLY;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Extends the indexing profile of the feature with the given directions. If the feature has no values in the
+     * index yet, and has no profile set, the profile is set instead of extending the default one.
+     *
+     * @throws IllegalStateException
+     *             if new directions are requested for a feature that has values indexed as count-only
+     */
+    public void requestIndexingProfile(final Object featureKey, final IndexingProfile profile) {
+        final IndexingProfile current = featureProfiles.get(featureKey);
+        if (current == null) {
+            featureProfiles.put(featureKey, samplableProfile(featureKey, profile));
+        } else {
+            extendIndexingProfile(featureKey, current, current.union(profile));
+        }
+    }
+
+    /**
+     * Makes sure that the values of the feature are indexed by their holders, building the direction if needed.
+     *
+     * @throws IllegalStateException
+     *             if the feature has values indexed as count-only
+     */
+    public void ensureForwardIndexed(final Object featureKey) {
+        final IndexingProfile current = featureProfiles.get(featureKey);
+        if (current != null && !current.isForward()) {
+            extendIndexingProfile(featureKey, current, current.union(IndexingProfile.FORWARD_ONLY));
+        }
+    }
+
+    /**
+     * Makes sure that the holders of the feature are indexed by the values, building the direction if needed.
+     *
+     * @throws IllegalStateException
+     *             if the feature has values indexed as count-only
+     */
+    public void ensureInverseIndexed(final Object featureKey) {
+        final IndexingProfile current = featureProfiles.get(featureKey);
+        if (current != null && !current.isInverse()) {
+            extendIndexingProfile(featureKey, current, current.union(IndexingProfile.INVERSE_ONLY));
+        }
+    }
+
+    /**
+     * Makes sure that the holders of all features are indexed by the values, except for the features indexed as
+     * count-only; used by queries that are not restricted to given features.
+     */
+    public void ensureInverseIndexedForAllFeatures() {
+        for (final Object featureKey : new ArrayList<Object>(featureProfiles.keySet())) {
+            if (featureProfiles.get(featureKey) == IndexingProfile.FORWARD_ONLY) {
+                extendIndexingProfile(featureKey, IndexingProfile.FORWARD_ONLY, IndexingProfile.BOTH);
+            }
+        }
+    }
+
+    /**
+     * @return whether the index contains the values of a feature indexed as count-only
+     */
+    public boolean hasCountOnlyValues() {
+        for (final Entry<Object, IndexingProfile> entry : featureProfiles.entrySet()) {
+            if (entry.getValue() == IndexingProfile.COUNT_ONLY && featureToHolderMap.containsKey(entry.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void extendIndexingProfile(final Object featureKey, final IndexingProfile current,
+            final IndexingProfile extended) {
+        if (current == extended) {
+            return;
+        }
+        if (current == IndexingProfile.COUNT_ONLY && featureToHolderMap.containsKey(featureKey)) {
+            throw new IllegalStateException(String.format(
+                    "The values of feature %s are only counted by the index, they can not be indexed as %s.",
+                    featureKey, extended));
+        }
+        featureProfiles.put(featureKey, extended);
+        if (extended.isForward() && !current.isForward()) {
+            for (final Entry<Object, Set<EObject>> entry : valueToFeatureToHolderMap.column(featureKey).entrySet()) {
+                for (final EObject holder : entry.getValue()) {
+                    addToDirectFeatureMap(holder, featureKey, entry.getKey());
+                }
+            }
+        }
+        if (extended.isInverse() && !current.isInverse()) {
+            for (final Entry<EObject, Set<Object>> entry : holderToFeatureToValueMap.column(featureKey).entrySet()) {
+                for (final Object value : entry.getValue()) {
+                    addToFeatureMap(featureKey, value, entry.getKey());
+                }
             }
         }
     }
 
+    /**
+     * Removes all values of the feature from the index.
+     */
+    protected void clearFeature(final Object featureKey) {
+        valueToFeatureToHolderMap.column(featureKey).clear();
+        featureToHolderMap.remove(featureKey);
+        holderToFeatureToValueMap.column(featureKey).clear();
+    }
+
     // WORKAROUND for EContentAdapter bug
     // where proxy resolution during containment traversal would add a new
     // Resource to the ResourceSet (and thus the adapter)
@@ -775,6 +1092,8 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
     }
 
     /**
+     * Contains only the features indexed in the inverse direction, see {@link #ensureInverseIndexed(Object)}.
+     * 
      * @return the valueToFeatureToHolderMap
      */
     protected Table<Object, Object, Set<EObject>> getValueToFeatureToHolderMap() {
@@ -785,30 +1104,19 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
      * @return the featureToHolderMap
      */
     protected Map<Object, Multiset<EObject>> getFeatureToHolderMap() {
-        if (featureToHolderMap == null) {
-            featureToHolderMap = new HashMap<Object, Multiset<EObject>>();
+        if (!featureToHolderMapComplete) {
+            featureToHolderMapComplete = true;
             initReversedFeatureMap();
         }
         return featureToHolderMap;
     }
-    protected Map<Object, Multiset<EObject>> peekFeatureToHolderMap() {
-        return featureToHolderMap;
-    }
 
     /**
-     * Calling this method will construct the map for all holders and features,
-     * consuming significant memory!
+     * Contains only the features indexed in the forward direction, see {@link #ensureForwardIndexed(Object)}.
      * 
      * @return the holderToFeatureToValeMap
      */
     protected Table<EObject, Object, Set<Object>> getHolderToFeatureToValueMap() {
-        if (holderToFeatureToValueMap == null) {
-            holderToFeatureToValueMap = HashBasedTable.create();
-            initDirectFeatureMap();
-        }
-        return holderToFeatureToValueMap;
-    }
-    protected Table<EObject, Object, Set<Object>> peekHolderToFeatureToValueMap() {
         return holderToFeatureToValueMap;
     }
 
@@ -914,9 +1222,14 @@ public class NavigationHelperContentAdapter extends EContentAdapter {
     }
 
     private Set<Object> getOldValuesForHolderAndFeature(EObject source, EStructuralFeature feature) {
+        Object featureKey = toKey(feature);
+        if (getIndexingProfile(featureKey).isForward()) {
+            Set<Object> oldValues = holderToFeatureToValueMap.get(source, featureKey);
+            return oldValues == null ? new HashSet<Object>() : new HashSet<Object>(oldValues);
+        }
         // while this is slower than using the holderToFeatureToValueMap, we do not want to construct that to avoid
-        // memory overhead
-        Map<Object, Set<EObject>> oldValuesToHolders = valueToFeatureToHolderMap.column(feature);
+        // memory overhead; sampled features are never indexed as count-only, see samplableProfile()
+        Map<Object, Set<EObject>> oldValuesToHolders = valueToFeatureToHolderMap.column(featureKey);
         Set<Object> oldValues = new HashSet<Object>();
         for (Entry<Object, Set<EObject>> entry : oldValuesToHolders.entrySet()) {
             if(entry.getValue().contains(source)) {
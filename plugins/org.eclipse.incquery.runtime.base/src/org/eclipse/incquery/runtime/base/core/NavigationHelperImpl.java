@@ -12,6 +12,8 @@ package org.eclipse.incquery.runtime.base.core;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -19,10 +21,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.notify.Notifier;
@@ -47,6 +52,7 @@ import org.eclipse.incquery.runtime.base.api.IEClassifierProcessor.IEDataTypePro
 import org.eclipse.incquery.runtime.base.api.IEStructuralFeatureProcessor;
 import org.eclipse.incquery.runtime.base.api.IIndexingErrorListener;
 import org.eclipse.incquery.runtime.base.api.IncQueryBaseIndexChangeListener;
+import org.eclipse.incquery.runtime.base.api.IndexingProfile;
 import org.eclipse.incquery.runtime.base.api.InstanceListener;
 import org.eclipse.incquery.runtime.base.api.LightweightEObjectObserver;
 import org.eclipse.incquery.runtime.base.api.NavigationHelper;
@@ -58,6 +64,7 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class NavigationHelperImpl implements NavigationHelper {
 
@@ -70,6 +77,14 @@ public class NavigationHelperImpl implements NavigationHelper {
     protected NavigationHelperContentAdapter contentAdapter;
 
     private final Logger logger;
+    /**
+     * null if no warm start snapshot is used
+     */
+    private NavigationHelperSnapshot warmStartSnapshot;
+    /**
+     * Created on demand if resources are traversed in parallel
+     */
+    private ExecutorService traversalExecutor;
     
     // type object or String id
     protected Set<Object> directlyObservedClasses = new HashSet<Object>();
@@ -98,9 +113,9 @@ public class NavigationHelperImpl implements NavigationHelper {
     protected Set<Object> delayedDataTypes;
     
     /**
-     * These global listeners will be called after updates.
+     * These global callbacks will be run after updates, before the base index change listeners.
      */
-    //private final Set<Runnable> afterUpdateCallbacks;
+    private final Set<Runnable> afterUpdateCallbacks;
     private final Set<IncQueryBaseIndexChangeListener> baseIndexChangeListeners;
     private final Map<LightweightEObjectObserver, Collection<EObject>> lightweightObservers;
 
@@ -196,6 +211,7 @@ public class NavigationHelperImpl implements NavigationHelper {
         this.ignoreResolveNotificationFeatures = new HashSet<Object>();
         this.observedDataTypes = new HashSet<Object>();
         this.contentAdapter = new NavigationHelperContentAdapter(this);
+        this.afterUpdateCallbacks = new LinkedHashSet<Runnable>();
         this.baseIndexChangeListeners = new HashSet<IncQueryBaseIndexChangeListener>();
         this.errorListeners = new LinkedHashSet<IIndexingErrorListener>();
         
@@ -203,6 +219,16 @@ public class NavigationHelperImpl implements NavigationHelper {
         this.modelRoots = new HashSet<Notifier>();
         this.expansionAllowed = false;
         
+        File snapshotFile = baseIndexOptions.getWarmStartSnapshot();
+        if (snapshotFile != null) {
+            try {
+                this.warmStartSnapshot = NavigationHelperSnapshot.read(snapshotFile);
+            } catch (IOException e) {
+                logger.warn("EMF-IncQuery Base could not read the warm start snapshot " + snapshotFile
+                        + ", the model will be traversed instead.", e);
+            }
+        }
+        
         if (emfRoot != null) {
             addRootInternal(emfRoot);
         }
@@ -227,6 +253,11 @@ public class NavigationHelperImpl implements NavigationHelper {
         for (Notifier root : modelRoots) {
             contentAdapter.removeAdapter(root);
         }
+        if (traversalExecutor != null) {
+            traversalExecutor.shutdownNow();
+            traversalExecutor = null;
+        }
+        releaseWarmStartSnapshot();
     }
 
     @Override
@@ -242,6 +273,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public Set<Setting> findByAttributeValue(Object value) {
+        contentAdapter.ensureInverseIndexedForAllFeatures();
         Set<Setting> retSet = new HashSet<Setting>();
         Map<Object, Set<EObject>> valMap = contentAdapter.getValueToFeatureToHolderMap().row(value);
 
@@ -262,6 +294,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
         for (EAttribute attr : attributes) {
             Object feature = toKey(attr);
+            contentAdapter.ensureInverseIndexed(feature);
             if (valMap.get(feature) != null) {
                 for (EObject holder : valMap.get(feature)) {
                     retSet.add(new NavigationHelperSetting(attr, holder, value));
@@ -274,8 +307,9 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public Set<EObject> findByAttributeValue(Object value, EAttribute attribute) {
-        Map<Object, Set<EObject>> valMap = contentAdapter.getValueToFeatureToHolderMap().row(value);
         Object feature = toKey(attribute);
+        contentAdapter.ensureInverseIndexed(feature);
+        Map<Object, Set<EObject>> valMap = contentAdapter.getValueToFeatureToHolderMap().row(value);
         if (valMap.get(feature) == null) {
             return Collections.emptySet();
         } else {
@@ -285,7 +319,18 @@ public class NavigationHelperImpl implements NavigationHelper {
         
     @Override
     public void processAllFeatureInstances(EStructuralFeature feature, IEStructuralFeatureProcessor processor) {
-       final Map<Object, Set<EObject>> instanceMap = contentAdapter.getValueToFeatureToHolderMap().column(toKey(feature));
+        Object featureKey = toKey(feature);
+        if (contentAdapter.getIndexingProfile(featureKey) == IndexingProfile.FORWARD_ONLY) {
+            final Map<EObject, Set<Object>> instanceMap = contentAdapter.getHolderToFeatureToValueMap().column(featureKey);
+            for (Entry<EObject, Set<Object>> entry : instanceMap.entrySet()) {
+                for (Object target : entry.getValue()) {
+                    processor.process(feature, entry.getKey(), target);
+                }
+            }
+            return;
+        }
+        contentAdapter.ensureInverseIndexed(featureKey);
+        final Map<Object, Set<EObject>> instanceMap = contentAdapter.getValueToFeatureToHolderMap().column(featureKey);
         for (Entry<Object, Set<EObject>> entry : instanceMap.entrySet()) {
             for (EObject src : entry.getValue()) {
                 processor.process(feature, src, entry.getKey());
@@ -334,6 +379,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public Set<Setting> getInverseReferences(EObject target) {
+        contentAdapter.ensureInverseIndexedForAllFeatures();
         Set<Setting> retSet = new HashSet<Setting>();
         Map<Object, Set<EObject>> valMap = contentAdapter.getValueToFeatureToHolderMap().row(target);
 
@@ -354,6 +400,7 @@ public class NavigationHelperImpl implements NavigationHelper {
 
         for (EReference ref : references) {
             Object feature = toKey(ref);
+            contentAdapter.ensureInverseIndexed(feature);
             if (valMap.get(feature) != null) {
                 for (EObject source : valMap.get(feature)) {
                     retSet.add(new NavigationHelperSetting(ref, source, target));
@@ -367,6 +414,7 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Set<EObject> getInverseReferences(EObject target, EReference reference) {
         Object feature = toKey(reference);
+        contentAdapter.ensureInverseIndexed(feature);
         Map<Object, Set<EObject>> valMap = contentAdapter.getValueToFeatureToHolderMap().row(target);
         if (valMap.get(feature) == null) {
             return Collections.emptySet();
@@ -385,6 +433,7 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Set<Object> getFeatureTargets(EObject source, EStructuralFeature _feature) {
         Object feature = toKey(_feature);
+        contentAdapter.ensureForwardIndexed(feature);
         final Set<Object> valSet = contentAdapter.getHolderToFeatureToValueMap().get(source, feature);
         if (valSet == null) {
             return Collections.emptySet();
@@ -396,6 +445,7 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Map<EObject, Set<Object>> getFeatureInstances(EStructuralFeature _feature) {
         Object feature = toKey(_feature);
+        contentAdapter.ensureForwardIndexed(feature);
     	final Map<EObject, Set<Object>> valMap = contentAdapter.getHolderToFeatureToValueMap().column(feature);
         if (valMap == null) {
             return Collections.emptyMap();
@@ -447,6 +497,7 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Set<EObject> findByFeatureValue(Object value, EStructuralFeature _feature) {
         Object feature = toKey(_feature);
+        contentAdapter.ensureInverseIndexed(feature);
         Set<EObject> retSet = new HashSet<EObject>();
         Map<Object, Set<EObject>> valMap = contentAdapter.getValueToFeatureToHolderMap().row(value);
         if (valMap.get(feature) != null) {
@@ -466,6 +517,52 @@ public class NavigationHelperImpl implements NavigationHelper {
         }
     }
 
+    @Override
+    public boolean isIndexed(EClass clazz) {
+        return isObservedInternal(toKey(clazz));
+    }
+
+    @Override
+    public boolean isIndexed(EStructuralFeature feature) {
+        return inWildcardMode || observedFeatures.contains(toKey(feature));
+    }
+
+    @Override
+    public int countAllInstances(EClass type) {
+        int count = 0;
+
+        Object typeKey = toKey(type);
+        Set<Object> subTypes = contentAdapter.getSubTypeMap().get(typeKey);
+        if (subTypes != null) {
+            for (Object subTypeKey : subTypes) {
+                final Set<EObject> instances = contentAdapter.getInstanceSet(subTypeKey);
+                if (instances != null) {
+                    count += instances.size();
+                }
+            }
+        }
+        final Set<EObject> instances = contentAdapter.getInstanceSet(typeKey);
+        if (instances != null) {
+            count += instances.size();
+        }
+
+        return count;
+    }
+
+    @Override
+    public int countFeatureValues(EStructuralFeature _feature) {
+        Object feature = toKey(_feature);
+        Multiset<EObject> holders = contentAdapter.getFeatureToHolderMap().get(feature);
+        return holders == null ? 0 : holders.size();
+    }
+
+    @Override
+    public int countHoldersOfFeature(EStructuralFeature _feature) {
+        Object feature = toKey(_feature);
+        Multiset<EObject> holders = contentAdapter.getFeatureToHolderMap().get(feature);
+        return holders == null ? 0 : holders.elementSet().size();
+    }
+
     @Override
     public void addInstanceListener(Collection<EClass> classes, InstanceListener listener) {
         Set<EClass> registered = this.subscribedInstanceListeners.get(listener);
@@ -600,6 +697,16 @@ public class NavigationHelperImpl implements NavigationHelper {
      * This will run after updates.
      */
     protected void notifyBaseIndexChangeListeners(boolean baseIndexChanged) {
+        if (!afterUpdateCallbacks.isEmpty()) {
+            for (Runnable callback : new ArrayList<Runnable>(afterUpdateCallbacks)) {
+                try {
+                    callback.run();
+                } catch (Exception ex) {
+                    notifyFatalListener("EMF-IncQuery Base encountered an error in running a callback after an update. ",
+                            ex);
+                }
+            }
+        }
         if (!baseIndexChangeListeners.isEmpty()) {
             for (IncQueryBaseIndexChangeListener listener : new ArrayList<IncQueryBaseIndexChangeListener>(baseIndexChangeListeners)) {
                 try {
@@ -626,6 +733,18 @@ public class NavigationHelperImpl implements NavigationHelper {
         baseIndexChangeListeners.remove(listener);
     }
 
+    @Override
+    public void addAfterUpdateCallback(Runnable callback) {
+        checkArgument(callback != null, "Cannot add null callback!");
+        afterUpdateCallbacks.add(callback);
+    }
+
+    @Override
+    public void removeAfterUpdateCallback(Runnable callback) {
+        checkArgument(callback != null, "Cannot remove null callback!");
+        afterUpdateCallbacks.remove(callback);
+    }
+
     @Override
     public boolean addIndexingErrorListener(IIndexingErrorListener listener) {
         return errorListeners.add(listener);
@@ -853,6 +972,22 @@ public class NavigationHelperImpl implements NavigationHelper {
         }
     }
 
+    @Override
+    public void registerEStructuralFeatures(Set<? extends EStructuralFeature> features, IndexingProfile profile) {
+        ensureNotInWildcardMode();
+        if (features != null) {
+            for (EStructuralFeature feature : features) {
+                contentAdapter.requestIndexingProfile(toKey(feature), profile);
+            }
+            registerEStructuralFeatures(features);
+        }
+    }
+
+    @Override
+    public IndexingProfile getIndexingProfile(EStructuralFeature feature) {
+        return contentAdapter.getIndexingProfile(toKey(feature));
+    }
+
     @Override
     public void unregisterEStructuralFeatures(Set<? extends EStructuralFeature> features) {
         ensureNotInWildcardMode();
@@ -862,13 +997,7 @@ public class NavigationHelperImpl implements NavigationHelper {
             observedFeatures.removeAll(resolved);
             delayedFeatures.removeAll(resolved);
             for (Object f : resolved) {
-                contentAdapter.getValueToFeatureToHolderMap().column(f).clear();
-                if (contentAdapter.peekFeatureToHolderMap() != null) {
-                	contentAdapter.peekFeatureToHolderMap().remove(f);
-                }
-                if (contentAdapter.peekHolderToFeatureToValueMap() != null) {
-                	contentAdapter.peekHolderToFeatureToValueMap().column(f).clear();
-                }
+                contentAdapter.clearFeature(f);
             }
         }
     }
@@ -1043,13 +1172,123 @@ public class NavigationHelperImpl implements NavigationHelper {
         return finalResult;
     }
 
+    @Override
+    public void beginTransaction() {
+        contentAdapter.beginTransaction();
+    }
+
+    @Override
+    public void commitTransaction() {
+        contentAdapter.commitTransaction();
+    }
+
+    @Override
+    public void saveSnapshot(File file) throws IOException {
+        NavigationHelperSnapshot.write(this, file);
+    }
+
     private void traverse(final NavigationHelperVisitor visitor) {
+        // the traversal reads the current model, so the index must not lag behind it
+        contentAdapter.flushBufferedFeatureUpdates();
+        boolean warmStart = warmStartSnapshot != null && warmStartSnapshot.covers(visitor);
         for (Notifier root : modelRoots) {
-            comprehension.traverseModel(visitor, root);
+            if (warmStart && warmStartSnapshot != null) { // may have been released by a previous root
+                traverseWarmStart(visitor, root);
+            } else if (isParallelTraversal() && !(root instanceof EObject)) {
+                traverseResources(visitor, getResources(root));
+            } else {
+                comprehension.traverseModel(visitor, root);
+            }
         }
         contentAdapter.notifyBaseIndexChangeListeners();
     }
 
+    private boolean isParallelTraversal() {
+        return baseIndexOptions.getTraversalThreadCount() > 1;
+    }
+
+    /**
+     * @return the resources of a Resource or ResourceSet root
+     */
+    private List<Resource> getResources(Notifier root) {
+        if (root instanceof ResourceSet) {
+            return new ArrayList<Resource>(((ResourceSet) root).getResources());
+        } else {
+            return Collections.singletonList((Resource) root);
+        }
+    }
+
+    /**
+     * Traverses the given resources, in parallel if set in the base index options.
+     */
+    private void traverseResources(final NavigationHelperVisitor visitor, List<Resource> resources) {
+        if (isParallelTraversal() && resources.size() > 1) {
+            if (traversalExecutor == null) {
+                traversalExecutor = Executors.newFixedThreadPool(baseIndexOptions.getTraversalThreadCount(),
+                        new ThreadFactoryBuilder().setDaemon(true)
+                                .setNameFormat("EMF-IncQuery Base traversal %d").build());
+            }
+            NavigationHelperParallelTraversal.traverse(this, visitor, resources, traversalExecutor);
+        } else {
+            for (Resource resource : resources) {
+                comprehension.traverseResource(visitor, resource);
+            }
+        }
+    }
+
+    /**
+     * Replays the snapshot for unchanged resources, and traverses the rest of the model.
+     */
+    private void traverseWarmStart(final NavigationHelperVisitor visitor, Notifier root) {
+        if (root instanceof EObject) {
+            comprehension.traverseModel(visitor, root);
+            return;
+        }
+        List<Resource> resources = getResources(root);
+        List<Resource> resourcesToTraverse = new ArrayList<Resource>();
+        for (Resource resource : resources) {
+            boolean replayed = false;
+            try {
+                replayed = warmStartSnapshot.replay(resource, visitor);
+            } catch (IOException e) {
+                logger.warn("EMF-IncQuery Base could not read the warm start snapshot of " + resource.getURI()
+                        + ", the resource will be traversed instead.", e);
+            }
+            if (!replayed) {
+                // no need to look it up again
+                warmStartSnapshot.invalidate(resource);
+                resourcesToTraverse.add(resource);
+            }
+        }
+        if (warmStartSnapshot.isExhausted()) {
+            releaseWarmStartSnapshot();
+        }
+        traverseResources(visitor, resourcesToTraverse);
+    }
+
+    /**
+     * Called when the contents of the given resource have been changed, so that they are no longer described by the
+     * warm start snapshot.
+     */
+    void invalidateWarmStartSnapshot(Resource resource) {
+        if (warmStartSnapshot != null) {
+            warmStartSnapshot.invalidate(resource);
+            if (warmStartSnapshot.isExhausted()) {
+                releaseWarmStartSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Unmaps the warm start snapshot file, once no section of it can be replayed any more or the index is disposed.
+     */
+    private void releaseWarmStartSnapshot() {
+        if (warmStartSnapshot != null) {
+            warmStartSnapshot.close();
+            warmStartSnapshot = null;
+        }
+    }
+
     @Override
     public void addRoot(Notifier emfRoot) throws IncQueryBaseException {
         addRootInternal(emfRoot);
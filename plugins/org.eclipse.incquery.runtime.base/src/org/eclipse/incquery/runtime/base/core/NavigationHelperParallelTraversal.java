@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.base.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.incquery.runtime.base.api.BaseIndexOptions;
+import org.eclipse.incquery.runtime.base.comprehension.EMFModelComprehension;
+import org.eclipse.incquery.runtime.base.comprehension.EMFVisitor;
+
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Traverses resources in parallel, on behalf of a visitor that is not thread-safe.
+ *
+ * <p>
+ * Each resource is traversed on a worker thread by a recording visitor, which only reads the model and collects the
+ * visited elements and feature values of the resource. The records are then fed into the original visitor on the
+ * calling thread, resource by resource in the original order, while the following resources are still being traversed.
+ * This way the reflective navigation of the model is parallelized, while the index tables, listener notifications and
+ * proxy resolution are only ever touched by the calling thread. Only a bounded number of resources are traversed
+ * ahead of the replay, so that the records of at most that many resources are held in memory at a time.
+ *
+ * <p>
+ * Decisions that involve shared state (pruning of features, the derived feature registry, lazily initialized metamodel
+ * caches) are made under a common lock on first encounter and memoized per worker. Derived and volatile features are
+ * not read by the workers, as their values may be computed by non thread-safe code (e.g. query-based features); a
+ * deferred record is stored instead, and the values are read when the record is replayed on the calling thread.
+ * Proxies are not resolved by the workers either; if a proxy (or a derived feature emulated through a feature map) is
+ * encountered in a resource, its records are discarded and the resource is traversed again on the calling thread.
+ *
+ * <p>
+ * The model must not be modified while the traversal is in progress.
+ *
+ * @author Gabor Bergmann
+ */
+final class NavigationHelperParallelTraversal {
+
+    private static final byte ELEMENT = 0;
+    private static final byte ATTRIBUTE = 1;
+    private static final byte CONTAINMENT = 2;
+    private static final byte REFERENCE = 3;
+    private static final byte DEFERRED = 4;
+
+    /**
+     * The number of resources traversed ahead of the replay, per traversal thread
+     */
+    private static final int RESOURCES_AHEAD_PER_THREAD = 2;
+
+    private final EMFModelComprehension comprehension;
+    private final BaseIndexOptions options;
+    private final EMFVisitor visitor;
+    /**
+     * Guards the visitor and the shared metamodel-level state
+     */
+    private final Object lock = new Object();
+    /**
+     * The features read on the calling thread, per class; guarded by the lock
+     */
+    private final Map<EClass, List<EStructuralFeature>> deferredFeatures =
+            new HashMap<EClass, List<EStructuralFeature>>();
+
+    private NavigationHelperParallelTraversal(NavigationHelperImpl navigationHelper, EMFVisitor visitor) {
+        this.comprehension = navigationHelper.getComprehension();
+        this.options = navigationHelper.getBaseIndexOptions();
+        this.visitor = visitor;
+    }
+
+    /**
+     * Traverses the given resources with the given visitor, using the executor for the traversal of the individual
+     * resources. The visitor is only called on the calling thread, except for
+     * {@link EMFVisitor#pruneFeature(EStructuralFeature)} and {@link EMFVisitor#pruneSubtrees(EObject)}, which may be
+     * called by the workers while the visitor is not in use.
+     *
+     * @pre the visitor visits elements in pre-order
+     */
+    static void traverse(NavigationHelperImpl navigationHelper, EMFVisitor visitor, List<Resource> resources,
+            ExecutorService executor) {
+        new NavigationHelperParallelTraversal(navigationHelper, visitor).traverse(resources, executor);
+    }
+
+    private void traverse(List<Resource> resources, ExecutorService executor) {
+        int resourcesAhead = RESOURCES_AHEAD_PER_THREAD * options.getTraversalThreadCount();
+        List<Future<RecordingVisitor>> futures = new ArrayList<Future<RecordingVisitor>>(resources.size());
+        try {
+            for (int i = 0; i < resources.size(); ++i) {
+                // keep the workers busy with the following resources while the current one is replayed
+                while (futures.size() < resources.size() && futures.size() < i + resourcesAhead) {
+                    futures.add(submit(resources.get(futures.size()), executor));
+                }
+                RecordingVisitor recorder = Futures.getUnchecked(futures.get(i));
+                // release the records of the resource as soon as possible
+                futures.set(i, null);
+                synchronized (lock) {
+                    if (recorder.fallback) {
+                        comprehension.traverseResource(visitor, resources.get(i));
+                    } else {
+                        recorder.replay();
+                    }
+                }
+            }
+        } finally {
+            for (Future<RecordingVisitor> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private Future<RecordingVisitor> submit(final Resource resource, ExecutorService executor) {
+        return executor.submit(new Callable<RecordingVisitor>() {
+            @Override
+            public RecordingVisitor call() throws Exception {
+                RecordingVisitor recorder = new RecordingVisitor();
+                new WorkerComprehension().traverseResource(recorder, resource);
+                return recorder;
+            }
+        });
+    }
+
+    /**
+     * Derived and volatile features are read on the calling thread, if they are traversed at all.
+     * 
+     * @pre called under the lock
+     */
+    private boolean isDeferred(EStructuralFeature feature) {
+        return (feature.isDerived() || feature.isVolatile()) && !comprehension.untraversableDirectly(feature);
+    }
+
+    /**
+     * @return the features of the class that are read on the calling thread, for all instances of the class
+     */
+    private List<EStructuralFeature> getDeferredFeatures(EClass eClass) {
+        synchronized (lock) {
+            List<EStructuralFeature> features = deferredFeatures.get(eClass);
+            if (features == null) {
+                features = new ArrayList<EStructuralFeature>();
+                for (EStructuralFeature feature : eClass.getEAllStructuralFeatures()) {
+                    if (isDeferred(feature)) {
+                        features.add(feature);
+                    }
+                }
+                features = features.isEmpty() ? Collections.<EStructuralFeature> emptyList() : features;
+                deferredFeatures.put(eClass, features);
+            }
+            return features;
+        }
+    }
+
+    /**
+     * Reads the values of a deferred feature and traverses them with the visitor; must be called on the calling thread.
+     */
+    private void traverseDeferredFeature(EObject source, EStructuralFeature feature) {
+        boolean containment = feature instanceof EReference && ((EReference) feature).isContainment();
+        if (!containment && feature instanceof EAttribute
+                && EcorePackage.eINSTANCE.getEFeatureMapEntry().equals(((EAttribute) feature).getEAttributeType())) {
+            // feature maps emulate their entries even if pruned
+            containment = true;
+        }
+        if (!containment && visitor.pruneFeature(feature)) {
+            // no need to compute the value
+            return;
+        }
+        Object value = source.eGet(feature, visitor.allowProxyResolution());
+        if (feature.isMany()) {
+            for (Object target : (Collection<?>) value) {
+                comprehension.traverseFeature(visitor, source, feature, target);
+            }
+        } else {
+            comprehension.traverseFeature(visitor, source, feature, value);
+        }
+    }
+
+    /**
+     * Traverses a single resource on a worker thread; shared state is only accessed under the lock, once per feature.
+     * Deferred features are not traversed.
+     */
+    private final class WorkerComprehension extends EMFModelComprehension {
+
+        private final Map<EStructuralFeature, Boolean> untraversableFeatures = new HashMap<EStructuralFeature, Boolean>();
+
+        WorkerComprehension() {
+            super(options);
+        }
+
+        @Override
+        public boolean untraversableDirectly(EStructuralFeature feature) {
+            Boolean untraversable = untraversableFeatures.get(feature);
+            if (untraversable == null) {
+                synchronized (lock) {
+                    untraversable = super.untraversableDirectly(feature) || isDeferred(feature);
+                }
+                untraversableFeatures.put(feature, untraversable);
+            }
+            return untraversable;
+        }
+    }
+
+    /**
+     * Records the visited elements and feature values of a single resource, in the order of the visits.
+     */
+    private final class RecordingVisitor extends EMFVisitor {
+
+        private final List<Object[]> records = new ArrayList<Object[]>();
+        private final Map<EClass, List<EStructuralFeature>> deferredFeaturesOfClass =
+                new HashMap<EClass, List<EStructuralFeature>>();
+        private final Map<EStructuralFeature, Boolean> prunedFeatures = new HashMap<EStructuralFeature, Boolean>();
+        /**
+         * The resource has to be traversed on the calling thread instead of replaying the records
+         */
+        private boolean fallback = false;
+
+        RecordingVisitor() {
+            super(true);
+        }
+
+        @Override
+        public void visitElement(EObject source) {
+            EClass eClass = source.eClass();
+            List<EStructuralFeature> deferred = deferredFeaturesOfClass.get(eClass);
+            if (deferred == null) {
+                // also initializes the lazily computed feature lists of the class under the lock
+                deferred = getDeferredFeatures(eClass);
+                deferredFeaturesOfClass.put(eClass, deferred);
+            }
+            records.add(new Object[] { ELEMENT, source });
+            for (EStructuralFeature feature : deferred) {
+                records.add(new Object[] { DEFERRED, source, feature });
+            }
+        }
+
+        @Override
+        public void visitAttribute(EObject source, EAttribute feature, Object target) {
+            records.add(new Object[] { ATTRIBUTE, source, feature, target });
+        }
+
+        @Override
+        public void visitInternalContainment(EObject source, EReference feature, EObject target) {
+            fallback |= target.eIsProxy();
+            records.add(new Object[] { CONTAINMENT, source, feature, target });
+        }
+
+        @Override
+        public void visitNonContainmentReference(EObject source, EReference feature, EObject target) {
+            fallback |= target.eIsProxy();
+            records.add(new Object[] { REFERENCE, source, feature, target });
+        }
+
+        @Override
+        public boolean pruneFeature(EStructuralFeature feature) {
+            Boolean pruned = prunedFeatures.get(feature);
+            if (pruned == null) {
+                synchronized (lock) {
+                    // deferred features only reach the visitor if emulated through a feature map
+                    fallback |= isDeferred(feature);
+                    pruned = visitor.pruneFeature(feature);
+                }
+                prunedFeatures.put(feature, pruned);
+            }
+            return pruned;
+        }
+
+        @Override
+        public boolean pruneSubtrees(EObject source) {
+            return visitor.pruneSubtrees(source);
+        }
+
+        @Override
+        public boolean pruneSubtrees(Resource source) {
+            return visitor.pruneSubtrees(source);
+        }
+
+        @Override
+        public boolean forceProxyResolution() {
+            return false;
+        }
+
+        @Override
+        public boolean allowProxyResolution() {
+            return false;
+        }
+
+        /**
+         * Feeds the records into the visitor; must be called on the calling thread.
+         */
+        void replay() {
+            for (Object[] record : records) {
+                byte kind = (Byte) record[0];
+                EObject source = (EObject) record[1];
+                if (kind == ELEMENT) {
+                    visitor.visitElement(source);
+                } else if (kind == ATTRIBUTE) {
+                    visitor.visitAttribute(source, (EAttribute) record[2], record[3]);
+                } else if (kind == CONTAINMENT) {
+                    visitor.visitInternalContainment(source, (EReference) record[2], (EObject) record[3]);
+                } else if (kind == DEFERRED) {
+                    traverseDeferredFeature(source, (EStructuralFeature) record[2]);
+                } else {
+                    visitor.visitNonContainmentReference(source, (EReference) record[2], (EObject) record[3]);
+                }
+            }
+        }
+    }
+
+}
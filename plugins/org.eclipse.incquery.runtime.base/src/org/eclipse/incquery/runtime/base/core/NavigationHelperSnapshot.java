@@ -0,0 +1,552 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.base.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMap;
+import org.eclipse.incquery.runtime.base.comprehension.EMFVisitor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Table.Cell;
+
+/**
+ * A persisted image of the base index contents, used to warm-start a {@link NavigationHelperImpl} without traversing
+ * the model.
+ *
+ * <p>
+ * Index entries are grouped by the resource of their holder object, and identified by URI fragments (and, for
+ * reference targets, resource URIs), so that they can be resolved against a freshly loaded model. A resource section
+ * is only replayed if the resource has the same modification time stamp as when the snapshot was written; other
+ * resources are traversed as usual.
+ *
+ * <p>
+ * File layout: header (observed types), resource sections, resource directory (URI, time stamp, section offset), and
+ * the offset of the directory as the last 8 bytes. Strings are UTF-8 encoded, and repeated strings within a section
+ * are written as back-references. The file is read through a memory mapping, and each section is decoded only when
+ * its resource is replayed. Because of the memory mapping, the size of a snapshot is limited to 2 GB.
+ *
+ * <p>
+ * Data type instances are not contained in the snapshot, as the index does not record their holders; registering
+ * data types always requires a traversal.
+ *
+ * @author Gabor Bergmann
+ */
+final class NavigationHelperSnapshot {
+
+    private static final int MAGIC = 0x49514253; // IQBS
+    private static final int VERSION = 1;
+    private static final String ENCODING = "UTF-8";
+
+    private static final byte ATTRIBUTE = 0;
+    private static final byte CONTAINMENT = 1;
+    private static final byte REFERENCE = 2;
+
+    /**
+     * null once the snapshot is closed
+     */
+    private ByteBuffer buffer;
+    private final boolean wildcardMode;
+    private final Set<String> classIds;
+    private final Set<String> featureIds;
+    /**
+     * resource URI -> section; sections are removed when invalidated
+     */
+    private final Map<String, SectionInfo> sections;
+
+    private static final class SectionInfo {
+        final long timeStamp;
+        final int offset;
+
+        SectionInfo(long timeStamp, int offset) {
+            this.timeStamp = timeStamp;
+            this.offset = offset;
+        }
+    }
+
+    private NavigationHelperSnapshot(ByteBuffer buffer, boolean wildcardMode, Set<String> classIds,
+            Set<String> featureIds, Map<String, SectionInfo> sections) {
+        this.buffer = buffer;
+        this.wildcardMode = wildcardMode;
+        this.classIds = classIds;
+        this.featureIds = featureIds;
+        this.sections = sections;
+    }
+
+    // START ********* Stable type identifiers *********
+
+    /**
+     * @return an identifier of the type key that does not depend on the EPackage instance; same as the key in dynamic
+     *         EMF mode
+     */
+    private static String stableId(Object key) {
+        if (key instanceof String) {
+            return (String) key;
+        } else if (key instanceof EStructuralFeature) {
+            EStructuralFeature feature = (EStructuralFeature) key;
+            return stableId(feature.getEContainingClass()) + "##" + feature.getEType().getName() + "##"
+                    + feature.getName();
+        } else {
+            EClassifier classifier = (EClassifier) key;
+            return classifier.getEPackage().getNsURI() + "##" + classifier.getName();
+        }
+    }
+
+    private static Set<String> stableIds(Set<Object> keys) {
+        Set<String> result = new HashSet<String>();
+        for (Object key : keys) {
+            result.add(stableId(key));
+        }
+        return result;
+    }
+
+    // END ********* Stable type identifiers *********
+
+    // START ********* Writing *********
+
+    /**
+     * Writes the current contents of the index into the given file.
+     */
+    static void write(NavigationHelperImpl navigationHelper, File file) throws IOException {
+        NavigationHelperContentAdapter store = navigationHelper.getContentAdapter();
+        store.flushBufferedFeatureUpdates();
+        // the values are written from the inverse index; counted values could not be restored
+        Preconditions.checkState(!store.hasCountOnlyValues(),
+                "A snapshot can not be written while features are indexed as count-only");
+        store.ensureInverseIndexedForAllFeatures();
+
+        // resource -> section contents
+        Map<Resource, SectionWriter> writers = new LinkedHashMap<Resource, SectionWriter>();
+        for (Notifier root : navigationHelper.modelRoots) {
+            if (root instanceof ResourceSet) {
+                for (Resource resource : ((ResourceSet) root).getResources()) {
+                    writers.put(resource, new SectionWriter(resource));
+                }
+            } else if (root instanceof Resource) {
+                writers.put((Resource) root, new SectionWriter((Resource) root));
+            }
+        }
+
+        for (Set<EObject> instances : store.getInstanceMap().values()) {
+            for (EObject instance : instances) {
+                SectionWriter writer = writers.get(instance.eResource());
+                if (writer != null) {
+                    writer.addInstance(instance);
+                }
+            }
+        }
+        for (Cell<Object, Object, Set<EObject>> cell : store.getValueToFeatureToHolderMap().cellSet()) {
+            EStructuralFeature feature = store.getKnownFeatureForKey(cell.getColumnKey());
+            for (EObject holder : cell.getValue()) {
+                SectionWriter writer = writers.get(holder.eResource());
+                if (writer != null) {
+                    writer.addFeatureValue(holder, feature, cell.getRowKey());
+                }
+            }
+        }
+
+        FileOutputStream fileStream = new FileOutputStream(file);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(navigationHelper.isInWildcardMode());
+            Map<String, Integer> headerStrings = new HashMap<String, Integer>();
+            writeStrings(out, stableIds(navigationHelper.getDirectlyObservedClassesInternal()), headerStrings);
+            writeStrings(out, stableIds(navigationHelper.getObservedFeaturesInternal()), headerStrings);
+
+            List<SectionWriter> written = new ArrayList<SectionWriter>();
+            List<Integer> offsets = new ArrayList<Integer>();
+            for (SectionWriter writer : writers.values()) {
+                if (writer.isPersistable()) {
+                    offsets.add(checkedSize(out));
+                    writer.writeTo(out);
+                    written.add(writer);
+                }
+            }
+
+            int directoryOffset = checkedSize(out);
+            Map<String, Integer> directoryStrings = new HashMap<String, Integer>();
+            out.writeInt(written.size());
+            for (int i = 0; i < written.size(); ++i) {
+                Resource resource = written.get(i).resource;
+                writeString(out, resource.getURI().toString(), directoryStrings);
+                out.writeLong(resource.getTimeStamp());
+                out.writeInt(offsets.get(i));
+            }
+            out.writeLong(directoryOffset);
+            checkedSize(out);
+            out.flush();
+        } finally {
+            fileStream.close();
+        }
+    }
+
+    /**
+     * Collects the index entries held by objects of a single resource.
+     */
+    private static final class SectionWriter {
+        final Resource resource;
+        final List<String> instances = new ArrayList<String>();
+        final List<Object[]> featureValues = new ArrayList<Object[]>();
+        /**
+         * false if some entry cannot be identified by URIs
+         */
+        boolean persistable;
+
+        SectionWriter(Resource resource) {
+            this.resource = resource;
+            // in-memory changes are not reflected by the time stamp
+            this.persistable = resource.getURI() != null && resource.getTimeStamp() != 0L && !resource.isModified();
+        }
+
+        boolean isPersistable() {
+            return persistable;
+        }
+
+        void addInstance(EObject instance) {
+            instances.add(resource.getURIFragment(instance));
+        }
+
+        void addFeatureValue(EObject holder, EStructuralFeature feature, Object value) {
+            if (!persistable) {
+                return;
+            }
+            String holderFragment = resource.getURIFragment(holder);
+            if (feature instanceof EAttribute) {
+                String literal = null;
+                if (!(value instanceof FeatureMap.Entry)) {
+                    try {
+                        literal = EcoreUtil.convertToString(((EAttribute) feature).getEAttributeType(), value);
+                    } catch (RuntimeException e) {
+                        // not serializable, see below
+                    }
+                }
+                if (literal == null) {
+                    persistable = false;
+                } else {
+                    featureValues.add(new Object[] { holderFragment, ATTRIBUTE, feature.getName(), literal, null });
+                }
+            } else {
+                EReference reference = (EReference) feature;
+                EObject target = (EObject) value;
+                Resource targetResource = target.eResource();
+                if (targetResource == null || targetResource.getURI() == null) {
+                    persistable = false;
+                } else {
+                    byte kind = reference.isContainment() ? CONTAINMENT : REFERENCE;
+                    featureValues.add(new Object[] { holderFragment, kind, feature.getName(),
+                            targetResource.getURI().toString(), targetResource.getURIFragment(target) });
+                }
+            }
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            Map<String, Integer> strings = new HashMap<String, Integer>();
+            out.writeInt(instances.size());
+            for (String instance : instances) {
+                writeString(out, instance, strings);
+            }
+            out.writeInt(featureValues.size());
+            for (Object[] featureValue : featureValues) {
+                writeString(out, (String) featureValue[0], strings);
+                out.writeByte((Byte) featureValue[1]);
+                writeString(out, (String) featureValue[2], strings);
+                writeString(out, (String) featureValue[3], strings);
+                if ((Byte) featureValue[1] != ATTRIBUTE) {
+                    writeString(out, (String) featureValue[4], strings);
+                }
+            }
+        }
+    }
+
+    private static int checkedSize(DataOutputStream out) throws IOException {
+        int size = out.size();
+        if (size == Integer.MAX_VALUE) {
+            throw new IOException("Base index snapshot exceeds the maximum size of 2 GB");
+        }
+        return size;
+    }
+
+    private static void writeStrings(DataOutputStream out, Set<String> values, Map<String, Integer> strings)
+            throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value, strings);
+        }
+    }
+
+    /**
+     * Writes the index of an already written string, or -(length+1) followed by the bytes of a new one.
+     */
+    private static void writeString(DataOutputStream out, String value, Map<String, Integer> strings)
+            throws IOException {
+        Integer index = strings.get(value);
+        if (index != null) {
+            out.writeInt(index);
+        } else {
+            byte[] bytes = value.getBytes(ENCODING);
+            out.writeInt(-(bytes.length + 1));
+            out.write(bytes);
+            strings.put(value, strings.size());
+        }
+    }
+
+    // END ********* Writing *********
+
+    // START ********* Reading *********
+
+    /**
+     * Opens a snapshot file. Sections are decoded lazily from the memory-mapped file contents.
+     */
+    static NavigationHelperSnapshot read(File file) throws IOException {
+        FileInputStream fileStream = new FileInputStream(file);
+        MappedByteBuffer buffer;
+        try {
+            FileChannel channel = fileStream.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            fileStream.close(); // the mapping stays valid until close()
+        }
+
+        if (buffer.limit() < 16 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a base index snapshot of a compatible version: " + file);
+        }
+        boolean wildcardMode = buffer.get() != 0;
+        List<String> headerStrings = new ArrayList<String>();
+        Set<String> classIds = readStrings(buffer, headerStrings);
+        Set<String> featureIds = readStrings(buffer, headerStrings);
+
+        buffer.position((int) buffer.getLong(buffer.limit() - 8));
+        List<String> directoryStrings = new ArrayList<String>();
+        int sectionCount = buffer.getInt();
+        Map<String, SectionInfo> sections = new HashMap<String, SectionInfo>();
+        for (int i = 0; i < sectionCount; ++i) {
+            String uri = readString(buffer, directoryStrings);
+            long timeStamp = buffer.getLong();
+            sections.put(uri, new SectionInfo(timeStamp, buffer.getInt()));
+        }
+        return new NavigationHelperSnapshot(buffer, wildcardMode, classIds, featureIds, sections);
+    }
+
+    private static Set<String> readStrings(ByteBuffer buffer, List<String> strings) throws IOException {
+        int count = buffer.getInt();
+        Set<String> result = new HashSet<String>();
+        for (int i = 0; i < count; ++i) {
+            result.add(readString(buffer, strings));
+        }
+        return result;
+    }
+
+    private static String readString(ByteBuffer buffer, List<String> strings) throws UnsupportedEncodingException {
+        int code = buffer.getInt();
+        if (code >= 0) {
+            return strings.get(code);
+        }
+        byte[] bytes = new byte[-code - 1];
+        buffer.get(bytes);
+        String value = new String(bytes, ENCODING);
+        strings.add(value);
+        return value;
+    }
+
+    // END ********* Reading *********
+
+    // START ********* Replay *********
+
+    /**
+     * @return true if the snapshot contains all index entries the given visitor would gather during a traversal
+     */
+    boolean covers(NavigationHelperVisitor visitor) {
+        if (buffer == null || !(visitor instanceof NavigationHelperVisitor.TraversingVisitor)) {
+            return false;
+        }
+        NavigationHelperVisitor.TraversingVisitor traversingVisitor = (NavigationHelperVisitor.TraversingVisitor) visitor;
+        if (!traversingVisitor.dataTypes.isEmpty()) {
+            return false;
+        }
+        return wildcardMode
+                || (classIds.containsAll(stableIds(traversingVisitor.newClasses)) && featureIds
+                        .containsAll(stableIds(traversingVisitor.features)));
+    }
+
+    /**
+     * Discards the section of the given resource, e.g. because its contents have been changed since loading.
+     */
+    void invalidate(Resource resource) {
+        if (resource != null && resource.getURI() != null) {
+            sections.remove(resource.getURI().toString());
+        }
+    }
+
+    /**
+     * @return true if no resource section can be replayed any more
+     */
+    boolean isExhausted() {
+        return sections.isEmpty();
+    }
+
+    /**
+     * Releases the memory mapping of the snapshot file; nothing can be replayed afterwards.
+     */
+    void close() {
+        sections.clear();
+        ByteBuffer mapped = buffer;
+        buffer = null;
+        if (mapped instanceof MappedByteBuffer) {
+            unmap((MappedByteBuffer) mapped);
+        }
+    }
+
+    /**
+     * Unmaps the buffer right away instead of waiting for it to be garbage collected, which would keep the file
+     * mapped (and, on some platforms, locked) for an unbounded time. There is no public API for this; if the
+     * cleaner of the JVM is not accessible, the mapping is left to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            // not a direct buffer of a known JVM, released by the garbage collector
+        }
+    }
+
+    /**
+     * Feeds the entries of the section of the given resource into the visitor, instead of traversing the resource.
+     *
+     * @return false if the resource has no up-to-date section or some entries could not be resolved; nothing is fed
+     *         into the visitor in this case, so the resource has to be traversed
+     */
+    boolean replay(Resource resource, EMFVisitor visitor) throws UnsupportedEncodingException {
+        if (resource.getURI() == null || resource.isModified() || !resource.isLoaded()) {
+            return false;
+        }
+        String resourceURI = resource.getURI().toString();
+        SectionInfo section = sections.get(resourceURI);
+        if (section == null || section.timeStamp != resource.getTimeStamp()) {
+            return false;
+        }
+
+        // first resolve everything, so that nothing is visited if the section turns out to be outdated
+        ByteBuffer input = buffer.duplicate();
+        input.position(section.offset);
+        List<String> strings = new ArrayList<String>();
+        int instanceCount = input.getInt();
+        List<EObject> instances = new ArrayList<EObject>(instanceCount);
+        for (int i = 0; i < instanceCount; ++i) {
+            EObject instance = resource.getEObject(readString(input, strings));
+            if (instance == null) {
+                return false;
+            }
+            instances.add(instance);
+        }
+        int featureValueCount = input.getInt();
+        List<Object[]> featureValues = new ArrayList<Object[]>(featureValueCount);
+        for (int i = 0; i < featureValueCount; ++i) {
+            EObject holder = resource.getEObject(readString(input, strings));
+            byte kind = input.get();
+            String featureName = readString(input, strings);
+            String literal = readString(input, strings);
+            String targetFragment = kind == ATTRIBUTE ? null : readString(input, strings);
+            EStructuralFeature feature = holder == null ? null : holder.eClass().getEStructuralFeature(featureName);
+            if (feature == null) {
+                return false;
+            }
+            Object value;
+            if (kind == ATTRIBUTE) {
+                if (!(feature instanceof EAttribute)) {
+                    return false;
+                }
+                value = EcoreUtil.createFromString(((EAttribute) feature).getEAttributeType(), literal);
+            } else {
+                if (!(feature instanceof EReference)) {
+                    return false;
+                }
+                value = resolveTarget(resource, resourceURI, literal, targetFragment);
+            }
+            if (value == null) {
+                return false;
+            }
+            featureValues.add(new Object[] { holder, kind, feature, value });
+        }
+
+        for (EObject instance : instances) {
+            visitor.visitElement(instance);
+        }
+        for (Object[] featureValue : featureValues) {
+            EObject holder = (EObject) featureValue[0];
+            byte kind = (Byte) featureValue[1];
+            if (kind == ATTRIBUTE) {
+                visitor.visitAttribute(holder, (EAttribute) featureValue[2], featureValue[3]);
+            } else if (kind == CONTAINMENT) {
+                visitor.visitInternalContainment(holder, (EReference) featureValue[2], (EObject) featureValue[3]);
+            } else {
+                visitor.visitNonContainmentReference(holder, (EReference) featureValue[2],
+                        (EObject) featureValue[3]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds a reference target without loading further resources.
+     */
+    private EObject resolveTarget(Resource resource, String resourceURI, String targetResourceURI,
+            String targetFragment) {
+        Resource targetResource;
+        if (resourceURI.equals(targetResourceURI)) {
+            targetResource = resource;
+        } else {
+            ResourceSet resourceSet = resource.getResourceSet();
+            targetResource = resourceSet == null ? null : resourceSet.getResource(URI.createURI(targetResourceURI),
+                    false);
+        }
+        if (targetResource == null || !targetResource.isLoaded()) {
+            return null;
+        }
+        return targetResource.getEObject(targetFragment);
+    }
+
+    // END ********* Replay *********
+
+}
@@ -20,7 +20,6 @@ import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
-import org.eclipse.emf.ecore.util.EContentAdapter;
 import org.eclipse.incquery.runtime.base.api.FeatureListener;
 import org.eclipse.incquery.runtime.base.api.InstanceListener;
 import org.eclipse.incquery.runtime.base.api.NavigationHelper;
@@ -37,7 +36,7 @@ import org.eclipse.incquery.runtime.base.itc.igraph.ITcObserver;
  * @author Tamas Szabo
  * 
  */
-public class TransitiveClosureHelperImpl extends EContentAdapter implements TransitiveClosureHelper,
+public class TransitiveClosureHelperImpl implements TransitiveClosureHelper,
         ITcObserver<EObject>, FeatureListener, InstanceListener {
 
     private IncSCCAlg<EObject> sccAlg;
@@ -10,7 +10,9 @@
  *******************************************************************************/
 package org.eclipse.incquery.runtime.evm.api;
 
+import java.util.AbstractCollection;
 import java.util.Collection;
+import java.util.Iterator;
 
 import org.eclipse.incquery.runtime.evm.api.event.ActivationState;
 import org.eclipse.incquery.runtime.evm.api.event.EventType;
@@ -19,7 +21,9 @@ import org.eclipse.incquery.runtime.evm.api.resolver.ConflictResolver;
 import org.eclipse.incquery.runtime.evm.api.resolver.ConflictSetUpdater;
 import org.eclipse.incquery.runtime.evm.notification.IActivationNotificationListener;
 
-import com.google.common.collect.HashMultimap;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimap;
 
 /**
@@ -30,7 +34,6 @@ import com.google.common.collect.Multimap;
  */
 public class Agenda {
 
-    private final Multimap<ActivationState, Activation<?>> activations;
     private ChangeableConflictSet conflictSet;
     private final IActivationNotificationListener activationListener;
     private final RuleBase ruleBase;
@@ -41,35 +44,91 @@ public class Agenda {
      */
     public Agenda(final RuleBase ruleBase, final ConflictResolver conflictResolver) {
         this.ruleBase = ruleBase;
-        activations = HashMultimap.create();
         this.conflictSet = conflictResolver.createConflictSet();
         this.updatingListener = new ConflictSetUpdater(conflictSet);
         this.activationListener = new DefaultActivationNotificationListener();
     }
 
     /**
-     * @return the activations
+     * The activations are stored only by their rule instances, the multimap is collected from them on each call.
+     *
+     * @return an immutable multimap of the activations
      */
     public Multimap<ActivationState, Activation<?>> getActivations() {
-        return activations;
+        ImmutableSetMultimap.Builder<ActivationState, Activation<?>> builder = ImmutableSetMultimap.builder();
+        for (RuleInstance<?> instance : ruleBase.getRuleInstances()) {
+            for (Activation<?> activation : instance.getAllActivations()) {
+                builder.put(activation.getState(), activation);
+            }
+        }
+        return builder.build();
     }
 
     /**
      * Returns the activations that are in the given state
      *
      * @param state
-     * @return the activations in the given state
+     * @return an unmodifiable live view of the activations in the given state
      */
     public Collection<Activation<?>> getActivations(final ActivationState state) {
-        return getActivations().get(state);
+        return new ActivationsView() {
+            @Override
+            protected Collection<? extends Activation<?>> activationsOf(RuleInstance<?> instance) {
+                return instance.getActivations(state);
+            }
+        };
     }
 
     /**
      *
-     * @return all activations in a single collection
+     * @return an unmodifiable live view of all activations
      */
     public Collection<Activation<?>> getAllActivations() {
-        return getActivations().values();
+        return new ActivationsView() {
+            @Override
+            protected Collection<? extends Activation<?>> activationsOf(RuleInstance<?> instance) {
+                return instance.getAllActivations();
+            }
+        };
+    }
+
+    /**
+     * Concatenates some of the activations of each rule instance without copying them.
+     */
+    private abstract class ActivationsView extends AbstractCollection<Activation<?>> {
+
+        protected abstract Collection<? extends Activation<?>> activationsOf(RuleInstance<?> instance);
+
+        @Override
+        public Iterator<Activation<?>> iterator() {
+            Iterator<Iterator<? extends Activation<?>>> iterators = Iterators.transform(ruleBase.getRuleInstances()
+                    .iterator(), new Function<RuleInstance<?>, Iterator<? extends Activation<?>>>() {
+                @Override
+                public Iterator<? extends Activation<?>> apply(RuleInstance<?> instance) {
+                    return activationsOf(instance).iterator();
+                }
+            });
+            return Iterators.unmodifiableIterator(Iterators.concat(iterators));
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (RuleInstance<?> instance : ruleBase.getRuleInstances()) {
+                size += activationsOf(instance).size();
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            for (RuleInstance<?> instance : ruleBase.getRuleInstances()) {
+                if (!activationsOf(instance).isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
     /**
@@ -99,10 +158,19 @@ public class Agenda {
         return conflictSet;
     }
 
+    /**
+     * Unlike the size of {@link ChangeableConflictSet#getConflictingActivations()}, this does not copy the activations.
+     * 
+     * @return the number of activations in the conflict set
+     */
+    public int getConflictingActivationCount() {
+        return updatingListener.getActivationCount();
+    }
+
     /**
      * This class is responsible for handling notifications sent by rule instances when an activation changes state.
      *
-     * By default, the listener logs the change event and refreshes the activation collections.
+     * By default, the listener logs the change event and refreshes the conflict set.
      *
      * @author Abel Hegedus
      *
@@ -113,11 +181,6 @@ public class Agenda {
                 final ActivationState oldState, final EventType event) {
             ruleBase.getLogger().debug(
                     String.format("%s -- %s --> %s on %s", oldState, event, activation.getState(), activation));
-            getActivations().remove(oldState, activation);
-            final ActivationState state = activation.getState();
-            if(!state.isInactive()) {
-                getActivations().put(state, activation);
-            }
             updatingListener.activationChanged(activation, oldState, event);
         }
 
@@ -126,15 +189,12 @@ public class Agenda {
             ruleBase.getLogger().debug(
                     String.format("%s -- CREATE --> %s on %s", inactiveState, activation.getState(), activation));
             updatingListener.activationCreated(activation, inactiveState);
-            final ActivationState state = activation.getState();
-            getActivations().put(state, activation);
         }
 
         @Override
         public void activationRemoved(final Activation<?> activation, final ActivationState oldState) {
             ruleBase.getLogger().debug(
                     String.format("%s -- REMOVE --> %s on %s", oldState, activation.getState(), activation));
-            getActivations().remove(oldState, activation);
             updatingListener.activationRemoved(activation, oldState);
         }
     }
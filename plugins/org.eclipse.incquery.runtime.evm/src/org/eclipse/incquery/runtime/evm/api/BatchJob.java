@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.api;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.eclipse.incquery.runtime.evm.api.event.ActivationState;
+
+/**
+ * A job that can be executed on several activations of the same rule instance in one call. If all the jobs of an
+ * activation state are batch jobs, the {@link Executor} fires the enabled activations of the rule instance in that
+ * state together: first the state of each activation is updated, then each job is executed once on the whole batch
+ * (see {@link RuleInstance#fireBatch}).
+ *
+ * <p>
+ * When the job is executed on a single activation, it receives a batch of one.
+ *
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public abstract class BatchJob<EventAtom> extends Job<EventAtom> {
+
+    /**
+     * Creates a new job corresponding to the given state.
+     */
+    protected BatchJob(final ActivationState activationState) {
+        super(activationState);
+    }
+
+    /**
+     * Executes the action on the activations using the supplied context.
+     *
+     * @param activations
+     *            the fired activations, in the order of firing
+     * @param context
+     */
+    protected abstract void executeBatch(final Collection<? extends Activation<? extends EventAtom>> activations,
+            final Context context);
+
+    /**
+     * Called if the {@link #executeBatch} method has thrown an exception to allow jobs to handle their own errors.
+     *
+     * @param activations
+     * @param exception
+     * @param context
+     */
+    protected abstract void handleBatchError(final Collection<? extends Activation<? extends EventAtom>> activations,
+            final Exception exception, final Context context);
+
+    @Override
+    protected void execute(final Activation<? extends EventAtom> activation, final Context context) {
+        executeBatch(Collections.singleton(activation), context);
+    }
+
+    @Override
+    protected void handleError(final Activation<? extends EventAtom> activation, final Exception exception,
+            final Context context) {
+        handleBatchError(Collections.singleton(activation), exception, context);
+    }
+
+}
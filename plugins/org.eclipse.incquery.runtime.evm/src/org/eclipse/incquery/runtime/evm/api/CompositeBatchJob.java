@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+
+/**
+ * A batch job that delegates to the composed batch job, so decorators keep the activations of the rule fired
+ * together.
+ * 
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public class CompositeBatchJob<EventAtom> extends BatchJob<EventAtom> {
+
+    private BatchJob<EventAtom> containedJob;
+
+    /**
+     * 
+     */
+    protected CompositeBatchJob(BatchJob<EventAtom> job) {
+        super(checkNotNull(job, "Cannot compose null job!").getActivationState());
+        this.containedJob = job;
+    }
+
+    @Override
+    protected void executeBatch(Collection<? extends Activation<? extends EventAtom>> activations, Context context) {
+        containedJob.executeBatch(activations, context);
+    }
+
+    @Override
+    protected void handleBatchError(Collection<? extends Activation<? extends EventAtom>> activations,
+            Exception exception, Context context) {
+        containedJob.handleBatchError(activations, exception, context);
+    }
+
+}
@@ -12,9 +12,15 @@ package org.eclipse.incquery.runtime.evm.api;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.incquery.runtime.evm.api.event.ActivationState;
 import org.eclipse.incquery.runtime.evm.api.event.EventRealm;
 import org.eclipse.incquery.runtime.evm.api.resolver.ChangeableConflictSet;
 
+import com.google.common.collect.Lists;
+
 /**
  * The executor is responsible for firing enabled activations of its ruleBase,
  * when its scheduler notifies it. The executor also manages a context that
@@ -76,13 +82,59 @@ public class Executor {
         Activation<?> nextActivation = null;
         ChangeableConflictSet conflictSet = ruleBase.getAgenda().getConflictSet();
         while((nextActivation = conflictSet.getNextActivation()) != null) {
-            ruleBase.getLogger().debug("Executing: " + nextActivation + " in " + this);
-            nextActivation.fire(context);
+            fire(nextActivation);
         }
         
         endScheduling();
     }
 
+    /**
+     * Fires the given activation. If all jobs of the activation state are {@link BatchJob}s,
+     * the activations of the same rule instance in the same state that the conflict
+     * resolver considers equal to the given one are fired together with it.
+     * 
+     * @param activation
+     */
+    protected void fire(final Activation<?> activation) {
+        ruleBase.getLogger().debug("Executing: " + activation + " in " + this);
+        if(isBatch(activation)) {
+            fireBatch(activation);
+        } else {
+            activation.fire(context);
+        }
+    }
+
+    private boolean isBatch(final Activation<?> activation) {
+        Collection<? extends Job<?>> jobs = activation.getInstance().getSpecification().getJobs(activation.getState());
+        if(jobs.isEmpty()) {
+            return false;
+        }
+        for (Job<?> job : jobs) {
+            if(!(job instanceof BatchJob)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <EventAtom> void fireBatch(final Activation<EventAtom> activation) {
+        RuleInstance<EventAtom> instance = activation.getInstance();
+        ActivationState state = activation.getState();
+        List<Activation<EventAtom>> batch = Lists.newArrayList();
+        batch.add(activation);
+        for (Activation<?> other : ruleBase.getAgenda().getConflictSet().getNextActivations()) {
+            if(!other.equals(activation) && instance.equals(other.getInstance()) && state.equals(other.getState())) {
+                // same rule instance, same event atom type
+                batch.add((Activation<EventAtom>) other);
+            }
+        }
+        if(batch.size() > 1) {
+            ruleBase.getLogger().debug("Executing batch of " + batch.size() + " activations in " + this);
+        }
+        instance.fireBatch(batch, state, context);
+    }
+
     /**
      * This method is called from schedule() to indicate that a new call
      * was received. If there is already scheduling in progress, that is 
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.eclipse.incquery.runtime.evm.api.event.ActivationState;
+import org.eclipse.incquery.runtime.evm.api.event.EventRealm;
+import org.eclipse.incquery.runtime.evm.api.event.EventType.RuleEngineEventType;
+import org.eclipse.incquery.runtime.evm.api.resolver.ConflictSet;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * An executor that fires independent activations concurrently.
+ *
+ * <p>
+ * In each round, the next activation is fired together with the activations that the conflict resolver considers
+ * equal to it, at most one for each partition key. The {@link TwoPhaseJob}s of these activations compute their effects
+ * in parallel on the worker pool, then the effects are applied one by one on the scheduling thread, always in the
+ * order of the selection, regardless of which computation finished first. Activations that have other kinds of jobs
+ * are fired alone, as by the {@link Executor}.
+ *
+ * <p>
+ * Activations with different partition keys are assumed to be independent: the effect computed for one of them must
+ * remain valid after the effects of the others are applied. If an applied effect disables an activation of the same
+ * round, that activation is not fired. Jobs retrieving matches concurrently should use an engine with concurrent match
+ * access enabled (see the concurrentMatchAccess option of the Rete engine).
+ *
+ * <p>
+ * The computations must only read the model. Even reading is not thread-safe in EMF if it initializes something
+ * lazily, e.g. resolves proxies, creates the lists of features accessed the first time, or computes derived
+ * features; such parts of the model should be initialized (e.g. by resolving all proxies) before the parallel
+ * execution, or accessed in the effects instead, which are applied on the scheduling thread.
+ *
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public class ParallelExecutor extends Executor {
+
+    /**
+     * Activations of the same rule are fired in different rounds, only the rules are assumed to be independent.
+     */
+    public static final Function<Activation<?>, ?> PARTITION_BY_RULE = new Function<Activation<?>, Object>() {
+        @Override
+        public Object apply(final Activation<?> activation) {
+            return activation.getInstance().getSpecification();
+        }
+    };
+
+    /**
+     * All activations are assumed to be independent.
+     */
+    public static final Function<Activation<?>, ?> PARTITION_BY_ACTIVATION = Functions.<Activation<?>> identity();
+
+    private final ExecutorService workers;
+    private final Function<? super Activation<?>, ?> partitioner;
+
+    /**
+     * Creates a parallel executor for the given event realm.
+     *
+     * @param eventRealm
+     * @param workers
+     *            the pool computing the effects of the jobs; it is not shut down by the executor
+     * @param partitioner
+     *            returns the partition key of activations; activations with the same key are never fired in the
+     *            same round, e.g. {@link #PARTITION_BY_RULE}
+     */
+    public ParallelExecutor(final EventRealm eventRealm, final ExecutorService workers,
+            final Function<? super Activation<?>, ?> partitioner) {
+        this(eventRealm, Context.create(), workers, partitioner);
+    }
+
+    /**
+     * Creates a parallel executor for the given event realm and context.
+     *
+     * @param eventRealm
+     * @param context
+     * @param workers
+     *            the pool computing the effects of the jobs; it is not shut down by the executor
+     * @param partitioner
+     *            returns the partition key of activations; activations with the same key are never fired in the
+     *            same round, e.g. {@link #PARTITION_BY_RULE}
+     */
+    public ParallelExecutor(final EventRealm eventRealm, final Context context, final ExecutorService workers,
+            final Function<? super Activation<?>, ?> partitioner) {
+        super(eventRealm, context);
+        this.workers = checkNotNull(workers, "Cannot create parallel executor with null worker pool!");
+        this.partitioner = checkNotNull(partitioner, "Cannot create parallel executor with null partitioner!");
+    }
+
+    /**
+     * Fires rounds of activations as long as there are enabled activations.
+     *
+     * If firing causes further schedule calls, these reentrant calls are ignored, since the activations will be fired
+     * if they became enabled.
+     */
+    @Override
+    protected void schedule() {
+
+        if (!startScheduling()) {
+            return;
+        }
+
+        try {
+            ConflictSet conflictSet = getRuleBase().getAgenda().getConflictSet();
+            List<Activation<?>> round = null;
+            while (!(round = selectRound(conflictSet)).isEmpty()) {
+                if (round.size() == 1) {
+                    fire(round.get(0));
+                } else if (!fireInParallel(round)) {
+                    break;
+                }
+            }
+        } finally {
+            endScheduling();
+        }
+    }
+
+    private List<Activation<?>> selectRound(final ConflictSet conflictSet) {
+        Activation<?> nextActivation = conflictSet.getNextActivation();
+        if (nextActivation == null) {
+            return Collections.emptyList();
+        }
+        List<Activation<?>> round = Lists.newArrayList();
+        round.add(nextActivation);
+        if (isTwoPhase(nextActivation)) {
+            Set<Object> partitions = Sets.newHashSet();
+            partitions.add(partitioner.apply(nextActivation));
+            for (Activation<?> activation : conflictSet.getNextActivations()) {
+                if (!activation.equals(nextActivation) && isTwoPhase(activation)
+                        && partitions.add(partitioner.apply(activation))) {
+                    round.add(activation);
+                }
+            }
+        }
+        return round;
+    }
+
+    private boolean isTwoPhase(final Activation<?> activation) {
+        for (Job<?> job : activation.getInstance().getSpecification().getJobs(activation.getState())) {
+            if (!(job instanceof TwoPhaseJob)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false, if the execution was interrupted
+     */
+    private boolean fireInParallel(final List<Activation<?>> round) {
+        List<PreparedActivation<?>> preparedActivations = Lists.newArrayListWithCapacity(round.size());
+        for (Activation<?> activation : round) {
+            preparedActivations.add(createPreparedActivation(activation));
+        }
+
+        List<Future<Void>> preparations = null;
+        try {
+            preparations = workers.invokeAll(preparedActivations);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getRuleBase().getLogger().warn("Parallel execution interrupted in " + this, e);
+            return false;
+        }
+
+        for (int i = 0; i < preparedActivations.size(); i++) {
+            try {
+                preparations.get(i).get();
+            } catch (InterruptedException e) {
+                // all preparations are done, cannot happen
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                // exceptions of the jobs are handled by the jobs, only errors get here
+                throw Throwables.propagate(e.getCause());
+            }
+            preparedActivations.get(i).apply();
+        }
+        return true;
+    }
+
+    private <EventAtom> PreparedActivation<EventAtom> createPreparedActivation(final Activation<EventAtom> activation) {
+        return new PreparedActivation<EventAtom>(activation);
+    }
+
+    /**
+     * The effects of the jobs of an activation, computed on a worker thread.
+     */
+    private final class PreparedActivation<EventAtom> implements Callable<Void> {
+
+        private final Activation<EventAtom> activation;
+        private final ActivationState state;
+        private final List<Job<EventAtom>> jobs;
+        private final List<Runnable> modifications;
+        private final List<Exception> errors;
+
+        public PreparedActivation(final Activation<EventAtom> activation) {
+            this.activation = activation;
+            this.state = activation.getState();
+            this.jobs = Lists.newArrayList(activation.getInstance().getSpecification().getJobs(state));
+            this.modifications = Lists.newArrayListWithCapacity(jobs.size());
+            this.errors = Lists.newArrayListWithCapacity(jobs.size());
+        }
+
+        @Override
+        public Void call() {
+            for (Job<EventAtom> job : jobs) {
+                try {
+                    modifications.add(((TwoPhaseJob<EventAtom>) job).prepare(activation, getContext()));
+                    errors.add(null);
+                } catch (Exception e) {
+                    modifications.add(null);
+                    errors.add(e);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Performs the state transition of the activation and applies the computed effects, unless the activation
+         * has been disabled in the meantime.
+         */
+        public void apply() {
+            RuleInstance<EventAtom> instance = activation.getInstance();
+            if (!state.equals(activation.getState()) || !instance.getActivations().contains(state, activation.getAtom())) {
+                getRuleBase().getLogger().debug("Skipping disabled: " + activation + " in " + ParallelExecutor.this);
+                return;
+            }
+            getRuleBase().getLogger().debug("Executing: " + activation + " in " + ParallelExecutor.this);
+            instance.activationStateTransition(activation, RuleEngineEventType.FIRE);
+            for (int i = 0; i < jobs.size(); i++) {
+                Exception error = errors.get(i);
+                if (error == null) {
+                    Runnable modification = modifications.get(i);
+                    try {
+                        if (modification != null) {
+                            modification.run();
+                        }
+                    } catch (Exception e) {
+                        error = e;
+                    }
+                }
+                if (error != null) {
+                    jobs.get(i).handleError(activation, error, getContext());
+                }
+            }
+        }
+    }
+
+}
@@ -137,11 +137,13 @@ public class RuleEngine {
 	}
     
     /**
+     * The agenda collects the activations from all rule instances on each call, so this takes time linear in the
+     * number of activations; avoid calling it repeatedly, e.g. in a loop over the activations.
      * 
-     * @return a copy of the multimap containing all activations
+     * @return an immutable multimap containing all activations
      */
     public Multimap<ActivationState, Activation<?>> getActivations() {
-        return ImmutableMultimap.copyOf(ruleBase.getAgenda().getActivations());
+        return ruleBase.getAgenda().getActivations();
     }
 
     /**
@@ -161,6 +163,7 @@ public class RuleEngine {
     }
     
     /**
+     * The agenda collects the activations in the given state from all rule instances on each call.
      * 
      * @param state
      * @return an immutable set of the activations in the given state
@@ -15,6 +15,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.eclipse.incquery.runtime.evm.api.event.ActivationState;
 import org.eclipse.incquery.runtime.evm.api.event.EventFilter;
@@ -26,6 +27,7 @@ import org.eclipse.incquery.runtime.evm.notification.IActivationNotificationProv
 
 import com.google.common.base.Objects;
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Table;
 import com.google.common.collect.Table.Cell;
 
@@ -137,6 +139,53 @@ public class RuleInstance<EventAtom> implements IActivationNotificationProvider{
         }
     }
 
+    /**
+     * Fires the given activations together using the supplied context.
+     * First, the state of each activation that is part of the activation set
+     * of the instance in the given state is updated by calling activationStateTransition().
+     * Then, each job that corresponds to the activation state is executed once:
+     * {@link BatchJob}s receive all fired activations in one call, other jobs
+     * are executed on the activations one by one.
+     *
+     * @param batch
+     * @param activationState
+     * @param context
+     */
+    public void fireBatch(final Collection<Activation<EventAtom>> batch, final ActivationState activationState, final Context context) {
+        checkNotNull(batch, "Cannot fire null batch!");
+        checkNotNull(activationState, "Cannot fire batch for null state!");
+        checkNotNull(context,"Cannot fire batch with null context");
+        List<Activation<EventAtom>> fired = Lists.newArrayListWithCapacity(batch.size());
+        for (Activation<EventAtom> activation : batch) {
+            if (activationState.equals(activation.getState()) && activations.contains(activationState, activation.getAtom())) {
+                activationStateTransition(activation, EventType.RuleEngineEventType.FIRE);
+                fired.add(activation);
+            }
+        }
+        if (fired.isEmpty()) {
+            return;
+        }
+        Collection<Job<EventAtom>> jobs = specification.getJobs(activationState);
+        for (Job<EventAtom> job : jobs) {
+            if (job instanceof BatchJob) {
+                BatchJob<EventAtom> batchJob = (BatchJob<EventAtom>) job;
+                try {
+                    batchJob.executeBatch(fired, context);
+                } catch(Exception e) {
+                    batchJob.handleBatchError(fired, e, context);
+                }
+            } else {
+                for (Activation<EventAtom> activation : fired) {
+                    try {
+                        job.execute(activation, context);
+                    } catch(Exception e) {
+                        job.handleError(activation, e, context);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Performs the state transition on the given activation in response to the specified event
      * using the life-cycle defined in the rule specification. If there is a transition defined for the 
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.api;
+
+import org.eclipse.incquery.runtime.evm.api.event.ActivationState;
+
+/**
+ * A job that separates computing its effect from applying it to the model. The computation only reads the model,
+ * therefore the {@link ParallelExecutor} may compute the effects of several activations in parallel, and apply them
+ * one by one afterwards.
+ *
+ * <p>
+ * When executed by the default {@link Executor}, the effect is applied right after it is computed.
+ *
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public abstract class TwoPhaseJob<EventAtom> extends Job<EventAtom> {
+
+    /**
+     * Creates a new job corresponding to the given state.
+     */
+    protected TwoPhaseJob(final ActivationState activationState) {
+        super(activationState);
+    }
+
+    /**
+     * Computes the effect of the job on the activation. May be called concurrently for different activations, so it
+     * must not modify the model or the context, and must be thread-safe.
+     *
+     * @param activation
+     * @param context
+     * @return the modification to be applied to the model, or null if there is nothing to apply
+     */
+    protected abstract Runnable prepare(final Activation<? extends EventAtom> activation, final Context context);
+
+    @Override
+    protected void execute(final Activation<? extends EventAtom> activation, final Context context) {
+        Runnable modification = prepare(activation, context);
+        if (modification != null) {
+            modification.run();
+        }
+    }
+
+}
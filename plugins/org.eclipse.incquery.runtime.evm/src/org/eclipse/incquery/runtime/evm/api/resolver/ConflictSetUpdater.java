@@ -24,28 +24,45 @@ public class ConflictSetUpdater implements IActivationNotificationListener {
      *
      */
     private final ChangeableConflictSet changeableConflictSet;
+    private int activationCount;
 
     /**
      * @param changeableConflictSet
      */
     public ConflictSetUpdater(final ChangeableConflictSet changeableConflictSet) {
         this.changeableConflictSet = changeableConflictSet;
+        this.activationCount = changeableConflictSet.getConflictingActivations().size();
+    }
+
+    /**
+     * The count follows the enabled state of the activations, so it is available without copying the conflicting
+     * activations of conflict sets that compute them on each call.
+     * 
+     * @return the number of activations in the conflict set
+     */
+    public int getActivationCount() {
+        return activationCount;
     }
 
     @Override
     public void activationRemoved(final Activation<?> activation, final ActivationState oldState) {
+        if (isEnabledIn(activation, oldState)) {
+            activationCount--;
+        }
         changeableConflictSet.removeActivation(activation);
     }
 
     @Override
     public void activationCreated(final Activation<?> activation, final ActivationState inactiveState) {
         final ActivationState state = activation.getState();
+        updateCount(activation, inactiveState, !state.isInactive() && activation.isEnabled());
         refreshActivation(activation, state);
     }
 
     @Override
     public void activationChanged(final Activation<?> activation, final ActivationState oldState, final EventType event) {
         final ActivationState state = activation.getState();
+        updateCount(activation, oldState, !state.isInactive() && activation.isEnabled());
         if(state.isInactive()) {
             changeableConflictSet.removeActivation(activation);
         } else {
@@ -53,6 +70,19 @@ public class ConflictSetUpdater implements IActivationNotificationListener {
         }
     }
 
+    private void updateCount(final Activation<?> activation, final ActivationState oldState, final boolean enabled) {
+        boolean wasEnabled = isEnabledIn(activation, oldState);
+        if (enabled && !wasEnabled) {
+            activationCount++;
+        } else if (!enabled && wasEnabled) {
+            activationCount--;
+        }
+    }
+
+    private boolean isEnabledIn(final Activation<?> activation, final ActivationState state) {
+        return !state.isInactive() && activation.getInstance().getSpecification().getEnabledStates().contains(state);
+    }
+
     private void refreshActivation(final Activation<?> activation, final ActivationState state) {
         if (activation.isEnabled()) {
             changeableConflictSet.addActivation(activation);
@@ -16,6 +16,7 @@ import org.eclipse.incquery.runtime.evm.api.Activation;
 import org.eclipse.incquery.runtime.evm.specific.resolver.ArbitraryOrderConflictResolver;
 import org.eclipse.incquery.runtime.evm.specific.resolver.ComparingConflictResolver;
 import org.eclipse.incquery.runtime.evm.specific.resolver.FixedPriorityConflictResolver;
+import org.eclipse.incquery.runtime.evm.specific.resolver.HeapPriorityConflictResolver;
 
 /**
  * @author Abel Hegedus
@@ -37,6 +38,14 @@ public final class ConflictResolvers {
         return new FixedPriorityConflictResolver();
     }
     
+    /**
+     * Creates a fixed priority resolver that keeps the activations in an indexed binary heap, which scales better with
+     * a large number of enabled activations and priority levels than {@link #createFixedPriorityResolver()}.
+     */
+    public static HeapPriorityConflictResolver createHeapPriorityResolver() {
+        return new HeapPriorityConflictResolver();
+    }
+    
     public static ComparingConflictResolver createComparingResolver(Comparator<Activation<?>> comparator) {
         return new ComparingConflictResolver(comparator);
     }
@@ -13,16 +13,21 @@ package org.eclipse.incquery.runtime.evm.specific;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.eclipse.incquery.runtime.api.IncQueryEngine;
+import org.eclipse.incquery.runtime.evm.api.Activation;
 import org.eclipse.incquery.runtime.evm.api.EventDrivenVM;
 import org.eclipse.incquery.runtime.evm.api.ExecutionSchema;
 import org.eclipse.incquery.runtime.evm.api.Executor;
+import org.eclipse.incquery.runtime.evm.api.ParallelExecutor;
 import org.eclipse.incquery.runtime.evm.api.RuleSpecification;
 import org.eclipse.incquery.runtime.evm.api.Scheduler;
 import org.eclipse.incquery.runtime.evm.api.Scheduler.ISchedulerFactory;
 import org.eclipse.incquery.runtime.evm.specific.event.IncQueryEventRealm;
 
+import com.google.common.base.Function;
+
 /**
  * @author Abel Hegedus
  *
@@ -61,4 +66,24 @@ public class ExecutionSchemas {
         return ExecutionSchema.create(scheduler);
     }
 
+    /**
+     * Creates a new execution schema that is initialized over the given
+     * IncQueryEngine, creates a {@link ParallelExecutor} and agenda without rules
+     *  and prepares a scheduler using the provided factory.
+     * 
+     * @param engine
+     * @param schedulerFactory
+     * @param workers the pool computing the effects of the jobs in parallel
+     * @param partitioner returns the partition key of activations, see {@link ParallelExecutor}
+     * @return the prepared execution schema
+     */
+    public static ExecutionSchema createParallelIncQueryExecutionSchema(final IncQueryEngine engine,
+            final ISchedulerFactory schedulerFactory, final ExecutorService workers,
+            final Function<? super Activation<?>, ?> partitioner) {
+        checkNotNull(schedulerFactory, "Cannot create execution schema with null scheduler factory");
+        Executor executor = new ParallelExecutor(IncQueryEventRealm.create(engine), workers, partitioner);
+        Scheduler scheduler = schedulerFactory.prepareScheduler(executor);
+        return ExecutionSchema.create(scheduler);
+    }
+
 }
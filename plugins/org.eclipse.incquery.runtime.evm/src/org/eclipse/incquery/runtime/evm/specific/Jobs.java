@@ -18,14 +18,18 @@ import org.eclipse.emf.edit.domain.EditingDomain;
 import org.eclipse.incquery.runtime.api.IMatchProcessor;
 import org.eclipse.incquery.runtime.api.IPatternMatch;
 import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.BatchJob;
 import org.eclipse.incquery.runtime.evm.api.Context;
 import org.eclipse.incquery.runtime.evm.api.Job;
 import org.eclipse.incquery.runtime.evm.api.event.ActivationState;
 import org.eclipse.incquery.runtime.evm.specific.event.IncQueryActivationStateEnum;
 import org.eclipse.incquery.runtime.evm.specific.job.EnableJob;
+import org.eclipse.incquery.runtime.evm.specific.job.ErrorLoggingBatchJob;
 import org.eclipse.incquery.runtime.evm.specific.job.ErrorLoggingJob;
 import org.eclipse.incquery.runtime.evm.specific.job.EventAtomEditingDomainProvider;
+import org.eclipse.incquery.runtime.evm.specific.job.IMatchBatchProcessor;
 import org.eclipse.incquery.runtime.evm.specific.job.RecordingJob;
+import org.eclipse.incquery.runtime.evm.specific.job.StatelessBatchJob;
 import org.eclipse.incquery.runtime.evm.specific.job.StatelessJob;
 
 /**
@@ -55,6 +59,19 @@ public final class Jobs {
         return new StatelessJob<Match>(incQueryActivationStateEnum, processor);
     }
 
+    /**
+     * Creates a {@link StatelessBatchJob} for the given state with the given processor. A stateless batch job processes
+     * the matches of all activations of the rule that are fired together in one call.
+     *
+     * @param incQueryActivationStateEnum
+     * @param processor
+     * @return
+     */
+    public static <Match extends IPatternMatch> BatchJob<Match> newStatelessBatchJob(
+            final IncQueryActivationStateEnum incQueryActivationStateEnum, final IMatchBatchProcessor<Match> processor) {
+        return new StatelessBatchJob<Match>(incQueryActivationStateEnum, processor);
+    }
+
     public static <Match extends IPatternMatch> EventAtomEditingDomainProvider<Match> createMatchBasedEditingDomainProvider() {
         return new EventAtomEditingDomainProvider<Match>() {
 
@@ -147,4 +164,15 @@ public final class Jobs {
         return new ErrorLoggingJob<EventAtom>(job);
     }
 
+    /**
+     * Creates an {@link ErrorLoggingBatchJob} decorating the given batch job, so the activations of the rule are still
+     * fired together.
+     *
+     * @param job
+     * @return
+     */
+    public static <EventAtom> BatchJob<EventAtom> newErrorLoggingJob(final BatchJob<EventAtom> job) {
+        return new ErrorLoggingBatchJob<EventAtom>(job);
+    }
+
 }
@@ -10,13 +10,17 @@
  *******************************************************************************/
 package org.eclipse.incquery.runtime.evm.specific;
 
+import java.util.concurrent.Executor;
+
 import org.eclipse.emf.transaction.TransactionalEditingDomain;
 import org.eclipse.incquery.runtime.api.IncQueryEngine;
 import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.eclipse.incquery.runtime.evm.specific.scheduler.AdaptiveScheduler.AdaptiveSchedulerFactory;
 import org.eclipse.incquery.runtime.evm.specific.scheduler.TimedScheduler.TimedSchedulerFactory;
 import org.eclipse.incquery.runtime.evm.specific.scheduler.UpdateCompleteBasedScheduler.UpdateCompleteBasedSchedulerFactory;
 import org.eclipse.incquery.runtime.evm.update.IQBaseCallbackUpdateCompleteProvider;
 import org.eclipse.incquery.runtime.evm.update.IQEngineUpdateCompleteProvider;
+import org.eclipse.incquery.runtime.evm.update.IUpdateCompleteProvider;
 import org.eclipse.incquery.runtime.evm.update.TransactionUpdateCompleteProvider;
 import org.eclipse.incquery.runtime.exception.IncQueryException;
 import org.eclipse.incquery.runtime.util.IncQueryLoggingUtil;
@@ -92,6 +96,43 @@ public final class Schedulers {
         return new UpdateCompleteBasedSchedulerFactory(provider);
     }
 
+    /**
+     * Creates a scheduler factory that creates adaptive schedulers by registering a
+     *  model update listener on the given engine, which hand off all schedulings to the given firing executor.
+     * 
+     * @param engine
+     * @param quietPeriod the time in milliseconds without updates after which the executor is scheduled
+     * @param maxLatency the maximum time in milliseconds an update may wait for scheduling
+     * @param maxPendingActivations the number of enabled activations that triggers scheduling, or 0 for no limit
+     * @param firingExecutor the executor running the schedulings on the thread that modifies the model,
+     *  e.g. on the UI thread
+     * @return
+     */
+    public static AdaptiveSchedulerFactory getIQEngineAdaptiveSchedulerFactory(final IncQueryEngine engine,
+            final long quietPeriod, final long maxLatency, final int maxPendingActivations,
+            final Executor firingExecutor) {
+        IQEngineUpdateCompleteProvider provider = new IQEngineUpdateCompleteProvider(engine);
+        return getAdaptiveSchedulerFactory(provider, quietPeriod, maxLatency, maxPendingActivations, firingExecutor);
+    }
+
+    /**
+     * Creates a scheduler factory that creates adaptive schedulers by registering to the given provider,
+     *  which hand off all schedulings to the given firing executor.
+     * 
+     * @param provider
+     * @param quietPeriod the time in milliseconds without updates after which the executor is scheduled
+     * @param maxLatency the maximum time in milliseconds an update may wait for scheduling
+     * @param maxPendingActivations the number of enabled activations that triggers scheduling, or 0 for no limit
+     * @param firingExecutor the executor running the schedulings on the thread that modifies the model,
+     *  e.g. on the UI thread
+     * @return
+     */
+    public static AdaptiveSchedulerFactory getAdaptiveSchedulerFactory(final IUpdateCompleteProvider provider,
+            final long quietPeriod, final long maxLatency, final int maxPendingActivations,
+            final Executor firingExecutor) {
+        return new AdaptiveSchedulerFactory(provider, quietPeriod, maxLatency, maxPendingActivations, firingExecutor);
+    }
+
     /**
      * Creates a scheduler factory with the given interval.
      * @param interval
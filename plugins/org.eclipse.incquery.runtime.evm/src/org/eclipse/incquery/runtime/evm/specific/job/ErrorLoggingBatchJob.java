@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.specific.job;
+
+import java.util.Collection;
+
+import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.BatchJob;
+import org.eclipse.incquery.runtime.evm.api.CompositeBatchJob;
+import org.eclipse.incquery.runtime.evm.api.Context;
+import org.eclipse.incquery.runtime.util.IncQueryLoggingUtil;
+
+/**
+ * Composite batch job for logging any errors that happen in the execution of the composed batch job. Unlike an
+ * {@link ErrorLoggingJob}, it keeps the activations of the rule fired together.
+ * 
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public class ErrorLoggingBatchJob<EventAtom> extends CompositeBatchJob<EventAtom> {
+    
+    /**
+     * Composes the given batch job into an error logging batch job.
+     * 
+     * @param job the composed job
+     */
+    public ErrorLoggingBatchJob(BatchJob<EventAtom> job) {
+        super(job);
+    }
+
+    @Override
+    protected void handleBatchError(Collection<? extends Activation<? extends EventAtom>> activations,
+            Exception exception, Context context) {
+        IncQueryLoggingUtil.getLogger(getClass()).error(
+                "Exception occurred while executing job on activations " + activations + "!", exception);
+    }
+
+}
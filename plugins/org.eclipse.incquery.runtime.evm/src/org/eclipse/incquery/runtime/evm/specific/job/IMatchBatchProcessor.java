@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.specific.job;
+
+import java.util.Collection;
+
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+
+/**
+ * A processor that receives several matches in one call, used by {@link StatelessBatchJob}s.
+ *
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public interface IMatchBatchProcessor<Match extends IPatternMatch> {
+
+    /**
+     * Defines the action that is to be executed on the given matches.
+     *
+     * @param matches
+     *            the matches of the fired activations, in the order of firing
+     */
+    void process(Collection<Match> matches);
+
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.specific.job;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.BatchJob;
+import org.eclipse.incquery.runtime.evm.api.Context;
+import org.eclipse.incquery.runtime.evm.specific.event.IncQueryActivationStateEnum;
+
+import com.google.common.collect.Lists;
+
+/**
+ * This class represents a {@link BatchJob} that uses an {@link IMatchBatchProcessor} 
+ * on the matches of the activations when executed.
+ * 
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public class StatelessBatchJob<Match extends IPatternMatch> extends BatchJob<Match> {
+
+    private IMatchBatchProcessor<Match> matchProcessor;
+
+    /**
+     * @return the matchProcessor executed by the job
+     */
+    public IMatchBatchProcessor<Match> getMatchProcessor() {
+        return matchProcessor;
+    }
+
+    /**
+     * Creates a stateless batch job for the given state and processor.
+     */
+    public StatelessBatchJob(final IncQueryActivationStateEnum incQueryActivationStateEnum,
+            final IMatchBatchProcessor<Match> matchProcessor) {
+        super(incQueryActivationStateEnum);
+        this.matchProcessor = checkNotNull(matchProcessor,
+                "StatelessBatchJob cannot be instantiated with null match processor");
+    }
+
+    @Override
+    protected void executeBatch(final Collection<? extends Activation<? extends Match>> activations,
+            final Context context) {
+        List<Match> matches = Lists.newArrayListWithCapacity(activations.size());
+        for (Activation<? extends Match> activation : activations) {
+            matches.add(activation.getAtom());
+        }
+        matchProcessor.process(matches);
+    }
+
+    @Override
+    protected void handleBatchError(final Collection<? extends Activation<? extends Match>> activations,
+            final Exception exception, final Context context) {
+        throw new IllegalStateException("Exception " + exception.getMessage() + " was thrown when executing "
+                + activations + "! Stateless batch job doesn't handle errors!", exception);
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.specific.resolver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.RuleSpecification;
+import org.eclipse.incquery.runtime.evm.specific.resolver.impl.IndexedHeapConflictSetImpl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A conflict resolver that fires activations in the order of the fixed priorities of their rules, like the
+ * {@link FixedPriorityConflictResolver}, but keeps the enabled activations in an indexed binary heap instead of
+ * priority buckets (see {@link IndexedHeapConflictSetImpl}).
+ *
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public class HeapPriorityConflictResolver extends
+        ReconfigurableConflictResolver<HeapPriorityConflictResolver.HeapPriorityConflictSet> {
+
+    protected Map<RuleSpecification<?>, Integer> priorities;
+
+    public HeapPriorityConflictResolver() {
+        priorities = Maps.newHashMap();
+    }
+
+    public void setPriority(RuleSpecification<?> specification, int priority) {
+        checkArgument(specification != null, "Specification cannot be null!");
+        Integer oldPriority = priorities.get(specification);
+        if(oldPriority != null && oldPriority == priority) {
+            return; // no change required
+        }
+        priorities.put(specification, priority);
+        Set<WeakReference<HeapPriorityConflictSet>> sets = getConflictSets();
+        for (WeakReference<HeapPriorityConflictSet> weakReference : sets) {
+            HeapPriorityConflictSet conflictSet = weakReference.get();
+            if(conflictSet != null) {
+                conflictSet.setPriority(specification, priority);
+            }
+        }
+    }
+
+    @Override
+    protected HeapPriorityConflictSet createReconfigurableConflictSet() {
+        return new HeapPriorityConflictSet(priorities);
+    }
+
+    public class HeapPriorityConflictSet extends IndexedHeapConflictSetImpl {
+
+        private final Map<RuleSpecification<?>, Integer> priorityMap;
+
+        protected HeapPriorityConflictSet(Map<RuleSpecification<?>, Integer> priorities) {
+            checkArgument(priorities != null, "Priority map cannot be null!");
+            priorityMap = Maps.newHashMap(priorities);
+        }
+
+        @Override
+        protected int getPriority(Activation<?> activation) {
+            Integer rulePriority = priorityMap.get(activation.getInstance().getSpecification());
+            return rulePriority == null ? 0 : rulePriority;
+        }
+
+        protected void setPriority(RuleSpecification<?> specification, int priority) {
+            checkArgument(specification != null, "Specification cannot be null");
+            priorityMap.put(specification, priority);
+            List<Activation<?>> changed = Lists.newArrayList();
+            for (Activation<?> activation : getConflictingActivations()) {
+                if(specification.equals(activation.getInstance().getSpecification())) {
+                    changed.add(activation);
+                }
+            }
+            for (Activation<?> activation : changed) {
+                updatePriority(activation);
+            }
+        }
+
+        @Override
+        public HeapPriorityConflictResolver getConflictResolver() {
+            return HeapPriorityConflictResolver.this;
+        }
+
+    }
+
+}
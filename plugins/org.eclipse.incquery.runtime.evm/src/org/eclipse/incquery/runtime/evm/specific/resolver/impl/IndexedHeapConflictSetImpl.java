@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.specific.resolver.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.resolver.ChangeableConflictSet;
+
+/**
+ * A conflict set that keeps the activations in a binary min-heap ordered by their priority, where lower values come
+ * first. Each activation is mapped to its heap entry, so adding, removing and repositioning an activation after its
+ * priority changed take O(log n) time, while the next activation is returned in constant time.
+ *
+ * <p>
+ * The priority of an activation is computed once when it is added, and then only when {@link #updatePriority} is
+ * called for it.
+ *
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public abstract class IndexedHeapConflictSetImpl implements ChangeableConflictSet {
+
+    private static final class Entry {
+        private final Activation<?> activation;
+        private int priority;
+        private int position;
+
+        private Entry(final Activation<?> activation, final int priority) {
+            this.activation = activation;
+            this.priority = priority;
+        }
+    }
+
+    private final List<Entry> heap = new ArrayList<Entry>();
+    private final Map<Activation<?>, Entry> entries = new HashMap<Activation<?>, Entry>();
+
+    /**
+     * @param activation
+     * @return the priority of the activation, lower values are fired first
+     */
+    protected abstract int getPriority(Activation<?> activation);
+
+    @Override
+    public Activation<?> getNextActivation() {
+        if (heap.isEmpty()) {
+            return null;
+        }
+        return heap.get(0).activation;
+    }
+
+    @Override
+    public Set<Activation<?>> getNextActivations() {
+        if (heap.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Activation<?>> nextActivations = new HashSet<Activation<?>>();
+        collectWithPriority(0, heap.get(0).priority, nextActivations);
+        return Collections.unmodifiableSet(nextActivations);
+    }
+
+    /**
+     * Collects the entries of the subtree with the given priority; a subtree is skipped if its root has a different
+     * priority, as all of its entries come later.
+     */
+    private void collectWithPriority(final int position, final int priority, final Set<Activation<?>> result) {
+        if (position >= heap.size()) {
+            return;
+        }
+        Entry entry = heap.get(position);
+        if (entry.priority == priority) {
+            result.add(entry.activation);
+            collectWithPriority(2 * position + 1, priority, result);
+            collectWithPriority(2 * position + 2, priority, result);
+        }
+    }
+
+    @Override
+    public Set<Activation<?>> getConflictingActivations() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    @Override
+    public boolean addActivation(final Activation<?> activation) {
+        checkArgument(activation != null, "Activation cannot be null!");
+        if (entries.containsKey(activation)) {
+            return false;
+        }
+        Entry entry = new Entry(activation, getPriority(activation));
+        entries.put(activation, entry);
+        entry.position = heap.size();
+        heap.add(entry);
+        siftUp(entry);
+        return true;
+    }
+
+    @Override
+    public boolean removeActivation(final Activation<?> activation) {
+        checkArgument(activation != null, "Activation cannot be null!");
+        Entry entry = entries.remove(activation);
+        if (entry == null) {
+            return false;
+        }
+        Entry last = heap.remove(heap.size() - 1);
+        if (last != entry) {
+            place(last, entry.position);
+            reposition(last);
+        }
+        return true;
+    }
+
+    /**
+     * Recomputes the priority of the given activation and moves it to its new place in the heap.
+     *
+     * @param activation
+     * @return true, if the activation is in the conflict set
+     */
+    protected boolean updatePriority(final Activation<?> activation) {
+        Entry entry = entries.get(activation);
+        if (entry == null) {
+            return false;
+        }
+        entry.priority = getPriority(activation);
+        reposition(entry);
+        return true;
+    }
+
+    private void reposition(final Entry entry) {
+        int position = entry.position;
+        siftUp(entry);
+        if (entry.position == position) {
+            siftDown(entry);
+        }
+    }
+
+    private void siftUp(final Entry entry) {
+        int position = entry.position;
+        while (position > 0) {
+            int parentPosition = (position - 1) / 2;
+            Entry parent = heap.get(parentPosition);
+            if (parent.priority <= entry.priority) {
+                break;
+            }
+            place(parent, position);
+            position = parentPosition;
+        }
+        place(entry, position);
+    }
+
+    private void siftDown(final Entry entry) {
+        int position = entry.position;
+        int size = heap.size();
+        while (true) {
+            int childPosition = 2 * position + 1;
+            if (childPosition >= size) {
+                break;
+            }
+            Entry child = heap.get(childPosition);
+            if (childPosition + 1 < size && heap.get(childPosition + 1).priority < child.priority) {
+                childPosition++;
+                child = heap.get(childPosition);
+            }
+            if (entry.priority <= child.priority) {
+                break;
+            }
+            place(child, position);
+            position = childPosition;
+        }
+        place(entry, position);
+    }
+
+    private void place(final Entry entry, final int position) {
+        heap.set(position, entry);
+        entry.position = position;
+    }
+
+}
@@ -0,0 +1,401 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.evm.specific.scheduler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.incquery.runtime.evm.api.Executor;
+import org.eclipse.incquery.runtime.evm.api.Scheduler;
+import org.eclipse.incquery.runtime.evm.update.IUpdateCompleteListener;
+import org.eclipse.incquery.runtime.evm.update.IUpdateCompleteProvider;
+
+import com.google.common.base.Objects;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * This scheduler coalesces the update complete events of bursts of model changes.
+ * 
+ * The first update after a quiet period schedules the executor immediately. Further updates are collected
+ *  and the executor is scheduled once the updates stop for the quiet period, or earlier, when the first
+ *  collected update is older than the maximum latency or the number of enabled activations reaches the
+ *  maximum.
+ * 
+ * <p>The deadlines are checked on the timer thread of the scheduler, but the executor is never scheduled there:
+ *  all schedulings, including the ones caused by updates, are handed off to the firing executor of the factory.
+ *  It has to run them on the thread that modifies the model, e.g. by posting them to the event queue of the UI
+ *  thread, since the executor reads the agenda that the model changes update.
+ * 
+ * <p>Updates received while the executor is scheduled, e.g. caused by the fired jobs, are not lost: if any of
+ *  them would have scheduled the executor, it is scheduled again right after it returns.
+ * 
+ * @author Abel Hegedus
+ * @since 0.8
+ */
+public class AdaptiveScheduler extends Scheduler implements IUpdateCompleteListener {
+
+    /**
+     * The reasons for scheduling the executor.
+     */
+    public enum Trigger {
+        /** the first update after a quiet period */
+        IDLE,
+        /** no updates during the quiet period */
+        QUIET_PERIOD,
+        /** the first collected update is older than the maximum latency */
+        MAX_LATENCY,
+        /** the number of enabled activations reached the maximum */
+        MAX_PENDING_ACTIVATIONS
+    }
+
+    private final AdaptiveSchedulerFactory factory;
+    private final long quietPeriod;
+    private final long maxLatency;
+    private final int maxPendingActivations;
+    private final java.util.concurrent.Executor firingExecutor;
+    private final ScheduledExecutorService timer;
+
+    // guarded by this
+    private boolean disposed = false;
+    private boolean timerArmed = false;
+    private boolean firing = false;
+    private Trigger dueTrigger;
+    private Trigger missedTrigger;
+    private int pendingUpdates = 0;
+    private long firstPendingUpdate;
+    private long lastUpdate;
+    private long lastScheduling;
+    private long updateCount = 0;
+    private long schedulingCount = 0;
+    private final long[] triggerCounts = new long[Trigger.values().length];
+    private int largestBatch = 0;
+
+    private final Runnable timerTask = new Runnable() {
+        @Override
+        public void run() {
+            Trigger trigger = checkDeadlines();
+            if (trigger != null) {
+                fire(trigger);
+            }
+        }
+    };
+
+    /**
+     * Creates a scheduler for the given executor, with the settings of the given factory.
+     */
+    protected AdaptiveScheduler(final Executor executor, final AdaptiveSchedulerFactory factory) {
+        super(executor);
+        this.factory = factory;
+        this.quietPeriod = TimeUnit.MILLISECONDS.toNanos(factory.getQuietPeriod());
+        this.maxLatency = TimeUnit.MILLISECONDS.toNanos(factory.getMaxLatency());
+        this.maxPendingActivations = factory.getMaxPendingActivations();
+        this.firingExecutor = factory.getFiringExecutor();
+        this.lastScheduling = System.nanoTime() - quietPeriod;
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("AdaptiveScheduler [quiet period: " + factory.getQuietPeriod() + "]").setDaemon(true)
+                .build());
+    }
+
+    @Override
+    public void updateComplete() {
+        Trigger trigger = null;
+        synchronized (this) {
+            if (disposed) {
+                return;
+            }
+            long now = System.nanoTime();
+            updateCount++;
+            if (pendingUpdates == 0) {
+                firstPendingUpdate = now;
+                if (now - lastScheduling >= quietPeriod) {
+                    trigger = Trigger.IDLE;
+                }
+            }
+            pendingUpdates++;
+            lastUpdate = now;
+            if (trigger == null && now - firstPendingUpdate >= maxLatency) {
+                trigger = Trigger.MAX_LATENCY;
+            }
+            if (trigger == null) {
+                trigger = dueTrigger;
+            }
+        }
+        if (trigger == null && maxPendingActivations > 0 && getPendingActivations() >= maxPendingActivations) {
+            trigger = Trigger.MAX_PENDING_ACTIVATIONS;
+        }
+        if (trigger != null) {
+            fire(trigger);
+        } else {
+            synchronized (this) {
+                armTimer(quietPeriod);
+            }
+        }
+    }
+
+    private int getPendingActivations() {
+        return getExecutor().getRuleBase().getAgenda().getConflictingActivationCount();
+    }
+
+    /**
+     * Called by the timer when the earliest deadline may have passed; marks the collected updates as due if it
+     * has, and rearms the timer otherwise. Due updates are also scheduled by the next update, if the handed off
+     * scheduling has not run by then.
+     * 
+     * @return the trigger for scheduling, or null if it is not yet time to schedule
+     */
+    private synchronized Trigger checkDeadlines() {
+        timerArmed = false;
+        if (disposed || pendingUpdates == 0) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long latencyDeadline = firstPendingUpdate + maxLatency;
+        long quietDeadline = lastUpdate + quietPeriod;
+        if (now - latencyDeadline >= 0) {
+            dueTrigger = Trigger.MAX_LATENCY;
+        } else if (now - quietDeadline >= 0) {
+            dueTrigger = Trigger.QUIET_PERIOD;
+        } else {
+            armTimer(Math.min(latencyDeadline, quietDeadline) - now);
+            return null;
+        }
+        return dueTrigger;
+    }
+
+    /**
+     * @pre holding the lock
+     */
+    private void armTimer(final long delay) {
+        if (!timerArmed && !disposed) {
+            timerArmed = true;
+            timer.schedule(timerTask, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Hands off scheduling the executor to the firing executor.
+     */
+    private void fire(final Trigger trigger) {
+        firingExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                scheduleBatch(trigger);
+            }
+        });
+    }
+
+    /**
+     * Schedules the executor for the collected updates, then again as long as updates received meanwhile
+     * would have scheduled it, since the executor ignores scheduling while it is already running.
+     */
+    private void scheduleBatch(final Trigger trigger) {
+        synchronized (this) {
+            if (disposed || pendingUpdates == 0) {
+                return;
+            }
+            if (firing) {
+                // picked up when the running scheduling returns
+                missedTrigger = trigger;
+                return;
+            }
+            firing = true;
+        }
+        try {
+            Trigger next = trigger;
+            while (next != null) {
+                synchronized (this) {
+                    schedulingCount++;
+                    triggerCounts[next.ordinal()]++;
+                    largestBatch = Math.max(largestBatch, pendingUpdates);
+                    pendingUpdates = 0;
+                    dueTrigger = null;
+                    missedTrigger = null;
+                }
+                schedule();
+                synchronized (this) {
+                    lastScheduling = System.nanoTime();
+                    if (disposed || pendingUpdates == 0) {
+                        next = null;
+                    } else {
+                        next = missedTrigger != null ? missedTrigger : dueTrigger;
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                firing = false;
+            }
+        }
+    }
+
+    /**
+     * @return the number of update complete events received
+     */
+    public synchronized long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * @return the number of times the executor was scheduled
+     */
+    public synchronized long getSchedulingCount() {
+        return schedulingCount;
+    }
+
+    /**
+     * @param trigger
+     * @return the number of times the executor was scheduled for the given reason
+     */
+    public synchronized long getSchedulingCount(final Trigger trigger) {
+        checkNotNull(trigger, "Trigger cannot be null!");
+        return triggerCounts[trigger.ordinal()];
+    }
+
+    /**
+     * @return the largest number of update complete events coalesced into one scheduling
+     */
+    public synchronized int getLargestBatch() {
+        return largestBatch;
+    }
+
+    /**
+     * @return the average number of update complete events coalesced into one scheduling
+     */
+    public synchronized double getAverageBatchSize() {
+        if (schedulingCount == 0) {
+            return 0;
+        }
+        return (double) (updateCount - pendingUpdates) / schedulingCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.eclipse.incquery.runtime.evm.api.Scheduler#dispose()
+     */
+    @Override
+    public void dispose() {
+        factory.provider.removeUpdateCompleteListener(this);
+        synchronized (this) {
+            disposed = true;
+        }
+        timer.shutdownNow();
+        super.dispose();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this).add("updates", updateCount).add("schedulings", schedulingCount)
+                .add("idle", triggerCounts[Trigger.IDLE.ordinal()])
+                .add("quietPeriod", triggerCounts[Trigger.QUIET_PERIOD.ordinal()])
+                .add("maxLatency", triggerCounts[Trigger.MAX_LATENCY.ordinal()])
+                .add("maxPendingActivations", triggerCounts[Trigger.MAX_PENDING_ACTIVATIONS.ordinal()])
+                .add("largestBatch", largestBatch).toString();
+    }
+
+    /**
+     * Scheduler factory implementation for preparing adaptive schedulers that listen to the update complete
+     * events of the given provider.
+     * 
+     * @author Abel Hegedus
+     *
+     */
+    public static class AdaptiveSchedulerFactory implements ISchedulerFactory {
+
+        private IUpdateCompleteProvider provider;
+        private long quietPeriod;
+        private long maxLatency;
+        private int maxPendingActivations;
+        private java.util.concurrent.Executor firingExecutor;
+
+        /**
+         * Creates a scheduler factory for the given provider and settings.
+         * 
+         * @param provider
+         * @param quietPeriod
+         *            the time in milliseconds without updates after which the executor is scheduled
+         * @param maxLatency
+         *            the maximum time in milliseconds an update may wait for scheduling, not less than the quiet
+         *            period
+         * @param maxPendingActivations
+         *            the number of enabled activations that triggers scheduling without waiting, or 0 if there is
+         *            no such limit
+         * @param firingExecutor
+         *            the executor that all schedulings are handed off to, running them on the thread that modifies
+         *            the model
+         */
+        public AdaptiveSchedulerFactory(final IUpdateCompleteProvider provider, final long quietPeriod,
+                final long maxLatency, final int maxPendingActivations,
+                final java.util.concurrent.Executor firingExecutor) {
+            this.provider = checkNotNull(provider, "Cannot create scheduler factory with null provider!");
+            checkArgument(quietPeriod >= 0, "Quiet period cannot be negative!");
+            checkArgument(maxLatency >= quietPeriod, "Maximum latency cannot be less than the quiet period!");
+            checkArgument(maxPendingActivations >= 0, "Maximum pending activations cannot be negative!");
+            this.quietPeriod = quietPeriod;
+            this.maxLatency = maxLatency;
+            this.maxPendingActivations = maxPendingActivations;
+            this.firingExecutor = checkNotNull(firingExecutor,
+                    "Cannot create scheduler factory with null firing executor!");
+        }
+
+        /**
+         * @return the provider
+         */
+        public IUpdateCompleteProvider getProvider() {
+            return provider;
+        }
+
+        /**
+         * @return the quiet period in milliseconds
+         */
+        public long getQuietPeriod() {
+            return quietPeriod;
+        }
+
+        /**
+         * @return the maximum latency in milliseconds
+         */
+        public long getMaxLatency() {
+            return maxLatency;
+        }
+
+        /**
+         * @return the maximum number of pending activations, or 0 if there is no such limit
+         */
+        public int getMaxPendingActivations() {
+            return maxPendingActivations;
+        }
+
+        /**
+         * @return the executor that the schedulings are handed off to
+         */
+        public java.util.concurrent.Executor getFiringExecutor() {
+            return firingExecutor;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see org.eclipse.incquery.runtime.evm.api.Scheduler.ISchedulerFactory#prepareScheduler()
+         */
+        @Override
+        public AdaptiveScheduler prepareScheduler(final Executor executor) {
+            AdaptiveScheduler scheduler = new AdaptiveScheduler(executor, this);
+            provider.addUpdateCompleteListener(scheduler, true);
+            return scheduler;
+        }
+
+    }
+
+}
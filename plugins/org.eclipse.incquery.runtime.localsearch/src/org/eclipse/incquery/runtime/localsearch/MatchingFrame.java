@@ -16,8 +16,6 @@ import java.util.Arrays;
 
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 
-import com.google.common.base.Preconditions;
-
 /**
  * MatchingFrame represents the actual mappings of variables to constants. A MatchingFrame maintains a reference to its
  * corresponding Pattern (or possibly flattened pattern).
@@ -49,18 +47,16 @@ public class MatchingFrame extends Tuple implements Cloneable {
         this.frame = new Object[frameSize];
     }
 
-    /**
-     * Returns the value stored inside the matching frame.
-     * 
-     * @param position
-     * @return the element stored in the selected position in the frame, or null if it is not yet set
-     * @throws IndexOutOfBoundsException
-     *             if position is negative
-     * @throws IllegalArgumentException
-     *             if the position is larger then the length of the frame
+    /**
+     * Returns the value stored inside the matching frame. As frames are accessed in the inner loops of the search,
+     * the position is not validated beyond the bounds check of the underlying array.
+     * 
+     * @param position
+     * @return the element stored in the selected position in the frame, or null if it is not yet set
+     * @throws ArrayIndexOutOfBoundsException
+     *             if the position is negative, or not smaller than the length of the frame
      */
-	public Object getValue(Integer position) {
-        Preconditions.checkElementIndex(position, frame.length);
+	public Object getValue(int position) {
         return frame[position];
 	}
     
@@ -68,13 +64,21 @@ public class MatchingFrame extends Tuple implements Cloneable {
      * 
      * @param position
      * @param value
+     * @throws ArrayIndexOutOfBoundsException
+     *             if the position is negative, or not smaller than the length of the frame
      */
-    public void setValue(Integer position, Object value) {
-        Preconditions.checkElementIndex(position, frame.length);
+    public void setValue(int position, Object value) {
         frame[position] = value;
     }
     
-    public boolean testAndSetValue(Integer position, Object value) {
+    /**
+     * Unsets all values of the frame, so that it can be reused for a new search.
+     */
+    public void clear() {
+        Arrays.fill(frame, null);
+    }
+    
+    public boolean testAndSetValue(int position, Object value) {
         if (frame[position] == null) {
             frame[position] = value;
             return true;
@@ -91,7 +95,14 @@ public class MatchingFrame extends Tuple implements Cloneable {
     }
     
     public MatchingKey getKey() {
-        return new MatchingKey(Arrays.copyOfRange(frame, 0, keySize));
+        return new MatchingKey(getKeyValues());
+    }
+
+    /**
+     * @return a copy of the values of the key (i.e. the parameters of the pattern)
+     */
+    public Object[] getKeyValues() {
+        return Arrays.copyOfRange(frame, 0, keySize);
     }
 
     public MatchingFrame clone() {
@@ -115,6 +126,6 @@ public class MatchingFrame extends Tuple implements Cloneable {
 
     @Override
     public Object get(int index) {
-        return getValue(index);
+        return frame[index];
     }
 }
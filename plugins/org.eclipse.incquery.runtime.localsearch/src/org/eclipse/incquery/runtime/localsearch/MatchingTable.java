@@ -70,6 +70,10 @@ public class MatchingTable extends AbstractCollection<MatchingFrame> {
         return matchings.keySet().size();
     }
 
+    public boolean containsKey(MatchingKey key) {
+        return matchings.containsKey(key);
+    }
+
     public void put(MatchingKey key, MatchingFrame value) {
         Collection<MatchingFrame> coll = matchings.get(key);
         if (coll == null) {
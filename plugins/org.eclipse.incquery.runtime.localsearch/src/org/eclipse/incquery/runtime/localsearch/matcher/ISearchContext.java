@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.incquery.runtime.localsearch.matcher;
 
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -20,6 +21,12 @@ import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.incquery.runtime.base.api.IncQueryBaseFactory;
 import org.eclipse.incquery.runtime.base.api.NavigationHelper;
 import org.eclipse.incquery.runtime.base.exception.IncQueryBaseException;
+import org.eclipse.incquery.runtime.localsearch.plan.SearchPlanner;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
+
+import com.google.common.collect.Maps;
 
 /**
  * The {@link ISearchContext} interface allows search operations to reuse platform services such as the indexer.
@@ -30,12 +37,28 @@ import org.eclipse.incquery.runtime.base.exception.IncQueryBaseException;
 public interface ISearchContext{
     
     NavigationHelper getBaseIndex();
+
+    /**
+     * Returns the results of a query called from a search plan. The called query is not necessarily evaluated by
+     * local search.
+     * 
+     * @throws QueryPlannerException
+     *             if the called query cannot be evaluated
+     */
+    IQueryResultProvider getResultProvider(PQuery query) throws QueryPlannerException;
     
+    /**
+     * A standalone search context; called queries are evaluated by local search as well.
+     */
     public class SearchContext implements ISearchContext {
 
         final NavigationHelper baseIndex;
         
         final Logger logger = Logger.getLogger(getClass());
+
+        final Map<PQuery, IQueryResultProvider> resultProviders = Maps.newHashMap();
+
+        SearchPlanner planner;
         
         public SearchContext(ResourceSet set, Set<EClass> classes, Set<EDataType> dataTypes, Set<EStructuralFeature> features) throws IncQueryBaseException {
             baseIndex = IncQueryBaseFactory.getInstance().createNavigationHelper(set, false, logger);
@@ -51,6 +74,19 @@ public interface ISearchContext{
         public NavigationHelper getBaseIndex() {
             return baseIndex;
         }
+
+        @Override
+        public synchronized IQueryResultProvider getResultProvider(PQuery query) throws QueryPlannerException {
+            IQueryResultProvider provider = resultProviders.get(query);
+            if (provider == null) {
+                if (planner == null) {
+                    planner = new SearchPlanner(this);
+                }
+                provider = new LocalSearchResultProvider(query, planner);
+                resultProviders.put(query, provider);
+            }
+            return provider;
+        }
         
     }
 }
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.matcher;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IQueryBackendFactory;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.eclipse.incquery.runtime.exception.IncQueryException;
+import org.eclipse.incquery.runtime.localsearch.plan.SearchPlanner;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
+import org.eclipse.incquery.runtime.matchers.psystem.PBody;
+import org.eclipse.incquery.runtime.matchers.psystem.PConstraint;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.TypeBinary;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.TypeUnary;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * An {@link IQueryBackend} evaluating queries of an EMF-IncQuery engine by local search, using the base index of the
+ * engine. Queries called by the queries of this backend are evaluated by their own selected backend.
+ *
+ * <p>
+ * Usage: <code>AdvancedIncQueryEngine.from(engine).setQueryBackend(querySpecification, LocalSearchBackend.FACTORY)</code>
+ *
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class LocalSearchBackend implements IQueryBackend {
+
+    /**
+     * The factory of local search backends, to be used with
+     * {@link AdvancedIncQueryEngine#setQueryBackend(PQuery, IQueryBackendFactory)}.
+     */
+    public static final IQueryBackendFactory FACTORY = new IQueryBackendFactory() {
+
+        @Override
+        public IQueryBackend create(AdvancedIncQueryEngine engine) throws IncQueryException {
+            return new LocalSearchBackend(engine);
+        }
+    };
+
+    /**
+     * Called queries are evaluated by the backend selected for them in the engine.
+     */
+    private class EngineSearchContext implements ISearchContext {
+
+        @Override
+        public NavigationHelper getBaseIndex() {
+            return baseIndex;
+        }
+
+        @Override
+        public IQueryResultProvider getResultProvider(PQuery query) throws QueryPlannerException {
+            try {
+                return engine.getResultProvider(query);
+            } catch (IncQueryException e) {
+                throw new QueryPlannerException("Cannot access the results of called query {1}",
+                        new String[] { query.getFullyQualifiedName() }, e.getShortMessage(), query, e);
+            }
+        }
+
+    }
+
+    private final AdvancedIncQueryEngine engine;
+    private final NavigationHelper baseIndex;
+    private final SearchPlanner planner;
+    private final Map<PQuery, LocalSearchResultProvider> resultProviders = Maps.newHashMap();
+
+    public LocalSearchBackend(AdvancedIncQueryEngine engine) throws IncQueryException {
+        this.engine = engine;
+        this.baseIndex = engine.getBaseIndex();
+        this.planner = new SearchPlanner(new EngineSearchContext());
+    }
+
+    @Override
+    public synchronized IQueryResultProvider getResultProvider(PQuery query) throws QueryPlannerException {
+        LocalSearchResultProvider provider = resultProviders.get(query);
+        if (provider == null) {
+            registerTypes(query);
+            provider = new LocalSearchResultProvider(query, planner);
+            resultProviders.put(query, provider);
+        }
+        return provider;
+    }
+
+    /**
+     * Ensures that the types enumerated by the search operations of the query are indexed.
+     */
+    private void registerTypes(PQuery query) {
+        if (baseIndex.isInWildcardMode())
+            return;
+        Set<EClass> classes = Sets.newHashSet();
+        Set<EDataType> dataTypes = Sets.newHashSet();
+        Set<EStructuralFeature> features = Sets.newHashSet();
+        for (PBody body : query.getDisjunctBodies().getBodies()) {
+            for (PConstraint constraint : body.getConstraints()) {
+                if (constraint instanceof TypeUnary) {
+                    Object typeKey = ((TypeUnary) constraint).getSupplierKey();
+                    if (typeKey instanceof EClass)
+                        classes.add((EClass) typeKey);
+                    else if (typeKey instanceof EDataType)
+                        dataTypes.add((EDataType) typeKey);
+                } else if (constraint instanceof TypeBinary) {
+                    Object typeKey = ((TypeBinary) constraint).getSupplierKey();
+                    if (typeKey instanceof EStructuralFeature)
+                        features.add((EStructuralFeature) typeKey);
+                }
+            }
+        }
+        baseIndex.registerObservedTypes(classes, dataTypes, features);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        resultProviders.clear();
+        planner.clearCache();
+    }
+
+}
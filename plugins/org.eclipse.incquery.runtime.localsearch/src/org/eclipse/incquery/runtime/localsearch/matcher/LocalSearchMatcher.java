@@ -11,8 +11,11 @@
 package org.eclipse.incquery.runtime.localsearch.matcher;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+import org.eclipse.incquery.runtime.localsearch.MatchingKey;
 import org.eclipse.incquery.runtime.localsearch.MatchingTable;
 import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
 import org.eclipse.incquery.runtime.localsearch.plan.SearchPlanExecutor;
@@ -32,14 +35,26 @@ public class LocalSearchMatcher {
     private int frameSize;
     private int keySize;
 
+    /**
+     * Executes the plans on the given frame. If frames are not copied, {@link #next()} returns the searched frame
+     * itself, which is overwritten by the following steps of the search.
+     */
     private static class PlanExecutionIterator extends UnmodifiableIterator<MatchingFrame> {
 
         private UnmodifiableIterator<SearchPlanExecutor> iterator;
         private SearchPlanExecutor currentPlan;
-        private MatchingFrame frame;
-
-        public PlanExecutionIterator(final ImmutableList<SearchPlanExecutor> plan, MatchingFrame initialFrame) {
-            this.frame = initialFrame.clone();
+        private final MatchingFrame frame;
+        private final boolean copyFrames;
+        /**
+         * The frame holds a match that was not returned by next() yet
+         */
+        private boolean matchReady = false;
+        private boolean finished = false;
+
+        public PlanExecutionIterator(final ImmutableList<SearchPlanExecutor> plan, MatchingFrame frame,
+                boolean copyFrames) {
+            this.frame = frame;
+            this.copyFrames = copyFrames;
             Preconditions.checkArgument(plan.size() > 0);
             iterator = plan.iterator();
             getNextPlan();
@@ -52,12 +67,17 @@ public class LocalSearchMatcher {
 
         @Override
         public boolean hasNext() {
+            if (matchReady || finished) {
+                return matchReady;
+            }
             try {
                 boolean foundMatch = currentPlan.execute(frame);
                 while ((!foundMatch) && iterator.hasNext()) {
                     getNextPlan();
                     foundMatch = currentPlan.execute(frame);
                 }
+                matchReady = foundMatch;
+                finished = !foundMatch;
                 return foundMatch;
             } catch (LocalSearchException e) {
                 throw new RuntimeException(e);
@@ -66,7 +86,11 @@ public class LocalSearchMatcher {
 
         @Override
         public MatchingFrame next() {
-            return frame.clone();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            matchReady = false;
+            return copyFrames ? frame.clone() : frame;
         }
 
     }
@@ -85,6 +109,17 @@ public class LocalSearchMatcher {
         this.frameSize = framesize;
     }
 
+    /**
+     * Creates a matcher that executes the given plans one after the other, e.g. the plans of the bodies of a
+     * disjunctive pattern.
+     */
+    public LocalSearchMatcher(SearchPlanExecutor[] plan, int keySize, int framesize) {
+        super();
+        this.keySize = keySize;
+        this.plan = ImmutableList.copyOf(plan);
+        this.frameSize = framesize;
+    }
+
     protected void setPlan(SearchPlanExecutor plan) {
         this.plan = ImmutableList.of(plan);
     }
@@ -110,8 +145,7 @@ public class LocalSearchMatcher {
     }
 
     public boolean hasMatch(final MatchingFrame initialFrame) throws LocalSearchException {
-        PlanExecutionIterator it = new PlanExecutionIterator(plan, initialFrame);
-        return it.hasNext();
+        return iterateMatches(initialFrame.clone()).hasNext();
     }
 
     public int countMatches() throws LocalSearchException {
@@ -119,8 +153,7 @@ public class LocalSearchMatcher {
     }
 
     public int countMatches(MatchingFrame initialFrame) throws LocalSearchException {
-        PlanExecutionIterator it = new PlanExecutionIterator(plan, initialFrame);
-        return Iterators.size(it);
+        return Iterators.size(iterateMatches(initialFrame.clone()));
     }
 
     public MatchingFrame getOneArbitraryMatch() throws LocalSearchException {
@@ -128,7 +161,8 @@ public class LocalSearchMatcher {
     }
 
     public MatchingFrame getOneArbitraryMatch(final MatchingFrame initialFrame) throws LocalSearchException {
-        PlanExecutionIterator it = new PlanExecutionIterator(plan, initialFrame);
+        // the copied initial frame is not used after the first match, so it can be returned as is
+        Iterator<MatchingFrame> it = iterateMatches(initialFrame.clone());
         if (it.hasNext()) {
             return it.next();
         } else {
@@ -141,12 +175,34 @@ public class LocalSearchMatcher {
     }
 
     public Collection<MatchingFrame> getAllMatches(final MatchingFrame initialFrame) throws LocalSearchException {
-        PlanExecutionIterator it = new PlanExecutionIterator(plan, initialFrame);
+        Iterator<MatchingFrame> it = iterateMatches(initialFrame.clone());
         MatchingTable results = new MatchingTable();
         while (it.hasNext()) {
             final MatchingFrame frame = it.next();
-            results.put(frame.getKey(), frame);
+            final MatchingKey key = frame.getKey();
+            // only a single frame is returned per key, the others need not be copied
+            if (!results.containsKey(key)) {
+                results.put(key, frame.clone());
+            }
         }
         return ImmutableList.copyOf(results.iterator());
     }
+
+    /**
+     * Iterates over the matches in the given, caller-owned frame: the search binds the variables of the frame in
+     * place, and {@link Iterator#next()} returns the frame itself instead of a copy. The contents of the returned frame
+     * are only valid until the next call of {@link Iterator#hasNext()}, so they have to be copied if needed later. As
+     * no objects are allocated per match, this is the preferred way to process matches one by one in performance
+     * critical loops.
+     * 
+     * <p>
+     * In contrast to the other query methods, the frame may contain the same match several times, e.g. if different
+     * local variable values or different bodies lead to the same match.
+     * 
+     * @param frame
+     *            the initial frame with the bound variables set; modified during the search
+     */
+    public Iterator<MatchingFrame> iterateMatches(final MatchingFrame frame) {
+        return new PlanExecutionIterator(plan, frame, false);
+    }
 }
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.matcher;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+import org.eclipse.incquery.runtime.localsearch.plan.SearchPlanner;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Evaluates a query by local search on each request, without caching its matches. The {@link LocalSearchMatcher}s are
+ * planned for each set of bound parameters.
+ *
+ * <p>
+ * As the search operations are stateful, a matcher is used by a single request at a time: each request takes an idle
+ * matcher (or plans a new one) and returns it when the search is over. This way the provider can be used from several
+ * threads and by nested requests, e.g. through the pattern calls of other local search queries. Recursive queries are
+ * not supported.
+ *
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class LocalSearchResultProvider implements IQueryResultProvider {
+
+    private final PQuery query;
+    private final SearchPlanner planner;
+    /**
+     * The matchers not used by any request, for each set of bound parameters; guarded by itself.
+     */
+    private final Map<Set<Integer>, LinkedList<LocalSearchMatcher>> idleMatchers = Maps.newHashMap();
+
+    /**
+     * @throws QueryPlannerException
+     *             if the query is recursive or cannot be evaluated by local search
+     */
+    public LocalSearchResultProvider(PQuery query, SearchPlanner planner) throws QueryPlannerException {
+        this.query = query;
+        this.planner = planner;
+        if (query.getAllReferredQueries().contains(query)) {
+            throw new QueryPlannerException("Recursive query {1} is not supported by local search",
+                    new String[] { query.getFullyQualifiedName() }, "Recursive query in local search", query);
+        }
+        // if the query can be evaluated without bound parameters, it can be evaluated with any bindings
+        Set<Integer> noBoundParameters = ImmutableSet.of();
+        releaseMatcher(noBoundParameters, planner.createMatcher(query, noBoundParameters));
+    }
+
+    public PQuery getQuery() {
+        return query;
+    }
+
+    private Set<Integer> getAdornment(Object[] parameters) {
+        ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] != null)
+                builder.add(i);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Takes an idle matcher for the given bound parameters, or plans a new one if all of them are in use. The matcher
+     * has to be returned by {@link #releaseMatcher(Set, LocalSearchMatcher)} after the search.
+     */
+    private LocalSearchMatcher acquireMatcher(Set<Integer> adornment) {
+        synchronized (idleMatchers) {
+            LinkedList<LocalSearchMatcher> idle = idleMatchers.get(adornment);
+            if (idle != null && !idle.isEmpty()) {
+                return idle.removeFirst();
+            }
+        }
+        // the planner caches the search plan, only the operations are created here
+        try {
+            return planner.createMatcher(query, adornment);
+        } catch (QueryPlannerException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void releaseMatcher(Set<Integer> adornment, LocalSearchMatcher matcher) {
+        synchronized (idleMatchers) {
+            LinkedList<LocalSearchMatcher> idle = idleMatchers.get(adornment);
+            if (idle == null) {
+                idle = Lists.newLinkedList();
+                idleMatchers.put(adornment, idle);
+            }
+            idle.addFirst(matcher);
+        }
+    }
+
+    private MatchingFrame initialFrame(LocalSearchMatcher matcher, Object[] parameters) {
+        MatchingFrame frame = matcher.editableMatchingFrame();
+        for (int i = 0; i < parameters.length; i++) {
+            frame.setValue(i, parameters[i]);
+        }
+        return frame;
+    }
+
+    private Tuple toTuple(MatchingFrame frame) {
+        return Tuples.flatTupleOf(frame.getKeyValues());
+    }
+
+    @Override
+    public boolean hasMatch(Object[] parameters) {
+        Set<Integer> adornment = getAdornment(parameters);
+        LocalSearchMatcher matcher = acquireMatcher(adornment);
+        try {
+            // the initial frame is created for this call, so it can be used by the search directly
+            return matcher.iterateMatches(initialFrame(matcher, parameters)).hasNext();
+        } finally {
+            releaseMatcher(adornment, matcher);
+        }
+    }
+
+    @Override
+    public int countMatches(Object[] parameters) {
+        // frames of different bodies (and different local variables) may represent the same match
+        return getAllMatches(parameters).size();
+    }
+
+    @Override
+    public Tuple getOneArbitraryMatch(Object[] parameters) {
+        Set<Integer> adornment = getAdornment(parameters);
+        LocalSearchMatcher matcher = acquireMatcher(adornment);
+        try {
+            Iterator<MatchingFrame> it = matcher.iterateMatches(initialFrame(matcher, parameters));
+            return it.hasNext() ? toTuple(it.next()) : null;
+        } finally {
+            releaseMatcher(adornment, matcher);
+        }
+    }
+
+    @Override
+    public Collection<? extends Tuple> getAllMatches(Object[] parameters) {
+        Set<Integer> adornment = getAdornment(parameters);
+        LocalSearchMatcher matcher = acquireMatcher(adornment);
+        try {
+            // the frame is reused by the search, only the keys of the matches are copied
+            Iterator<MatchingFrame> it = matcher.iterateMatches(initialFrame(matcher, parameters));
+            Set<Tuple> matches = Sets.newLinkedHashSet();
+            while (it.hasNext()) {
+                matches.add(toTuple(it.next()));
+            }
+            return matches;
+        } finally {
+            releaseMatcher(adornment, matcher);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.operations.check;
+
+import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
+
+/**
+ * Checks whether the value at the given position equals a constant.
+ * 
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class ConstantValueCheck extends CheckOperation {
+
+    private int position;
+    private Object value;
+
+    public ConstantValueCheck(int position, Object value) {
+        this.position = position;
+        this.value = value;
+    }
+
+    /* (non-Javadoc)
+     * @see org.eclipse.incquery.runtime.localsearch.operations.check.CheckOperation#check(org.eclipse.incquery.runtime.localsearch.MatchingFrame)
+     */
+    @Override
+    protected boolean check(MatchingFrame frame) throws LocalSearchException {
+        Object actual = frame.getValue(position);
+        if (actual == null) {
+            throw new LocalSearchException("Variable not bound.");
+        }
+        return actual.equals(value);
+    }
+
+}
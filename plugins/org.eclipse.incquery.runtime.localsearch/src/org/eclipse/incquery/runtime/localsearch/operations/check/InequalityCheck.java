@@ -19,7 +19,7 @@ import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
  */
 public class InequalityCheck extends CheckOperation {
 
-    Integer sourceLocation, targetLocation;
+    int sourceLocation, targetLocation;
 
     public InequalityCheck(int sourceLocation, int targetLocation) {
         super();
@@ -20,7 +20,7 @@ import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
  */
 public class InstanceOfCheck extends CheckOperation {
 
-    private Integer position;
+    private int position;
     private EClass clazz;
 
     public InstanceOfCheck(int position, EClass clazz) {
@@ -35,7 +35,7 @@ public class InstanceOfCheck extends CheckOperation {
     @Override
     protected boolean check(MatchingFrame frame) {
         if (frame.getValue(position) instanceof EObject) {
-            return clazz.equals(((EObject) frame.getValue(position)).eClass());
+            return clazz.isSuperTypeOf(((EObject) frame.getValue(position)).eClass());
         }
         return false;
     }
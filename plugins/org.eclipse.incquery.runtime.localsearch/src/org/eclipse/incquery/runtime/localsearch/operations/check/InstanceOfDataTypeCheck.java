@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.operations.check;
+
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+
+/**
+ * Checks whether the value at the given position is an instance of an {@link EDataType}.
+ * 
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class InstanceOfDataTypeCheck extends CheckOperation {
+
+    private int position;
+    private EDataType dataType;
+
+    public InstanceOfDataTypeCheck(int position, EDataType dataType) {
+        this.position = position;
+        this.dataType = dataType;
+    }
+
+    /* (non-Javadoc)
+     * @see org.eclipse.incquery.runtime.localsearch.operations.check.CheckOperation#check(org.eclipse.incquery.runtime.localsearch.MatchingFrame)
+     */
+    @Override
+    protected boolean check(MatchingFrame frame) {
+        return dataType.isInstance(frame.getValue(position));
+    }
+
+}
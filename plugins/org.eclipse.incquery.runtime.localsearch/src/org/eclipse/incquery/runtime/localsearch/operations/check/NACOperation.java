@@ -25,11 +25,28 @@ public class NACOperation extends CheckOperation {
 
     LocalSearchMatcher calledMatcher;
     Map<Integer, Integer> frameMapping;
+    /**
+     * The frame mapping as parallel arrays, so that no iterators are created during the check
+     */
+    private final int[] sourcePositions, targetPositions;
+    /**
+     * The frame of the called matcher, reused by each check. The called pattern is not recursive, so the frame is not
+     * in use when the check is executed.
+     */
+    private MatchingFrame mappedFrame;
 
     public NACOperation(LocalSearchMatcher calledMatcher, Map<Integer, Integer> frameMapping) {
         super();
         this.calledMatcher = calledMatcher;
         this.frameMapping = frameMapping;
+        this.sourcePositions = new int[frameMapping.size()];
+        this.targetPositions = new int[frameMapping.size()];
+        int i = 0;
+        for (Entry<Integer, Integer> entry : frameMapping.entrySet()) {
+            sourcePositions[i] = entry.getKey();
+            targetPositions[i] = entry.getValue();
+            i++;
+        }
     }
 
     /* (non-Javadoc)
@@ -37,11 +54,16 @@ public class NACOperation extends CheckOperation {
      */
     @Override
     protected boolean check(MatchingFrame frame) throws LocalSearchException {
-        final MatchingFrame mappedFrame = calledMatcher.editableMatchingFrame();
-        for (Entry<Integer, Integer> entry : frameMapping.entrySet()) {
-            mappedFrame.setValue(entry.getValue(), frame.getValue(entry.getKey()));
+        if (mappedFrame == null) {
+            mappedFrame = calledMatcher.editableMatchingFrame();
+        } else {
+            mappedFrame.clear();
+        }
+        for (int i = 0; i < sourcePositions.length; i++) {
+            mappedFrame.setValue(targetPositions[i], frame.getValue(sourcePositions[i]));
         }
-        return !calledMatcher.hasMatch(mappedFrame);
+        // the mapped frame is owned by this check, no need to copy it
+        return !calledMatcher.iterateMatches(mappedFrame).hasNext();
     }
 
 }
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.operations.check;
+
+import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
+
+/**
+ * Checks that a called query has no match with the actual parameters. In contrast to {@link NACOperation}, the called
+ * query may be evaluated by any backend. Parameters mapped to unbound positions of the frame are quantified
+ * existentially.
+ *
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class NegativePatternCallCheck extends CheckOperation {
+
+    private IQueryResultProvider calledMatcher;
+    /**
+     * The frame position of each parameter of the called query
+     */
+    private int[] frameMapping;
+    /**
+     * Reused between the calls, as the called query does not retain the parameters
+     */
+    private Object[] parameters;
+
+    public NegativePatternCallCheck(IQueryResultProvider calledMatcher, int[] frameMapping) {
+        super();
+        this.calledMatcher = calledMatcher;
+        this.frameMapping = frameMapping;
+        this.parameters = new Object[frameMapping.length];
+    }
+
+    @Override
+    protected boolean check(MatchingFrame frame) throws LocalSearchException {
+        for (int i = 0; i < frameMapping.length; i++) {
+            parameters[i] = frame.getValue(frameMapping[i]);
+        }
+        return !calledMatcher.hasMatch(parameters);
+    }
+
+}
@@ -22,7 +22,7 @@ import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
  */
 public class StructuralFeatureCheck extends CheckOperation {
 
-    Integer sourcePosition, targetPosition;
+    int sourcePosition, targetPosition;
     EStructuralFeature feature;
 
     public StructuralFeatureCheck(int sourcePosition, int targetPosition, EStructuralFeature feature) {
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.operations.extend;
+
+import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+import org.eclipse.incquery.runtime.localsearch.matcher.ISearchContext;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * Binds the variable at the given position to a constant.
+ * 
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class ExtendToConstant extends ExtendOperation<Object> {
+
+    private Object value;
+
+    public ExtendToConstant(int position, Object value) {
+        super(position);
+        this.value = value;
+    }
+
+    /* (non-Javadoc)
+     * @see org.eclipse.incquery.runtime.localsearch.operations.ISearchOperation#onInitialize(org.eclipse.incquery.runtime.localsearch.MatchingFrame)
+     */
+    @Override
+    public void onInitialize(MatchingFrame frame, ISearchContext context) {
+        it = Iterators.singletonIterator(value);
+    }
+
+}
@@ -11,7 +11,7 @@
 package org.eclipse.incquery.runtime.localsearch.operations.extend;
 
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.Map.Entry;
 
 import org.eclipse.emf.ecore.EObject;
@@ -23,6 +23,7 @@ import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
 import org.eclipse.incquery.runtime.localsearch.matcher.ISearchContext;
 import org.eclipse.incquery.runtime.localsearch.operations.ISearchOperation;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 /**
@@ -33,7 +34,7 @@ import com.google.common.collect.Maps;
 public class IterateOverEStructuralFeatureInstances implements ISearchOperation {
 
     private EStructuralFeature feature;
-    private Integer sourcePosition, targetPosition;
+    private int sourcePosition, targetPosition;
     protected Iterator<Entry<EObject, Object>> it;
     
     public IterateOverEStructuralFeatureInstances(int sourcePosition, int targetPosition, EStructuralFeature feature) {
@@ -51,16 +52,17 @@ public class IterateOverEStructuralFeatureInstances implements ISearchOperation
 
     @Override
     public void onInitialize(MatchingFrame frame, ISearchContext context) {
-        final Map<EObject, Object> instances = Maps.newHashMap();
+        // a list of pairs, as a holder may have several values of a many-valued feature
+        final List<Entry<EObject, Object>> instances = Lists.newArrayList();
         context.getBaseIndex().processAllFeatureInstances(feature, new IEStructuralFeatureProcessor() {
 
             @Override
             public void process(EStructuralFeature feature, EObject source, Object target) {
-                instances.put(source, target);
+                instances.add(Maps.immutableEntry(source, target));
             }
         });
 
-        it = instances.entrySet().iterator();
+        it = instances.iterator();
     }
 
     @Override
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.operations.extend;
+
+import java.util.Iterator;
+
+import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
+import org.eclipse.incquery.runtime.localsearch.matcher.ISearchContext;
+import org.eclipse.incquery.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+
+/**
+ * Iterates over the matches of a called query that conform to the already bound actual parameters, and binds the
+ * remaining actual parameters. The called query may be evaluated by any backend.
+ *
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class IterateOverPatternCallMatches implements ISearchOperation {
+
+    private IQueryResultProvider calledMatcher;
+    /**
+     * The frame position of each parameter of the called query
+     */
+    private int[] frameMapping;
+    /**
+     * Reused between the calls, as the called query does not retain the parameters
+     */
+    private Object[] parameters;
+    private boolean[] unbound;
+    protected Iterator<? extends Tuple> it;
+
+    public IterateOverPatternCallMatches(IQueryResultProvider calledMatcher, int[] frameMapping) {
+        this.calledMatcher = calledMatcher;
+        this.frameMapping = frameMapping;
+        this.unbound = new boolean[frameMapping.length];
+        this.parameters = new Object[frameMapping.length];
+    }
+
+    @Override
+    public void onInitialize(MatchingFrame frame, ISearchContext context) throws LocalSearchException {
+        for (int i = 0; i < frameMapping.length; i++) {
+            parameters[i] = frame.getValue(frameMapping[i]);
+            unbound[i] = parameters[i] == null;
+        }
+        it = calledMatcher.getAllMatches(parameters).iterator();
+    }
+
+    @Override
+    public void onBacktrack(MatchingFrame frame, ISearchContext context) throws LocalSearchException {
+        clearUnbound(frame);
+        it = null;
+    }
+
+    @Override
+    public boolean execute(MatchingFrame frame, ISearchContext context) throws LocalSearchException {
+        while (it.hasNext()) {
+            final Tuple next = it.next();
+            clearUnbound(frame);
+            boolean consistent = true;
+            // the same variable may be passed to several parameters
+            for (int i = 0; consistent && i < frameMapping.length; i++) {
+                consistent = frame.testAndSetValue(frameMapping[i], next.get(i));
+            }
+            if (consistent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void clearUnbound(MatchingFrame frame) {
+        for (int i = 0; i < frameMapping.length; i++) {
+            if (unbound[i])
+                frame.setValue(frameMapping[i], null);
+        }
+    }
+
+}
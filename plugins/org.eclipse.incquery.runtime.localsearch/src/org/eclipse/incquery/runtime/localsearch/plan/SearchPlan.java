@@ -27,6 +27,7 @@ import com.google.common.collect.Lists;
 public class SearchPlan {
 
     private List<ISearchOperation> operations = Lists.newArrayList();
+    private double cost = 0.0;
 
     public void addOperation(ISearchOperation operation) {
         operations.add(operation);
@@ -48,4 +49,18 @@ public class SearchPlan {
         return ImmutableList.copyOf(operations);
     }
 
+    /**
+     * Returns the estimated cost of executing the plan, or 0 if no estimate is available (e.g. the plan was
+     * assembled manually).
+     * 
+     * @see SearchPlanner
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    public void setCost(double cost) {
+        this.cost = cost;
+    }
+
 }
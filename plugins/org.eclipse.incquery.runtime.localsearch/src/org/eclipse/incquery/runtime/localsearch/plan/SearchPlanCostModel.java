@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.plan;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
+
+/**
+ * Estimates the branching factors of search operations from the statistics of the model, as provided by the
+ * {@link NavigationHelper base index}: the number of instances of EClasses and the number of values of features.
+ *
+ * <p>
+ * A branching factor is the expected number of frames an operation produces from a single input frame; for checks it
+ * is the expected ratio of frames that pass. Types that are not indexed are assumed to have
+ * {@link #DEFAULT_EXTENT_SIZE} instances or values.
+ *
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class SearchPlanCostModel {
+
+    /**
+     * Estimated extent size for types the statistics are not available for.
+     */
+    public static final double DEFAULT_EXTENT_SIZE = 1000;
+    /**
+     * Estimated ratio of frames passing a check; below 1, so that checks are always preferred to extensions.
+     */
+    public static final double CHECK_SELECTIVITY = 0.5;
+
+    private final NavigationHelper statistics;
+
+    public SearchPlanCostModel(NavigationHelper statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the estimated number of instances of the class, including instances of subclasses
+     */
+    public double getExtentSize(EClass clazz) {
+        if (!statistics.isIndexed(clazz))
+            return DEFAULT_EXTENT_SIZE;
+        return statistics.countAllInstances(clazz);
+    }
+
+    /**
+     * @return the estimated number of instances of the data type occurring in the model
+     */
+    public double getExtentSize(EDataType dataType) {
+        int size = statistics.getDataTypeInstances(dataType).size();
+        // not indexed data types are indistinguishable from empty ones
+        return size == 0 ? DEFAULT_EXTENT_SIZE : size;
+    }
+
+    /**
+     * @return the estimated number of (holder, value) pairs of the feature
+     */
+    public double getFeatureInstanceCount(EStructuralFeature feature) {
+        if (!statistics.isIndexed(feature))
+            return DEFAULT_EXTENT_SIZE;
+        return statistics.countFeatureValues(feature);
+    }
+
+    /**
+     * @return the average number of values of the feature per holder object (that has at least one value)
+     */
+    public double getAverageMultiplicity(EStructuralFeature feature) {
+        if (!feature.isMany())
+            return 1;
+        if (!statistics.isIndexed(feature))
+            return Math.max(1, feature.getUpperBound());
+        int holders = statistics.countHoldersOfFeature(feature);
+        return holders == 0 ? 0 : getFeatureInstanceCount(feature) / holders;
+    }
+
+    /**
+     * @return the average number of holder objects per value of the feature
+     */
+    public double getAverageInverseMultiplicity(EStructuralFeature feature) {
+        if (feature instanceof EReference) {
+            EReference opposite = ((EReference) feature).getEOpposite();
+            if (opposite != null && !opposite.isMany())
+                return 1;
+            if (((EReference) feature).isContainment())
+                return 1;
+            double targets = getExtentSize(((EReference) feature).getEReferenceType());
+            return targets == 0 ? 0 : Math.max(1, getFeatureInstanceCount(feature) / targets);
+        }
+        // attribute values are rarely shared
+        return 1;
+    }
+
+    /**
+     * Estimates the number of matches of a called query per binding of its bound parameters. As no statistics are
+     * available about the matches of queries, the estimate only depends on the ratio of bound parameters: without
+     * bound parameters the query is expected to have {@link #DEFAULT_EXTENT_SIZE} matches.
+     */
+    public double getPatternCallBranchingFactor(PQuery query, int boundParameters) {
+        int arity = query.getParameters().size();
+        if (arity == 0)
+            return CHECK_SELECTIVITY;
+        return Math.pow(DEFAULT_EXTENT_SIZE, (double) (arity - boundParameters) / arity);
+    }
+
+}
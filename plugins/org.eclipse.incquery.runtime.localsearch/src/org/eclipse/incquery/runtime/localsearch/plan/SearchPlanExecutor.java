@@ -13,8 +13,6 @@
  package org.eclipse.incquery.runtime.localsearch.plan;
 
 
-import java.util.List;
-
 import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
 import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
 import org.eclipse.incquery.runtime.localsearch.matcher.ISearchContext;
@@ -29,22 +27,25 @@ public class SearchPlanExecutor {
     private int currentOperation;
 
     SearchPlan plan;
-    private List<ISearchOperation> operations;
+    /**
+     * The operations of the plan; an array is used to avoid the overhead of list access in the search loop
+     */
+    private final ISearchOperation[] operations;
     private ISearchContext context;
 
     public SearchPlanExecutor(SearchPlan plan, ISearchContext context) {
         Preconditions.checkArgument(context != null, "Context cannot be null");
         this.plan = plan;
         this.context = context;
-        operations = plan.getOperations();
+        operations = plan.getOperations().toArray(new ISearchOperation[0]);
         this.currentOperation = -1;
 	}
     
     private void init(MatchingFrame frame) throws LocalSearchException {
         if (currentOperation == -1) {
             currentOperation++;
-            operations.get(currentOperation).onInitialize(frame, context);
-        } else if (currentOperation == operations.size()) {
+            operations[currentOperation].onInitialize(frame, context);
+        } else if (currentOperation == operations.length) {
             currentOperation--;
         } else {
             throw new LocalSearchException(LocalSearchException.PLAN_EXECUTION_ERROR);
@@ -55,21 +56,20 @@ public class SearchPlanExecutor {
      * Calculates the cost of the search plan.
 	 */
 	public double cost() {
-		/* default generated stub */;
-		return 0.0;
+		return plan.getCost();
 	}
 
     public boolean execute(MatchingFrame frame) throws LocalSearchException {
-        int upperBound = operations.size() - 1;
+        int upperBound = operations.length - 1;
         init(frame);
         while (currentOperation >= 0 && currentOperation <= upperBound) {
-            if (operations.get(currentOperation).execute(frame, context)) {
+            if (operations[currentOperation].execute(frame, context)) {
                 currentOperation++;
                 if (currentOperation <= upperBound) {
-                    operations.get(currentOperation).onInitialize(frame, context);
+                    operations[currentOperation].onInitialize(frame, context);
                 }
             } else {
-                operations.get(currentOperation).onBacktrack(frame, context);
+                operations[currentOperation].onBacktrack(frame, context);
                 currentOperation--;
             }
         }
@@ -81,8 +81,8 @@ public class SearchPlanExecutor {
     }
 
     public void printDebugInformation() {
-        for (int i = 0; i < operations.size(); i++) {
-            System.out.println("[" + i + "]\t" + operations.get(i).toString());
+        for (int i = 0; i < operations.length; i++) {
+            System.out.println("[" + i + "]\t" + operations[i].toString());
         }
     }
 }
@@ -0,0 +1,422 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.localsearch.plan;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.incquery.runtime.localsearch.matcher.ISearchContext;
+import org.eclipse.incquery.runtime.localsearch.matcher.LocalSearchMatcher;
+import org.eclipse.incquery.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.incquery.runtime.localsearch.operations.check.ConstantValueCheck;
+import org.eclipse.incquery.runtime.localsearch.operations.check.ExpressionCheck;
+import org.eclipse.incquery.runtime.localsearch.operations.check.InequalityCheck;
+import org.eclipse.incquery.runtime.localsearch.operations.check.InstanceOfCheck;
+import org.eclipse.incquery.runtime.localsearch.operations.check.InstanceOfDataTypeCheck;
+import org.eclipse.incquery.runtime.localsearch.operations.check.NegativePatternCallCheck;
+import org.eclipse.incquery.runtime.localsearch.operations.check.StructuralFeatureCheck;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.ExtendToConstant;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.ExtendToEStructuralFeatureSource;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.ExtendToEStructuralFeatureTarget;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.IterateOverEClassInstances;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.IterateOverEDatatypeInstances;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.IterateOverEStructuralFeatureInstances;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.IterateOverPatternCallMatches;
+import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
+import org.eclipse.incquery.runtime.matchers.psystem.PBody;
+import org.eclipse.incquery.runtime.matchers.psystem.PConstraint;
+import org.eclipse.incquery.runtime.matchers.psystem.PVariable;
+import org.eclipse.incquery.runtime.matchers.psystem.basicdeferred.ExportedParameter;
+import org.eclipse.incquery.runtime.matchers.psystem.basicdeferred.ExpressionEvaluation;
+import org.eclipse.incquery.runtime.matchers.psystem.basicdeferred.Inequality;
+import org.eclipse.incquery.runtime.matchers.psystem.basicdeferred.NegativePatternCall;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.ConstantValue;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.PositivePatternCall;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.TypeBinary;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.TypeUnary;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+
+/**
+ * Compiles {@link PBody pattern bodies} into {@link SearchPlan}s.
+ *
+ * <p>
+ * The operations are ordered greedily: in each step, the applicable operation with the smallest branching factor is
+ * selected, as estimated by a {@link SearchPlanCostModel}. Consequently, checks are executed as soon as all their
+ * variables are bound, and extensions are preferred that are expected to produce the fewest frames. The cost of the
+ * resulting plan is the estimated number of frames processed during its execution.
+ *
+ * <p>
+ * The order of the operations is cached per body and adornment (set of variables bound before executing the plan). As
+ * plans are chosen based on the model statistics at planning time, {@link #clearCache()} may be called after
+ * significant changes of the model. As search operations are stateful, each plan returned by
+ * {@link #plan(PBody, Set)} has its own operation instances, so that plans of the same body can be executed
+ * concurrently.
+ *
+ * <p>
+ * Supported constraints are type constraints of EClasses, EDataTypes and EStructuralFeatures, constant values,
+ * inequalities, check expressions and positive and negative pattern calls. Called queries are accessed through
+ * {@link ISearchContext#getResultProvider(PQuery)}, so they may be evaluated by other backends as well.
+ *
+ * <p>
+ * The frame of a body holds the symbolic parameters first (in order), then the other variables, see
+ * {@link #getVariableMapping(PBody)}.
+ *
+ * @author Zoltan Ujhelyi
+ *
+ */
+public class SearchPlanner {
+
+    private final ISearchContext context;
+    private final SearchPlanCostModel costModel;
+    private final Table<PBody, Set<PVariable>, PlanOrder> planCache = HashBasedTable.create();
+    private final Map<PBody, Map<PVariable, Integer>> variableMappings = Maps.newHashMap();
+
+    /**
+     * A candidate operation of the next plan step.
+     */
+    private static class PlanStep {
+        final PConstraint constraint;
+        final ISearchOperation operation;
+        final double branchingFactor;
+        final Set<PVariable> boundVariables;
+
+        PlanStep(PConstraint constraint, ISearchOperation operation, double branchingFactor,
+                PVariable... boundVariables) {
+            this.constraint = constraint;
+            this.operation = operation;
+            this.branchingFactor = branchingFactor;
+            this.boundVariables = Sets.newHashSet(boundVariables);
+        }
+    }
+
+    /**
+     * The constraints of a body in the order they are enforced by its plan, and the estimated cost of the plan.
+     */
+    private static class PlanOrder {
+        final List<PConstraint> constraints;
+        final double cost;
+
+        PlanOrder(List<PConstraint> constraints, double cost) {
+            this.constraints = constraints;
+            this.cost = cost;
+        }
+    }
+
+    public SearchPlanner(ISearchContext context) {
+        this(context, new SearchPlanCostModel(context.getBaseIndex()));
+    }
+
+    public SearchPlanner(ISearchContext context, SearchPlanCostModel costModel) {
+        this.context = context;
+        this.costModel = costModel;
+    }
+
+    /**
+     * Creates a matcher that executes the plans of all bodies of the query.
+     * 
+     * @param boundParameters
+     *            the positions of the parameters that will be bound in the initial frames passed to the matcher
+     * @throws QueryPlannerException
+     *             if some body cannot be planned
+     */
+    public LocalSearchMatcher createMatcher(PQuery query, Set<Integer> boundParameters) throws QueryPlannerException {
+        Set<PBody> bodies = query.getDisjunctBodies().getBodies();
+        SearchPlanExecutor[] executors = new SearchPlanExecutor[bodies.size()];
+        int frameSize = 0;
+        int i = 0;
+        for (PBody body : bodies) {
+            List<PVariable> parameters = body.getSymbolicParameterVariables();
+            Set<PVariable> adornment = Sets.newHashSet();
+            for (Integer position : boundParameters) {
+                adornment.add(parameters.get(position));
+            }
+            executors[i++] = new SearchPlanExecutor(plan(body, adornment), context);
+            frameSize = Math.max(frameSize, getVariableMapping(body).size());
+        }
+        return new LocalSearchMatcher(executors, query.getParameters().size(), frameSize);
+    }
+
+    /**
+     * Returns the position of each variable of the body in the matching frames of its plans. The symbolic parameters
+     * take the first positions, in their declaration order.
+     */
+    public Map<PVariable, Integer> getVariableMapping(PBody body) {
+        synchronized (variableMappings) {
+            Map<PVariable, Integer> mapping = variableMappings.get(body);
+            if (mapping == null) {
+                mapping = Maps.newLinkedHashMap();
+                for (PVariable parameter : body.getSymbolicParameterVariables()) {
+                    if (!mapping.containsKey(parameter))
+                        mapping.put(parameter, mapping.size());
+                }
+                for (PVariable variable : body.getUniqueVariables()) {
+                    if (!mapping.containsKey(variable))
+                        mapping.put(variable, mapping.size());
+                }
+                variableMappings.put(body, mapping);
+            }
+            return mapping;
+        }
+    }
+
+    /**
+     * Returns a new search plan for the body, assuming the given variables are bound in the initial frame. The order
+     * of the operations is only computed once for each body and adornment.
+     *
+     * @param boundVariables
+     *            the adornment of the plan, usually a subset of the symbolic parameters
+     * @throws QueryPlannerException
+     *             if the body contains unsupported constraints, or some variables cannot be bound
+     */
+    public SearchPlan plan(PBody body, Set<PVariable> boundVariables) throws QueryPlannerException {
+        Set<PVariable> adornment = ImmutableSet.copyOf(boundVariables);
+        PlanOrder order;
+        synchronized (planCache) {
+            order = planCache.get(body, adornment);
+        }
+        if (order == null) {
+            order = createPlanOrder(body, adornment);
+            synchronized (planCache) {
+                planCache.put(body, adornment, order);
+            }
+        }
+        return instantiate(body, adornment, order);
+    }
+
+    /**
+     * Discards the cached plans, so that subsequent plans reflect the current statistics of the model.
+     */
+    public void clearCache() {
+        synchronized (planCache) {
+            planCache.clear();
+        }
+    }
+
+    private PlanOrder createPlanOrder(PBody body, Set<PVariable> adornment) throws QueryPlannerException {
+        Map<PVariable, Integer> mapping = getVariableMapping(body);
+        Set<PVariable> bound = Sets.newHashSet(adornment);
+        List<PConstraint> remaining = Lists.newArrayList();
+        for (PConstraint constraint : body.getConstraints()) {
+            if (!(constraint instanceof ExportedParameter)) {
+                checkSupported(body, constraint);
+                remaining.add(constraint);
+            }
+        }
+
+        List<PConstraint> order = Lists.newArrayList();
+        double frames = 1;
+        double cost = 0;
+        while (!remaining.isEmpty()) {
+            PlanStep selected = null;
+            for (PConstraint constraint : remaining) {
+                PlanStep step = createStep(body, constraint, bound, mapping);
+                if (step != null && (selected == null || step.branchingFactor < selected.branchingFactor)) {
+                    selected = step;
+                }
+            }
+            if (selected == null) {
+                throw new QueryPlannerException("Cannot find a search plan for {1}, constraints {2} cannot be enforced",
+                        new String[] { body.getPattern().getFullyQualifiedName(), remaining.toString() },
+                        "Unbindable variables in search plan", body.getPattern());
+            }
+            order.add(selected.constraint);
+            remaining.remove(selected.constraint);
+            bound.addAll(selected.boundVariables);
+            frames *= selected.branchingFactor;
+            cost += frames;
+        }
+
+        for (PVariable parameter : body.getSymbolicParameterVariables()) {
+            if (!bound.contains(parameter)) {
+                throw new QueryPlannerException("Cannot find a search plan for {1}, parameter {2} cannot be bound",
+                        new String[] { body.getPattern().getFullyQualifiedName(), parameter.getName() },
+                        "Unbindable parameter in search plan", body.getPattern());
+            }
+        }
+        return new PlanOrder(order, cost);
+    }
+
+    /**
+     * Creates the operations of the plan in the given order, binding the same variables as during planning.
+     */
+    private SearchPlan instantiate(PBody body, Set<PVariable> adornment, PlanOrder order)
+            throws QueryPlannerException {
+        Map<PVariable, Integer> mapping = getVariableMapping(body);
+        Set<PVariable> bound = Sets.newHashSet(adornment);
+        SearchPlan plan = new SearchPlan();
+        for (PConstraint constraint : order.constraints) {
+            PlanStep step = createStep(body, constraint, bound, mapping);
+            plan.addOperation(step.operation);
+            bound.addAll(step.boundVariables);
+        }
+        plan.setCost(order.cost);
+        return plan;
+    }
+
+    private void checkSupported(PBody body, PConstraint constraint) throws QueryPlannerException {
+        boolean supported;
+        if (constraint instanceof TypeUnary) {
+            Object typeKey = ((TypeUnary) constraint).getSupplierKey();
+            supported = typeKey instanceof EClass || typeKey instanceof EDataType;
+        } else if (constraint instanceof TypeBinary) {
+            supported = ((TypeBinary) constraint).getSupplierKey() instanceof EStructuralFeature;
+        } else if (constraint instanceof ExpressionEvaluation) {
+            supported = ((ExpressionEvaluation) constraint).getOutputVariable() == null;
+        } else if (constraint instanceof ConstantValue) {
+            supported = true;
+        } else {
+            supported = constraint instanceof Inequality || constraint instanceof PositivePatternCall
+                    || constraint instanceof NegativePatternCall;
+        }
+        if (!supported) {
+            throw new QueryPlannerException("Constraint {1} of {2} is not supported by the local search planner",
+                    new String[] { constraint.toString(), body.getPattern().getFullyQualifiedName() },
+                    "Unsupported constraint in search plan", body.getPattern());
+        }
+    }
+
+    /**
+     * @return the operation enforcing the constraint if the given variables are bound, or null if the constraint
+     *         cannot be enforced yet
+     */
+    private PlanStep createStep(PBody body, PConstraint constraint, Set<PVariable> bound,
+            Map<PVariable, Integer> mapping) throws QueryPlannerException {
+        if (constraint instanceof TypeUnary) {
+            TypeUnary typeConstraint = (TypeUnary) constraint;
+            PVariable variable = (PVariable) typeConstraint.getVariablesTuple().get(0);
+            int position = mapping.get(variable);
+            Object typeKey = typeConstraint.getSupplierKey();
+            if (typeKey instanceof EClass) {
+                EClass clazz = (EClass) typeKey;
+                if (bound.contains(variable)) {
+                    return new PlanStep(constraint, new InstanceOfCheck(position, clazz),
+                            SearchPlanCostModel.CHECK_SELECTIVITY);
+                } else {
+                    return new PlanStep(constraint, new IterateOverEClassInstances(position, clazz),
+                            costModel.getExtentSize(clazz), variable);
+                }
+            } else {
+                EDataType dataType = (EDataType) typeKey;
+                if (bound.contains(variable)) {
+                    return new PlanStep(constraint, new InstanceOfDataTypeCheck(position, dataType),
+                            SearchPlanCostModel.CHECK_SELECTIVITY);
+                } else {
+                    return new PlanStep(constraint, new IterateOverEDatatypeInstances(position, dataType),
+                            costModel.getExtentSize(dataType), variable);
+                }
+            }
+        } else if (constraint instanceof TypeBinary) {
+            TypeBinary typeConstraint = (TypeBinary) constraint;
+            PVariable source = (PVariable) typeConstraint.getVariablesTuple().get(0);
+            PVariable target = (PVariable) typeConstraint.getVariablesTuple().get(1);
+            int sourcePosition = mapping.get(source);
+            int targetPosition = mapping.get(target);
+            EStructuralFeature feature = (EStructuralFeature) typeConstraint.getSupplierKey();
+            boolean sourceBound = bound.contains(source);
+            boolean targetBound = bound.contains(target);
+            if (sourceBound && targetBound) {
+                return new PlanStep(constraint, new StructuralFeatureCheck(sourcePosition, targetPosition, feature),
+                        SearchPlanCostModel.CHECK_SELECTIVITY);
+            } else if (sourceBound) {
+                return new PlanStep(constraint,
+                        new ExtendToEStructuralFeatureTarget(sourcePosition, targetPosition, feature),
+                        costModel.getAverageMultiplicity(feature), target);
+            } else if (targetBound) {
+                return new PlanStep(constraint,
+                        new ExtendToEStructuralFeatureSource(sourcePosition, targetPosition, feature),
+                        costModel.getAverageInverseMultiplicity(feature), source);
+            } else if (!source.equals(target)) {
+                return new PlanStep(constraint, new IterateOverEStructuralFeatureInstances(sourcePosition,
+                        targetPosition, feature), costModel.getFeatureInstanceCount(feature), source, target);
+            } else {
+                // a self-loop is checked once the variable is bound
+                return null;
+            }
+        } else if (constraint instanceof ConstantValue) {
+            ConstantValue constant = (ConstantValue) constraint;
+            PVariable variable = (PVariable) constant.getVariablesTuple().get(0);
+            int position = mapping.get(variable);
+            if (bound.contains(variable)) {
+                return new PlanStep(constraint, new ConstantValueCheck(position, constant.getSupplierKey()),
+                        SearchPlanCostModel.CHECK_SELECTIVITY);
+            } else {
+                // binding a constant does not branch
+                return new PlanStep(constraint, new ExtendToConstant(position, constant.getSupplierKey()), 1,
+                        variable);
+            }
+        } else if (constraint instanceof Inequality) {
+            Inequality inequality = (Inequality) constraint;
+            if (bound.contains(inequality.getWho()) && bound.contains(inequality.getWithWhom())) {
+                return new PlanStep(constraint, new InequalityCheck(mapping.get(inequality.getWho()),
+                        mapping.get(inequality.getWithWhom())), SearchPlanCostModel.CHECK_SELECTIVITY);
+            }
+            return null;
+        } else if (constraint instanceof ExpressionEvaluation) {
+            ExpressionEvaluation expression = (ExpressionEvaluation) constraint;
+            if (bound.containsAll(expression.getDeferringVariables())) {
+                Map<String, Integer> nameMap = Maps.newHashMap();
+                for (String name : expression.getEvaluator().getInputParameterNames()) {
+                    nameMap.put(name, mapping.get(body.getVariableByNameChecked(name)));
+                }
+                return new PlanStep(constraint, new ExpressionCheck(expression.getEvaluator(), nameMap),
+                        SearchPlanCostModel.CHECK_SELECTIVITY);
+            }
+            return null;
+        } else if (constraint instanceof PositivePatternCall) {
+            PositivePatternCall call = (PositivePatternCall) constraint;
+            Tuple actualParameters = call.getVariablesTuple();
+            int boundParameters = 0;
+            Set<PVariable> unbound = Sets.newHashSet();
+            for (Object parameter : actualParameters.getElements()) {
+                if (bound.contains(parameter)) {
+                    boundParameters++;
+                } else {
+                    unbound.add((PVariable) parameter);
+                }
+            }
+            double branchingFactor = unbound.isEmpty() ? SearchPlanCostModel.CHECK_SELECTIVITY : costModel
+                    .getPatternCallBranchingFactor(call.getReferredQuery(), boundParameters);
+            return new PlanStep(constraint, new IterateOverPatternCallMatches(context.getResultProvider(call
+                    .getReferredQuery()), getFrameMapping(actualParameters, mapping)), branchingFactor,
+                    unbound.toArray(new PVariable[unbound.size()]));
+        } else if (constraint instanceof NegativePatternCall) {
+            NegativePatternCall call = (NegativePatternCall) constraint;
+            if (bound.containsAll(call.getDeferringVariables())) {
+                return new PlanStep(constraint, new NegativePatternCallCheck(context.getResultProvider(call
+                        .getReferredQuery()), getFrameMapping(call.getActualParametersTuple(), mapping)),
+                        SearchPlanCostModel.CHECK_SELECTIVITY);
+            }
+            return null;
+        }
+        return null;
+    }
+
+    private int[] getFrameMapping(Tuple actualParameters, Map<PVariable, Integer> mapping) {
+        int[] frameMapping = new int[actualParameters.getSize()];
+        for (int i = 0; i < frameMapping.length; i++) {
+            frameMapping[i] = mapping.get(actualParameters.get(i));
+        }
+        return frameMapping;
+    }
+
+}
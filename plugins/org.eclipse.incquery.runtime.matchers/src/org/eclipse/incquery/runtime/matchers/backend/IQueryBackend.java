@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.matchers.backend;
+
+import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
+
+/**
+ * A query evaluation strategy, such as incremental evaluation in a Rete network or local search. A single query
+ * engine may use different backends for different queries; queries evaluated by one backend may call queries
+ * evaluated by another.
+ *
+ * @author Zoltan Ujhelyi
+ * @since 0.8.0
+ *
+ */
+public interface IQueryBackend {
+
+    /**
+     * Returns a result provider for the given query; the results of the query are prepared if necessary.
+     *
+     * @throws QueryPlannerException
+     *             if the query cannot be evaluated by this backend
+     */
+    IQueryResultProvider getResultProvider(PQuery query) throws QueryPlannerException;
+
+    /**
+     * Disconnects the backend from the model and releases its caches. Result providers of the backend may not be used
+     * afterwards.
+     */
+    void dispose();
+
+}
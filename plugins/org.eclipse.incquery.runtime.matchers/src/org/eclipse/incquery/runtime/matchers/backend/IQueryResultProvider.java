@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.matchers.backend;
+
+import java.util.Collection;
+
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+
+/**
+ * An interface for accessing the matches of a single query, as evaluated by an {@link IQueryBackend}.
+ *
+ * <p>
+ * In each method, the parameters array holds the values of the query parameters in the order of their declaration;
+ * each non-null element binds the corresponding parameter to a fixed value, while null elements leave the parameter
+ * unbound. Matches are returned as tuples of parameter values.
+ *
+ * @author Zoltan Ujhelyi
+ * @since 0.8.0
+ *
+ */
+public interface IQueryResultProvider {
+
+    /**
+     * @return true if the query has at least one match conforming to the given parameter values
+     */
+    boolean hasMatch(Object[] parameters);
+
+    /**
+     * @return the number of matches conforming to the given parameter values
+     */
+    int countMatches(Object[] parameters);
+
+    /**
+     * @return an arbitrarily chosen match conforming to the given parameter values, or null if there is none
+     */
+    Tuple getOneArbitraryMatch(Object[] parameters);
+
+    /**
+     * @return all matches conforming to the given parameter values, each match returned once
+     */
+    Collection<? extends Tuple> getAllMatches(Object[] parameters);
+
+}
@@ -205,7 +205,7 @@ public abstract class Tuple {
         for (int i = 0; i < oldElements.length; ++i) {
             newElements[i] = obsolete.equals(oldElements[i]) ? replacement : oldElements[i];
         }
-        return new FlatTuple(newElements);
+        return Tuples.flatTupleOf(newElements);
     }
 
 }
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.matchers.tuple;
+
+/**
+ * The tuple with no elements. As all such tuples are equal, the single instance {@link #INSTANCE} is used.
+ * 
+ * @author Gabor Bergmann
+ */
+public final class Tuple0 extends Tuple {
+
+    public static final Tuple0 INSTANCE = new Tuple0();
+
+    private static final Object[] NO_ELEMENTS = new Object[0];
+
+    private Tuple0() {
+        calcHash();
+    }
+
+    @Override
+    public int getSize() {
+        return 0;
+    }
+
+    @Override
+    public Object get(int index) {
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for tuple of size 0");
+    }
+
+    @Override
+    public Object[] getElements() {
+        return NO_ELEMENTS;
+    }
+
+    @Override
+    protected boolean internalEquals(Tuple other) {
+        return other.getSize() == 0;
+    }
+
+}
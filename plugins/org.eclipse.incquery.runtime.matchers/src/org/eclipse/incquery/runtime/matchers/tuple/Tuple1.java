@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.matchers.tuple;
+
+/**
+ * Tuple of exactly one element, stored in fields instead of an array. Use {@link Tuples#flatTupleOf(Object...)} to
+ * obtain the most compact representation for a given arity.
+ * 
+ * @author Gabor Bergmann
+ */
+public final class Tuple1 extends Tuple {
+
+    private final Object element0;
+
+    /**
+     * Creates a Tuple instance with the given elements. @pre: no elements are null
+     */
+    public Tuple1(Object element0) {
+        this.element0 = element0;
+        calcHash();
+    }
+
+    @Override
+    public int getSize() {
+        return 1;
+    }
+
+    @Override
+    public Object get(int index) {
+        switch (index) {
+        case 0:
+            return element0;
+        default:
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for tuple of size 1");
+        }
+    }
+
+    @Override
+    public Object[] getElements() {
+        return new Object[] { element0 };
+    }
+
+    /**
+     * Unrolled hash calculation, same semantics as {@link Tuple#calcHash()}
+     */
+    @Override
+    void calcHash() {
+        final int PRIME = 31;
+        cachedHash = 1;
+        cachedHash = PRIME * cachedHash + (element0 == null ? 0 : element0.hashCode());
+    }
+
+    @Override
+    protected boolean internalEquals(Tuple other) {
+        if (other instanceof Tuple1) {
+            Tuple1 otherTuple = (Tuple1) other;
+            return Tuples.equal(element0, otherTuple.element0);
+        } else
+            return super.internalEquals(other);
+    }
+
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.matchers.tuple;
+
+/**
+ * Tuple of exactly three elements, stored in fields instead of an array. Use {@link Tuples#flatTupleOf(Object...)} to
+ * obtain the most compact representation for a given arity.
+ * 
+ * @author Gabor Bergmann
+ */
+public final class Tuple3 extends Tuple {
+
+    private final Object element0;
+    private final Object element1;
+    private final Object element2;
+
+    /**
+     * Creates a Tuple instance with the given elements. @pre: no elements are null
+     */
+    public Tuple3(Object element0, Object element1, Object element2) {
+        this.element0 = element0;
+        this.element1 = element1;
+        this.element2 = element2;
+        calcHash();
+    }
+
+    @Override
+    public int getSize() {
+        return 3;
+    }
+
+    @Override
+    public Object get(int index) {
+        switch (index) {
+        case 0:
+            return element0;
+        case 1:
+            return element1;
+        case 2:
+            return element2;
+        default:
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for tuple of size 3");
+        }
+    }
+
+    @Override
+    public Object[] getElements() {
+        return new Object[] { element0, element1, element2 };
+    }
+
+    /**
+     * Unrolled hash calculation, same semantics as {@link Tuple#calcHash()}
+     */
+    @Override
+    void calcHash() {
+        final int PRIME = 31;
+        cachedHash = 1;
+        cachedHash = PRIME * cachedHash + (element0 == null ? 0 : element0.hashCode());
+        cachedHash = PRIME * cachedHash + (element1 == null ? 0 : element1.hashCode());
+        cachedHash = PRIME * cachedHash + (element2 == null ? 0 : element2.hashCode());
+    }
+
+    @Override
+    protected boolean internalEquals(Tuple other) {
+        if (other instanceof Tuple3) {
+            Tuple3 otherTuple = (Tuple3) other;
+            return Tuples.equal(element0, otherTuple.element0)
+                    && Tuples.equal(element1, otherTuple.element1)
+                    && Tuples.equal(element2, otherTuple.element2);
+        } else
+            return super.internalEquals(other);
+    }
+
+}
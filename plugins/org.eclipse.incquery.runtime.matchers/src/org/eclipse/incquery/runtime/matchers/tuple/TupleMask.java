@@ -160,10 +160,24 @@ public class TupleMask {
      * Generates a masked view of the original tuple.
      */
     public Tuple transform(Tuple original) {
-        Object signature[] = new Object[indices.length];
-        for (int i = 0; i < indices.length; ++i)
-            signature[i] = original.get(indices[i]);
-        return new FlatTuple(signature);
+        switch (indices.length) { // specialized tuples, no intermediate array needed
+        case 0:
+            return Tuple0.INSTANCE;
+        case 1:
+            return new Tuple1(original.get(indices[0]));
+        case 2:
+            return new Tuple2(original.get(indices[0]), original.get(indices[1]));
+        case 3:
+            return new Tuple3(original.get(indices[0]), original.get(indices[1]), original.get(indices[2]));
+        case 4:
+            return new Tuple4(original.get(indices[0]), original.get(indices[1]), original.get(indices[2]),
+                    original.get(indices[3]));
+        default:
+            Object signature[] = new Object[indices.length];
+            for (int i = 0; i < indices.length; ++i)
+                signature[i] = original.get(indices[i]);
+            return new FlatTuple(signature);
+        }
     }
 
     /**
@@ -223,7 +237,8 @@ public class TupleMask {
      * @param masked
      *            secondary pattern substitution that is transformed to the end of the result.
      * @param useInheritance
-     *            whether to use inheritance or copy umasked into result instead.
+     *            whether to use inheritance or copy umasked into result instead. Ignored if the result is small enough
+     *            to be represented by a specialized flat tuple, see {@link Tuples#MAX_SPECIALIZED_ARITY}.
      * @param asComplementer
      *            whether this mask maps from the masked Tuple to the tail of the result or to the unmasked one.
      * @return new pattern that is a combination of unmasked and masked.
@@ -231,6 +246,8 @@ public class TupleMask {
     public Tuple combine(Tuple unmasked, Tuple masked, boolean useInheritance, boolean asComplementer) {
 
         int combinedLength = asComplementer ? indices.length : masked.getSize() - indices.length;
+        if (useInheritance && unmasked.getSize() + combinedLength <= Tuples.MAX_SPECIALIZED_ARITY)
+            useInheritance = false; // a flat specialized tuple is smaller than the inheritance chain
         if (!useInheritance)
             combinedLength += unmasked.getSize();
         Object combined[] = new Object[combinedLength];
@@ -255,7 +272,7 @@ public class TupleMask {
                     combined[cPos++] = masked.get(i);
         }
 
-        return useInheritance ? new LeftInheritanceTuple(unmasked, combined) : new FlatTuple(combined);
+        return useInheritance ? new LeftInheritanceTuple(unmasked, combined) : Tuples.flatTupleOf(combined);
     }
 
     /*
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.matchers.tuple;
+
+/**
+ * Factory for flat tuples, choosing the most compact representation for the given arity: tuples of at most
+ * {@link #MAX_SPECIALIZED_ARITY} elements are stored in fields ({@link Tuple0} .. {@link Tuple4}), larger ones in a
+ * {@link FlatTuple}.
+ * 
+ * @author Gabor Bergmann
+ */
+public final class Tuples {
+
+    /**
+     * Tuples up to this size have a specialized, array-free implementation.
+     */
+    public static final int MAX_SPECIALIZED_ARITY = 4;
+
+    private Tuples() {
+    }
+
+    /**
+     * Creates a flat tuple of the given elements. The array is not retained by the tuple. @pre: no elements are null
+     */
+    public static Tuple flatTupleOf(Object... elements) {
+        switch (elements.length) {
+        case 0:
+            return Tuple0.INSTANCE;
+        case 1:
+            return new Tuple1(elements[0]);
+        case 2:
+            return new Tuple2(elements[0], elements[1]);
+        case 3:
+            return new Tuple3(elements[0], elements[1], elements[2]);
+        case 4:
+            return new Tuple4(elements[0], elements[1], elements[2], elements[3]);
+        default:
+            return new FlatTuple(elements);
+        }
+    }
+
+    /**
+     * Creates a tuple of size one.
+     */
+    public static Tuple flatTupleOf(Object element0) {
+        return new Tuple1(element0);
+    }
+
+    /**
+     * Creates a tuple of size two.
+     */
+    public static Tuple flatTupleOf(Object element0, Object element1) {
+        return new Tuple2(element0, element1);
+    }
+
+    /**
+     * Creates a tuple of size three.
+     */
+    public static Tuple flatTupleOf(Object element0, Object element1, Object element2) {
+        return new Tuple3(element0, element1, element2);
+    }
+
+    /**
+     * Creates a tuple of size four.
+     */
+    public static Tuple flatTupleOf(Object element0, Object element1, Object element2, Object element3) {
+        return new Tuple4(element0, element1, element2, element3);
+    }
+
+    /**
+     * Creates a tuple that starts with the elements of the ancestor, followed by the local elements. If the result is
+     * small enough, a specialized flat tuple is returned, otherwise a {@link LeftInheritanceTuple} sharing the
+     * ancestor. @pre: no elements are null
+     */
+    public static Tuple leftInheritanceTupleOf(Tuple ancestor, Object... localElements) {
+        int ancestorSize = ancestor.getSize();
+        if (ancestorSize + localElements.length > MAX_SPECIALIZED_ARITY)
+            return new LeftInheritanceTuple(ancestor, localElements);
+        Object[] elements = new Object[ancestorSize + localElements.length];
+        for (int i = 0; i < ancestorSize; ++i)
+            elements[i] = ancestor.get(i);
+        System.arraycopy(localElements, 0, elements, ancestorSize, localElements.length);
+        return flatTupleOf(elements);
+    }
+
+    static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+}
@@ -11,8 +11,8 @@
 
 package org.eclipse.incquery.runtime.rete.boundary;
 
-import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.matcher.IPatternMatcherRuntimeContext;
 import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.Network;
@@ -46,7 +46,7 @@ public abstract class Feeder {
     protected IPatternMatcherRuntimeContext.ModelElementCrawler unaryCrawler() {
         return new IPatternMatcherRuntimeContext.ModelElementCrawler() {
             public void crawl(Object element) {
-                emit(new FlatTuple(inputConnector.wrapElement(element)));
+                emit(Tuples.flatTupleOf(inputConnector.wrapElement(element)));
             }
         };
     }
@@ -54,7 +54,7 @@ public abstract class Feeder {
     protected IPatternMatcherRuntimeContext.ModelElementPairCrawler pairCrawler() {
         return new IPatternMatcherRuntimeContext.ModelElementPairCrawler() {
             public void crawl(Object first, Object second) {
-                emit(new FlatTuple(inputConnector.wrapElement(first), inputConnector.wrapElement(second)));
+                emit(Tuples.flatTupleOf(inputConnector.wrapElement(first), inputConnector.wrapElement(second)));
             }
         };
     }
@@ -65,7 +65,7 @@ public abstract class Feeder {
                 Object relation = element;
                 Object from = context.ternaryEdgeSource(relation);
                 Object to = context.ternaryEdgeTarget(relation);
-                emit(new FlatTuple(inputConnector.wrapElement(relation), inputConnector.wrapElement(from), inputConnector.wrapElement(to)));
+                emit(Tuples.flatTupleOf(inputConnector.wrapElement(relation), inputConnector.wrapElement(from), inputConnector.wrapElement(to)));
             }
         };
     }
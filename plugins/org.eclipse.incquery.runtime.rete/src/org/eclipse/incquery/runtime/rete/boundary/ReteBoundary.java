@@ -21,8 +21,8 @@ import org.eclipse.incquery.runtime.matchers.IPatternMatcherContext.Generalizati
 import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
 import org.eclipse.incquery.runtime.matchers.planning.SubPlan;
 import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
-import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.collections.CollectionsFactory;
 import org.eclipse.incquery.runtime.rete.matcher.IPatternMatcherRuntimeContext;
 import org.eclipse.incquery.runtime.rete.matcher.ReteEngine;
@@ -380,7 +380,19 @@ public class ReteBoundary {
      */
     public synchronized Address<? extends Production> accessProductionNode(PQuery query)
             throws QueryPlannerException {
-    	return (Address<? extends Production>) headContainer.getProvisioner().getOrCreateNodeByRecipe(accessProductionTrace(query));
+    	return accessProductionNode(accessProductionTrace(query));
+    }
+    
+    /**
+     * accesses the production node for the specified compiled query; builds it if it doesn't exist yet. 
+     * 
+     * <p> Newly built productions are distributed among the containers of the network in a round-robin fashion. 
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Address<? extends Production> accessProductionNode(RecipeTraceInfo productionTrace) {
+    	final Address<? extends Node> existing = network.getNodeByRecipeIfExists(productionTrace.getRecipe());
+    	final ReteContainer container = existing == null ? network.getNextContainer() : existing.getContainer();
+    	return (Address<? extends Production>) container.getProvisioner().getOrCreateNodeByRecipe(productionTrace);
     }
 
 //    /**
@@ -468,9 +480,7 @@ public class ReteBoundary {
     public void updateUnary(Direction direction, Object entity, Object typeObject) {
         Address<? extends Tunnel> root = inputConnector.getUnaryRoot(typeObject);
         if (root != null) {
-            network.sendExternalUpdate(root, direction, new FlatTuple(inputConnector.wrapElement(entity)));
-            if (!engine.isParallelExecutionEnabled())
-                network.waitForReteTermination();
+            propagateExternalUpdate(root, direction, Tuples.flatTupleOf(inputConnector.wrapElement(entity)));
         }
         if (typeObject != null && generalizationQueryDirection == GeneralizationQueryDirection.SUPERTYPE_ONLY) {
             for (Object superType : context.enumerateDirectUnarySupertypes(typeObject)) {
@@ -482,10 +492,8 @@ public class ReteBoundary {
     public void updateTernaryEdge(Direction direction, Object relation, Object from, Object to, Object typeObject) {
         Address<? extends Tunnel> root = inputConnector.getTernaryEdgeRoot(typeObject);
         if (root != null) {
-            network.sendExternalUpdate(root, direction, new FlatTuple(inputConnector.wrapElement(relation), inputConnector.wrapElement(from),
+            propagateExternalUpdate(root, direction, Tuples.flatTupleOf(inputConnector.wrapElement(relation), inputConnector.wrapElement(from),
                     inputConnector.wrapElement(to)));
-            if (!engine.isParallelExecutionEnabled())
-                network.waitForReteTermination();
         }
         if (typeObject != null && generalizationQueryDirection == GeneralizationQueryDirection.SUPERTYPE_ONLY) {
             for (Object superType : context.enumerateDirectTernaryEdgeSupertypes(typeObject)) {
@@ -497,9 +505,7 @@ public class ReteBoundary {
     public void updateBinaryEdge(Direction direction, Object from, Object to, Object typeObject) {
         Address<? extends Tunnel> root = inputConnector.getBinaryEdgeRoot(typeObject);
         if (root != null) {
-            network.sendExternalUpdate(root, direction, new FlatTuple(inputConnector.wrapElement(from), inputConnector.wrapElement(to)));
-            if (!engine.isParallelExecutionEnabled())
-                network.waitForReteTermination();
+            propagateExternalUpdate(root, direction, Tuples.flatTupleOf(inputConnector.wrapElement(from), inputConnector.wrapElement(to)));
         }
         if (typeObject != null && generalizationQueryDirection == GeneralizationQueryDirection.SUPERTYPE_ONLY) {
             for (Object superType : context.enumerateDirectBinaryEdgeSupertypes(typeObject)) {
@@ -511,36 +517,35 @@ public class ReteBoundary {
     public void updateContainment(Direction direction, Object container, Object element) {
         final Address<? extends Tunnel> containmentRoot = inputConnector.getContainmentRoot();
 		if (containmentRoot != null) {
-            network.sendExternalUpdate(containmentRoot, direction, new FlatTuple(inputConnector.wrapElement(container),
+            propagateExternalUpdate(containmentRoot, direction, Tuples.flatTupleOf(inputConnector.wrapElement(container),
                     inputConnector.wrapElement(element)));
-            if (!engine.isParallelExecutionEnabled())
-                network.waitForReteTermination();
         }
     }
 
     public void updateInstantiation(Direction direction, Object parent, Object child) {
         final Address<? extends Tunnel> instantiationRoot = inputConnector.getInstantiationRoot();
        if (instantiationRoot != null) {
-            network.sendExternalUpdate(instantiationRoot, direction, new FlatTuple(inputConnector.wrapElement(parent),
+            propagateExternalUpdate(instantiationRoot, direction, Tuples.flatTupleOf(inputConnector.wrapElement(parent),
                     inputConnector.wrapElement(child)));
-            if (!engine.isParallelExecutionEnabled())
-                network.waitForReteTermination();
         }
     }
 
     public void updateGeneralization(Direction direction, Object parent, Object child) {
        final Address<? extends Tunnel> generalizationRoot = inputConnector.getGeneralizationRoot();
        if (generalizationRoot != null) {
-            network.sendExternalUpdate(generalizationRoot, direction, new FlatTuple(inputConnector.wrapElement(parent),
+            propagateExternalUpdate(generalizationRoot, direction, Tuples.flatTupleOf(inputConnector.wrapElement(parent),
                     inputConnector.wrapElement(child)));
-            if (!engine.isParallelExecutionEnabled())
-                network.waitForReteTermination();
         }
     }
 
-    // no wrapping needed!
-    public void notifyEvaluator(Address<? extends Receiver> receiver, Tuple tuple) {
-        network.sendExternalUpdate(receiver, Direction.INSERT, tuple);
+    /**
+     * Sends an update into the network, and waits until it is propagated unless parallel execution is enabled. In
+     * concurrent match access mode, match retrieval is blocked from the first update of a model change until
+     * {@link ReteEngine#endModelChange()} is called at its end.
+     */
+    private void propagateExternalUpdate(Address<? extends Receiver> receiver, Direction direction, Tuple tuple) {
+        engine.beginModelChange();
+        network.sendExternalUpdate(receiver, direction, tuple);
         if (!engine.isParallelExecutionEnabled())
             network.waitForReteTermination();
     }
@@ -41,6 +41,11 @@ public class CollectionsFactory
 
     public enum CollectionsFramework {
         Java,
+        /**
+         * Built-in open addressing implementations ({@link OpenAddressingHashMap}, {@link OpenAddressingHashSet}),
+         * trading some CPU for much lower memory overhead than {@link java.util.HashMap} nodes. Non-thread-safe.
+         */
+        OpenAddressing,
         HPPC,
         GS,
         FastUtil,
@@ -49,12 +54,17 @@ public class CollectionsFactory
         Javolution
     }
     
+    /**
+     * The collections implementation used for newly created maps and sets. Should be set before the pattern matcher
+     * engine is created, as collections already instantiated are not converted.
+     */
     public static CollectionsFramework mode = CollectionsFramework.Java;
     
     public static <K,V> Map<K,V> getMap() {
         switch (mode) {
         default:
         case Java: return new HashMap<K, V>();
+        case OpenAddressing: return new OpenAddressingHashMap<K, V>(); // non-thread-safe
 //        case HPPC: return new HPPCHashMap<K, V>(); // non-thread-safe
 //        case GS: return new UnifiedMap<K,V>();
 //        case FastUtil: return new Object2ReferenceOpenHashMap<K,V>();
@@ -70,6 +80,7 @@ public class CollectionsFactory
         switch (mode) {
         default:
         case Java: return new HashSet<E>();
+        case OpenAddressing: return new OpenAddressingHashSet<E>(); // non-thread-safe
 //        case GS: return new UnifiedSet<E>();
 //        case FastUtil: return new ObjectOpenHashSet<E>();
 //        case Trove: return new THashSet<E>();
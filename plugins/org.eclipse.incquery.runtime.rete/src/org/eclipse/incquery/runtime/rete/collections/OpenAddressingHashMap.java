@@ -0,0 +1,466 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Istvan Rath - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.rete.collections;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Map} implementation based on open addressing with linear probing.
+ *
+ * <p>
+ * Keys and values are stored in two parallel arrays; no per-entry node objects are allocated (except for the
+ * short-lived {@link Map.Entry} views handed out by {@link #entrySet()}). Removal uses backward shifting instead of
+ * tombstones, so lookup performance does not degrade after many insert/remove cycles, which is the typical usage
+ * pattern of Rete memories. <code>null</code> keys and values are permitted.
+ *
+ * <p>
+ * Not thread-safe.
+ *
+ * @author istvanrath
+ *
+ */
+public class OpenAddressingHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Storage slot marker for the <code>null</code> key, as <code>null</code> denotes an empty slot.
+     */
+    private static final Object NULL_KEY = new Object();
+
+    private Object[] keys;
+    private Object[] values;
+    private int mask;
+    private int maxFill;
+    private int size;
+    private int modCount;
+
+    private transient Set<K> keySetView;
+    private transient Collection<V> valuesView;
+    private transient Set<Map.Entry<K, V>> entrySetView;
+
+    public OpenAddressingHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize
+     *            the number of mappings the map should be able to hold without rehashing
+     */
+    public OpenAddressingHashMap(int expectedSize) {
+        allocate(OpenAddressingSupport.tableSizeFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        maxFill = OpenAddressingSupport.maxFill(capacity);
+    }
+
+    private static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K unmaskNull(Object key) {
+        return key == NULL_KEY ? null : (K) key;
+    }
+
+    /**
+     * @return the slot of the (masked) key, or <code>-(insertionPoint + 1)</code> if not present
+     */
+    private int find(Object maskedKey) {
+        int pos = OpenAddressingSupport.hash(maskedKey) & mask;
+        Object current;
+        while ((current = keys[pos]) != null) {
+            if (current == maskedKey || current.equals(maskedKey))
+                return pos;
+            pos = (pos + 1) & mask;
+        }
+        return -(pos + 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(maskNull(key)) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != null && (value == null ? values[i] == null : value.equals(values[i])))
+                return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        int pos = find(maskNull(key));
+        return pos >= 0 ? (V) values[pos] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(K key, V value) {
+        Object maskedKey = maskNull(key);
+        int pos = find(maskedKey);
+        if (pos >= 0) {
+            V old = (V) values[pos];
+            values[pos] = value;
+            return old;
+        }
+        pos = -pos - 1;
+        keys[pos] = maskedKey;
+        values[pos] = value;
+        ++modCount;
+        if (++size > maxFill)
+            rehash(keys.length << 1);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        int pos = find(maskNull(key));
+        if (pos < 0)
+            return null;
+        V old = (V) values[pos];
+        removeAt(pos, -1, null);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0)
+            return;
+        ++modCount;
+        size = 0;
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+    }
+
+    private void rehash(int newCapacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            Object key = oldKeys[i];
+            if (key != null) {
+                int pos = OpenAddressingSupport.hash(key) & mask;
+                while (keys[pos] != null)
+                    pos = (pos + 1) & mask;
+                keys[pos] = key;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Removes the slot at the given position and closes the gap by shifting back subsequent entries of the probe
+     * sequence.
+     *
+     * @param cursor
+     *            the position of a descending iterator (entries at or above it have already been visited), or -1 if
+     *            not called from an iterator
+     * @param wrapped
+     *            collects keys that have been moved from unvisited to visited positions of the iterator
+     */
+    private void removeAt(int pos, int cursor, List<Object> wrapped) {
+        ++modCount;
+        --size;
+        int last;
+        for (;;) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            Object current;
+            for (;;) {
+                current = keys[pos];
+                if (current == null) {
+                    keys[last] = null;
+                    values[last] = null;
+                    return;
+                }
+                int slot = OpenAddressingSupport.hash(current) & mask;
+                if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos))
+                    break;
+                pos = (pos + 1) & mask;
+            }
+            if (pos < cursor && last >= cursor && wrapped != null)
+                wrapped.add(current);
+            keys[last] = current;
+            values[last] = values[pos];
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        if (keySetView == null) {
+            keySetView = new AbstractSet<K>() {
+                @Override
+                public Iterator<K> iterator() {
+                    return new TableIterator<K>() {
+                        @Override
+                        protected K element(Object maskedKey, int pos) {
+                            return unmaskNull(maskedKey);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    int pos = find(maskNull(o));
+                    if (pos < 0)
+                        return false;
+                    removeAt(pos, -1, null);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    OpenAddressingHashMap.this.clear();
+                }
+            };
+        }
+        return keySetView;
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (valuesView == null) {
+            valuesView = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new TableIterator<V>() {
+                        @SuppressWarnings("unchecked")
+                        @Override
+                        protected V element(Object maskedKey, int pos) {
+                            return pos >= 0 ? (V) values[pos] : get(unmaskNull(maskedKey));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsValue(o);
+                }
+
+                @Override
+                public void clear() {
+                    OpenAddressingHashMap.this.clear();
+                }
+            };
+        }
+        return valuesView;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySetView == null) {
+            entrySetView = new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new TableIterator<Map.Entry<K, V>>() {
+                        @Override
+                        protected Map.Entry<K, V> element(Object maskedKey, int pos) {
+                            return new Entry(OpenAddressingHashMap.<K> unmaskNull(maskedKey));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry))
+                        return false;
+                    Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                    int pos = find(maskNull(e.getKey()));
+                    if (pos < 0)
+                        return false;
+                    Object value = values[pos];
+                    return value == null ? e.getValue() == null : value.equals(e.getValue());
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    if (!contains(o))
+                        return false;
+                    OpenAddressingHashMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    OpenAddressingHashMap.this.clear();
+                }
+            };
+        }
+        return entrySetView;
+    }
+
+    /**
+     * Entry view that looks up its slot on access, so that it stays valid even if backward shifting moved the mapping.
+     */
+    private class Entry implements Map.Entry<K, V> {
+        private final K key;
+
+        Entry(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return get(key);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V setValue(V value) {
+            int pos = find(maskNull(key));
+            if (pos < 0)
+                throw new IllegalStateException("Entry is no longer present in the map");
+            V old = (V) values[pos];
+            values[pos] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            V value = getValue();
+            return (key == null ? e.getKey() == null : key.equals(e.getKey()))
+                    && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            V value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * Iterates over the table in descending slot order; keys that are shifted from unvisited slots into visited ones
+     * by {@link Iterator#remove()} are collected and served after the table scan.
+     */
+    private abstract class TableIterator<E> implements Iterator<E> {
+        private int cursor = keys.length;
+        private int remaining = size;
+        private int lastReturned = -1;
+        private Object lastReturnedWrappedKey;
+        private List<Object> wrapped;
+        private int wrappedIndex = 0;
+        private int expectedModCount = modCount;
+
+        /**
+         * @param pos
+         *            the slot of the key, or -1 if the key is served from the wrapped list
+         */
+        protected abstract E element(Object maskedKey, int pos);
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public E next() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            while (--cursor >= 0) {
+                if (keys[cursor] != null) {
+                    lastReturned = cursor;
+                    return element(keys[cursor], cursor);
+                }
+            }
+            lastReturned = -1;
+            lastReturnedWrappedKey = wrapped.get(wrappedIndex++);
+            return element(lastReturnedWrappedKey, -1);
+        }
+
+        @Override
+        public void remove() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (lastReturned >= 0) {
+                if (wrapped == null)
+                    wrapped = new ArrayList<Object>(2);
+                removeAt(lastReturned, cursor, wrapped);
+                lastReturned = -1;
+            } else if (lastReturnedWrappedKey != null) {
+                int pos = find(lastReturnedWrappedKey);
+                removeAt(pos, -1, null);
+                lastReturnedWrappedKey = null;
+            } else {
+                throw new IllegalStateException();
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+}
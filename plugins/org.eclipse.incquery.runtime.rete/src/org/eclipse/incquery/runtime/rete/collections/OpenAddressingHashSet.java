@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Istvan Rath - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.rete.collections;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Set} implementation based on open addressing with linear probing.
+ *
+ * <p>
+ * Elements are stored directly in a single array, without any per-element node objects. Removal uses backward
+ * shifting instead of tombstones. <code>null</code> elements are permitted.
+ *
+ * <p>
+ * Not thread-safe.
+ *
+ * @author istvanrath
+ * @see OpenAddressingHashMap
+ */
+public class OpenAddressingHashSet<E> extends AbstractSet<E> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Storage slot marker for the <code>null</code> element, as <code>null</code> denotes an empty slot.
+     */
+    private static final Object NULL_ELEMENT = new Object();
+
+    private Object[] elements;
+    private int mask;
+    private int maxFill;
+    private int size;
+    private int modCount;
+
+    public OpenAddressingHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize
+     *            the number of elements the set should be able to hold without rehashing
+     */
+    public OpenAddressingHashSet(int expectedSize) {
+        allocate(OpenAddressingSupport.tableSizeFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        elements = new Object[capacity];
+        mask = capacity - 1;
+        maxFill = OpenAddressingSupport.maxFill(capacity);
+    }
+
+    private static Object maskNull(Object element) {
+        return element == null ? NULL_ELEMENT : element;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E unmaskNull(Object element) {
+        return element == NULL_ELEMENT ? null : (E) element;
+    }
+
+    /**
+     * @return the slot of the (masked) element, or <code>-(insertionPoint + 1)</code> if not present
+     */
+    private int find(Object maskedElement) {
+        int pos = OpenAddressingSupport.hash(maskedElement) & mask;
+        Object current;
+        while ((current = elements[pos]) != null) {
+            if (current == maskedElement || current.equals(maskedElement))
+                return pos;
+            pos = (pos + 1) & mask;
+        }
+        return -(pos + 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return find(maskNull(o)) >= 0;
+    }
+
+    @Override
+    public boolean add(E e) {
+        Object maskedElement = maskNull(e);
+        int pos = find(maskedElement);
+        if (pos >= 0)
+            return false;
+        elements[-pos - 1] = maskedElement;
+        ++modCount;
+        if (++size > maxFill)
+            rehash(elements.length << 1);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int pos = find(maskNull(o));
+        if (pos < 0)
+            return false;
+        removeAt(pos, -1, null);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0)
+            return;
+        ++modCount;
+        size = 0;
+        Arrays.fill(elements, null);
+    }
+
+    private void rehash(int newCapacity) {
+        Object[] oldElements = elements;
+        allocate(newCapacity);
+        for (Object element : oldElements) {
+            if (element != null) {
+                int pos = OpenAddressingSupport.hash(element) & mask;
+                while (elements[pos] != null)
+                    pos = (pos + 1) & mask;
+                elements[pos] = element;
+            }
+        }
+    }
+
+    /**
+     * Removes the slot at the given position and closes the gap by shifting back subsequent elements of the probe
+     * sequence.
+     *
+     * @param cursor
+     *            the position of a descending iterator (elements at or above it have already been visited), or -1 if
+     *            not called from an iterator
+     * @param wrapped
+     *            collects elements that have been moved from unvisited to visited positions of the iterator
+     */
+    private void removeAt(int pos, int cursor, List<Object> wrapped) {
+        ++modCount;
+        --size;
+        int last;
+        for (;;) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            Object current;
+            for (;;) {
+                current = elements[pos];
+                if (current == null) {
+                    elements[last] = null;
+                    return;
+                }
+                int slot = OpenAddressingSupport.hash(current) & mask;
+                if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos))
+                    break;
+                pos = (pos + 1) & mask;
+            }
+            if (pos < cursor && last >= cursor && wrapped != null)
+                wrapped.add(current);
+            elements[last] = current;
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new TableIterator();
+    }
+
+    /**
+     * Iterates over the table in descending slot order; elements that are shifted from unvisited slots into visited
+     * ones by {@link Iterator#remove()} are collected and served after the table scan.
+     */
+    private class TableIterator implements Iterator<E> {
+        private int cursor = elements.length;
+        private int remaining = size;
+        private int lastReturned = -1;
+        private Object lastReturnedWrapped;
+        private List<Object> wrapped;
+        private int wrappedIndex = 0;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public E next() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            while (--cursor >= 0) {
+                if (elements[cursor] != null) {
+                    lastReturned = cursor;
+                    return unmaskNull(elements[cursor]);
+                }
+            }
+            lastReturned = -1;
+            lastReturnedWrapped = wrapped.get(wrappedIndex++);
+            return unmaskNull(lastReturnedWrapped);
+        }
+
+        @Override
+        public void remove() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (lastReturned >= 0) {
+                if (wrapped == null)
+                    wrapped = new ArrayList<Object>(2);
+                removeAt(lastReturned, cursor, wrapped);
+                lastReturned = -1;
+            } else if (lastReturnedWrapped != null) {
+                removeAt(find(lastReturnedWrapped), -1, null);
+                lastReturnedWrapped = null;
+            } else {
+                throw new IllegalStateException();
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+}
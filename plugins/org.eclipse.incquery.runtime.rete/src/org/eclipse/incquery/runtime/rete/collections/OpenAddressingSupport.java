@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Istvan Rath - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.rete.collections;
+
+/**
+ * Hashing and sizing helpers shared by the open addressing collections.
+ *
+ * @author istvanrath
+ *
+ */
+final class OpenAddressingSupport {
+
+    /**
+     * Load factor of the tables; linear probing degrades quickly above 3/4.
+     */
+    static final float LOAD_FACTOR = 0.75f;
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private OpenAddressingSupport() {
+    }
+
+    /**
+     * Spreads the bits of the hash code, as many Tuple and EObject hash codes differ only in their high bits.
+     */
+    static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the smallest power of two capacity that holds the given number of elements within the load factor
+     */
+    static int tableSizeFor(int expectedSize) {
+        int required = (int) Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(required - 1) << 1;
+        return Math.min(Math.max(capacity, 4), MAXIMUM_CAPACITY);
+    }
+
+    /**
+     * @return the number of elements that triggers a resize of a table with the given capacity
+     */
+    static int maxFill(int capacity) {
+        return Math.min((int) Math.ceil(capacity * LOAD_FACTOR), capacity - 1);
+    }
+
+}
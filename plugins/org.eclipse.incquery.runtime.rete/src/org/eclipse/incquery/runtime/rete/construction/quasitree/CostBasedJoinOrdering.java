@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.rete.construction.quasitree;
+
+import java.util.Comparator;
+
+import org.eclipse.incquery.runtime.rete.util.OrderingCompareAgent;
+
+/**
+ * Prefers the join candidate with the smallest estimated result size, so that large intermediate memories are
+ * avoided. Falls back to {@link JoinOrderingHeuristics} if the size of either candidate is unknown, or both are
+ * estimated to be equal.
+ * 
+ * @author Gabor Bergmann
+ * 
+ */
+class CostBasedJoinOrdering implements Comparator<JoinCandidate> {
+
+    private final JoinCostEstimator estimator;
+    private final JoinOrderingHeuristics structuralOrdering = new JoinOrderingHeuristics();
+
+    CostBasedJoinOrdering(JoinCostEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public int compare(JoinCandidate jc1, JoinCandidate jc2) {
+        final Double cost1 = estimator.estimateSize(jc1.getJoinedPlan());
+        final Double cost2 = estimator.estimateSize(jc2.getJoinedPlan());
+        return new OrderingCompareAgent<JoinCandidate>(jc1, jc2) {
+            @Override
+            protected void doCompare() {
+                swallowBoolean(true && consider(preferTrue(a.isTrivial(), b.isTrivial()))
+                        && consider(preferTrue(a.isCheckOnly(), b.isCheckOnly()))
+                        && consider(cost1 == null || cost2 == null ? dontCare() : preferLess(cost1, cost2))
+                        && consider(structuralOrdering.compare(a, b)));
+            }
+        }.compare();
+    }
+
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.rete.construction.quasitree;
+
+import java.util.Comparator;
+
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+
+/**
+ * A {@link QuasiTreeLayout} that selects the next join based on the result sizes estimated from the current contents
+ * of the base index, see {@link CostBasedJoinOrdering}.
+ * 
+ * <p>
+ * Only types that are already indexed at planning time contribute to the estimates; joins involving other types are
+ * ordered by the structural heuristics of {@link QuasiTreeLayout}.
+ * 
+ * @author Gabor Bergmann
+ * 
+ */
+public class CostBasedQuasiTreeLayout extends QuasiTreeLayout {
+
+    private final NavigationHelper statistics;
+
+    /**
+     * @param statistics
+     *            the base index providing instance and feature value counts
+     */
+    public CostBasedQuasiTreeLayout(NavigationHelper statistics) {
+        super();
+        this.statistics = statistics;
+    }
+
+    @Override
+    Comparator<JoinCandidate> createJoinOrdering() {
+        return new CostBasedJoinOrdering(new JoinCostEstimator(statistics));
+    }
+
+}
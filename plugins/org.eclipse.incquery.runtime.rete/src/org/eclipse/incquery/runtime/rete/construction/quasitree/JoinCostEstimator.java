@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.rete.construction.quasitree;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.eclipse.incquery.runtime.matchers.planning.SubPlan;
+import org.eclipse.incquery.runtime.matchers.planning.operations.PApply;
+import org.eclipse.incquery.runtime.matchers.planning.operations.PEnumerate;
+import org.eclipse.incquery.runtime.matchers.planning.operations.PJoin;
+import org.eclipse.incquery.runtime.matchers.planning.operations.POperation;
+import org.eclipse.incquery.runtime.matchers.planning.operations.PProject;
+import org.eclipse.incquery.runtime.matchers.planning.operations.PStart;
+import org.eclipse.incquery.runtime.matchers.psystem.EnumerablePConstraint;
+import org.eclipse.incquery.runtime.matchers.psystem.PVariable;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.ConstantValue;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.TypeBinary;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.TypeUnary;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+
+/**
+ * Estimates the number of tuples produced by subplans, based on the instance and feature value counts of the base
+ * index.
+ *
+ * <p>
+ * Join sizes are estimated the textbook way: the product of the input sizes divided, for each common variable, by the
+ * larger number of distinct values of the variable among the two inputs. Subplans that enumerate types which are not
+ * (yet) indexed, or constraints other than type constraints and constants, have unknown size.
+ *
+ * @author Gabor Bergmann
+ *
+ */
+class JoinCostEstimator {
+
+    private final NavigationHelper statistics;
+    /**
+     * null value if size is unknown
+     */
+    private final Map<SubPlan, Estimate> estimates = new HashMap<SubPlan, Estimate>();
+
+    /**
+     * Estimated number of tuples, and estimated number of distinct values per visible variable.
+     */
+    private static class Estimate {
+        final double size;
+        final Map<PVariable, Double> distinctValues = new HashMap<PVariable, Double>();
+
+        Estimate(double size) {
+            this.size = size;
+        }
+
+        void putDistinctValues(PVariable variable, double count) {
+            Double old = distinctValues.get(variable);
+            double capped = Math.min(count, size);
+            distinctValues.put(variable, old == null ? capped : Math.min(old, capped));
+        }
+
+        double getDistinctValues(PVariable variable) {
+            Double count = distinctValues.get(variable);
+            return count == null ? size : count;
+        }
+    }
+
+    JoinCostEstimator(NavigationHelper statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the estimated number of tuples produced by the plan, or null if unknown
+     */
+    public Double estimateSize(SubPlan plan) {
+        Estimate estimate = getEstimate(plan);
+        return estimate == null ? null : estimate.size;
+    }
+
+    private Estimate getEstimate(SubPlan plan) {
+        if (estimates.containsKey(plan))
+            return estimates.get(plan);
+        Estimate estimate = doEstimate(plan);
+        estimates.put(plan, estimate);
+        return estimate;
+    }
+
+    private Estimate doEstimate(SubPlan plan) {
+        POperation operation = plan.getOperation();
+        if (operation instanceof PStart) {
+            return new Estimate(1);
+        } else if (operation instanceof PEnumerate) {
+            return estimateEnumerable(((PEnumerate) operation).getEnumerablePConstraint());
+        } else if (operation instanceof PJoin) {
+            return estimateJoin(plan, getEstimate(plan.getParentPlans().get(0)),
+                    getEstimate(plan.getParentPlans().get(1)));
+        } else if (operation instanceof PApply || operation instanceof PProject) {
+            // checks may only filter, projections may only merge tuples; use the size of the parent as upper bound
+            Estimate parent = getEstimate(plan.getParentPlans().get(0));
+            if (parent == null)
+                return null;
+            Estimate estimate = new Estimate(parent.size);
+            for (PVariable variable : plan.getVisibleVariables()) {
+                estimate.putDistinctValues(variable, parent.getDistinctValues(variable));
+            }
+            return estimate;
+        } else {
+            return null;
+        }
+    }
+
+    private Estimate estimateEnumerable(EnumerablePConstraint constraint) {
+        Tuple variables = constraint.getVariablesTuple();
+        if (constraint instanceof ConstantValue) {
+            Estimate estimate = new Estimate(1);
+            estimate.putDistinctValues((PVariable) variables.get(0), 1);
+            return estimate;
+        } else if (constraint instanceof TypeUnary) {
+            Object typeKey = ((TypeUnary) constraint).getSupplierKey();
+            if (!(typeKey instanceof EClass) || !statistics.isIndexed((EClass) typeKey))
+                return null;
+            Estimate estimate = new Estimate(statistics.countAllInstances((EClass) typeKey));
+            estimate.putDistinctValues((PVariable) variables.get(0), estimate.size);
+            return estimate;
+        } else if (constraint instanceof TypeBinary) {
+            Object typeKey = ((TypeBinary) constraint).getSupplierKey();
+            if (!(typeKey instanceof EStructuralFeature) || !statistics.isIndexed((EStructuralFeature) typeKey))
+                return null;
+            EStructuralFeature feature = (EStructuralFeature) typeKey;
+            Estimate estimate = new Estimate(statistics.countFeatureValues(feature));
+            estimate.putDistinctValues((PVariable) variables.get(0), statistics.countHoldersOfFeature(feature));
+            estimate.putDistinctValues((PVariable) variables.get(1), estimate.size);
+            return estimate;
+        } else {
+            return null;
+        }
+    }
+
+    private Estimate estimateJoin(SubPlan plan, Estimate primary, Estimate secondary) {
+        if (primary == null || secondary == null)
+            return null;
+        SubPlan primaryPlan = plan.getParentPlans().get(0);
+        SubPlan secondaryPlan = plan.getParentPlans().get(1);
+
+        double size = primary.size * secondary.size;
+        for (PVariable variable : primaryPlan.getVisibleVariables()) {
+            if (secondaryPlan.getVisibleVariables().contains(variable)) {
+                size /= Math.max(1, Math.max(primary.getDistinctValues(variable),
+                        secondary.getDistinctValues(variable)));
+            }
+        }
+
+        Estimate estimate = new Estimate(size);
+        for (PVariable variable : plan.getVisibleVariables()) {
+            boolean inPrimary = primaryPlan.getVisibleVariables().contains(variable);
+            boolean inSecondary = secondaryPlan.getVisibleVariables().contains(variable);
+            if (inPrimary && inSecondary) {
+                estimate.putDistinctValues(variable,
+                        Math.min(primary.getDistinctValues(variable), secondary.getDistinctValues(variable)));
+            } else if (inPrimary) {
+                estimate.putDistinctValues(variable, primary.getDistinctValues(variable));
+            } else if (inSecondary) {
+                estimate.putDistinctValues(variable, secondary.getDistinctValues(variable));
+            }
+        }
+        return estimate;
+    }
+
+}
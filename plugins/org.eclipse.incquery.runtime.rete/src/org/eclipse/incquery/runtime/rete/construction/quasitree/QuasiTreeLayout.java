@@ -13,6 +13,7 @@ package org.eclipse.incquery.runtime.rete.construction.quasitree;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -43,6 +44,14 @@ import org.eclipse.incquery.runtime.rete.util.Options;
  */
 public class QuasiTreeLayout implements IQueryPlannerStrategy {
 
+    /**
+     * @return the ordering used to select the next join among the candidates of a planning run; the least candidate
+     *         is selected
+     */
+    Comparator<JoinCandidate> createJoinOrdering() {
+        return new JoinOrderingHeuristics();
+    }
+
     @Override
     public SubPlan plan(PBody pSystem, /*IOperationCompiler compiler,*/ IPatternMatcherContext context)
             throws QueryPlannerException {
@@ -93,11 +102,11 @@ public class QuasiTreeLayout implements IQueryPlannerStrategy {
                 }
 
                 // JOIN FOREFRONT PLANS WHILE POSSIBLE
+                Comparator<JoinCandidate> ordering = createJoinOrdering();
                 while (forefront.size() > 1) {
                     // TODO QUASI-TREE TRIVIAL JOINS?
 
                     List<JoinCandidate> candidates = generateJoinCandidates();
-                    JoinOrderingHeuristics ordering = new JoinOrderingHeuristics();
                     JoinCandidate selectedJoin = Collections.min(candidates, ordering);
                     doJoin(selectedJoin);
                 }
@@ -10,14 +10,19 @@
  *******************************************************************************/
 package org.eclipse.incquery.runtime.rete.eval;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.incquery.runtime.matchers.psystem.IExpressionEvaluator;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.matcher.IPatternMatcherRuntimeContext;
 import org.eclipse.incquery.runtime.rete.network.ReteContainer;
 import org.eclipse.incquery.runtime.rete.single.SingleInputNode;
 import org.eclipse.incquery.runtime.rete.tuple.TupleValueProvider;
+import org.eclipse.incquery.runtime.rete.util.Options;
 
 /**
  * @author Bergmann Gabor
@@ -38,6 +43,17 @@ public abstract class AbstractEvaluatorNode extends SingleInputNode {
     protected IExpressionEvaluator evaluator;    
     int sourceTupleWidth;
     private Map<String, Integer> parameterPositions;
+    /**
+     * The tuple positions of the variables referenced by the expression
+     */
+    private int[] argumentPositions;
+    /**
+     * Results of the expression keyed by the values of the referenced variables, least recently used first; null if
+     * memoization is turned off, see {@link Options#evaluationMemoizationCacheSize}
+     */
+    private Map<Object, Object> memoizedResults;
+    private long memoizationHits = 0;
+    private long memoizationMisses = 0;
     
     
     public AbstractEvaluatorNode(ReteContainer reteContainer, IPatternMatcherRuntimeContext context, IExpressionEvaluator evaluator,
@@ -47,6 +63,29 @@ public abstract class AbstractEvaluatorNode extends SingleInputNode {
 		this.evaluator = evaluator;
         this.parameterPositions = parameterPositions;
 		this.sourceTupleWidth = sourceTupleWidth;
+		final int memoizationCacheSize = Options.evaluationMemoizationCacheSize;
+		if (memoizationCacheSize > 0) {
+			Set<Integer> positions = new LinkedHashSet<Integer>();
+			for (String parameterName : evaluator.getInputParameterNames()) {
+				Integer position = parameterPositions.get(parameterName);
+				if (position != null) {
+					positions.add(position);
+				}
+			}
+			this.argumentPositions = new int[positions.size()];
+			int i = 0;
+			for (Integer position : positions) {
+				argumentPositions[i++] = position;
+			}
+			this.memoizedResults = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+					return size() > memoizationCacheSize;
+				}
+			};
+		}
 	}
 //    protected Map<Tuple, Object> cachedResults = CollectionsFactory.getMap(); 
 	
@@ -64,11 +103,26 @@ public abstract class AbstractEvaluatorNode extends SingleInputNode {
 //        // clearing ASMfunction traces
 //        clearTraces(ps);
 
+        Object memoizationKey = null;
+        if (memoizedResults != null) {
+            memoizationKey = memoizationKey(ps);
+            Object memoizedResult = memoizedResults.get(memoizationKey);
+            if (memoizedResult != null) {
+                memoizationHits++;
+                return memoizedResult;
+            }
+            memoizationMisses++;
+        }
+
         // actual evaluation
         Object result = null;
         try {
             TupleValueProvider tupleParameters = new TupleValueProvider(ps, parameterPositions);
             result = evaluator.evaluateExpression(tupleParameters);
+            // failed evaluations are not memoized, so that they are reported each time
+            if (memoizationKey != null && result != null) {
+                memoizedResults.put(memoizationKey, result);
+            }
         } catch (Exception e) {
             context.logWarning(
             		String.format(
@@ -91,6 +145,44 @@ public abstract class AbstractEvaluatorNode extends SingleInputNode {
         return result;
     }
     
+    /**
+     * The value of the single referenced variable, or the tuple of the values of the referenced variables otherwise
+     */
+    private Object memoizationKey(Tuple ps) {
+        if (argumentPositions.length == 1) {
+            return ps.get(argumentPositions[0]);
+        }
+        Object[] arguments = new Object[argumentPositions.length];
+        for (int i = 0; i < argumentPositions.length; i++) {
+            arguments[i] = ps.get(argumentPositions[i]);
+        }
+        return Tuples.flatTupleOf(arguments);
+    }
+
+    /**
+     * @return the number of evaluations served by memoized results since the creation of the node
+     */
+    public long getMemoizationHits() {
+        return memoizationHits;
+    }
+
+    /**
+     * @return the number of evaluations that were not served by memoized results since the creation of the node; 0 if
+     *         memoization is turned off
+     */
+    public long getMemoizationMisses() {
+        return memoizationMisses;
+    }
+
+    /**
+     * Discards the memoized results of the expression.
+     */
+    public void clearMemoizedResults() {
+        if (memoizedResults != null) {
+            memoizedResults.clear();
+        }
+    }
+
 	protected String prettyPrintTuple(Tuple ps) {
         return ps.toString();
     }
@@ -13,8 +13,8 @@ package org.eclipse.incquery.runtime.rete.eval;
 import java.util.Map;
 
 import org.eclipse.incquery.runtime.matchers.psystem.IExpressionEvaluator;
-import org.eclipse.incquery.runtime.matchers.tuple.LeftInheritanceTuple;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.matcher.IPatternMatcherRuntimeContext;
 import org.eclipse.incquery.runtime.rete.network.ReteContainer;
 
@@ -34,7 +34,7 @@ public class CachedFunctionEvaluatorNode extends OutputCachingEvaluatorNode {
 	@Override
 	protected Tuple tupleFromResult(Tuple incoming, Object evaluationresult) {
 		if (evaluationresult == null) return null;
-		return new LeftInheritanceTuple(incoming, new Object[]{evaluationresult});
+		return Tuples.leftInheritanceTupleOf(incoming, evaluationresult);
 	}
 
 	/* (non-Javadoc)
@@ -43,6 +43,7 @@ public abstract class OutputCachingEvaluatorNode extends AbstractEvaluatorNode i
 	@Override
 	public void clear() {
 		outputCache.clear();
+		clearMemoizedResults();
 	}
 
 	/* (non-Javadoc)
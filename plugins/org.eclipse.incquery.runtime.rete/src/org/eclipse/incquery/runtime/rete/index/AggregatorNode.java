@@ -15,9 +15,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 
-import org.eclipse.incquery.runtime.matchers.tuple.LeftInheritanceTuple;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.collections.CollectionsFactory;
 import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.Node;
@@ -29,6 +29,10 @@ import org.eclipse.incquery.runtime.rete.traceability.TraceInfo;
  * A special node depending on a projection indexer to aggregate tuple groups with the same projection. Only propagates
  * the aggregates of non-empty groups. Use the outer indexers to circumvent.
  * 
+ * <p>
+ * If the aggregate of the empty group is null (e.g. the minimum of no values), empty groups have no aggregate, and the
+ * outer indexers do not return anything for them either.
+ * 
  * @author Gabor Bergmann
  * 
  */
@@ -68,11 +72,18 @@ public abstract class AggregatorNode extends StandardNode {
     		public void notifyIndexerUpdate(Direction direction, Tuple updateElement, Tuple signature, boolean change) {
     			aggregateUpdate(direction, updateElement, signature, change);
     		}
+
+    		@Override
+    		public void notifyIndexerBatchUpdate(Direction direction, Collection<Tuple> updateElements,
+    				Tuple signature, boolean change) {
+    			aggregateBatchUpdate(direction, updateElements, signature, change);
+    		}
     	});
     }
 
     /**
-     * Aggregates (reduces) a group of tuples. The group can be null.
+     * Aggregates (reduces) a group of tuples. The group can be null; the aggregate of the empty group can be null as
+     * well.
      */
     public abstract Object aggregateGroup(Tuple signature, Collection<Tuple> group);
 
@@ -86,6 +97,15 @@ public abstract class AggregatorNode extends StandardNode {
         return aggregateGroup(signature, currentGroup);
     }
 
+    /**
+     * Aggregates (reduces) a group of tuples, having access to the previous aggregated value (before the updates) and
+     * several updates of the same direction. Defaults to aggregateGroup(). Override to increase performance.
+     */
+    public Object aggregateGroupAfterBatchUpdate(Tuple signature, Collection<Tuple> currentGroup, Object oldAggregate,
+            Direction direction, Collection<Tuple> updateElements, boolean change) {
+        return aggregateGroup(signature, currentGroup);
+    }
+
     protected Tuple aggregateAndPack(Tuple signature, Collection<Tuple> group) {
         return packResult(signature, aggregateGroup(signature, group));
     }
@@ -117,8 +137,7 @@ public abstract class AggregatorNode extends StandardNode {
     }
 
     protected Tuple packResult(Tuple signature, Object result) {
-        Object[] resultArray = { result };
-        return new LeftInheritanceTuple(signature, resultArray);
+        return Tuples.leftInheritanceTupleOf(signature, result);
     }
 
     protected void aggregateUpdate(Direction direction, Tuple updateElement, Tuple signature, boolean change) {
@@ -131,16 +150,44 @@ public abstract class AggregatorNode extends StandardNode {
                                                                                                                  * non-null
                                                                                                                  */,
                 direction, updateElement, change);
+        updateAggregate(signature, oldAggregate, safeOldAggregate, newAggregate, empty);
+    }
+
+    /**
+     * Same as aggregateUpdate(), but the aggregate is only recomputed and propagated once for several updates of the
+     * same group.
+     */
+    protected void aggregateBatchUpdate(Direction direction, Collection<Tuple> updateElements, Tuple signature,
+            boolean change) {
+        Collection<Tuple> currentGroup = projection.get(signature);
+        // these will be null if group is empty
+        Object oldAggregate = mainAggregates.get(signature);
+        Object safeOldAggregate = oldAggregate == null ? aggregateGroup(signature, null) : oldAggregate;
+        boolean empty = currentGroup == null || currentGroup.isEmpty();
+        Object newAggregate = empty ? null : aggregateGroupAfterBatchUpdate(signature, currentGroup, safeOldAggregate,
+                direction, updateElements, change);
+        updateAggregate(signature, oldAggregate, safeOldAggregate, newAggregate, empty);
+    }
+
+    private void updateAggregate(Tuple signature, Object oldAggregate, Object safeOldAggregate, Object newAggregate,
+            boolean empty) {
         if (!empty)
             mainAggregates.put(signature, newAggregate);
         else
             mainAggregates.remove(signature);
-        Tuple oldTuple = packResult(signature, safeOldAggregate);
-        Tuple newTuple = packResult(signature, newAggregate == null ? aggregateGroup(signature, null) : newAggregate);
-        if (oldAggregate != null)
-            propagateUpdate(Direction.REVOKE, oldTuple); // direct outputs lack non-empty groups
-        if (newAggregate != null)
-            propagateUpdate(Direction.INSERT, newTuple); // direct outputs lack non-empty groups
+        Object safeNewAggregate = newAggregate == null ? aggregateGroup(signature, null) : newAggregate;
+        // null if the empty group has no aggregate
+        Tuple oldTuple = safeOldAggregate == null ? null : packResult(signature, safeOldAggregate);
+        Tuple newTuple = safeNewAggregate == null ? null : packResult(signature, safeNewAggregate);
+        // an unchanged aggregate is not revoked and inserted again
+        if (oldAggregate == null || newAggregate == null || !oldAggregate.equals(newAggregate)) {
+            if (oldAggregate != null)
+                propagateUpdate(Direction.REVOKE, oldTuple); // direct outputs lack non-empty groups
+            if (newAggregate != null)
+                propagateUpdate(Direction.INSERT, newTuple); // direct outputs lack non-empty groups
+        }
+        if (safeOldAggregate == null ? safeNewAggregate == null : safeOldAggregate.equals(safeNewAggregate))
+            return;
         if (aggregatorOuterIndexer != null)
             aggregatorOuterIndexer.propagate(signature, oldTuple, newTuple);
         if (aggregatorOuterIdentityIndexers != null)
@@ -193,12 +240,15 @@ public abstract class AggregatorNode extends StandardNode {
 
         @Override
         public Collection<Tuple> get(Tuple signature) {
-            return Collections.singleton(packResult(signature, getAggregate(signature)));
+            Object aggregate = getAggregate(signature);
+            return aggregate == null ? null : Collections.singleton(packResult(signature, aggregate));
         }
 
         public void propagate(Tuple signature, Tuple oldTuple, Tuple newTuple) {
-            propagate(Direction.INSERT, newTuple, signature, false);
-            propagate(Direction.REVOKE, oldTuple, signature, false);
+            if (newTuple != null)
+                propagate(Direction.INSERT, newTuple, signature, false);
+            if (oldTuple != null)
+                propagate(Direction.REVOKE, oldTuple, signature, false);
         }
 
         // @Override
@@ -258,15 +308,17 @@ public abstract class AggregatorNode extends StandardNode {
         public Collection<Tuple> get(Tuple signatureWithResult) {
             Tuple prunedSignature = pruneResult.transform(signatureWithResult);
             Object result = getAggregate(prunedSignature);
-            if (signatureWithResult.get(resultPositionInSignature).equals(result))
+            if (result != null && result.equals(signatureWithResult.get(resultPositionInSignature)))
                 return Collections.singleton(signatureWithResult);
             else
                 return null;
         }
 
         public void propagate(Tuple signature, Tuple oldTuple, Tuple newTuple) {
-            propagate(Direction.INSERT, reorder(newTuple), signature, true);
-            propagate(Direction.REVOKE, reorder(oldTuple), signature, true);
+            if (newTuple != null)
+                propagate(Direction.INSERT, reorder(newTuple), signature, true);
+            if (oldTuple != null)
+                propagate(Direction.REVOKE, reorder(oldTuple), signature, true);
         }
 
         // @Override
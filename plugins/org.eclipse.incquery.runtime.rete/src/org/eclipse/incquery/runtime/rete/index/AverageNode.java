@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.rete.index;
+
+import org.eclipse.incquery.runtime.rete.network.ReteContainer;
+
+/**
+ * An aggregation node that computes the average of the values of a column of the tuples conforming to the signature,
+ * as a {@link Double}. The values must be {@link Number}s. The empty group has no average.
+ *
+ * @author Gabor Bergmann
+ * @since 0.8
+ */
+public class AverageNode extends SingleColumnAggregatorNode<AverageNode.Average> {
+
+    static final class Average {
+        double sum = 0.0;
+        int count = 0;
+    }
+
+    public AverageNode(ReteContainer reteContainer, int aggregableIndex) {
+        super(reteContainer, aggregableIndex);
+    }
+
+    @Override
+    protected Average createAccumulator() {
+        return new Average();
+    }
+
+    @Override
+    protected void accumulate(Average average, Object value) {
+        average.sum += toDouble(value);
+        average.count++;
+    }
+
+    @Override
+    protected void deaccumulate(Average average, Object value) {
+        average.sum -= toDouble(value);
+        average.count--;
+    }
+
+    private double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        throw new IllegalArgumentException(String.format("Cannot average non-numeric value %s", value));
+    }
+
+    @Override
+    protected Object getAggregate(Average average) {
+        return average.sum / average.count;
+    }
+
+    @Override
+    protected Object getNeutralAggregate() {
+        return null;
+    }
+
+}
@@ -11,7 +11,11 @@
 package org.eclipse.incquery.runtime.rete.index;
 
 import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Iterator;
 
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.Node;
 
 /**
@@ -31,4 +35,25 @@ public abstract class DefaultIndexerListener implements IndexerListener {
         return owner.get();
     }
 
+    /**
+     * Notifies the update elements one by one; the first insertion / last revocation carries the change flag.
+     */
+    @Override
+    public void notifyIndexerBatchUpdate(Direction direction, Collection<Tuple> updateElements, Tuple signature,
+            boolean change) {
+        boolean first = true;
+        for (Iterator<Tuple> iterator = updateElements.iterator(); iterator.hasNext();) {
+            Tuple updateElement = iterator.next();
+            boolean last = !iterator.hasNext();
+            notifyIndexerUpdate(direction, updateElement, signature, change
+                    && (direction == Direction.INSERT ? first : last));
+            first = false;
+        }
+    }
+
+    @Override
+    public boolean acceptsBatchUpdates() {
+        return true;
+    }
+
 }
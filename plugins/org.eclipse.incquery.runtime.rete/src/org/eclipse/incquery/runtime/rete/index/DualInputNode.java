@@ -12,6 +12,7 @@
 package org.eclipse.incquery.runtime.rete.index;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
@@ -101,6 +102,12 @@ public abstract class DualInputNode extends StandardNode /* implements Pullable
                     notifyUpdate(Side.PRIMARY, direction, updateElement, signature, change);
                 }
 
+                @Override
+                public void notifyIndexerBatchUpdate(Direction direction, Collection<Tuple> updateElements,
+                        Tuple signature, boolean change) {
+                    notifyBatchUpdate(Side.PRIMARY, direction, updateElements, signature, change);
+                }
+
                 @Override
                 public String toString() {
                     return "primary@" + me;
@@ -112,6 +119,12 @@ public abstract class DualInputNode extends StandardNode /* implements Pullable
                     notifyUpdate(Side.SECONDARY, direction, updateElement, signature, change);
                 }
 
+                @Override
+                public void notifyIndexerBatchUpdate(Direction direction, Collection<Tuple> updateElements,
+                        Tuple signature, boolean change) {
+                    notifyBatchUpdate(Side.SECONDARY, direction, updateElements, signature, change);
+                }
+
                 @Override
                 public String toString() {
                     return "secondary@" + me;
@@ -124,6 +137,12 @@ public abstract class DualInputNode extends StandardNode /* implements Pullable
                     notifyUpdate(Side.BOTH, direction, updateElement, signature, change);
                 }
 
+                @Override
+                public boolean acceptsBatchUpdates() {
+                    // the opposite slot is the notifying indexer itself
+                    return false;
+                }
+
                 @Override
                 public String toString() {
                     return "both@" + me;
@@ -212,6 +231,26 @@ public abstract class DualInputNode extends StandardNode /* implements Pullable
     public abstract void notifyUpdate(Side side, Direction direction, Tuple updateElement, Tuple signature,
             boolean change);
 
+    /**
+     * Handler for a batch of update events with the same signature on one side; never called with
+     * {@link Side#BOTH}. Defaults to handling the updates one by one, the first insertion / last revocation carrying
+     * the change flag. Override to increase performance.
+     * 
+     * @param change
+     *            Indicates whether the batch contains the first/last instance of this signature in this slot.
+     */
+    public void notifyBatchUpdate(Side side, Direction direction, Collection<Tuple> updateElements, Tuple signature,
+            boolean change) {
+        boolean first = true;
+        for (Iterator<Tuple> iterator = updateElements.iterator(); iterator.hasNext();) {
+            Tuple updateElement = iterator.next();
+            boolean last = !iterator.hasNext();
+            notifyUpdate(side, direction, updateElement, signature, change
+                    && (direction == Direction.INSERT ? first : last));
+            first = false;
+        }
+    }
+
     /**
      * Simulates the behaviour of the node for calibration purposes only.
      */
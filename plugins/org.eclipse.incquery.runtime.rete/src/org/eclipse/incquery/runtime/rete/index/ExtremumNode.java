@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.rete.index;
+
+import java.util.TreeMap;
+
+import org.eclipse.incquery.runtime.rete.network.ReteContainer;
+
+/**
+ * Common base of the aggregation nodes that select the minimum or maximum of the values of a column. The values of each
+ * group are kept in a sorted multiset, so that the extremum is found without rescanning the group when it is revoked.
+ * The empty group has no extremum.
+ *
+ * <p>
+ * The values must be mutually {@link Comparable}.
+ *
+ * @author Gabor Bergmann
+ * @since 0.8
+ */
+public abstract class ExtremumNode extends SingleColumnAggregatorNode<TreeMap<Object, Integer>> {
+
+    public ExtremumNode(ReteContainer reteContainer, int aggregableIndex) {
+        super(reteContainer, aggregableIndex);
+    }
+
+    @Override
+    protected TreeMap<Object, Integer> createAccumulator() {
+        // values with multiplicities
+        return new TreeMap<Object, Integer>();
+    }
+
+    @Override
+    protected void accumulate(TreeMap<Object, Integer> values, Object value) {
+        Integer count = values.get(value);
+        values.put(value, count == null ? 1 : count + 1);
+    }
+
+    @Override
+    protected void deaccumulate(TreeMap<Object, Integer> values, Object value) {
+        Integer count = values.get(value);
+        if (count == null || count <= 1) {
+            values.remove(value);
+        } else {
+            values.put(value, count - 1);
+        }
+    }
+
+    @Override
+    protected Object getNeutralAggregate() {
+        return null;
+    }
+
+}
@@ -42,6 +42,11 @@ public class GenericProjectionIndexer extends IndexerWithMemory implements Proje
         propagate(direction, updateElement, signature, change);
     }
 
+    @Override
+    protected void batchUpdate(Direction direction, Collection<Tuple> updateElements, Tuple signature, boolean change) {
+        propagateBatch(direction, updateElements, signature, change);
+    }
+
     @Override
     public Collection<Tuple> get(Tuple signature) {
         return memory.get(signature);
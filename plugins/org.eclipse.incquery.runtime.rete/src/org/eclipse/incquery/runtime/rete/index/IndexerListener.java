@@ -11,6 +11,8 @@
 
 package org.eclipse.incquery.runtime.rete.index;
 
+import java.util.Collection;
+
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.Node;
@@ -37,5 +39,28 @@ public interface IndexerListener {
      */
     void notifyIndexerUpdate(Direction direction, Tuple updateElement, Tuple signature, boolean change);
 
+    /**
+     * Notifies recipient that the indexer has just received several updates of the same direction and signature.
+     * Contract: indexer already reflects the state after all of the updates. Only called if
+     * {@link #acceptsBatchUpdates()} is true.
+     * 
+     * @param direction
+     *            the direction of the updates.
+     * @param updateElements
+     *            the tuples that were updated.
+     * @param signature
+     *            the common signature of the tuples according to the indexer's mask.
+     * @param change
+     *            whether the first update element with this particular signature was inserted / the last one revoked.
+     */
+    void notifyIndexerBatchUpdate(Direction direction, Collection<Tuple> updateElements, Tuple signature,
+            boolean change);
+
+    /**
+     * @return false if the recipient inspects the notifying indexer itself and therefore has to be notified after each
+     *         single update, true if it can be notified in batches by {@link #notifyIndexerBatchUpdate}.
+     */
+    boolean acceptsBatchUpdates();
+
     Node getOwner();
 }
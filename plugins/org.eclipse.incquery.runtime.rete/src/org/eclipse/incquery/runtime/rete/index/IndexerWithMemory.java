@@ -11,13 +11,19 @@
 
 package org.eclipse.incquery.runtime.rete.index;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
 import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.Receiver;
+import org.eclipse.incquery.runtime.rete.network.ReceiverHelper;
 import org.eclipse.incquery.runtime.rete.network.ReteContainer;
 import org.eclipse.incquery.runtime.rete.network.Supplier;
 import org.eclipse.incquery.runtime.rete.tuple.MaskedTupleMemory;
@@ -52,11 +58,46 @@ public abstract class IndexerWithMemory extends StandardIndexer implements Recei
         update(direction, updateElement, signature, change);
     }
 
+    /**
+     * Groups the update elements by signature, and updates the memory and notifies the listeners once per group. Falls
+     * back to one by one delivery if a listener has to observe each single update.
+     */
+    @Override
+    public void batchUpdate(Direction direction, Collection<Tuple> updateElements) {
+        if (updateElements.size() == 1 || !listenersAcceptBatchUpdates()) {
+            ReceiverHelper.updateOneByOne(this, direction, updateElements);
+            return;
+        }
+        Map<Tuple, List<Tuple>> groups = new LinkedHashMap<Tuple, List<Tuple>>();
+        for (Tuple updateElement : updateElements) {
+            Tuple signature = mask.transform(updateElement);
+            List<Tuple> group = groups.get(signature);
+            if (group == null) {
+                group = new ArrayList<Tuple>();
+                groups.put(signature, group);
+            }
+            group.add(updateElement);
+        }
+        for (Entry<Tuple, List<Tuple>> entry : groups.entrySet()) {
+            Tuple signature = entry.getKey();
+            List<Tuple> group = entry.getValue();
+            boolean change = (direction == Direction.INSERT) ? memory.addAll(group, signature) : memory.removeAll(
+                    group, signature);
+            batchUpdate(direction, group, signature, change);
+        }
+    }
+
     /**
      * Refined version of update
      */
     protected abstract void update(Direction direction, Tuple updateElement, Tuple signature, boolean change);
 
+    /**
+     * Refined version of batchUpdate, called for each group of update elements with the same signature
+     */
+    protected abstract void batchUpdate(Direction direction, Collection<Tuple> updateElements, Tuple signature,
+            boolean change);
+
     @Override
     public void appendParent(Supplier supplier) {
         if (parent == null)
@@ -76,6 +76,20 @@ public class JoinNode extends DualInputNode {
         }
     }
 
+    @Override
+    public void notifyBatchUpdate(Side side, Direction direction, Collection<Tuple> updateElements, Tuple signature,
+            boolean change) {
+        Collection<Tuple> opposites = retrieveOpposites(side, signature);
+
+        if (opposites != null) {
+            for (Tuple updateElement : updateElements) {
+                for (Tuple opposite : opposites) {
+                    propagateUpdate(direction, unify(side, updateElement, opposite));
+                }
+            }
+        }
+    }
+
     @Override
     public void pullInto(Collection<Tuple> collector) {
         reteContainer.flushUpdates();
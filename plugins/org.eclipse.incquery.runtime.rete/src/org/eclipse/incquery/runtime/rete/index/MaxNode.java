@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.rete.index;
+
+import java.util.TreeMap;
+
+import org.eclipse.incquery.runtime.rete.network.ReteContainer;
+
+/**
+ * An aggregation node that selects the maximum of the values of a column of the tuples conforming to the signature.
+ * 
+ * @author Gabor Bergmann
+ * @since 0.8
+ */
+public class MaxNode extends ExtremumNode {
+
+    public MaxNode(ReteContainer reteContainer, int aggregableIndex) {
+        super(reteContainer, aggregableIndex);
+    }
+
+    @Override
+    protected Object getAggregate(TreeMap<Object, Integer> values) {
+        return values.lastKey();
+    }
+
+}
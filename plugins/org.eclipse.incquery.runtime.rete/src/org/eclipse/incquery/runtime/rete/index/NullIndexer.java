@@ -15,9 +15,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 
-import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.Node;
 import org.eclipse.incquery.runtime.rete.network.ReteContainer;
@@ -35,7 +35,7 @@ public abstract class NullIndexer extends SpecializedProjectionIndexer {
     protected abstract Collection<Tuple> getTuples();
 
     static Object[] empty = {};
-    static Tuple nullSignature = new FlatTuple(empty);
+    static Tuple nullSignature = Tuples.flatTupleOf(empty);
     static Collection<Tuple> nullSingleton = Collections.singleton(nullSignature);
     static Collection<Tuple> emptySet = Collections.emptySet();
 
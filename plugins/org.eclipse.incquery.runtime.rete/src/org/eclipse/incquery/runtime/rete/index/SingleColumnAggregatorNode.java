@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.rete.index;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.rete.collections.CollectionsFactory;
+import org.eclipse.incquery.runtime.rete.network.Direction;
+import org.eclipse.incquery.runtime.rete.network.ReteContainer;
+
+/**
+ * An aggregation node that aggregates the values of a single column of the tuples conforming to the signature. The
+ * state of the aggregation is kept in an accumulator for each group, which is updated with the value of the inserted or
+ * revoked tuple, so that updates do not rescan the group.
+ *
+ * @param <Accumulator>
+ *            the state of the aggregation of a single group
+ * @author Gabor Bergmann
+ * @since 0.8
+ */
+public abstract class SingleColumnAggregatorNode<Accumulator> extends AggregatorNode {
+
+    int aggregableIndex;
+    Map<Tuple, Accumulator> accumulators;
+
+    /**
+     * MUST call initializeWith() afterwards!
+     *
+     * @param aggregableIndex
+     *            the index of the aggregated column in the tuples of the projection indexer
+     */
+    public SingleColumnAggregatorNode(ReteContainer reteContainer, int aggregableIndex) {
+        super(reteContainer);
+        this.aggregableIndex = aggregableIndex;
+        this.accumulators = CollectionsFactory.getMap();
+    }
+
+    /**
+     * @return a new accumulator representing the empty group
+     */
+    protected abstract Accumulator createAccumulator();
+
+    /**
+     * Adds a value to the group represented by the accumulator.
+     */
+    protected abstract void accumulate(Accumulator accumulator, Object value);
+
+    /**
+     * Removes a value from the group represented by the accumulator.
+     */
+    protected abstract void deaccumulate(Accumulator accumulator, Object value);
+
+    /**
+     * @return the aggregate of the non-empty group represented by the accumulator
+     */
+    protected abstract Object getAggregate(Accumulator accumulator);
+
+    /**
+     * @return the aggregate of the empty group, or null if the empty group has no aggregate
+     */
+    protected abstract Object getNeutralAggregate();
+
+    @Override
+    public Object aggregateGroup(Tuple signature, Collection<Tuple> group) {
+        if (group == null || group.isEmpty()) {
+            return getNeutralAggregate();
+        }
+        // the group is aggregated from scratch, e.g. on initialization
+        Accumulator accumulator = createAccumulator();
+        for (Tuple tuple : group) {
+            accumulate(accumulator, tuple.get(aggregableIndex));
+        }
+        accumulators.put(signature, accumulator);
+        return getAggregate(accumulator);
+    }
+
+    @Override
+    public Object aggregateGroupAfterUpdate(Tuple signature, Collection<Tuple> currentGroup, Object oldAggregate,
+            Direction direction, Tuple updateElement, boolean change) {
+        Accumulator accumulator = getAccumulator(signature);
+        update(accumulator, direction, updateElement);
+        return getAggregate(accumulator);
+    }
+
+    @Override
+    public Object aggregateGroupAfterBatchUpdate(Tuple signature, Collection<Tuple> currentGroup,
+            Object oldAggregate, Direction direction, Collection<Tuple> updateElements, boolean change) {
+        Accumulator accumulator = getAccumulator(signature);
+        for (Tuple updateElement : updateElements) {
+            update(accumulator, direction, updateElement);
+        }
+        return getAggregate(accumulator);
+    }
+
+    private Accumulator getAccumulator(Tuple signature) {
+        Accumulator accumulator = accumulators.get(signature);
+        if (accumulator == null) {
+            accumulator = createAccumulator();
+            accumulators.put(signature, accumulator);
+        }
+        return accumulator;
+    }
+
+    private void update(Accumulator accumulator, Direction direction, Tuple updateElement) {
+        Object value = updateElement.get(aggregableIndex);
+        if (direction == Direction.INSERT) {
+            accumulate(accumulator, value);
+        } else {
+            deaccumulate(accumulator, value);
+        }
+    }
+
+    @Override
+    protected void aggregateUpdate(Direction direction, Tuple updateElement, Tuple signature, boolean change) {
+        super.aggregateUpdate(direction, updateElement, signature, change);
+        discardAccumulatorOfEmptyGroup(signature);
+    }
+
+    @Override
+    protected void aggregateBatchUpdate(Direction direction, Collection<Tuple> updateElements, Tuple signature,
+            boolean change) {
+        super.aggregateBatchUpdate(direction, updateElements, signature, change);
+        discardAccumulatorOfEmptyGroup(signature);
+    }
+
+    /**
+     * The accumulator is not updated when the group becomes empty, so it must not be reused if the group is filled
+     * again.
+     */
+    private void discardAccumulatorOfEmptyGroup(Tuple signature) {
+        Collection<Tuple> currentGroup = projection.get(signature);
+        if (currentGroup == null || currentGroup.isEmpty()) {
+            accumulators.remove(signature);
+        }
+    }
+
+}
@@ -48,6 +48,24 @@ public abstract class StandardIndexer extends BaseNode implements Indexer {
         }
     }
 
+    protected void propagateBatch(Direction direction, Collection<Tuple> updateElements, Tuple signature,
+            boolean change) {
+        for (IndexerListener listener : listeners) {
+            listener.notifyIndexerBatchUpdate(direction, updateElements, signature, change);
+        }
+    }
+
+    /**
+     * @return true if all listeners can be notified in batches, see {@link IndexerListener#acceptsBatchUpdates()}
+     */
+    protected boolean listenersAcceptBatchUpdates() {
+        for (IndexerListener listener : listeners) {
+            if (!listener.acceptsBatchUpdates())
+                return false;
+        }
+        return true;
+    }
+
     /**
      * @return the mask
      */
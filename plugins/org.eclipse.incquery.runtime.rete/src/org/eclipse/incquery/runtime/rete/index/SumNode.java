@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.rete.index;
+
+import org.eclipse.incquery.runtime.rete.network.ReteContainer;
+
+/**
+ * An aggregation node that sums the values of a column of the tuples conforming to the signature. The sum of the empty
+ * group is 0.
+ *
+ * <p>
+ * The values must be {@link Number}s. The sum of {@link Byte}, {@link Short} and {@link Integer} values is an
+ * {@link Integer} (or a {@link Long} if it does not fit into an int); if there are {@link Long} values as well, the sum
+ * is a {@link Long}; if there are other kinds of numbers as well, the sum is a {@link Double}.
+ *
+ * @author Gabor Bergmann
+ * @since 0.8
+ */
+public class SumNode extends SingleColumnAggregatorNode<SumNode.Sum> {
+
+    static final class Sum {
+        long integralSum = 0;
+        double floatingSum = 0.0;
+        int longCount = 0;
+        int floatingCount = 0;
+    }
+
+    public SumNode(ReteContainer reteContainer, int aggregableIndex) {
+        super(reteContainer, aggregableIndex);
+    }
+
+    @Override
+    protected Sum createAccumulator() {
+        return new Sum();
+    }
+
+    @Override
+    protected void accumulate(Sum sum, Object value) {
+        update(sum, value, 1);
+    }
+
+    @Override
+    protected void deaccumulate(Sum sum, Object value) {
+        update(sum, value, -1);
+    }
+
+    private void update(Sum sum, Object value, int sign) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            sum.integralSum += sign * ((Number) value).longValue();
+        } else if (value instanceof Long) {
+            sum.integralSum += sign * ((Long) value).longValue();
+            sum.longCount += sign;
+        } else if (value instanceof Number) {
+            sum.floatingSum += sign * ((Number) value).doubleValue();
+            sum.floatingCount += sign;
+            if (sum.floatingCount == 0) {
+                // discard the rounding errors of the removed values
+                sum.floatingSum = 0.0;
+            }
+        } else {
+            throw new IllegalArgumentException(String.format("Cannot sum non-numeric value %s", value));
+        }
+    }
+
+    @Override
+    protected Object getAggregate(Sum sum) {
+        if (sum.floatingCount > 0) {
+            return sum.integralSum + sum.floatingSum;
+        } else if (sum.longCount > 0 || sum.integralSum != (int) sum.integralSum) {
+            return sum.integralSum;
+        } else {
+            return (int) sum.integralSum;
+        }
+    }
+
+    @Override
+    protected Object getNeutralAggregate() {
+        return 0;
+    }
+
+}
@@ -16,9 +16,9 @@ import java.util.Iterator;
 import java.util.Set;
 
 import org.eclipse.incquery.runtime.base.itc.alg.incscc.IncSCCAlg;
-import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.collections.CollectionsFactory;
 import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.Receiver;
@@ -51,7 +51,7 @@ public class TransitiveClosureNodeIndexer extends StandardIndexer implements Ite
                 if (mask.indices[0] == 0) {
                     Object source = signature.get(0);
                     for (Object target : tcAlg.getAllReachableTargets(source)) {
-                        retSet.add(new FlatTuple(source, target));
+                        retSet.add(Tuples.flatTupleOf(source, target));
                     }
                     return retSet;
                 }
@@ -59,7 +59,7 @@ public class TransitiveClosureNodeIndexer extends StandardIndexer implements Ite
                 if (mask.indices[0] == 1) {
                     Object target = signature.get(1);
                     for (Object source : tcAlg.getAllReachableSources(target)) {
-                        retSet.add(new FlatTuple(source, target));
+                        retSet.add(Tuples.flatTupleOf(source, target));
                     }
                     return retSet;
                 }
@@ -68,14 +68,14 @@ public class TransitiveClosureNodeIndexer extends StandardIndexer implements Ite
                 if (mask.indices[0] == 0 && mask.indices[1] == 1) {
                     Object source = signature.get(0);
                     Object target = signature.get(1);
-                    Tuple singleton = new FlatTuple(new FlatTuple(source, target));
+                    Tuple singleton = Tuples.flatTupleOf(Tuples.flatTupleOf(source, target));
                     return (tcAlg.isReachable(source, target) ? Collections.singleton(singleton) : emptySet);
                 }
                 // mask (1,0)/2
                 if (mask.indices[0] == 1 && mask.indices[1] == 0) {
                     Object source = signature.get(1);
                     Object target = signature.get(0);
-                    Tuple singleton = new FlatTuple(new FlatTuple(source, target));
+                    Tuple singleton = Tuples.flatTupleOf(Tuples.flatTupleOf(source, target));
                     return (tcAlg.isReachable(source, target) ? Collections.singleton(singleton) : emptySet);
                 }
             }
@@ -84,22 +84,21 @@ public class TransitiveClosureNodeIndexer extends StandardIndexer implements Ite
     }
 
     public Collection<Tuple> getSignatures() {
-        return asTupleCollection(tcAlg.getTcRelation());
-    }
-
-    public Iterator<Tuple> iterator() {
-        return asTupleCollection(tcAlg.getTcRelation()).iterator();
-    }
-
-    private Collection<Tuple> asTupleCollection(
-            Collection<org.eclipse.incquery.runtime.base.itc.alg.misc.Tuple<Object>> tuples) {
         Set<Tuple> retSet = CollectionsFactory.getSet();//new HashSet<Tuple>();
-        for (org.eclipse.incquery.runtime.base.itc.alg.misc.Tuple<Object> tuple : tuples) {
-            retSet.add(new FlatTuple(tuple.getSource(), tuple.getTarget()));
+        Iterator<Tuple> iterator = iterator();
+        while (iterator.hasNext()) {
+            retSet.add(iterator.next());
         }
         return retSet;
     }
 
+    /**
+     * Streams the transitive closure relation, without materializing it.
+     */
+    public Iterator<Tuple> iterator() {
+        return tcNode.tupleIterator();
+    }
+
     public void propagate(Direction direction, Tuple updateElement, boolean change) {
         propagate(direction, updateElement, new MaskedTuple(updateElement, mask), change);
     }
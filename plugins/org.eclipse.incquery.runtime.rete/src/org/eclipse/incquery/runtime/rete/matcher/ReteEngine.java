@@ -16,7 +16,12 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.eclipse.incquery.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
 import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
 import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
@@ -31,12 +36,13 @@ import org.eclipse.incquery.runtime.rete.index.Indexer;
 import org.eclipse.incquery.runtime.rete.network.Network;
 import org.eclipse.incquery.runtime.rete.network.NodeProvisioner;
 import org.eclipse.incquery.runtime.rete.traceability.RecipeTraceInfo;
+import org.eclipse.incquery.runtime.rete.util.Options;
 
 /**
  * @author Gabor Bergmann
  *
  */
-public class ReteEngine {
+public class ReteEngine implements IQueryBackend {
 
     protected Network reteNet;
     protected final int reteThreads;
@@ -49,7 +55,7 @@ public class ReteEngine {
     protected IPredicateTraceListener traceListener;
     // protected MachineListener machineListener;
 
-    protected Map<PQuery, RetePatternMatcher> matchers;
+    protected volatile Map<PQuery, RetePatternMatcher> matchers;
     // protected Map<GTPattern, Map<Map<Integer, Scope>, RetePatternMatcher>> matchersScoped; // (pattern, scopemap) ->
     // matcher
 
@@ -59,6 +65,18 @@ public class ReteEngine {
 
     private boolean disposedOrUninitialized = true;
 
+    /**
+     * In concurrent match access mode, the write lock is held while a model change is propagated or the network is
+     * changed, and the read lock is held while matches are retrieved. Null if concurrent match access is disabled, see
+     * {@link Options#concurrentMatchAccess}.
+     */
+    protected final ReentrantReadWriteLock matchAccessLock;
+    /**
+     * True if the write lock is held until the end of the current model change, see {@link #beginModelChange()}. Only
+     * written by the thread holding the write lock.
+     */
+    private volatile boolean modelChangeInProgress = false;
+
     // while RETE does its job.
 
     // protected BlockingQueue<Throwable> caughtExceptions;
@@ -75,6 +93,9 @@ public class ReteEngine {
         this.context = context;
         this.reteThreads = reteThreads;
         this.parallelExecutionEnabled = reteThreads > 0;
+        // the network is settled whenever no update is in progress only if it is single-threaded
+        this.matchAccessLock = Options.concurrentMatchAccess && !parallelExecutionEnabled ? new ReentrantReadWriteLock()
+                : null;
         // this.framework = new WeakReference<IFramework>(context.getFramework());
 
         initEngine();
@@ -94,7 +115,8 @@ public class ReteEngine {
         this.boundary = new ReteBoundary(this); // prerequisite: network
 
         this.matchers = //new HashMap<PatternDescription, RetePatternMatcher>();
-                CollectionsFactory.getMap();
+                isConcurrentMatchAccessEnabled() ? new ConcurrentHashMap<PQuery, RetePatternMatcher>()
+                        : CollectionsFactory.<PQuery, RetePatternMatcher> getMap();
         /* this.matchersScoped = new HashMap<PatternDescription, Map<Map<Integer,Scope>,RetePatternMatcher>>(); */
 
         // prerequisite: network, framework, boundary, disconnectables
@@ -107,7 +129,16 @@ public class ReteEngine {
     /**
      * deconstructs engine components
      */
-    synchronized private void deconstructEngine() {
+    private void deconstructEngine() {
+        beginUpdate();
+        try {
+            deconstructEngineInternal();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    synchronized private void deconstructEngineInternal() {
     	ensureInitialized();
         reteNet.kill();
 
@@ -138,16 +169,31 @@ public class ReteEngine {
         this.compiler = null;
     }
 
+    @Override
+    public IQueryResultProvider getResultProvider(PQuery query) throws QueryPlannerException {
+        return accessMatcher(query);
+    }
+
+    @Override
+    public void dispose() {
+        killEngine();
+    }
+
     /**
      * Resets the engine to an after-initialization phase
      *
      */
     public void reset() {
-        deconstructEngine();
+        beginUpdate();
+        try {
+            deconstructEngine();
 
-        initEngine();
+            initEngine();
 
-        compiler.reset();
+            compiler.reset();
+        } finally {
+            endUpdate();
+        }
     }
 
     /**
@@ -160,7 +206,24 @@ public class ReteEngine {
      * @throws RetePatternBuildException
      *             if construction fails.
      */
-    public synchronized RetePatternMatcher accessMatcher(final PQuery gtPattern)
+    public RetePatternMatcher accessMatcher(final PQuery gtPattern) throws QueryPlannerException {
+        if (isConcurrentMatchAccessEnabled()) {
+            // existing matchers are looked up without contending for the engine
+            final Map<PQuery, RetePatternMatcher> currentMatchers = matchers;
+            final RetePatternMatcher matcher = currentMatchers == null ? null : currentMatchers.get(gtPattern);
+            if (matcher != null)
+                return matcher;
+        }
+        // the lock is acquired before the engine, like during update propagation
+        beginUpdate();
+        try {
+            return accessMatcherInternal(gtPattern);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private synchronized RetePatternMatcher accessMatcherInternal(final PQuery gtPattern)
             throws QueryPlannerException {
     	ensureInitialized();
     	RetePatternMatcher matcher;
@@ -199,7 +262,16 @@ public class ReteEngine {
      * @throws RetePatternBuildException
      *             if construction fails.
      */
-    public synchronized void buildMatchersCoalesced(final Collection<PQuery> specifications)
+    public void buildMatchersCoalesced(final Collection<PQuery> specifications) throws QueryPlannerException {
+        beginUpdate();
+        try {
+            buildMatchersCoalescedInternal(specifications);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private synchronized void buildMatchersCoalescedInternal(final Collection<PQuery> specifications)
             throws QueryPlannerException {
     	ensureInitialized();
     	constructionWrapper(new Callable<Void>() {
@@ -302,9 +374,20 @@ public class ReteEngine {
      *            the mask that defines the projection.
      * @return the Indexer.
      */
-    synchronized Indexer accessProjection(RecipeTraceInfo production, TupleMask mask) {
+    Indexer accessProjection(RecipeTraceInfo production, TupleMask mask) {
+        beginUpdate();
+        try {
+            return accessProjectionInternal(production, mask);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private synchronized Indexer accessProjectionInternal(RecipeTraceInfo production, TupleMask mask) {
     	ensureInitialized();
-        NodeProvisioner nodeProvisioner = reteNet.getHeadContainer().getProvisioner();
+        // the indexer is built in the container of the production node
+        NodeProvisioner nodeProvisioner = reteNet.getExistingNodeByRecipe(production.getRecipe()).getContainer()
+                .getProvisioner();
         Indexer result = nodeProvisioner.peekProjectionIndexer(production, mask);
         if (result == null) {
             context.modelReadLock();
@@ -367,6 +450,85 @@ public class ReteEngine {
         reteNet.waitForReteTermination(action);
     }
 
+    /**
+     * Runs a retrieval action when the pattern matcher is in a steady state. In concurrent match access mode, retrieval
+     * actions of different threads may run in parallel, but not in parallel with update propagation.
+     *
+     * @param action
+     *            the action to be run when reaching the steady-state; must not change the network.
+     */
+    public void retrieve(Runnable action) {
+        if (!isConcurrentMatchAccessEnabled() || matchAccessLock.isWriteLockedByCurrentThread()) {
+            // e.g. an update listener reading during propagation
+            settle(action);
+            return;
+        }
+        Lock readLock = matchAccessLock.readLock();
+        readLock.lock();
+        try {
+            ensureInitialized();
+            // model changes are propagated to the end while holding the write lock
+            action.run();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Marks the beginning of a structural change of the network; must be followed by {@link #endUpdate()}. In
+     * concurrent match access mode, waits until running retrievals finish and blocks new ones until
+     * {@link #endUpdate()}. May be nested, also with model changes, see {@link #beginModelChange()}.
+     *
+     * @pre the current thread does not retrieve matches at the same time
+     */
+    public void beginUpdate() {
+        if (matchAccessLock != null)
+            matchAccessLock.writeLock().lock();
+    }
+
+    /**
+     * Marks the end of a structural change of the network started by {@link #beginUpdate()}.
+     * The network must be in a steady state by then.
+     */
+    public void endUpdate() {
+        if (matchAccessLock != null)
+            matchAccessLock.writeLock().unlock();
+    }
+
+    /**
+     * Marks that an update of a model change is about to be propagated through the network. In concurrent match access
+     * mode, the first call of a model change acquires the write lock, which is kept for the further updates of the
+     * same change until {@link #endModelChange()}, so retrievals neither observe partially propagated changes nor
+     * contend for the lock once per update.
+     *
+     * @pre the current thread does not retrieve matches at the same time
+     */
+    public void beginModelChange() {
+        if (matchAccessLock != null && !(matchAccessLock.isWriteLockedByCurrentThread() && modelChangeInProgress)) {
+            matchAccessLock.writeLock().lock();
+            modelChangeInProgress = true;
+        }
+    }
+
+    /**
+     * Marks the end of the model change whose updates have been propagated since the first
+     * {@link #beginModelChange()}, if any. Has no effect if called by a thread other than the one propagating the
+     * change. The network must be in a steady state by then.
+     */
+    public void endModelChange() {
+        if (matchAccessLock != null && matchAccessLock.isWriteLockedByCurrentThread() && modelChangeInProgress) {
+            modelChangeInProgress = false;
+            matchAccessLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if multiple threads may retrieve matches in parallel, see {@link Options#concurrentMatchAccess}
+     */
+    public boolean isConcurrentMatchAccessEnabled() {
+        return matchAccessLock != null;
+    }
+
     // /**
     // * @return the framework
     // */
@@ -14,14 +14,15 @@ package org.eclipse.incquery.runtime.rete.matcher;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.boundary.InputConnector;
 import org.eclipse.incquery.runtime.rete.collections.CollectionsFactory;
 import org.eclipse.incquery.runtime.rete.index.Indexer;
-import org.eclipse.incquery.runtime.rete.network.Node;
 import org.eclipse.incquery.runtime.rete.network.Production;
 import org.eclipse.incquery.runtime.rete.network.Receiver;
 import org.eclipse.incquery.runtime.rete.remote.Address;
@@ -32,7 +33,7 @@ import org.eclipse.incquery.runtime.rete.traceability.RecipeTraceInfo;
  * @author Gabor Bergmann
  *
  */
-public class RetePatternMatcher extends TransformerNode {
+public class RetePatternMatcher extends TransformerNode implements IQueryResultProvider {
 
     protected ReteEngine engine;
     protected InputConnector inputConnector;
@@ -43,22 +44,32 @@ public class RetePatternMatcher extends TransformerNode {
             CollectionsFactory.getMap();
     protected boolean connected = false; // is rete-wise connected to the
                                          // production node?
+    /**
+     * The projections of the production node retrieved so far by mask, in concurrent match access mode; null otherwise.
+     */
+    protected Map<TupleMask, Indexer> projections = null;
 
     /**
      * @param productionNode
      *            a production node that matches this pattern without any parameter bindings
-     * @pre: Production must be local to the head container
      */
     public RetePatternMatcher(ReteEngine engine, RecipeTraceInfo productionNodeTrace) {
-        super(engine.getReteNet().getHeadContainer());
+        this(engine, productionNodeTrace, engine.getBoundary().accessProductionNode(productionNodeTrace));
+    }
+
+    /**
+     * The matcher resides in the container of its production node, which may be any of the containers of the network.
+     */
+    private RetePatternMatcher(ReteEngine engine, RecipeTraceInfo productionNodeTrace,
+            Address<? extends Production> productionAddress) {
+        super(productionAddress.getContainer());
         this.engine = engine;
         this.inputConnector = engine.getReteNet().getInputConnector();
         this.productionNodeTrace = productionNodeTrace;
-        final Address<? extends Node> productionAddress = reteContainer.getProvisioner().getOrCreateNodeByRecipe(productionNodeTrace);
-        if (!reteContainer.isLocal(productionAddress))
-        	throw new IllegalArgumentException("@pre: Production must be local to the head container");
-		this.productionNode = (Production) reteContainer.resolveLocal(productionAddress);
+        this.productionNode = reteContainer.resolveLocal(productionAddress);
         this.posMapping = this.productionNode.getPosMapping();
+        if (engine.isConcurrentMatchAccessEnabled())
+            this.projections = new ConcurrentHashMap<TupleMask, Indexer>();
     }
 
     // /**
@@ -79,11 +90,11 @@ public class RetePatternMatcher extends TransformerNode {
     public ArrayList<Tuple> matchAll(Object[] inputMapping, boolean[] fixed) {
         // retrieving the projection
         TupleMask mask = new TupleMask(fixed);
-        Tuple inputSignature = mask.transform(new FlatTuple(inputMapping));
+        Tuple inputSignature = mask.transform(Tuples.flatTupleOf(inputMapping));
 
-        AllMatchFetcher fetcher = new AllMatchFetcher(engine.accessProjection(productionNodeTrace, mask),
+        AllMatchFetcher fetcher = new AllMatchFetcher(accessProjection(mask),
                 inputConnector.wrapTuple(inputSignature));
-        engine.reteNet.waitForReteTermination(fetcher);
+        engine.retrieve(fetcher);
         ArrayList<Tuple> unscopedMatches = fetcher.getMatches();
 
         // checking scopes
@@ -97,11 +108,11 @@ public class RetePatternMatcher extends TransformerNode {
     public Tuple matchOne(Object[] inputMapping, boolean[] fixed) {
         // retrieving the projection
         TupleMask mask = new TupleMask(fixed);
-        Tuple inputSignature = mask.transform(new FlatTuple(inputMapping));
+        Tuple inputSignature = mask.transform(Tuples.flatTupleOf(inputMapping));
 
-        SingleMatchFetcher fetcher = new SingleMatchFetcher(engine.accessProjection(productionNodeTrace, mask),
+        SingleMatchFetcher fetcher = new SingleMatchFetcher(accessProjection(mask),
                 inputConnector.wrapTuple(inputSignature));
-        engine.reteNet.waitForReteTermination(fetcher);
+        engine.retrieve(fetcher);
         return fetcher.getMatch();
     }
 
@@ -112,15 +123,56 @@ public class RetePatternMatcher extends TransformerNode {
      */
     public int count(Object[] inputMapping, boolean[] fixed) {
         TupleMask mask = new TupleMask(fixed);
-        Tuple inputSignature = mask.transform(new FlatTuple(inputMapping));
+        Tuple inputSignature = mask.transform(Tuples.flatTupleOf(inputMapping));
 
-        CountFetcher fetcher = new CountFetcher(engine.accessProjection(productionNodeTrace, mask),
+        CountFetcher fetcher = new CountFetcher(accessProjection(mask),
                 inputConnector.wrapTuple(inputSignature));
-        engine.reteNet.waitForReteTermination(fetcher);
+        engine.retrieve(fetcher);
 
         return fetcher.getCount();
     }
 
+    @Override
+    public boolean hasMatch(Object[] parameters) {
+        return count(parameters, fixed(parameters)) > 0;
+    }
+
+    @Override
+    public int countMatches(Object[] parameters) {
+        return count(parameters, fixed(parameters));
+    }
+
+    @Override
+    public Tuple getOneArbitraryMatch(Object[] parameters) {
+        return matchOne(parameters, fixed(parameters));
+    }
+
+    @Override
+    public Collection<? extends Tuple> getAllMatches(Object[] parameters) {
+        return matchAll(parameters, fixed(parameters));
+    }
+
+    /**
+     * Projections are looked up without contending for the engine in concurrent match access mode.
+     */
+    private Indexer accessProjection(TupleMask mask) {
+        if (projections == null)
+            return engine.accessProjection(productionNodeTrace, mask);
+        Indexer indexer = projections.get(mask);
+        if (indexer == null) {
+            indexer = engine.accessProjection(productionNodeTrace, mask);
+            projections.put(mask, indexer);
+        }
+        return indexer;
+    }
+
+    private static boolean[] fixed(Object[] parameters) {
+        boolean[] fixed = new boolean[parameters.length];
+        for (int i = 0; i < parameters.length; ++i)
+            fixed[i] = parameters[i] != null;
+        return fixed;
+    }
+
     /**
      * Connects a new external receiver that will receive update notifications from now on. The receiver will
      * practically connect to the production node, the added value is unwrapping the updates for external use.
@@ -129,15 +181,22 @@ public class RetePatternMatcher extends TransformerNode {
      *            if true, the contents of the production node will be inserted into the receiver after the connection
      *            is established.
      */
-    public synchronized void connect(Receiver receiver, boolean synchronize) {
-        if (!connected) { // connect to the production node as a RETE-child
-            reteContainer.connect(productionNode, this);
-            connected = true;
+    public void connect(Receiver receiver, boolean synchronize) {
+        engine.beginUpdate();
+        try {
+            synchronized (this) {
+                if (!connected) { // connect to the production node as a RETE-child
+                    reteContainer.connect(productionNode, this);
+                    connected = true;
+                }
+                if (synchronize)
+                    reteContainer.connectAndSynchronize(this, receiver);
+                else
+                    reteContainer.connect(this, receiver);
+            }
+        } finally {
+            engine.endUpdate();
         }
-        if (synchronize)
-            reteContainer.connectAndSynchronize(this, receiver);
-        else
-            reteContainer.connect(this, receiver);
     }
 
     /**
@@ -154,16 +213,30 @@ public class RetePatternMatcher extends TransformerNode {
      *            is established.
      *
      */
-    public synchronized void connect(Receiver receiver, Object tag, boolean synchronize) {
-        taggedChildren.put(tag, receiver);
-        connect(receiver, synchronize);
+    public void connect(Receiver receiver, Object tag, boolean synchronize) {
+        engine.beginUpdate();
+        try {
+            synchronized (this) {
+                taggedChildren.put(tag, receiver);
+                connect(receiver, synchronize);
+            }
+        } finally {
+            engine.endUpdate();
+        }
     }
 
     /**
      * Disconnects a child node.
      */
-    public synchronized void disconnect(Receiver receiver) {
-        reteContainer.disconnect(this, receiver);
+    public void disconnect(Receiver receiver) {
+        engine.beginUpdate();
+        try {
+            synchronized (this) {
+                reteContainer.disconnect(this, receiver);
+            }
+        } finally {
+            engine.endUpdate();
+        }
     }
 
     /**
@@ -171,12 +244,19 @@ public class RetePatternMatcher extends TransformerNode {
      *
      * @return if a child node was found registered with this tag.
      */
-    public synchronized boolean disconnectByTag(Object tag) {
-        final Receiver receiver = taggedChildren.remove(tag);
-        final boolean found = receiver != null;
-        if (found)
-            disconnect(receiver);
-        return found;
+    public boolean disconnectByTag(Object tag) {
+        engine.beginUpdate();
+        try {
+            synchronized (this) {
+                final Receiver receiver = taggedChildren.remove(tag);
+                final boolean found = receiver != null;
+                if (found)
+                    disconnect(receiver);
+                return found;
+            }
+        } finally {
+            engine.endUpdate();
+        }
     }
 
     @Override
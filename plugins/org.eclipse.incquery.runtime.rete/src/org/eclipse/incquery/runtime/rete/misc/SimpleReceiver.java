@@ -13,8 +13,11 @@ package org.eclipse.incquery.runtime.rete.misc;
 import java.util.Collection;
 import java.util.Collections;
 
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.rete.network.BaseNode;
+import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.Receiver;
+import org.eclipse.incquery.runtime.rete.network.ReceiverHelper;
 import org.eclipse.incquery.runtime.rete.network.ReteContainer;
 import org.eclipse.incquery.runtime.rete.network.Supplier;
 import org.eclipse.incquery.runtime.rete.traceability.TraceInfo;
@@ -34,6 +37,11 @@ public abstract class SimpleReceiver extends BaseNode implements Receiver {
         super(reteContainer);
     }
 
+    @Override
+    public void batchUpdate(Direction direction, Collection<Tuple> updateElements) {
+        ReceiverHelper.updateOneByOne(this, direction, updateElements);
+    }
+
     @Override
     public void appendParent(Supplier supplier) {
         if (parent == null)
@@ -102,12 +102,12 @@ class ConnectionFactory {
 	}
 
 	private Indexer resolveIndexer(final IndexerRecipe indexerRecipe) {
-		final Address<? extends Node> address = reteContainer.getNetwork().getExistingNodeByRecipe(indexerRecipe);
+		final Address<? extends Node> address = reteContainer.getProvisioner().getExistingNodeByRecipe(indexerRecipe);
 		return (Indexer) reteContainer.resolveLocal(address);
 	}
 	
 	private void connectToParent(ReteNodeRecipe recipe, Receiver freshNode, ReteNodeRecipe parentRecipe) {
-		final Address<? extends Supplier> parentAddress = (Address<? extends Supplier>) reteContainer.getNetwork().getExistingNodeByRecipe(parentRecipe);
+		final Address<? extends Supplier> parentAddress = (Address<? extends Supplier>) reteContainer.getProvisioner().getExistingNodeByRecipe(parentRecipe);
 		final Supplier parentSupplier = reteContainer.getProvisioner().asSupplier(parentAddress);
 		
 		// special synch
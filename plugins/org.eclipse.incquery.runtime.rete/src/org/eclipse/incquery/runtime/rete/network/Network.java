@@ -56,7 +56,8 @@ public class Network {
     
     // Node and recipe administration
     // incl. addresses for existing nodes by recipe (where available)
-    // Maintained by NodeProvisioner of each container
+    // Maintained by NodeProvisioner of each container; 
+    //  only input and production nodes are registered here, as other nodes are private to their container 
     Map<ReteNodeRecipe, Address<? extends Node>> nodesByRecipe = CollectionsFactory.getMap();
     /** if EcoreUtil.equals(recipe1, recipe2), only one of them will be included here */
     Map<EClass, Collection<ReteNodeRecipe>> primaryRecipesByClass = CollectionsFactory.getMap();
@@ -129,7 +130,8 @@ public class Network {
     }
 
     /**
-     * Returns the next container in round-robin fashion. Configurable not to yield head container.
+     * Returns the next container in round-robin fashion. Configurable not to yield head container. Used for placing
+     * the Rete subnetwork of newly constructed patterns.
      */
     public ReteContainer getNextContainer() {
         if (nextContainer >= containers.size())
@@ -16,8 +16,8 @@ import java.util.Map;
 
 import org.eclipse.emf.common.util.EMap;
 import org.eclipse.incquery.runtime.matchers.psystem.IExpressionEvaluator;
-import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.eval.CachedFunctionEvaluatorNode;
 import org.eclipse.incquery.runtime.rete.eval.CachedPredicateEvaluatorNode;
 import org.eclipse.incquery.runtime.rete.index.AggregatorNode;
@@ -202,7 +202,7 @@ class NodeFactory {
 	private Supplier instantiateNode(ReteContainer reteContainer, ConstantRecipe recipe) {
 		final List<Object> constantValues = recipe.getConstantValues();
 		final Object[] constantArray = constantValues.toArray(new Object[constantValues.size()]);
-		return new ConstantNode(reteContainer, new FlatTuple(constantArray));
+		return new ConstantNode(reteContainer, Tuples.flatTupleOf(constantArray));
 	}
 
 	private Supplier instantiateNode(ReteContainer reteContainer, TrimmerRecipe recipe) {
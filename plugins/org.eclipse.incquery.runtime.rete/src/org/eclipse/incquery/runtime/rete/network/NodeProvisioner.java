@@ -15,6 +15,7 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
 import org.eclipse.incquery.runtime.rete.boundary.InputConnector;
@@ -24,6 +25,7 @@ import org.eclipse.incquery.runtime.rete.index.OnetimeIndexer;
 import org.eclipse.incquery.runtime.rete.index.ProjectionIndexer;
 import org.eclipse.incquery.runtime.rete.recipes.IndexerRecipe;
 import org.eclipse.incquery.runtime.rete.recipes.InputRecipe;
+import org.eclipse.incquery.runtime.rete.recipes.ProductionRecipe;
 import org.eclipse.incquery.runtime.rete.recipes.RecipesFactory;
 import org.eclipse.incquery.runtime.rete.recipes.ReteNodeRecipe;
 import org.eclipse.incquery.runtime.rete.recipes.TransparentRecipe;
@@ -50,6 +52,15 @@ public class NodeProvisioner {
     ConnectionFactory connectionFactory; 
     InputConnector inputConnector;
 
+    /**
+     * Nodes of this container by recipe, for recipes that are not shared across containers (see
+     * {@link #isSharedAcrossContainers(ReteNodeRecipe)}). Intermediate nodes are replicated in each container that needs
+     * them, so that the only cross-container connections are at input and production nodes.
+     */
+    Map<ReteNodeRecipe, Address<? extends Node>> localNodesByRecipe = CollectionsFactory.getMap();
+    /** if EcoreUtil.equals(recipe1, recipe2), only one of them will be included here */
+    Map<EClass, Collection<ReteNodeRecipe>> localPrimaryRecipesByClass = CollectionsFactory.getMap();
+
     // TODO as recipe? 
     Map<Supplier, RemoteReceiver> remoteReceivers = CollectionsFactory.getMap();//new HashMap<Supplier, RemoteReceiver>();
     Map<Address<? extends Supplier>, RemoteSupplier> remoteSuppliers = CollectionsFactory.getMap();//new HashMap<Address<? extends Supplier>, RemoteSupplier>();
@@ -71,7 +82,7 @@ public class NodeProvisioner {
     
     public synchronized Address<? extends Node> getOrCreateNodeByRecipe(RecipeTraceInfo recipeTrace) {
     	final ReteNodeRecipe recipe = recipeTrace.getRecipe();
-    	Address<? extends Node> result = getNodesByRecipe().get(recipe);
+    	Address<? extends Node> result = getNodesByRecipe(recipe).get(recipe);
         if (result != null) {
         	// NODE ALREADY CONSTRUCTED FOR RECIPE, only needs to add trace
         	if (getRecipeTraces().add(recipeTrace))
@@ -82,8 +93,8 @@ public class NodeProvisioner {
         	for (ReteNodeRecipe knownRecipe : sameClassRecipes) {
         		if (equivalentRecipes(recipe, knownRecipe)) {
         			// FOUND EQUIVALENT RECIPE
-        			result = getNodesByRecipe().get(knownRecipe);
-        			getNodesByRecipe().put(recipe, result);
+        			result = getNodesByRecipe(recipe).get(knownRecipe);
+        			getNodesByRecipe(recipe).put(recipe, result);
         			result.getNodeCache().assignTraceInfo(recipeTrace);
         			break;
         		}
@@ -115,12 +126,12 @@ public class NodeProvisioner {
 			final ReteNodeRecipe parentRecipe = recipeTrace.getParentRecipeTraces().iterator().next().getRecipe();
 			final Indexer result = nodeFactory.createIndexer(reteContainer,
 					(IndexerRecipe)recipe, 
-					asSupplier((Address<? extends Supplier>) reteContainer.network.getExistingNodeByRecipe(parentRecipe)), 
+					asSupplier((Address<? extends Supplier>) getExistingNodeByRecipe(parentRecipe)), 
 					recipeTrace);
 
 			// REMEMBER
 			if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER) {
-				getNodesByRecipe().put(recipe, reteContainer.makeAddress(result));
+				getNodesByRecipe(recipe).put(recipe, reteContainer.makeAddress(result));
 				sameClassRecipes.add(recipe);
 			}
 			
@@ -134,7 +145,7 @@ public class NodeProvisioner {
 			
 			// REMEMBER
 			if (Options.nodeSharingOption == Options.NodeSharingOption.ALL) {
-				getNodesByRecipe().put(recipe, reteContainer.makeAddress(result));
+				getNodesByRecipe(recipe).put(recipe, reteContainer.makeAddress(result));
 				sameClassRecipes.add(recipe);
 			}
 			
@@ -151,8 +162,30 @@ public class NodeProvisioner {
 	}
 
 
-	private Map<ReteNodeRecipe, Address<? extends Node>> getNodesByRecipe() {
-		return reteContainer.network.nodesByRecipe;
+	private Map<ReteNodeRecipe, Address<? extends Node>> getNodesByRecipe(ReteNodeRecipe recipe) {
+		return isSharedAcrossContainers(recipe) ? reteContainer.network.nodesByRecipe : localNodesByRecipe;
+	}
+
+	/**
+	 * Input and production nodes are registered network-wide, so that each container connects to the same instance
+	 * (through remote proxies if needed); all other nodes are private to the container that built them.
+	 */
+	static boolean isSharedAcrossContainers(ReteNodeRecipe recipe) {
+		return recipe instanceof InputRecipe || recipe instanceof ProductionRecipe;
+	}
+
+	/**
+	 * Looks up the node constructed for the given recipe, first among the nodes of this container, then among the
+	 * nodes shared across containers.
+	 *
+	 * @throws IllegalStateException
+	 *             if no node has been constructed for the recipe yet
+	 */
+	public synchronized Address<? extends Node> getExistingNodeByRecipe(ReteNodeRecipe recipe) {
+		final Address<? extends Node> localNode = localNodesByRecipe.get(recipe);
+		if (localNode != null)
+			return localNode;
+		return reteContainer.network.getExistingNodeByRecipe(recipe);
 	}
 	private void ensureParents(RecipeTraceInfo recipeTrace) {
 		for (RecipeTraceInfo parentTrace : recipeTrace.getParentRecipeTraces()) {
@@ -168,51 +201,55 @@ public class NodeProvisioner {
 
 
 	private Collection<ReteNodeRecipe> getSameClassRecipes(final ReteNodeRecipe recipe) {
-		Collection<ReteNodeRecipe> sameClassRecipes = reteContainer.network.primaryRecipesByClass.get(recipe.eClass());
+		final Map<EClass, Collection<ReteNodeRecipe>> primaryRecipesByClass = isSharedAcrossContainers(recipe) ? 
+				reteContainer.network.primaryRecipesByClass : localPrimaryRecipesByClass;
+		Collection<ReteNodeRecipe> sameClassRecipes = primaryRecipesByClass.get(recipe.eClass());
     	if (sameClassRecipes == null) {
     		sameClassRecipes = CollectionsFactory.getSet();
-    		reteContainer.network.primaryRecipesByClass.put(recipe.eClass(), sameClassRecipes);
+    		primaryRecipesByClass.put(recipe.eClass(), sameClassRecipes);
     	}
 		return sameClassRecipes;
 	}
 
 
        
-    //// Remoting - TODO eliminate?
-     
-    
+    //// Remoting
+
+    /**
+     * Accesses (creates if necessary) the {@link RemoteReceiver} that forwards the contents of the given local supplier to
+     * other containers.
+     */
     synchronized RemoteReceiver accessRemoteReceiver(Address<? extends Supplier> address) {
-    	throw new UnsupportedOperationException("Multi-container Rete not supported yet");
-//        if (!reteContainer.isLocal(address))
-//            return address.getContainer().getProvisioner().accessRemoteReceiver(address);
-//        Supplier localSupplier = reteContainer.resolveLocal(address);
-//        RemoteReceiver result = remoteReceivers.get(localSupplier);
-//        if (result == null) {
-//            result = new RemoteReceiver(reteContainer);
-//            reteContainer.connect(localSupplier, result); // stateless node, no
-//                                                          // synch required
-//
-//            if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER)
-//                remoteReceivers.put(localSupplier, result);
-//        }
-//        return result;
+        if (!reteContainer.isLocal(address))
+            return address.getContainer().getProvisioner().accessRemoteReceiver(address);
+        Supplier localSupplier = reteContainer.resolveLocal(address);
+        RemoteReceiver result = remoteReceivers.get(localSupplier);
+        if (result == null) {
+            result = new RemoteReceiver(reteContainer);
+            reteContainer.connect(localSupplier, result); // stateless node, no synch required
+
+            if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER)
+                remoteReceivers.put(localSupplier, result);
+        }
+        return result;
     }
 
     /**
+     * Accesses (creates if necessary) the local proxy of a supplier in a different container.
+     * 
      * @pre: address is NOT local
      */
     synchronized RemoteSupplier accessRemoteSupplier(Address<? extends Supplier> address) {
-    	throw new UnsupportedOperationException("Multi-container Rete not supported yet");
-//        RemoteSupplier result = remoteSuppliers.get(address);
-//        if (result == null) {
-//            result = new RemoteSupplier(reteContainer, address.getContainer().getProvisioner()
-//                    .accessRemoteReceiver(address));
-//            // network.connectAndSynchronize(supplier, result);
-//
-//            if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER)
-//                remoteSuppliers.put(address, result);
-//        }
-//        return result;
+        RemoteSupplier result = remoteSuppliers.get(address);
+        if (result == null) {
+            result = new RemoteSupplier(reteContainer, address.getContainer().getProvisioner()
+                    .accessRemoteReceiver(address));
+            // the receiver of the proxy is synchronised when connected to it
+
+            if (Options.nodeSharingOption != Options.NodeSharingOption.NEVER)
+                remoteSuppliers.put(address, result);
+        }
+        return result;
     }
 
     /**
@@ -253,8 +290,9 @@ public class NodeProvisioner {
 
     // local, read-only version
     public synchronized ProjectionIndexer peekProjectionIndexer(RecipeTraceInfo supplierTrace, TupleMask mask) {
-        final Address<? extends Node> address = 
-        		getNodesByRecipe().get(projectionIndexerRecipe(supplierTrace, mask));
+        final org.eclipse.incquery.runtime.rete.recipes.ProjectionIndexerRecipe indexerRecipe = 
+        		projectionIndexerRecipe(supplierTrace, mask);
+        final Address<? extends Node> address = getNodesByRecipe(indexerRecipe).get(indexerRecipe);
         return address == null? null : (ProjectionIndexer) reteContainer.resolveLocal(address);
     }
 
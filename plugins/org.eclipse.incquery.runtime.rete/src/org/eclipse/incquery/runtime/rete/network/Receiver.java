@@ -27,6 +27,12 @@ public interface Receiver extends Node {
      */
     public void update(Direction direction, Tuple updateElement);
 
+    /**
+     * updates the receiver with several newly found or lost partial matchings of the same direction at once; equivalent
+     * to invoking {@link #update(Direction, Tuple)} for each element.
+     */
+    public void batchUpdate(Direction direction, Collection<Tuple> updateElements);
+
     /**
      * appends a parent that will continously send insert and revoke updates to this supplier
      */
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.rete.network;
+
+import java.util.Collection;
+
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+
+/**
+ * Shared implementation fragments of {@link Receiver}s.
+ * 
+ * @author Gabor Bergmann
+ */
+public final class ReceiverHelper {
+
+    private ReceiverHelper() {
+    }
+
+    /**
+     * Default implementation of {@link Receiver#batchUpdate(Direction, Collection)} for receivers without a dedicated
+     * bulk algorithm: delivers the elements to {@link Receiver#update(Direction, Tuple)} one by one.
+     */
+    public static void updateOneByOne(Receiver receiver, Direction direction, Collection<Tuple> updateElements) {
+        for (Tuple updateElement : updateElements)
+            receiver.update(direction, updateElement);
+    }
+
+}
@@ -12,10 +12,15 @@
 package org.eclipse.incquery.runtime.rete.network;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.rete.boundary.InputConnector;
@@ -23,6 +28,7 @@ import org.eclipse.incquery.runtime.rete.collections.CollectionsFactory;
 import org.eclipse.incquery.runtime.rete.remote.Address;
 import org.eclipse.incquery.runtime.rete.single.SingleInputNode;
 import org.eclipse.incquery.runtime.rete.tuple.Clearable;
+import org.eclipse.incquery.runtime.rete.util.Options;
 
 /**
  * @author Gabor Bergmann
@@ -50,6 +56,18 @@ public final class ReteContainer {
                                // ONLY with messageQueue locked!
     protected Map<ReteContainer, Long> terminationCriteria = null;
 
+    /**
+     * If true, internal messages are not queued one by one, but collected into {@link #pendingBatches} instead. Only
+     * available in single-threaded operation, see {@link Options#batchedUpdateDelivery}.
+     */
+    protected final boolean batchedDelivery;
+    /**
+     * Pending updates grouped by receiver, in the order of first enqueueing; each tuple is mapped to the signed net
+     * number of insertions (positive) or revocations (negative) not yet delivered. Opposite updates of the same tuple
+     * cancel out, so that they are never propagated further.
+     */
+    protected Map<Receiver, Map<Tuple, Integer>> pendingBatches = null;
+
     /**
      * @param threaded
      *            false if operating in a single-threaded environment
@@ -73,6 +91,10 @@ public final class ReteContainer {
             };
             consumerThread.start();
         }
+
+        batchedDelivery = !threaded && Options.batchedUpdateDelivery;
+        if (batchedDelivery)
+            pendingBatches = new LinkedHashMap<Receiver, Map<Tuple, Integer>>();
     }
 
     /**
@@ -227,8 +249,7 @@ public final class ReteContainer {
         // if (org.eclipse.incquery.runtime.rete.util.Options.synchronous) receiver.update(direction,
         // updateElement);
         // else {
-        UpdateMessage message = new UpdateMessage(receiver, direction, updateElement);
-        internalMessageQueue.add(message);
+        enqueueInternal(receiver, direction, updateElement);
         // synchronized(externalMessageQueue)
         // {
         // externalMessageQueue.add(message);
@@ -239,6 +260,25 @@ public final class ReteContainer {
 
     }
 
+    /**
+     * Sends several update messages of the same direction to the receiver node. In case of batched delivery, the
+     * pending batch of the receiver is looked up only once. NOT to be called from user threads.
+     */
+    public void sendUpdatesInternal(Receiver receiver, Direction direction, Collection<Tuple> updateElements) {
+        if (batchedDelivery) {
+            Map<Tuple, Integer> batch = pendingBatches.get(receiver);
+            if (batch == null) {
+                batch = new LinkedHashMap<Tuple, Integer>();
+                pendingBatches.put(receiver, batch);
+            }
+            for (Tuple updateElement : updateElements)
+                addToBatch(batch, direction, updateElement);
+        } else {
+            for (Tuple updateElement : updateElements)
+                internalMessageQueue.add(new UpdateMessage(receiver, direction, updateElement));
+        }
+    }
+
     /**
      * Sends an update message to the receiver node, indicating a newly found or lost partial matching. The receiver is
      * indicated by the Address. Designed to be called by the Network, DO NOT use in any other way. @pre:
@@ -300,8 +340,7 @@ public final class ReteContainer {
     void sendUpdateToLocalAddressSingleThreaded(Address<? extends Receiver> address, Direction direction,
             Tuple updateElement) {
         Receiver receiver = resolveLocal(address);
-        UpdateMessage message = new UpdateMessage(receiver, direction, updateElement);
-        internalMessageQueue.add(message);
+        enqueueInternal(receiver, direction, updateElement);
     }
 
     /**
@@ -315,7 +354,36 @@ public final class ReteContainer {
             Collection<Tuple> updateElements) {
         Receiver receiver = resolveLocal(address);
         for (Tuple ps : updateElements)
-            internalMessageQueue.add(new UpdateMessage(receiver, direction, ps));
+            enqueueInternal(receiver, direction, ps);
+    }
+
+    /**
+     * Enlists an update into the internal message queue, or into the pending batch of the receiver in case of batched
+     * delivery.
+     */
+    private void enqueueInternal(Receiver receiver, Direction direction, Tuple updateElement) {
+        if (batchedDelivery) {
+            Map<Tuple, Integer> batch = pendingBatches.get(receiver);
+            if (batch == null) {
+                batch = new LinkedHashMap<Tuple, Integer>();
+                pendingBatches.put(receiver, batch);
+            }
+            addToBatch(batch, direction, updateElement);
+        } else {
+            internalMessageQueue.add(new UpdateMessage(receiver, direction, updateElement));
+        }
+    }
+
+    /**
+     * Adjusts the signed net count of the tuple in the pending batch of a receiver; a zero count is dropped.
+     */
+    private void addToBatch(Map<Tuple, Integer> batch, Direction direction, Tuple updateElement) {
+        Integer oldCount = batch.get(updateElement);
+        int count = (oldCount == null ? 0 : oldCount) + (direction == Direction.INSERT ? 1 : -1);
+        if (count == 0)
+            batch.remove(updateElement);
+        else
+            batch.put(updateElement, count);
     }
 
     /**
@@ -455,6 +523,15 @@ public final class ReteContainer {
      * Iteratively consumes update messages until there are none left. Requires single-threaded behaviour.
      */
     void messageConsumptionSingleThreaded() {
+        if (batchedDelivery) {
+            while (!pendingBatches.isEmpty()) {
+                // the batch is removed before delivery, so that new updates to the same receiver start a new batch
+                Iterator<Entry<Receiver, Map<Tuple, Integer>>> iterator = pendingBatches.entrySet().iterator();
+                Entry<Receiver, Map<Tuple, Integer>> batch = iterator.next();
+                iterator.remove();
+                deliverBatch(batch.getKey(), batch.getValue());
+            }
+        }
         while (!internalMessageQueue.isEmpty()) // deliver messages on and on and on....
         {
             UpdateMessage message = internalMessageQueue.removeFirst();
@@ -462,6 +539,26 @@ public final class ReteContainer {
         }
     }
 
+    /**
+     * Delivers the net updates of a batch to the receiver, revocations first.
+     */
+    private void deliverBatch(Receiver receiver, Map<Tuple, Integer> batch) {
+        if (batch.isEmpty()) // everything cancelled out
+            return;
+        List<Tuple> revoked = new ArrayList<Tuple>();
+        List<Tuple> inserted = new ArrayList<Tuple>();
+        for (Entry<Tuple, Integer> entry : batch.entrySet()) {
+            int count = entry.getValue();
+            List<Tuple> target = count > 0 ? inserted : revoked;
+            for (int i = Math.abs(count); i > 0; --i)
+                target.add(entry.getKey());
+        }
+        if (!revoked.isEmpty())
+            receiver.batchUpdate(Direction.REVOKE, revoked);
+        if (!inserted.isEmpty())
+            receiver.batchUpdate(Direction.INSERT, inserted);
+    }
+
     private void localUpdateTermination(long incrementedClock) {
         network.reportLocalUpdateTermination(this, incrementedClock, terminationCriteria);
         terminationCriteria.clear();
@@ -39,6 +39,11 @@ public abstract class StandardNode extends BaseNode implements Supplier {
             reteContainer.sendUpdateInternal(r, direction, updateElement);
     }
 
+    protected void propagateUpdates(Direction direction, Collection<Tuple> updateElements) {
+        for (Receiver r : children)
+            reteContainer.sendUpdatesInternal(r, direction, updateElements);
+    }
+
     @Override
     public void appendChild(Receiver receiver) {
         children.add(receiver);
@@ -15,6 +15,8 @@ import java.util.Collection;
 import java.util.Collections;
 
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.rete.network.Direction;
+import org.eclipse.incquery.runtime.rete.network.ReceiverHelper;
 import org.eclipse.incquery.runtime.rete.network.ReteContainer;
 import org.eclipse.incquery.runtime.rete.network.StandardNode;
 import org.eclipse.incquery.runtime.rete.network.Supplier;
@@ -34,6 +36,11 @@ public abstract class SingleInputNode extends StandardNode implements Tunnel {
         parent = null;
     }
 
+    @Override
+    public void batchUpdate(Direction direction, Collection<Tuple> updateElements) {
+        ReceiverHelper.updateOneByOne(this, direction, updateElements);
+    }
+
     @Override
     public void appendParent(Supplier supplier) {
         if (parent == null)
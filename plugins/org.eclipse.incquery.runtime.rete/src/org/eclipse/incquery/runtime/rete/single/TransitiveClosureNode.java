@@ -11,16 +11,21 @@
 package org.eclipse.incquery.runtime.rete.single;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 import org.eclipse.incquery.runtime.base.itc.alg.incscc.IncSCCAlg;
 import org.eclipse.incquery.runtime.base.itc.alg.misc.Tuple;
 import org.eclipse.incquery.runtime.base.itc.graphimpl.Graph;
 import org.eclipse.incquery.runtime.base.itc.igraph.ITcDataSource;
 import org.eclipse.incquery.runtime.base.itc.igraph.ITcObserver;
-import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
 import org.eclipse.incquery.runtime.rete.network.Direction;
 import org.eclipse.incquery.runtime.rete.network.ReteContainer;
 import org.eclipse.incquery.runtime.rete.tuple.Clearable;
+import org.eclipse.incquery.runtime.rete.util.Options;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
 
 // TODO egyelore (i,j) elek, majd helyette mask megoldas
 // TODO bemeneti index
@@ -34,6 +39,7 @@ public class TransitiveClosureNode extends SingleInputNode implements Clearable,
 
     private Graph<Object> graphDataSource;
     private ITcDataSource<Object> transitiveClosureAlgorithm;
+    private final boolean compactTransitiveClosure = Options.compactTransitiveClosure;
 
     /**
      * Create a new transitive closure rete node. 
@@ -47,32 +53,56 @@ public class TransitiveClosureNode extends SingleInputNode implements Clearable,
     public TransitiveClosureNode(ReteContainer reteContainer) {
         super(reteContainer);
         graphDataSource = new Graph<Object>();
-        transitiveClosureAlgorithm = new IncSCCAlg<Object>(graphDataSource);
-        transitiveClosureAlgorithm.attachObserver(this);
+        initializeAlgorithm();
         reteContainer.registerClearable(this);
     }
-    
+
     /**
      * Initializes the graph data source with the given collection of tuples.
+     * 
+     * <p>
+     * The transitive closure algorithm is only attached after all edges are inserted, so the SCCs and the reachability
+     * relation are computed once for the whole graph instead of being maintained incrementally edge by edge. No
+     * notifications are issued for the initial tuples.
+     * 
      * @param tuples
      *            the initial collection of tuples
      */
     public void reinitializeWith(Collection<org.eclipse.incquery.runtime.matchers.tuple.Tuple> tuples) {
-    	clear();
-    	
+        transitiveClosureAlgorithm.dispose();
+        graphDataSource = new Graph<Object>();
+
         for (org.eclipse.incquery.runtime.matchers.tuple.Tuple t : tuples) {
             graphDataSource.insertNode(t.get(0));
             graphDataSource.insertNode(t.get(1));
             graphDataSource.insertEdge(t.get(0), t.get(1));
         }
-        transitiveClosureAlgorithm.attachObserver(this);    	
+        initializeAlgorithm();
+    }
+
+    private void initializeAlgorithm() {
+        transitiveClosureAlgorithm = new IncSCCAlg<Object>(graphDataSource, compactTransitiveClosure);
+        transitiveClosureAlgorithm.attachObserver(this);
     }
 
     @Override
     public void pullInto(Collection<org.eclipse.incquery.runtime.matchers.tuple.Tuple> collector) {
-        for (Tuple<Object> tuple : ((IncSCCAlg<Object>) transitiveClosureAlgorithm).getTcRelation()) {
-            collector.add(new FlatTuple(tuple.getSource(), tuple.getTarget()));
-        }
+        // the closure is streamed into the collector, without materializing it in the algorithm first
+        Iterators.addAll(collector, tupleIterator());
+    }
+
+    /**
+     * Returns an iterator over the transitive closure relation, enumerating it on demand instead of materializing it.
+     */
+    public Iterator<org.eclipse.incquery.runtime.matchers.tuple.Tuple> tupleIterator() {
+        return Iterators.transform(((IncSCCAlg<Object>) transitiveClosureAlgorithm).getTcRelationIterator(),
+                new Function<Tuple<Object>, org.eclipse.incquery.runtime.matchers.tuple.Tuple>() {
+
+                    @Override
+                    public org.eclipse.incquery.runtime.matchers.tuple.Tuple apply(Tuple<Object> tuple) {
+                        return Tuples.flatTupleOf(tuple.getSource(), tuple.getTarget());
+                    }
+                });
     }
 
     @Override
@@ -103,18 +133,18 @@ public class TransitiveClosureNode extends SingleInputNode implements Clearable,
     public void clear() {
         transitiveClosureAlgorithm.dispose();
         graphDataSource = new Graph<Object>();
-        transitiveClosureAlgorithm = new IncSCCAlg<Object>(graphDataSource);
+        initializeAlgorithm();
     }
 
     @Override
     public void tupleInserted(Object source, Object target) {
-        org.eclipse.incquery.runtime.matchers.tuple.Tuple tuple = new FlatTuple(source, target);
+        org.eclipse.incquery.runtime.matchers.tuple.Tuple tuple = Tuples.flatTupleOf(source, target);
         propagateUpdate(Direction.INSERT, tuple);
     }
 
     @Override
     public void tupleDeleted(Object source, Object target) {
-        org.eclipse.incquery.runtime.matchers.tuple.Tuple tuple = new FlatTuple(source, target);
+        org.eclipse.incquery.runtime.matchers.tuple.Tuple tuple = Tuples.flatTupleOf(source, target);
         propagateUpdate(Direction.REVOKE, tuple);
     }
 
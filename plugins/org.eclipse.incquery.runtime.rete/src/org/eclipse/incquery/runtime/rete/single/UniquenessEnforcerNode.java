@@ -13,6 +13,7 @@ package org.eclipse.incquery.runtime.rete.single;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
@@ -20,6 +21,7 @@ import org.eclipse.incquery.runtime.rete.index.MemoryIdentityIndexer;
 import org.eclipse.incquery.runtime.rete.index.MemoryNullIndexer;
 import org.eclipse.incquery.runtime.rete.index.ProjectionIndexer;
 import org.eclipse.incquery.runtime.rete.network.Direction;
+import org.eclipse.incquery.runtime.rete.network.ReceiverHelper;
 import org.eclipse.incquery.runtime.rete.network.ReteContainer;
 import org.eclipse.incquery.runtime.rete.network.StandardNode;
 import org.eclipse.incquery.runtime.rete.network.Supplier;
@@ -68,25 +70,7 @@ public class UniquenessEnforcerNode extends StandardNode implements Tunnel {
 
     @Override
     public void update(Direction direction, Tuple updateElement) {
-        boolean change;
-        if (direction == Direction.INSERT) {
-            change = memory.add(updateElement);
-        } else { // REVOKE
-            try {
-                change = memory.remove(updateElement);
-            } catch (java.lang.NullPointerException ex) {
-                // TODO UGLY, but will it find our problems?
-                change = false;
-                reteContainer
-                        .getNetwork()
-                        .getContext()
-                        .logError(
-                                "[INTERNAL ERROR] Duplicate deletion of " + updateElement
-                                        + " was detected in UniquenessEnforcer " + this 
-                                        + " for pattern(s) " + getTraceInfoPatternsEnumerated(), ex);
-            }
-        }
-        if (change) {
+        if (updateMemory(direction, updateElement)) {
             propagateUpdate(direction, updateElement);
 
             // trivial projectionIndexers
@@ -98,6 +82,44 @@ public class UniquenessEnforcerNode extends StandardNode implements Tunnel {
         }
     }
 
+    @Override
+    public void batchUpdate(Direction direction, Collection<Tuple> updateElements) {
+        if (memoryIdentityIndexer != null || memoryNullIndexer != null) {
+            // the listeners of the trivial indexers read the memory right away, it must not run ahead of them
+            ReceiverHelper.updateOneByOne(this, direction, updateElements);
+            return;
+        }
+        List<Tuple> changed = new ArrayList<Tuple>(updateElements.size());
+        for (Tuple updateElement : updateElements) {
+            if (updateMemory(direction, updateElement))
+                changed.add(updateElement);
+        }
+        if (!changed.isEmpty())
+            propagateUpdates(direction, changed);
+    }
+
+    /**
+     * @return true if the tuple appeared in or disappeared from the memory
+     */
+    private boolean updateMemory(Direction direction, Tuple updateElement) {
+        if (direction == Direction.INSERT)
+            return memory.add(updateElement);
+        // REVOKE
+        try {
+            return memory.remove(updateElement);
+        } catch (java.lang.NullPointerException ex) {
+            // TODO UGLY, but will it find our problems?
+            reteContainer
+                    .getNetwork()
+                    .getContext()
+                    .logError(
+                            "[INTERNAL ERROR] Duplicate deletion of " + updateElement
+                                    + " was detected in UniquenessEnforcer " + this 
+                                    + " for pattern(s) " + getTraceInfoPatternsEnumerated(), ex);
+            return false;
+        }
+    }
+
     @Override
     public ProjectionIndexer constructIndex(TupleMask mask, TraceInfo... traces) {
         if (Options.employTrivialIndexers) {
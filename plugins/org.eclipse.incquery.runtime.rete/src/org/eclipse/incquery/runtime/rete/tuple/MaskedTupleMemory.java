@@ -83,6 +83,28 @@ public class MaskedTupleMemory implements Clearable, Iterable<Tuple> {
         return change;
     }
 
+    /**
+     * Adds several pattern occurences with the same given signature to the memory, looking up the signature only once
+     * 
+     * @return true if new signature encountered
+     */
+    public boolean addAll(Collection<Tuple> pss, Tuple signature) {
+        Collection<Tuple> coll = matchings.get(signature);
+        boolean change = (coll == null);
+
+        if (change) {
+            coll = new TupleMemory();
+            matchings.put(signature, coll);
+        }
+        for (Tuple ps : pss) {
+            if (!coll.add(ps)) {
+                throw new IllegalStateException();
+            }
+        }
+
+        return change;
+    }
+
     /**
      * Removes a pattern occurence from the memory
      * 
@@ -111,6 +133,27 @@ public class MaskedTupleMemory implements Clearable, Iterable<Tuple> {
         return change;
     }
 
+    /**
+     * Removes several pattern occurences with the same given signature from the memory, looking up the signature only
+     * once
+     * 
+     * @return true if the last occurence of the signature was removed
+     */
+    public boolean removeAll(Collection<Tuple> pss, Tuple signature) {
+        Collection<Tuple> coll = matchings.get(signature);
+        for (Tuple ps : pss) {
+            if (!coll.remove(ps)) {
+                throw new IllegalStateException();
+            }
+        }
+
+        boolean change = coll.isEmpty();
+        if (change)
+            matchings.remove(signature);
+
+        return change;
+    }
+
     /**
      * Retrieves entries that have the specified signature
      * 
@@ -11,8 +11,10 @@
 
 package org.eclipse.incquery.runtime.rete.util;
 
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
 import org.eclipse.incquery.runtime.matchers.planning.IQueryPlannerStrategy;
 import org.eclipse.incquery.runtime.rete.construction.basiclinear.BasicLinearLayout;
+import org.eclipse.incquery.runtime.rete.construction.quasitree.CostBasedQuasiTreeLayout;
 import org.eclipse.incquery.runtime.rete.construction.quasitree.QuasiTreeLayout;
 
 public class Options {
@@ -42,28 +44,69 @@ public class Options {
 
     // public final static boolean synchronous = false;
 
-    public final static int numberOfLocalContainers = 1;
+    /**
+     * The number of Rete containers newly created engines distribute their patterns over; each container propagates
+     * updates on its own thread. 1 means single-threaded operation.
+     */
+    public static int numberOfLocalContainers = 1;
+    /**
+     * If true, single-threaded Rete containers group pending update messages per receiver and cancel out insertions
+     * and revocations of the same tuple before delivery, delivering the remaining ones in bulk.
+     */
+    public static boolean batchedUpdateDelivery = false;
+    /**
+     * If positive, the evaluator nodes of newly built patterns memoize the results of check() and eval() expressions,
+     * keyed on the values of the variables referenced by the expression; at most this many results are kept per node,
+     * evicting the least recently used ones. Only applicable if the expressions are pure functions of the variable
+     * values, i.e. they do not depend on model elements reachable from them. 0 turns memoization off.
+     */
+    public static int evaluationMemoizationCacheSize = 0;
+    /**
+     * If true, newly created single-threaded engines let multiple threads retrieve matches in parallel; retrieval is
+     * blocked only while a model change is propagated through the network (from its first update until its end, see
+     * {@link org.eclipse.incquery.runtime.rete.matcher.ReteEngine#endModelChange()}) or the network is being extended.
+     * If false, concurrent access to an engine must be serialized by the caller.
+     */
+    public static boolean concurrentMatchAccess = false;
+    /**
+     * If true, the transitive closure nodes of newly built patterns store the reachability between the strongly
+     * connected components of their graph as compressed bit sets instead of counting the derivations of each pair in
+     * hash maps. This takes much less memory for large closures (e.g. deep hierarchies), but edge deletions are more
+     * expensive.
+     */
+    public static boolean compactTransitiveClosure = false;
     public final static int firstFreeContainer = 0; // 0 if head container is
                                                     // free to contain pattern
                                                     // bodies, 1 otherwise
 
     public enum BuilderMethod {
         LEGACY, // ONLY with GTASM
-        PSYSTEM_BASIC_LINEAR, PSYSTEM_QUASITREE;
+        PSYSTEM_BASIC_LINEAR, PSYSTEM_QUASITREE, PSYSTEM_COST_BASED_QUASITREE;
         public IQueryPlannerStrategy layoutStrategy() {
+            return layoutStrategy(null);
+        }
+
+        /**
+         * @param statistics
+         *            the base index to estimate join costs from, or null if not available
+         */
+        public IQueryPlannerStrategy layoutStrategy(NavigationHelper statistics) {
             switch (this) {
             case PSYSTEM_BASIC_LINEAR:
                 return new BasicLinearLayout();
             case PSYSTEM_QUASITREE:
                 return new QuasiTreeLayout();
+            case PSYSTEM_COST_BASED_QUASITREE:
+                return statistics == null ? new QuasiTreeLayout() : new CostBasedQuasiTreeLayout(statistics);
             default:
             	throw new UnsupportedOperationException();
             }
         }
     }
 
-    public final static BuilderMethod builderMethod =
+    public static BuilderMethod builderMethod =
     // BuilderMethod.PSYSTEM_BASIC_LINEAR;
+    // BuilderMethod.PSYSTEM_COST_BASED_QUASITREE;
     BuilderMethod.PSYSTEM_QUASITREE;
     
     public enum FunctionalDependencyOption {
@@ -10,11 +10,15 @@
  *******************************************************************************/
 package org.eclipse.incquery.runtime.api;
 
+import java.util.concurrent.Executor;
+
 import org.eclipse.emf.common.notify.Notifier;
 import org.eclipse.incquery.runtime.base.api.BaseIndexOptions;
 import org.eclipse.incquery.runtime.base.api.NavigationHelper;
 import org.eclipse.incquery.runtime.exception.IncQueryException;
 import org.eclipse.incquery.runtime.internal.apiimpl.IncQueryEngineImpl;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
 import org.eclipse.incquery.runtime.rete.matcher.ReteEngine;
 
 /**
@@ -40,6 +44,7 @@ import org.eclipse.incquery.runtime.rete.matcher.ReteEngine;
  * matchers. For instance, if you explicitly share a private, unmanaged engine between multiple sites, you should
  * register a callback using {@link #addLifecycleListener(IncQueryEngineLifecycleListener)} to learn when another client
  * has called the destructive methods {@link #dispose()} or {@link #wipe()}.
+ * <li>You can select the backend evaluating each query, see {@link #setQueryBackend(PQuery, IQueryBackendFactory)}.
  * </ul>
  * 
  * @author Bergmann Gabor
@@ -254,6 +259,44 @@ public abstract class AdvancedIncQueryEngine extends IncQueryEngine {
     public abstract <Match extends IPatternMatch> void removeMatchUpdateListener(IncQueryMatcher<Match> matcher,
             IMatchUpdateListener<? super Match> listener);
 
+    /**
+     * Opens a stream that delivers the changes of the match set of the given matcher in batches, at the end of each
+     * model update. Appearances and disappearances of the same match within a batch cancel each other out, so the
+     * listener only receives the net changes, and never observes the intermediate states of the matcher.
+     * 
+     * <p>
+     * If an executor is given, the listener is invoked on it. The batches are delivered one at a time and in order, so
+     * the listener is never invoked concurrently; the changes made while a batch is being delivered are coalesced into
+     * the next batch, so a slow listener receives fewer, larger batches. If the number of undelivered changes reaches
+     * maxBufferedChanges during a model update, they are delivered without waiting for the end of the update, which
+     * bounds the memory used by large transactions; such batches may contain intermediate changes. The model update
+     * never waits for the listener: if a batch is being delivered when the limit is reached, the changes keep being
+     * coalesced until it is done. In concurrent match access mode (see
+     * {@link org.eclipse.incquery.runtime.rete.util.Options#concurrentMatchAccess}), match retrieval on the executor
+     * waits until the end of the current model update.
+     * 
+     * <p>
+     * The listener must not modify the model. The stream can be stopped using {@link IMatchChangeStream#close()}; it
+     * is stopped automatically when the engine is wiped or disposed.
+     * 
+     * @param matcher
+     *            the {@link IncQueryMatcher} whose changes should be streamed
+     * @param listener
+     *            the listener that receives the batches of changes
+     * @param fireNow
+     *            if true, the current matches are delivered immediately as the first batch of appeared matches
+     * @param executor
+     *            the executor to invoke the listener on; if null, the listener is invoked by the thread that updates
+     *            the model
+     * @param maxBufferedChanges
+     *            the number of undelivered changes that triggers an immediate delivery; must be positive
+     * @return the opened stream
+     * @since 0.8
+     */
+    public abstract <Match extends IPatternMatch> IMatchChangeStream openMatchChangeStream(
+            IncQueryMatcher<Match> matcher, IMatchChangeListener<? super Match> listener, boolean fireNow,
+            Executor executor, int maxBufferedChanges);
+
     /**
      * Indicates whether the engine is managed, i.e. the default engine assigned to the given scope root by
      * {@link IncQueryEngine#on(Notifier)}.
@@ -327,6 +370,46 @@ public abstract class AdvancedIncQueryEngine extends IncQueryEngine {
      */
     public abstract void dispose();
 
+    /**
+     * Selects the backend that evaluates the given query in this engine, instead of the default incremental Rete
+     * evaluation. For instance, rarely queried patterns with large match sets may be evaluated by local search, so
+     * that no memory is spent on caching their matches.
+     *
+     * <p>
+     * The backend has to be selected before the matcher of the query is initialized. The queries called by a query are
+     * evaluated by their own selected backends. However, queries called from incrementally evaluated queries are
+     * always evaluated incrementally as well (i.e. Rete nodes are built for them), as their changes have to be
+     * propagated. Match update listeners (and other change notifications) are only supported for queries evaluated by
+     * the default Rete backend.
+     *
+     * @param query
+     *            the query to evaluate
+     * @param factory
+     *            the factory of the backend, or null to restore the default Rete evaluation
+     * @throws IllegalStateException
+     *             if the matcher of the query is already initialized
+     * @since 0.8
+     */
+    public abstract void setQueryBackend(PQuery query, IQueryBackendFactory factory);
+
+    /**
+     * Returns the factory of the backend selected for the query by {@link #setQueryBackend(PQuery, IQueryBackendFactory)}.
+     *
+     * @return the factory of the backend, or null if the query is evaluated by the default Rete backend
+     * @since 0.8
+     */
+    public abstract IQueryBackendFactory getQueryBackend(PQuery query);
+
+    /**
+     * Accesses the results of the query as evaluated by its selected backend. Can be used by backends to evaluate
+     * the queries called by their queries.
+     *
+     * @throws IncQueryException
+     *             if the query cannot be evaluated by its backend
+     * @since 0.8
+     */
+    public abstract IQueryResultProvider getResultProvider(PQuery query) throws IncQueryException;
+
     /**
      * Access the internal Rete pattern matching network (for advanced debugging purposes only).
      * 
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Bergmann Gabor, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Bergmann Gabor - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.api;
+
+import java.util.Set;
+
+/**
+ * An interface for receiving the changes of the match set of a pattern matcher in batches.
+ * 
+ * <p>
+ * See {@link AdvancedIncQueryEngine#openMatchChangeStream(IncQueryMatcher, IMatchChangeListener, boolean,
+ * java.util.concurrent.Executor, int)} for usage.
+ * 
+ * @author Bergmann Gabor
+ * @since 0.8
+ */
+public interface IMatchChangeListener<Match extends IPatternMatch> {
+
+    /**
+     * Will be invoked with the net changes of the match set since the previous batch. A match is never contained by
+     * both sets.
+     * 
+     * @param appeared
+     *            the matches that have appeared; unmodifiable
+     * @param disappeared
+     *            the matches that have disappeared; unmodifiable
+     */
+    public void matchesChanged(Set<? extends Match> appeared, Set<? extends Match> disappeared);
+
+}
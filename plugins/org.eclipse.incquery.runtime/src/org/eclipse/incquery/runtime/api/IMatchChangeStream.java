@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Bergmann Gabor, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Bergmann Gabor - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.api;
+
+/**
+ * A stream of match set changes delivered to an {@link IMatchChangeListener}, opened by
+ * {@link AdvancedIncQueryEngine#openMatchChangeStream(IncQueryMatcher, IMatchChangeListener, boolean,
+ * java.util.concurrent.Executor, int)}.
+ * 
+ * @author Bergmann Gabor
+ * @since 0.8
+ */
+public interface IMatchChangeStream {
+
+    /**
+     * Stops the stream. Changes that have not been delivered yet are discarded; a batch that is being delivered is not
+     * interrupted.
+     */
+    public void close();
+
+    /**
+     * @return true if the stream was closed, either explicitly or by the disposal of the engine
+     */
+    public boolean isClosed();
+
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.api;
+
+import org.eclipse.incquery.runtime.exception.IncQueryException;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryBackend;
+
+/**
+ * Creates the instances of an {@link IQueryBackend} for EMF-IncQuery engines. Queries are assigned to backends by
+ * {@link AdvancedIncQueryEngine#setQueryBackend(org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery, IQueryBackendFactory)};
+ * each engine creates at most one backend instance per factory.
+ *
+ * @author Zoltan Ujhelyi
+ * @since 0.8.0
+ *
+ */
+public interface IQueryBackendFactory {
+
+    /**
+     * Creates a new backend instance working on the model and base index of the given engine. Queries called by the
+     * queries of the backend should be accessed through {@link AdvancedIncQueryEngine#getResultProvider}, so that
+     * they are evaluated by their own backend.
+     *
+     * @throws IncQueryException
+     *             if the backend cannot be initialized
+     */
+    IQueryBackend create(AdvancedIncQueryEngine engine) throws IncQueryException;
+
+}
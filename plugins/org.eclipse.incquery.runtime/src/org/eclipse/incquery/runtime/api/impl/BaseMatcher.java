@@ -25,7 +25,7 @@ import org.eclipse.incquery.runtime.api.IncQueryEngine;
 import org.eclipse.incquery.runtime.api.IncQueryMatcher;
 import org.eclipse.incquery.runtime.exception.IncQueryException;
 import org.eclipse.incquery.runtime.internal.apiimpl.IncQueryEngineImpl;
-import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
 import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery.PQueryStatus;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.rete.matcher.ReteEngine;
@@ -46,6 +46,10 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
     // FIELDS AND CONSTRUCTOR
 
     protected IncQueryEngine engine;
+    protected IQueryResultProvider resultProvider;
+    /**
+     * The Rete matcher of the query, or null if the query is evaluated by another backend.
+     */
     protected RetePatternMatcher patternMatcher;
     protected ReteEngine reteEngine;
     protected IQuerySpecification<? extends BaseMatcher<Match>> querySpecification;
@@ -57,21 +61,27 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
         this.engine = engine;
         IncQueryEngineImpl engineImpl = (IncQueryEngineImpl) engine;
         this.querySpecification = querySpecification;
-        this.patternMatcher = accessMatcher(engineImpl, querySpecification);
+        this.resultProvider = accessMatcher(engineImpl, querySpecification);
+        if (resultProvider instanceof RetePatternMatcher) {
+            this.patternMatcher = (RetePatternMatcher) resultProvider;
+        }
         this.reteEngine = engineImpl.getReteEngine();
         engineImpl.reportMatcherInitialized(querySpecification, this);
     }
 
     // HELPERS
 
-    private RetePatternMatcher accessMatcher(IncQueryEngineImpl engine, IQuerySpecification<? extends BaseMatcher<Match>> specification) throws IncQueryException {
+    private IQueryResultProvider accessMatcher(IncQueryEngineImpl engine, IQuerySpecification<? extends BaseMatcher<Match>> specification) throws IncQueryException {
         Preconditions.checkArgument(!specification.getStatus().equals(PQueryStatus.ERROR), "Cannot load erroneous query specification " + specification.getFullyQualifiedName());
         Preconditions.checkArgument(!specification.getStatus().equals(PQueryStatus.UNINITIALIZED), "Cannot load uninitialized query specification " + specification.getFullyQualifiedName());
-        try {
-            return engine.getReteEngine().accessMatcher(specification);
-        } catch (QueryPlannerException e) {
-            throw new IncQueryException(e);
-        }
+        return engine.getResultProvider(specification);
+    }
+
+    private RetePatternMatcher getIncrementalMatcher() {
+        if (patternMatcher == null)
+            throw new UnsupportedOperationException(String.format(
+                    "Change notifications are not supported by the backend of query %s", getPatternName()));
+        return patternMatcher;
     }
 
 
@@ -89,21 +99,15 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
     // TODO make me public for performance reasons
     protected abstract Match tupleToMatch(Tuple t);
 
-    private static Object[] fEmptyArray;
+    private Object[] fEmptyArray;
 
     protected Object[] emptyArray() {
+        // racing threads may initialize it twice, which is harmless
         if (fEmptyArray == null)
             fEmptyArray = new Object[getSpecification().getParameterNames().size()];
         return fEmptyArray;
     }
 
-    private boolean[] notNull(Object[] parameters) {
-        boolean[] notNull = new boolean[parameters.length];
-        for (int i = 0; i < parameters.length; ++i)
-            notNull[i] = parameters[i] != null;
-        return notNull;
-    }
-
     // REFLECTION
 
     @Override
@@ -132,7 +136,7 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
      * @return matches represented as a Match object.
      */
     protected Collection<Match> rawGetAllMatches(Object[] parameters) {
-        List<Tuple> m = patternMatcher.matchAll(parameters, notNull(parameters));
+        Collection<? extends Tuple> m = resultProvider.getAllMatches(parameters);
         List<Match> matches = new ArrayList<Match>();
         // clones the tuples into a match object to protect the Tuples from modifications outside of the ReteMatcher
         for (Tuple t : m)
@@ -162,7 +166,7 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
      * @return a match represented as a Match object, or null if no match is found.
      */
     protected Match rawGetOneArbitraryMatch(Object[] parameters) {
-        Tuple t = patternMatcher.matchOne(parameters, notNull(parameters));
+        Tuple t = resultProvider.getOneArbitraryMatch(parameters);
         if (t != null)
             return tupleToMatch(t);
         else
@@ -185,7 +189,7 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
      * @return true if the input is a valid (partial) match of the pattern.
      */
     protected boolean rawHasMatch(Object[] parameters) {
-        return patternMatcher.count(parameters, notNull(parameters)) > 0;
+        return resultProvider.hasMatch(parameters);
     }
 
     @Override
@@ -209,7 +213,7 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
      * @return the number of pattern matches found.
      */
     protected int rawCountMatches(Object[] parameters) {
-        return patternMatcher.count(parameters, notNull(parameters));
+        return resultProvider.countMatches(parameters);
     }
 
     @Override
@@ -230,7 +234,7 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
      *            the action that will process each pattern match.
      */
     protected void rawForEachMatch(Object[] parameters, IMatchProcessor<? super Match> processor) {
-        List<Tuple> m = patternMatcher.matchAll(parameters, notNull(parameters));
+        Collection<? extends Tuple> m = resultProvider.getAllMatches(parameters);
         // clones the tuples into match objects to protect the Tuples from modifications outside of the ReteMatcher
         for (Tuple t : m)
             processor.process(tupleToMatch(t));
@@ -271,7 +275,7 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
      *         not invoked
      */
     protected boolean rawForOneArbitraryMatch(Object[] parameters, IMatchProcessor<? super Match> processor) {
-        Tuple t = patternMatcher.matchOne(parameters, notNull(parameters));
+        Tuple t = resultProvider.getOneArbitraryMatch(parameters);
         if (t != null) {
             processor.process(tupleToMatch(t));
             return true;
@@ -288,13 +292,14 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
     @Deprecated
 	@Override
     public DeltaMonitor<Match> newDeltaMonitor(boolean fillAtStart) {
-        DeltaMonitor<Match> dm = new DeltaMonitor<Match>(reteEngine.getReteNet().getHeadContainer()) {
+        final RetePatternMatcher incrementalMatcher = getIncrementalMatcher();
+        DeltaMonitor<Match> dm = new DeltaMonitor<Match>(incrementalMatcher.getContainer()) {
             @Override
             public Match statelessConvert(Tuple t) {
                 return tupleToMatch(t);
             }
         };
-        patternMatcher.connect(dm, fillAtStart);
+        incrementalMatcher.connect(dm, fillAtStart);
         return dm;
     }
 
@@ -315,7 +320,8 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
     @Deprecated
 	protected DeltaMonitor<Match> rawNewFilteredDeltaMonitor(boolean fillAtStart, final Object[] parameters) {
         final int length = parameters.length;
-        DeltaMonitor<Match> dm = new DeltaMonitor<Match>(reteEngine.getReteNet().getHeadContainer()) {
+        final RetePatternMatcher incrementalMatcher = getIncrementalMatcher();
+        DeltaMonitor<Match> dm = new DeltaMonitor<Match>(incrementalMatcher.getContainer()) {
             @Override
             public boolean statelessFilter(Tuple tuple) {
                 for (int i = 0; i < length; ++i) {
@@ -331,7 +337,7 @@ public abstract class BaseMatcher<Match extends IPatternMatch> implements IncQue
                 return tupleToMatch(t);
             }
         };
-        patternMatcher.connect(dm, fillAtStart);
+        incrementalMatcher.connect(dm, fillAtStart);
         return dm;
     }
 
@@ -56,7 +56,15 @@ public abstract class BasePatternGroup implements IQueryGroup {
             Preconditions.checkState(erroneousPatterns.isEmpty(), "Erroneous query(s) found: %s", Joiner.on(", ")
                     .join(erroneousPatterns));
             final IncQueryEngineImpl engineImpl = (IncQueryEngineImpl) engine;
-            engineImpl.getReteEngine().buildMatchersCoalesced(patterns);
+            final Set<PQuery> reteEvaluatedPatterns = new HashSet<PQuery>();
+            for (PQuery pattern : patterns) {
+                if (engineImpl.getQueryBackend(pattern) == null) {
+                    reteEvaluatedPatterns.add(pattern);
+                } else {
+                    engineImpl.getResultProvider(pattern);
+                }
+            }
+            engineImpl.getReteEngine().buildMatchersCoalesced(reteEvaluatedPatterns);
         } catch (QueryPlannerException e) {
             throw new IncQueryException(e);
         }
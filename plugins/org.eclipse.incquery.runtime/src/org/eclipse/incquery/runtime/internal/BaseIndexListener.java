@@ -22,6 +22,7 @@ import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.incquery.runtime.api.IncQueryEngine;
 import org.eclipse.incquery.runtime.base.api.DataTypeListener;
 import org.eclipse.incquery.runtime.base.api.FeatureListener;
+import org.eclipse.incquery.runtime.base.api.IndexingProfile;
 import org.eclipse.incquery.runtime.base.api.InstanceListener;
 import org.eclipse.incquery.runtime.base.api.NavigationHelper;
 import org.eclipse.incquery.runtime.rete.boundary.IManipulationListener;
@@ -37,6 +38,7 @@ import org.eclipse.incquery.runtime.rete.network.Direction;
  * 
  */
 public class BaseIndexListener implements FeatureListener, InstanceListener, DataTypeListener, IManipulationListener {
+    private final ReteEngine engine;
     private final ReteBoundary boundary;
     private final NavigationHelper baseIndex;
 
@@ -57,9 +59,11 @@ public class BaseIndexListener implements FeatureListener, InstanceListener, Dat
     public BaseIndexListener(IncQueryEngine iqEngine, ReteEngine engine, NavigationHelper baseIndex) {
         super();
         this.iqEngine = iqEngine;
+        this.engine = engine;
         this.boundary = engine.getBoundary();
         this.baseIndex = baseIndex;
         engine.addDisconnectable(this);
+        baseIndex.addAfterUpdateCallback(modelChangeEnd);
 
     }
 
@@ -85,11 +89,21 @@ public class BaseIndexListener implements FeatureListener, InstanceListener, Dat
         if (features.add(feature)) {
             final Set<EStructuralFeature> newFeatures = Collections.singleton(feature);
             if (!baseIndex.isInWildcardMode())
-                baseIndex.registerEStructuralFeatures(newFeatures);
+                baseIndex.registerEStructuralFeatures(newFeatures, getEnumerableProfile(feature));
             baseIndex.addFeatureListener(newFeatures, this);
         }
     }
 
+    /**
+     * The network enumerates the instances of the feature once, and is notified of the changes afterwards, so either
+     * direction is sufficient. The configured profile is kept if it already indexes a direction, otherwise only the
+     * inverse direction is requested.
+     */
+    private IndexingProfile getEnumerableProfile(EStructuralFeature feature) {
+        final IndexingProfile profile = baseIndex.getIndexingProfile(feature);
+        return profile.isForward() || profile.isInverse() ? profile : IndexingProfile.INVERSE_ONLY;
+    }
+
     @Override
     public void instanceInserted(EClass clazz, EObject instance) {
         boundary.updateUnary(Direction.INSERT, instance, clazz);
@@ -138,6 +152,9 @@ public class BaseIndexListener implements FeatureListener, InstanceListener, Dat
 
     @Override
     public void disconnect() {
+        baseIndex.removeAfterUpdateCallback(modelChangeEnd);
+        // the engine may be disposed by a listener during a model change
+        engine.endModelChange();
         baseIndex.removeFeatureListener(features, this);
         features.clear();
         baseIndex.removeInstanceListener(classes, this);
@@ -146,4 +163,14 @@ public class BaseIndexListener implements FeatureListener, InstanceListener, Dat
         dataTypes.clear();
     }
 
+    // the end of the model change, the network is settled by the time the callbacks are run; the match access lock is
+    // released before any base index change listener is notified
+    private final Runnable modelChangeEnd = new Runnable() {
+
+        @Override
+        public void run() {
+            engine.endModelChange();
+        }
+    };
+
 }
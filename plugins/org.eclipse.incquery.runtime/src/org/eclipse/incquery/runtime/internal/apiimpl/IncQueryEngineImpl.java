@@ -12,10 +12,13 @@
 package org.eclipse.incquery.runtime.internal.apiimpl;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.notify.Notifier;
@@ -23,8 +26,11 @@ import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IMatchChangeListener;
+import org.eclipse.incquery.runtime.api.IMatchChangeStream;
 import org.eclipse.incquery.runtime.api.IMatchUpdateListener;
 import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IQueryBackendFactory;
 import org.eclipse.incquery.runtime.api.IQuerySpecification;
 import org.eclipse.incquery.runtime.api.IncQueryEngine;
 import org.eclipse.incquery.runtime.api.IncQueryEngineLifecycleListener;
@@ -42,8 +48,12 @@ import org.eclipse.incquery.runtime.exception.IncQueryException;
 import org.eclipse.incquery.runtime.extensibility.QuerySpecificationRegistry;
 import org.eclipse.incquery.runtime.internal.boundary.CallbackNode;
 import org.eclipse.incquery.runtime.internal.engine.LifecycleProvider;
+import org.eclipse.incquery.runtime.internal.engine.MatchChangeStream;
 import org.eclipse.incquery.runtime.internal.engine.ModelUpdateProvider;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
 import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
 import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
 import org.eclipse.incquery.runtime.rete.construction.plancompiler.ReteRecipeCompiler;
 import org.eclipse.incquery.runtime.rete.matcher.IPatternMatcherRuntimeContext;
@@ -71,7 +81,11 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
      * The model to which the engine is attached.
      */
     private final Notifier emfRoot;
-    private final Map<IQuerySpecification<? extends IncQueryMatcher<?>>, IncQueryMatcher<?>> matchers;
+    /**
+     * Concurrent, as matchers may be looked up by multiple threads, see
+     * {@link org.eclipse.incquery.runtime.rete.util.Options#concurrentMatchAccess}.
+     */
+    private final ConcurrentMap<IQuerySpecification<? extends IncQueryMatcher<?>>, IncQueryMatcher<?>> matchers;
 
     /**
      * The base index keeping track of basic EMF contents of the model.
@@ -86,15 +100,23 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
      * The RETE pattern matcher component of the EMF-IncQuery engine.
      */
     private ReteEngine reteEngine = null;
+    /**
+     * The backends selected for queries not evaluated by the Rete engine.
+     */
+    private final Map<PQuery, IQueryBackendFactory> backendFactories;
+    /**
+     * The backend instances created by the selected factories, created on demand.
+     */
+    private final Map<IQueryBackendFactory, IQueryBackend> backends;
 
     private final LifecycleProvider lifecycleProvider;
     private final ModelUpdateProvider modelUpdateProvider;
     private Logger logger;
     
     /**
-     * EXPERIMENTAL
+     * EXPERIMENTAL; 0 means single-threaded operation, see {@link Options#numberOfLocalContainers}
      */
-    private final int reteThreads = 0;
+    private final int reteThreads = Options.numberOfLocalContainers > 1 ? Options.numberOfLocalContainers : 0;
     
     /**
      * @param manager
@@ -108,7 +130,9 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
         this.manager = manager;
         this.emfRoot = emfRoot;
         this.options = options.copy();
-        this.matchers = Maps.newHashMap();
+        this.matchers = Maps.newConcurrentMap();
+        this.backendFactories = Maps.newConcurrentMap();
+        this.backends = Maps.newHashMap();
         this.lifecycleProvider = new LifecycleProvider(this, getLogger());
         this.modelUpdateProvider = new ModelUpdateProvider(this, getLogger());
         if (!(emfRoot instanceof EObject || emfRoot instanceof Resource || emfRoot instanceof ResourceSet))
@@ -233,13 +257,12 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
      * TODO make it package-only visible when implementation class is moved to impl package
      */
     public void reportMatcherInitialized(IQuerySpecification<?> querySpecification, IncQueryMatcher<?> matcher) {
-        if(matchers.containsKey(querySpecification)) {
+        if(matchers.putIfAbsent(querySpecification, matcher) != null) {
             // TODO simply dropping the matcher can cause problems
             logger.debug("Query " + 
                     querySpecification.getFullyQualifiedName() + 
                     " already initialized in IncQueryEngine!");
         } else {
-            matchers.put(querySpecification, matcher);
             lifecycleProvider.matcherInstantiated(matcher);
         }
     }
@@ -280,10 +303,48 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
 
     
 
+    @Override
+    public void setQueryBackend(PQuery query, IQueryBackendFactory factory) {
+        checkState(!matchers.containsKey(query), "Cannot change the backend of query %s, its matcher is already initialized!",
+                query.getFullyQualifiedName());
+        if (factory == null) {
+            backendFactories.remove(query);
+        } else {
+            backendFactories.put(query, factory);
+        }
+    }
+
+    @Override
+    public IQueryBackendFactory getQueryBackend(PQuery query) {
+        return backendFactories.get(query);
+    }
+
+    @Override
+    public IQueryResultProvider getResultProvider(PQuery query) throws IncQueryException {
+        // the Rete engine initializes the base index
+        ReteEngine rete = getReteEngine();
+        IQueryBackendFactory factory = backendFactories.get(query);
+        IQueryBackend backend = rete;
+        if (factory != null) {
+            synchronized (backends) {
+                backend = backends.get(factory);
+                if (backend == null) {
+                    backend = factory.create(this);
+                    backends.put(factory, backend);
+                }
+            }
+        }
+        try {
+            return backend.getResultProvider(query);
+        } catch (QueryPlannerException e) {
+            throw new IncQueryException(e);
+        }
+    }
+
     private ReteEngine buildReteEngineInternal(IPatternMatcherRuntimeContext context) {
         ReteEngine engine;
         engine = new ReteEngine(context, reteThreads);
-        ReteRecipeCompiler compiler = new ReteRecipeCompiler(Options.builderMethod.layoutStrategy(), context);
+        ReteRecipeCompiler compiler = new ReteRecipeCompiler(Options.builderMethod.layoutStrategy(baseIndex), context);
         //EPMBuilder builder = new EPMBuilder(buildable, context);
         engine.setCompiler(compiler);
         return engine;
@@ -322,6 +383,10 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
             reteEngine.killEngine();
             reteEngine = null;
         }
+        for (IQueryBackend backend : backends.values()) {
+            backend.dispose();
+        }
+        backends.clear();
         matchers.clear();
         lifecycleProvider.engineWiped();
     }
@@ -387,19 +452,21 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
         checkArgument(listener != null, "Cannot add null listener!");
         checkArgument(matcher.getEngine() == this, "Cannot register listener for matcher of different engine!");
         checkArgument(reteEngine != null, "Cannot register listener on matcher of disposed engine!");
+        checkArgument(!backendFactories.containsKey(matcher.getSpecification()),
+                "Cannot register listener on matcher of non-incremental backend!");
         //((BaseMatcher<Match>)matcher).addCallbackOnMatchUpdate(listener, fireNow);
         final BaseMatcher<Match> bm = (BaseMatcher<Match>)matcher;
         
-        final CallbackNode<Match> callbackNode = new CallbackNode<Match>(reteEngine.getReteNet().getHeadContainer(),
-                this, logger, listener) {
-            @Override
-            public Match statelessConvert(Tuple t) {
-                //return bm.tupleToMatch(t);
-                return bm.newMatch(t.getElements());
-            }
-        };
         try {
             RetePatternMatcher patternMatcher = reteEngine.accessMatcher(matcher.getSpecification());
+            final CallbackNode<Match> callbackNode = new CallbackNode<Match>(patternMatcher.getContainer(),
+                    this, logger, listener) {
+                @Override
+                public Match statelessConvert(Tuple t) {
+                    //return bm.tupleToMatch(t);
+                    return bm.newMatch(t.getElements());
+                }
+            };
             patternMatcher.connect(callbackNode, listener, fireNow);
         } catch (QueryPlannerException e) {
             logger.error("Could not access matcher " + matcher.getPatternName(), e);
@@ -412,6 +479,10 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
         checkArgument(listener != null, "Cannot remove null listener!");
         checkArgument(matcher.getEngine() == this, "Cannot remove listener from matcher of different engine!");
         checkArgument(reteEngine != null, "Cannot remove listener from matcher of disposed engine!");
+        if (backendFactories.containsKey(matcher.getSpecification())) {
+            // no listeners could have been registered
+            return;
+        }
         //((BaseMatcher<Match>)matcher).removeCallbackOnMatchUpdate(listener);
         try {
             RetePatternMatcher patternMatcher = reteEngine.accessMatcher(matcher.getSpecification());
@@ -421,6 +492,17 @@ public class IncQueryEngineImpl extends AdvancedIncQueryEngine {
         }
     }
     
+    @Override
+	public <Match extends IPatternMatch> IMatchChangeStream openMatchChangeStream(IncQueryMatcher<Match> matcher,
+            IMatchChangeListener<? super Match> listener, boolean fireNow, Executor executor, int maxBufferedChanges) {
+        checkArgument(listener != null, "Cannot add null listener!");
+        checkArgument(maxBufferedChanges > 0, "The number of buffered changes must be positive!");
+        MatchChangeStream<Match> stream = new MatchChangeStream<Match>(this, matcher, listener, executor,
+                maxBufferedChanges, logger);
+        stream.open(fireNow);
+        return stream;
+    }
+    
     @Override
 	public void addModelUpdateListener(IncQueryModelUpdateListener listener) {
         modelUpdateProvider.addListener(listener);
@@ -0,0 +1,308 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Bergmann Gabor, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Bergmann Gabor - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.internal.engine;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.log4j.Logger;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IMatchChangeListener;
+import org.eclipse.incquery.runtime.api.IMatchChangeStream;
+import org.eclipse.incquery.runtime.api.IMatchUpdateListener;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IncQueryEngineLifecycleListener;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.base.api.IncQueryBaseIndexChangeListener;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.eclipse.incquery.runtime.exception.IncQueryException;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Collects the match set changes of a matcher and delivers them in batches at the end of each model update.
+ *
+ * <p>
+ * Appearances and disappearances of the same match cancel each other out until the batch is delivered. The batches
+ * are delivered one at a time and in order, either by the thread updating the model or on the executor, so the
+ * listener is never invoked concurrently. While a batch is being delivered, the changes of the model updates in the
+ * meantime are coalesced into the next batch, which is delivered right after it. If the number of undelivered changes
+ * reaches the limit, they are delivered without waiting for the end of the model update, unless a batch is being
+ * delivered; in that case they keep being coalesced, as the model update must not wait for the listener, which may
+ * itself be waiting for the end of the model update to retrieve matches.
+ *
+ * @author Bergmann Gabor
+ *
+ */
+public final class MatchChangeStream<Match extends IPatternMatch> implements IMatchChangeStream {
+
+    private final AdvancedIncQueryEngine engine;
+    private final IncQueryMatcher<Match> matcher;
+    private final IMatchChangeListener<? super Match> listener;
+    private final Executor executor;
+    private final int maxBufferedChanges;
+    private final Logger logger;
+
+    /**
+     * Guards the buffered changes and the state of the delivery
+     */
+    private final Object lock = new Object();
+    private Set<Match> appeared = Sets.newLinkedHashSet();
+    private Set<Match> disappeared = Sets.newLinkedHashSet();
+    /**
+     * True while a batch is being delivered, including the time it waits for the executor
+     */
+    private boolean delivering = false;
+    /**
+     * True if the buffered changes should be delivered right after the current batch
+     */
+    private boolean flushRequested = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param executor
+     *            the executor to invoke the listener on, or null if the listener should be invoked by the thread
+     *            updating the model
+     * @param maxBufferedChanges
+     *            the number of undelivered changes that triggers a delivery before the end of the model update
+     */
+    public MatchChangeStream(AdvancedIncQueryEngine engine, IncQueryMatcher<Match> matcher,
+            IMatchChangeListener<? super Match> listener, Executor executor, int maxBufferedChanges, Logger logger) {
+        super();
+        this.engine = engine;
+        this.matcher = matcher;
+        this.listener = listener;
+        this.executor = executor;
+        this.maxBufferedChanges = maxBufferedChanges;
+        this.logger = logger;
+    }
+
+    /**
+     * Starts collecting changes.
+     *
+     * @param fireNow
+     *            if true, the current matches are delivered as appeared matches in the first batch
+     */
+    public void open(boolean fireNow) {
+        getBaseIndex().addBaseIndexChangeListener(indexListener);
+        engine.addLifecycleListener(lifecycleListener);
+        engine.addMatchUpdateListener(matcher, matchListener, fireNow);
+        if (fireNow) {
+            flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (markClosed()) {
+            engine.removeMatchUpdateListener(matcher, matchListener);
+            engine.removeLifecycleListener(lifecycleListener);
+            getBaseIndex().removeBaseIndexChangeListener(indexListener);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private boolean markClosed() {
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            appeared.clear();
+            disappeared.clear();
+            return true;
+        }
+    }
+
+    private NavigationHelper getBaseIndex() {
+        try {
+            return engine.getBaseIndex();
+        } catch (IncQueryException e) {
+            throw new IllegalStateException("Match change stream used on engine without base index", e);
+        }
+    }
+
+    private void matchChanged(Match match, boolean appearance) {
+        boolean full;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            if (appearance) {
+                if (!disappeared.remove(match)) {
+                    appeared.add(match);
+                }
+            } else {
+                if (!appeared.remove(match)) {
+                    disappeared.add(match);
+                }
+            }
+            full = bufferedChanges() >= maxBufferedChanges;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    private int bufferedChanges() {
+        return appeared.size() + disappeared.size();
+    }
+
+    /**
+     * Hands over the buffered changes to the listener, if there are any; if a batch is being delivered, they are
+     * delivered after it.
+     */
+    private void flush() {
+        final Batch batch;
+        synchronized (lock) {
+            if (closed || bufferedChanges() == 0) {
+                return;
+            }
+            if (delivering) {
+                flushRequested = true;
+                return;
+            }
+            batch = takeBatch();
+            delivering = true;
+        }
+        if (executor == null) {
+            deliverAll(batch);
+        } else {
+            submit(batch);
+        }
+    }
+
+    /**
+     * @pre holding the lock
+     */
+    private Batch takeBatch() {
+        Batch batch = new Batch(appeared, disappeared);
+        appeared = Sets.newLinkedHashSet();
+        disappeared = Sets.newLinkedHashSet();
+        return batch;
+    }
+
+    private void submit(final Batch batch) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    deliverAll(batch);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.error("Match changes of pattern " + matcher.getPatternName() + " could not be delivered.", e);
+            synchronized (lock) {
+                delivering = false;
+                flushRequested = false;
+            }
+        }
+    }
+
+    /**
+     * Delivers the batch, then the changes flushed in the meantime, until there are none left.
+     */
+    private void deliverAll(Batch batch) {
+        Batch next = batch;
+        while (next != null) {
+            deliver(next);
+            synchronized (lock) {
+                if (!closed && flushRequested && bufferedChanges() > 0) {
+                    next = takeBatch();
+                } else {
+                    next = null;
+                    delivering = false;
+                }
+                flushRequested = false;
+            }
+        }
+    }
+
+    private void deliver(Batch batch) {
+        if (closed) {
+            return;
+        }
+        try {
+            listener.matchesChanged(batch.appeared, batch.disappeared);
+        } catch (Exception e) {
+            logger.error("EMF-IncQuery encountered an error in delivering match changes of pattern "
+                    + matcher.getPatternName() + " to listener " + listener + ".", e);
+        }
+    }
+
+    private final class Batch {
+        final Set<Match> appeared;
+        final Set<Match> disappeared;
+
+        Batch(Set<Match> appeared, Set<Match> disappeared) {
+            this.appeared = Collections.unmodifiableSet(appeared);
+            this.disappeared = Collections.unmodifiableSet(disappeared);
+        }
+    }
+
+    private final IMatchUpdateListener<Match> matchListener = new IMatchUpdateListener<Match>() {
+
+        @Override
+        public void notifyAppearance(Match match) {
+            matchChanged(match, true);
+        }
+
+        @Override
+        public void notifyDisappearance(Match match) {
+            matchChanged(match, false);
+        }
+    };
+
+    // the end of the model update
+    private final IncQueryBaseIndexChangeListener indexListener = new IncQueryBaseIndexChangeListener() {
+
+        @Override
+        public boolean onlyOnIndexChange() {
+            return false;
+        }
+
+        @Override
+        public void notifyChanged(boolean indexChanged) {
+            flush();
+        }
+    };
+
+    private final IncQueryEngineLifecycleListener lifecycleListener = new IncQueryEngineLifecycleListener() {
+
+        @Override
+        public void matcherInstantiated(IncQueryMatcher<? extends IPatternMatch> matcher) {}
+
+        @Override
+        public void engineWiped() {
+            // the matcher is discarded, no more changes
+            if (markClosed()) {
+                engine.removeLifecycleListener(this);
+                getBaseIndex().removeBaseIndexChangeListener(indexListener);
+            }
+        }
+
+        @Override
+        public void engineDisposed() {
+            if (markClosed()) {
+                getBaseIndex().removeBaseIndexChangeListener(indexListener);
+            }
+        }
+
+        @Override
+        public void engineBecameTainted(String description, Throwable t) {}
+    };
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Tamas Szabo, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Tamas Szabo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IMatchUpdateListener;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.base.api.TransitiveClosureHelper;
+import org.eclipse.incquery.runtime.base.itc.alg.incscc.IncSCCAlg;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.IGraphPathFinder;
+import org.eclipse.incquery.runtime.base.itc.igraph.IGraphDataSource;
+import org.eclipse.incquery.runtime.base.itc.igraph.IGraphObserver;
+import org.eclipse.incquery.runtime.base.itc.igraph.ITcDataSource;
+import org.eclipse.incquery.runtime.base.itc.igraph.ITcObserver;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+
+/**
+ * Maintains the transitive closure of the edges defined by the matches of a binary pattern, e.g. computed
+ * "depends-on" relations. Unlike the {@link TransitiveClosureHelper} of the base index, which observes EReferences,
+ * the graph is updated by the match appearance and disappearance notifications of the matcher, so no further model
+ * notifications are processed.
+ * 
+ * <p>
+ * The first parameter of the pattern is the source, the second is the target of the edges. The helper must be
+ * disposed before the engine is wiped or disposed.
+ * 
+ * @param <V>
+ *            the type of the parameter values of the pattern
+ * @author Tamas Szabo
+ * @since 0.8
+ */
+public class MatcherTransitiveClosureHelper<V> implements ITcDataSource<V>, ITcObserver<V> {
+
+    private final AdvancedIncQueryEngine engine;
+    private final IncQueryMatcher<IPatternMatch> matcher;
+    private final MatchDataSource dataSource;
+    private final IncSCCAlg<V> sccAlg;
+    private final List<ITcObserver<V>> tcObservers;
+
+    private final IMatchUpdateListener<IPatternMatch> matchListener = new IMatchUpdateListener<IPatternMatch>() {
+
+        @Override
+        public void notifyAppearance(IPatternMatch match) {
+            dataSource.edgeInserted(getSource(match), getTarget(match));
+        }
+
+        @Override
+        public void notifyDisappearance(IPatternMatch match) {
+            dataSource.edgeDeleted(getSource(match), getTarget(match));
+        }
+    };
+
+    /**
+     * Creates a transitive closure helper over the edges defined by the matches of the given matcher.
+     * 
+     * @param engine
+     *            the engine of the matcher
+     * @param matcher
+     *            the matcher of a pattern with two parameters
+     */
+    @SuppressWarnings("unchecked")
+    public MatcherTransitiveClosureHelper(AdvancedIncQueryEngine engine, IncQueryMatcher<? extends IPatternMatch> matcher) {
+        this.engine = checkNotNull(engine, "Cannot create transitive closure helper with null engine!");
+        checkNotNull(matcher, "Cannot create transitive closure helper with null matcher!");
+        checkArgument(matcher.getParameterNames().size() == 2, "Pattern %s has %s parameters instead of two!",
+                matcher.getPatternName(), matcher.getParameterNames().size());
+        // only the parameter values are accessed
+        this.matcher = (IncQueryMatcher<IPatternMatch>) matcher;
+        this.tcObservers = new ArrayList<ITcObserver<V>>();
+        this.dataSource = new MatchDataSource();
+
+        // the current matches are loaded into the data source before the algorithm observes it
+        this.engine.addMatchUpdateListener(this.matcher, matchListener, true);
+        this.sccAlg = new IncSCCAlg<V>(dataSource);
+        this.sccAlg.attachObserver(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getSource(IPatternMatch match) {
+        return (V) match.get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getTarget(IPatternMatch match) {
+        return (V) match.get(1);
+    }
+
+    @Override
+    public void attachObserver(ITcObserver<V> to) {
+        this.tcObservers.add(to);
+    }
+
+    @Override
+    public void detachObserver(ITcObserver<V> to) {
+        this.tcObservers.remove(to);
+    }
+
+    @Override
+    public Set<V> getAllReachableTargets(V source) {
+        return this.sccAlg.getAllReachableTargets(source);
+    }
+
+    @Override
+    public Set<V> getAllReachableSources(V target) {
+        return this.sccAlg.getAllReachableSources(target);
+    }
+
+    @Override
+    public boolean isReachable(V source, V target) {
+        return this.sccAlg.isReachable(source, target);
+    }
+
+    @Override
+    public List<V> getReachabilityPath(V source, V target) {
+        return this.sccAlg.getReachabilityPath(source, target);
+    }
+
+    @Override
+    public IGraphPathFinder<V> getPathFinder() {
+        return this.sccAlg.getPathFinder();
+    }
+
+    @Override
+    public void tupleInserted(V source, V target) {
+        for (ITcObserver<V> to : tcObservers) {
+            to.tupleInserted(source, target);
+        }
+    }
+
+    @Override
+    public void tupleDeleted(V source, V target) {
+        for (ITcObserver<V> to : tcObservers) {
+            to.tupleDeleted(source, target);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        this.engine.removeMatchUpdateListener(matcher, matchListener);
+        this.sccAlg.dispose();
+    }
+
+    /**
+     * The graph of the edges, the nodes are the values appearing as sources or targets.
+     */
+    private final class MatchDataSource implements IGraphDataSource<V> {
+
+        private static final long serialVersionUID = -2546537287452914712L;
+        private final List<IGraphObserver<V>> observers = new ArrayList<IGraphObserver<V>>();
+        private final Multimap<V, V> edges = HashMultimap.create();
+        private final Multiset<V> nodes = HashMultiset.create();
+
+        @Override
+        public Set<V> getAllNodes() {
+            return nodes.elementSet();
+        }
+
+        @Override
+        public List<V> getTargetNodes(V source) {
+            return new ArrayList<V>(edges.get(source));
+        }
+
+        @Override
+        public void attachObserver(IGraphObserver<V> go) {
+            observers.add(go);
+        }
+
+        @Override
+        public void detachObserver(IGraphObserver<V> go) {
+            observers.remove(go);
+        }
+
+        public void edgeInserted(V source, V target) {
+            nodeAdded(source);
+            nodeAdded(target);
+            edges.put(source, target);
+            for (IGraphObserver<V> o : observers) {
+                o.edgeInserted(source, target);
+            }
+        }
+
+        public void edgeDeleted(V source, V target) {
+            edges.remove(source, target);
+            for (IGraphObserver<V> o : observers) {
+                o.edgeDeleted(source, target);
+            }
+            nodeRemoved(source);
+            nodeRemoved(target);
+        }
+
+        private void nodeAdded(V node) {
+            if (nodes.add(node, 1) == 0) {
+                for (IGraphObserver<V> o : observers) {
+                    o.nodeInserted(node);
+                }
+            }
+        }
+
+        private void nodeRemoved(V node) {
+            if (nodes.remove(node, 1) == 1) {
+                for (IGraphObserver<V> o : observers) {
+                    o.nodeDeleted(node);
+                }
+            }
+        }
+    }
+}
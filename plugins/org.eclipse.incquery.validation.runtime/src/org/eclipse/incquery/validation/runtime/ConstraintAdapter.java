@@ -64,7 +64,7 @@ public class ConstraintAdapter {
 
             rules.add(Rules.newMatcherRuleSpecification(constraint.getQuerySpecification(),
                     DefaultActivationLifeCycle.DEFAULT, ImmutableSet.of(
-                            Jobs.newErrorLoggingJob(Jobs.newStatelessJob(IncQueryActivationStateEnum.APPEARED, new MarkerPlacerJob(this,constraint, logger))),
+                            Jobs.newErrorLoggingJob(Jobs.newStatelessBatchJob(IncQueryActivationStateEnum.APPEARED, new MarkerPlacerJob(this,constraint, logger))),
                             Jobs.newErrorLoggingJob(Jobs.newStatelessJob(IncQueryActivationStateEnum.DISAPPEARED, new MarkerEraserJob(this, logger))),
                             Jobs.newErrorLoggingJob(Jobs.newStatelessJob(IncQueryActivationStateEnum.UPDATED, new MarkerUpdaterJob(this,constraint, logger))))));
         }
@@ -11,11 +11,16 @@
 
 package org.eclipse.incquery.validation.runtime;
 
+import java.util.Collection;
+
 import org.apache.log4j.Logger;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EValidator;
@@ -24,15 +29,17 @@ import org.eclipse.incquery.databinding.runtime.adapter.DatabindingAdapterUtil;
 import org.eclipse.incquery.runtime.api.IMatchProcessor;
 import org.eclipse.incquery.runtime.api.IPatternMatch;
 import org.eclipse.incquery.runtime.api.impl.BasePatternMatch;
+import org.eclipse.incquery.runtime.evm.specific.job.IMatchBatchProcessor;
 
 /**
  * The job is used to create a problem marker in the Problems View of Eclipse upon constraint violation. It is
- * associated to the rule that is created for the constraint.
+ * associated to the rule that is created for the constraint. When the violations are processed in a batch, the markers
+ * are created in a single workspace operation, so only one resource change notification is sent.
  * 
  * @author Tamas Szabo
  * 
  */
-public class MarkerPlacerJob implements IMatchProcessor<IPatternMatch> {
+public class MarkerPlacerJob implements IMatchProcessor<IPatternMatch>, IMatchBatchProcessor<IPatternMatch> {
 
     private Constraint<IPatternMatch> constraint;
     private Logger logger;
@@ -44,6 +51,22 @@ public class MarkerPlacerJob implements IMatchProcessor<IPatternMatch> {
         this.adapter = adapter;
     }
 
+    @Override
+    public void process(final Collection<IPatternMatch> matches) {
+        try {
+            ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+                @Override
+                public void run(IProgressMonitor monitor) throws CoreException {
+                    for (IPatternMatch match : matches) {
+                        process(match);
+                    }
+                }
+            }, null, IWorkspace.AVOID_UPDATE, null);
+        } catch (CoreException e) {
+            logger.error("Error during marker initialization!", e);
+        }
+    }
+
     @Override
     public void process(IPatternMatch match) {
         EObject location = constraint.getLocationObject(match);
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.patternlanguage.emf.tests.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.incquery.patternlanguage.emf.eMFPatternLanguage.PatternModel;
+import org.eclipse.incquery.patternlanguage.emf.specification.XBaseEvaluator;
+import org.eclipse.incquery.patternlanguage.emf.specification.XBaseExpressionCompiler;
+import org.eclipse.incquery.patternlanguage.emf.tests.EMFPatternLanguageInjectorProvider;
+import org.eclipse.incquery.patternlanguage.patternLanguage.CheckConstraint;
+import org.eclipse.incquery.patternlanguage.patternLanguage.FunctionEvaluationValue;
+import org.eclipse.incquery.patternlanguage.patternLanguage.Pattern;
+import org.eclipse.incquery.runtime.matchers.psystem.IExpressionEvaluator;
+import org.eclipse.incquery.runtime.matchers.psystem.IValueProvider;
+import org.eclipse.xtext.EcoreUtil2;
+import org.eclipse.xtext.junit4.InjectWith;
+import org.eclipse.xtext.junit4.XtextRunner;
+import org.eclipse.xtext.junit4.util.ParseHelper;
+import org.eclipse.xtext.junit4.validation.ValidationTestHelper;
+import org.eclipse.xtext.xbase.XExpression;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+
+/**
+ * Compares the compiled check() and eval() expressions with the interpreted ones.
+ *
+ * @author Zoltan Ujhelyi
+ */
+@RunWith(XtextRunner.class)
+@InjectWith(EMFPatternLanguageInjectorProvider.class)
+public class XBaseExpressionCompilerTest {
+
+    @Inject
+    private ParseHelper<PatternModel> parseHelper;
+    @Inject
+    private ValidationTestHelper validationHelper;
+    @Inject
+    private XBaseExpressionCompiler compiler;
+
+    @After
+    public void tearDown() {
+        XBaseExpressionCompiler.compilationEnabled = true;
+    }
+
+    private Pattern parse(String patternText) throws Exception {
+        PatternModel model = parseHelper.parse("package org.eclipse.incquery.patternlanguage.emf.tests\n"
+                + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n" + patternText);
+        validationHelper.assertNoErrors(model);
+        return model.getPatterns().get(0);
+    }
+
+    private static XExpression checkExpression(Pattern pattern) {
+        return EcoreUtil2.getAllContentsOfType(pattern, CheckConstraint.class).get(0).getExpression();
+    }
+
+    private static XExpression evalExpression(Pattern pattern) {
+        return EcoreUtil2.getAllContentsOfType(pattern, FunctionEvaluationValue.class).get(0).getExpression();
+    }
+
+    private static IValueProvider values(Object... namesAndValues) {
+        final Map<String, Object> values = new HashMap<String, Object>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            values.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return new IValueProvider() {
+            @Override
+            public Object getValue(String variableName) {
+                if (!values.containsKey(variableName)) {
+                    throw new IllegalArgumentException(variableName);
+                }
+                return values.get(variableName);
+            }
+        };
+    }
+
+    @Test
+    public void checkCompiled() throws Exception {
+        Pattern pattern = parse("pattern longName(S) = { EString(S); check(S.length > 2); }");
+        XBaseEvaluator evaluator = new XBaseEvaluator(checkExpression(pattern), pattern);
+
+        IExpressionEvaluator compiled = compiler.getCompiledEvaluator(evaluator, getClass().getClassLoader());
+        assertNotNull(compiled);
+        assertEquals(Lists.newArrayList(evaluator.getInputParameterNames()),
+                Lists.newArrayList(compiled.getInputParameterNames()));
+        assertEquals(Boolean.TRUE, compiled.evaluateExpression(values("S", "abc")));
+        assertEquals(Boolean.FALSE, compiled.evaluateExpression(values("S", "ab")));
+        assertEquals(Boolean.TRUE, evaluator.evaluateExpression(values("S", "abc")));
+        assertEquals(Boolean.FALSE, evaluator.evaluateExpression(values("S", "ab")));
+    }
+
+    @Test
+    public void evalWithPrimitivesCompiled() throws Exception {
+        Pattern pattern = parse("pattern sum(A, B, C) = { EInt(A); EInt(B); C == eval(A + B); }");
+        XBaseEvaluator evaluator = new XBaseEvaluator(evalExpression(pattern), pattern);
+
+        IExpressionEvaluator compiled = compiler.getCompiledEvaluator(evaluator, getClass().getClassLoader());
+        assertNotNull(compiled);
+        assertEquals(5, compiled.evaluateExpression(values("A", 2, "B", 3)));
+        assertEquals(5, evaluator.evaluateExpression(values("A", 2, "B", 3)));
+    }
+
+    @Test
+    public void compiledEvaluatorCached() throws Exception {
+        Pattern pattern = parse("pattern longName(S) = { EString(S); check(S.length > 2); }");
+        XExpression expression = checkExpression(pattern);
+
+        IExpressionEvaluator first = compiler.getCompiledEvaluator(new XBaseEvaluator(expression, pattern), null);
+        IExpressionEvaluator second = compiler.getCompiledEvaluator(new XBaseEvaluator(expression, pattern), null);
+        assertNotNull(first);
+        assertSame(first, second);
+    }
+
+    @Test
+    public void interpretedIfCompilationDisabled() throws Exception {
+        XBaseExpressionCompiler.compilationEnabled = false;
+        Pattern pattern = parse("pattern shortName(S) = { EString(S); check(S.length <= 2); }");
+        XBaseEvaluator evaluator = new XBaseEvaluator(checkExpression(pattern), pattern);
+
+        assertNull(compiler.getCompiledEvaluator(evaluator, getClass().getClassLoader()));
+        assertEquals(Boolean.TRUE, evaluator.evaluateExpression(values("S", "ab")));
+        assertFalse((Boolean) evaluator.evaluateExpression(values("S", "abc")));
+    }
+
+}
@@ -11,13 +11,17 @@
 
 package org.eclipse.incquery.runtime.base.itc;
 
+import org.eclipse.incquery.runtime.base.itc.bitset.CompressedBitSetTestCase;
 import org.eclipse.incquery.runtime.base.itc.counting.CountingCompleteGraphTestCase;
 import org.eclipse.incquery.runtime.base.itc.dfs.DFSCompleteGraphTestCase;
 import org.eclipse.incquery.runtime.base.itc.dred.DRedCompleteGraphTestCase;
 import org.eclipse.incquery.runtime.base.itc.dred.DRedGraphsTestCase;
+import org.eclipse.incquery.runtime.base.itc.incscc.IncSCCBulkInitializationTestCase;
+import org.eclipse.incquery.runtime.base.itc.incscc.IncSCCCompactReachabilityTestCase;
 import org.eclipse.incquery.runtime.base.itc.incscc.IncSCCCompleteGraphTestCase;
 import org.eclipse.incquery.runtime.base.itc.incscc.IncSCCGraphsTestCase;
 import org.eclipse.incquery.runtime.base.itc.incscc.IncSCCPathConstructionTestCase;
+import org.eclipse.incquery.runtime.base.itc.incscc.IncSCCTcRelationIteratorTestCase;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -30,7 +34,11 @@ import org.junit.runners.Suite.SuiteClasses;
 		CountingCompleteGraphTestCase.class,
 		IncSCCGraphsTestCase.class,
 		IncSCCCompleteGraphTestCase.class,
-		IncSCCPathConstructionTestCase.class
+		IncSCCPathConstructionTestCase.class,
+		IncSCCBulkInitializationTestCase.class,
+		IncSCCTcRelationIteratorTestCase.class,
+		IncSCCCompactReachabilityTestCase.class,
+		CompressedBitSetTestCase.class
 })
 public class TransitiveClosureAlgorithmTestSuite {
 
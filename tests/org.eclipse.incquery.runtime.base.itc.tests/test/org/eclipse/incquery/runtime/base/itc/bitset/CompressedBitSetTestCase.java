@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Tamas Szabo, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Tamas Szabo - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.base.itc.bitset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.eclipse.incquery.runtime.base.itc.alg.bitset.CompressedBitSet;
+import org.junit.Test;
+
+/**
+ * Compares the operations of {@link CompressedBitSet} with those of {@link BitSet}.
+ * 
+ * @author Tamas Szabo
+ */
+public class CompressedBitSetTestCase {
+
+	private static final int RANGE = 1000;
+
+	private static void assertSameBits(BitSet expected, CompressedBitSet actual) {
+		assertEquals(expected.cardinality(), actual.cardinality());
+		assertEquals(expected.isEmpty(), actual.isEmpty());
+		for (int bit = 0; bit < RANGE + 64; bit++) {
+			assertEquals(expected.get(bit), actual.get(bit));
+			assertEquals(expected.nextSetBit(bit), actual.nextSetBit(bit));
+		}
+	}
+
+	private static void fill(Random random, BitSet expected, CompressedBitSet actual, int count) {
+		for (int i = 0; i < count; i++) {
+			int bit = random.nextInt(RANGE);
+			assertEquals(!expected.get(bit), actual.set(bit));
+			expected.set(bit);
+		}
+	}
+
+	@Test
+	public void bitsSetAndCleared() {
+		Random random = new Random(0);
+		BitSet expected = new BitSet();
+		CompressedBitSet actual = new CompressedBitSet();
+		fill(random, expected, actual, 300);
+		assertSameBits(expected, actual);
+
+		for (int i = 0; i < 600; i++) {
+			int bit = random.nextInt(RANGE);
+			assertEquals(expected.get(bit), actual.clear(bit));
+			expected.clear(bit);
+		}
+		assertSameBits(expected, actual);
+
+		actual.clear();
+		assertSameBits(new BitSet(), actual);
+	}
+
+	@Test
+	public void setsCombined() {
+		for (long seed = 0; seed < 20; seed++) {
+			Random random = new Random(seed);
+			BitSet expectedA = new BitSet();
+			CompressedBitSet a = new CompressedBitSet();
+			fill(random, expectedA, a, random.nextInt(200));
+			BitSet expectedB = new BitSet();
+			CompressedBitSet b = new CompressedBitSet();
+			fill(random, expectedB, b, random.nextInt(200));
+
+			BitSet expectedDifference = (BitSet) expectedA.clone();
+			expectedDifference.andNot(expectedB);
+			assertSameBits(expectedDifference, a.andNot(b));
+
+			a.or(b);
+			expectedA.or(expectedB);
+			assertSameBits(expectedA, a);
+			assertTrue(a.andNot(b).equals(a.andNot(b)));
+			assertTrue(b.andNot(a).isEmpty());
+		}
+	}
+
+	@Test
+	public void largeElementsStored() {
+		CompressedBitSet set = new CompressedBitSet();
+		assertTrue(set.set(Integer.MAX_VALUE));
+		assertTrue(set.set(0));
+		assertTrue(set.get(Integer.MAX_VALUE));
+		assertFalse(set.get(Integer.MAX_VALUE - 1));
+		assertEquals(Integer.MAX_VALUE, set.nextSetBit(1));
+		assertEquals(2, set.cardinality());
+	}
+
+}
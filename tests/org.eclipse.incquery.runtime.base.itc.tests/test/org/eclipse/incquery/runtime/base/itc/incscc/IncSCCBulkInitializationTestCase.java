@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Tamas Szabo, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Tamas Szabo - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.base.itc.incscc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.base.itc.alg.incscc.IncSCCAlg;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.Tuple;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.dfs.DFSAlg;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.scc.SCC;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.topsort.TopSort;
+import org.eclipse.incquery.runtime.base.itc.graphimpl.Graph;
+import org.junit.Test;
+
+/**
+ * Checks that constructing {@link IncSCCAlg} over an already filled graph gives the same result as maintaining it
+ * edge by edge, and that the bulk construction handles graphs that are too deep for recursive traversals.
+ *
+ * @author Tamas Szabo
+ */
+public class IncSCCBulkInitializationTestCase {
+
+	private static final int NODE_COUNT = 40;
+	private static final int EDGE_COUNT = 80;
+	/**
+	 * Well beyond the recursion depth supported by the default thread stack size
+	 */
+	private static final int DEEP_NODE_COUNT = 100000;
+
+	private static Set<Tuple<Integer>> randomEdges(long seed) {
+		Random random = new Random(seed);
+		Set<Tuple<Integer>> edges = new HashSet<Tuple<Integer>>();
+		while (edges.size() < EDGE_COUNT) {
+			edges.add(new Tuple<Integer>(random.nextInt(NODE_COUNT), random.nextInt(NODE_COUNT)));
+		}
+		return edges;
+	}
+
+	private static void insert(Graph<Integer> graph, Set<Tuple<Integer>> edges) {
+		for (int i = 0; i < NODE_COUNT; i++) {
+			graph.insertNode(i);
+		}
+		for (Tuple<Integer> edge : edges) {
+			graph.insertEdge(edge.getSource(), edge.getTarget());
+		}
+	}
+
+	@Test
+	public void bulkMatchesIncremental() {
+		for (long seed = 0; seed < 10; seed++) {
+			Set<Tuple<Integer>> edges = randomEdges(seed);
+
+			Graph<Integer> incrementalGraph = new Graph<Integer>();
+			IncSCCAlg<Integer> incrementalAlg = new IncSCCAlg<Integer>(incrementalGraph);
+			insert(incrementalGraph, edges);
+
+			Graph<Integer> bulkGraph = new Graph<Integer>();
+			insert(bulkGraph, edges);
+			DFSAlg<Integer> dfsAlg = new DFSAlg<Integer>(bulkGraph);
+			IncSCCAlg<Integer> bulkAlg = new IncSCCAlg<Integer>(bulkGraph);
+
+			assertEquals(incrementalAlg.getTcRelation(), bulkAlg.getTcRelation());
+			assertTrue(bulkAlg.checkTcRelation(dfsAlg.getTcRelation()));
+
+			// the bulk constructed algorithm is maintained incrementally afterwards
+			for (Tuple<Integer> edge : edges) {
+				bulkGraph.deleteEdge(edge.getSource(), edge.getTarget());
+				assertTrue(bulkAlg.checkTcRelation(dfsAlg.getTcRelation()));
+			}
+		}
+	}
+
+	@Test
+	public void deepCycleConstructed() {
+		Graph<Integer> graph = new Graph<Integer>();
+		for (int i = 0; i < DEEP_NODE_COUNT; i++) {
+			graph.insertNode(i);
+		}
+		for (int i = 0; i < DEEP_NODE_COUNT; i++) {
+			graph.insertEdge(i, (i + 1) % DEEP_NODE_COUNT);
+		}
+		// a short tail keeps the reduced graph non-trivial
+		graph.insertNode(-1);
+		graph.insertEdge(-1, 0);
+
+		assertEquals(2, SCC.computeSCC(graph).getSCCCount());
+
+		IncSCCAlg<Integer> alg = new IncSCCAlg<Integer>(graph);
+		assertTrue(alg.isReachable(-1, DEEP_NODE_COUNT - 1));
+		assertTrue(alg.isReachable(DEEP_NODE_COUNT - 1, 0));
+		assertTrue(!alg.isReachable(0, -1));
+	}
+
+	@Test
+	public void deepPathSorted() {
+		Graph<Integer> graph = new Graph<Integer>();
+		for (int i = 0; i < DEEP_NODE_COUNT; i++) {
+			graph.insertNode(i);
+		}
+		for (int i = 0; i < DEEP_NODE_COUNT - 1; i++) {
+			graph.insertEdge(i, i + 1);
+		}
+
+		List<?> sorting = TopSort.getTopologicalSorting(graph);
+
+		assertEquals(DEEP_NODE_COUNT, sorting.size());
+		for (int i = 0; i < DEEP_NODE_COUNT; i++) {
+			assertEquals(i, sorting.get(i));
+		}
+	}
+
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Tamas Szabo, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Tamas Szabo - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.base.itc.incscc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.base.itc.alg.bitset.BitSetReachabilityAlg;
+import org.eclipse.incquery.runtime.base.itc.alg.incscc.IncSCCAlg;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.Tuple;
+import org.eclipse.incquery.runtime.base.itc.graphimpl.Graph;
+import org.eclipse.incquery.runtime.base.itc.igraph.ITcObserver;
+import org.junit.Test;
+
+/**
+ * Checks {@link IncSCCAlg} with the reachability between the SCCs stored in a {@link BitSetReachabilityAlg}: the
+ * relation and the notifications of the algorithm are compared with the closure computed by a breadth-first search
+ * from each node, while random edges are inserted and deleted.
+ * 
+ * @author Tamas Szabo
+ */
+public class IncSCCCompactReachabilityTestCase {
+
+	private static final int NODE_COUNT = 30;
+	private static final int EDGE_COUNT = 60;
+
+	/**
+	 * Maintains the relation from the notifications.
+	 */
+	private static class RelationObserver implements ITcObserver<Integer> {
+		final Set<Tuple<Integer>> relation = new HashSet<Tuple<Integer>>();
+
+		@Override
+		public void tupleInserted(Integer source, Integer target) {
+			assertTrue(relation.add(new Tuple<Integer>(source, target)));
+		}
+
+		@Override
+		public void tupleDeleted(Integer source, Integer target) {
+			assertTrue(relation.remove(new Tuple<Integer>(source, target)));
+		}
+	}
+
+	/**
+	 * @return the pairs of nodes connected by a path of at least one edge
+	 */
+	private static Set<Tuple<Integer>> computeClosure(Graph<Integer> graph) {
+		Set<Tuple<Integer>> closure = new HashSet<Tuple<Integer>>();
+		for (Integer source : graph.getAllNodes()) {
+			Set<Integer> visited = new HashSet<Integer>();
+			LinkedList<Integer> queue = new LinkedList<Integer>();
+			queue.add(source);
+			while (!queue.isEmpty()) {
+				List<Integer> targets = graph.getTargetNodes(queue.removeFirst());
+				if (targets != null) {
+					for (Integer target : targets) {
+						if (visited.add(target)) {
+							closure.add(new Tuple<Integer>(source, target));
+							queue.add(target);
+						}
+					}
+				}
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * @return a random edge between two different nodes
+	 */
+	private static Tuple<Integer> randomEdge(Random random) {
+		int source = random.nextInt(NODE_COUNT);
+		int target = random.nextInt(NODE_COUNT - 1);
+		return new Tuple<Integer>(source, target < source ? target : target + 1);
+	}
+
+	private static void checkRelation(Graph<Integer> graph, IncSCCAlg<Integer> alg, RelationObserver observer) {
+		Set<Tuple<Integer>> closure = computeClosure(graph);
+		assertEquals(closure, alg.getTcRelation());
+		assertEquals(closure, observer.relation);
+		for (Integer node : graph.getAllNodes()) {
+			for (Integer target : alg.getAllReachableTargets(node)) {
+				assertTrue(closure.contains(new Tuple<Integer>(node, target)));
+				assertTrue(alg.getAllReachableSources(target).contains(node));
+			}
+		}
+	}
+
+	@Test
+	public void randomEdgesMaintained() {
+		for (long seed = 0; seed < 10; seed++) {
+			Random random = new Random(seed);
+			Graph<Integer> graph = new Graph<Integer>();
+			IncSCCAlg<Integer> alg = new IncSCCAlg<Integer>(graph, true);
+			RelationObserver observer = new RelationObserver();
+			alg.attachObserver(observer);
+			for (int i = 0; i < NODE_COUNT; i++) {
+				graph.insertNode(i);
+			}
+
+			// parallel edges are inserted as well
+			List<Tuple<Integer>> edges = new ArrayList<Tuple<Integer>>();
+			for (int i = 0; i < EDGE_COUNT; i++) {
+				Tuple<Integer> edge = randomEdge(random);
+				edges.add(edge);
+				graph.insertEdge(edge.getSource(), edge.getTarget());
+				checkRelation(graph, alg, observer);
+			}
+			while (!edges.isEmpty()) {
+				Tuple<Integer> edge = edges.remove(random.nextInt(edges.size()));
+				graph.deleteEdge(edge.getSource(), edge.getTarget());
+				checkRelation(graph, alg, observer);
+			}
+			assertTrue(observer.relation.isEmpty());
+		}
+	}
+
+	@Test
+	public void initialGraphIndexed() {
+		for (long seed = 0; seed < 10; seed++) {
+			Random random = new Random(seed);
+			Graph<Integer> graph = new Graph<Integer>();
+			for (int i = 0; i < NODE_COUNT; i++) {
+				graph.insertNode(i);
+			}
+			for (int i = 0; i < EDGE_COUNT / 2; i++) {
+				Tuple<Integer> edge = randomEdge(random);
+				graph.insertEdge(edge.getSource(), edge.getTarget());
+			}
+			IncSCCAlg<Integer> alg = new IncSCCAlg<Integer>(graph, true);
+			assertEquals(computeClosure(graph), alg.getTcRelation());
+
+			RelationObserver observer = new RelationObserver();
+			observer.relation.addAll(alg.getTcRelation());
+			alg.attachObserver(observer);
+			for (int i = 0; i < EDGE_COUNT / 2; i++) {
+				Tuple<Integer> edge = randomEdge(random);
+				graph.insertEdge(edge.getSource(), edge.getTarget());
+				checkRelation(graph, alg, observer);
+			}
+		}
+	}
+
+	@Test
+	public void chainClosedAndCut() {
+		final int length = 200;
+		Graph<Integer> graph = new Graph<Integer>();
+		IncSCCAlg<Integer> alg = new IncSCCAlg<Integer>(graph, true);
+		for (int i = 0; i < length; i++) {
+			graph.insertNode(i);
+		}
+		for (int i = 0; i + 1 < length; i++) {
+			graph.insertEdge(i, i + 1);
+		}
+		assertTrue(alg.isReachable(0, length - 1));
+		assertEquals(length - 1, alg.getAllReachableTargets(0).size());
+		assertEquals(length * (length - 1) / 2, alg.getTcRelation().size());
+
+		graph.deleteEdge(length / 2 - 1, length / 2);
+		assertTrue(!alg.isReachable(0, length / 2));
+		assertEquals(length / 2 - 1, alg.getAllReachableTargets(0).size());
+		assertEquals(length / 2 - 1, alg.getAllReachableSources(length - 1).size());
+	}
+
+}
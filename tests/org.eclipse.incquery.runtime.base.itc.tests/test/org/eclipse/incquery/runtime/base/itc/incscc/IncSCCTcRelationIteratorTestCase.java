@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Tamas Szabo, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Tamas Szabo - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.incquery.runtime.base.itc.incscc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.base.itc.alg.incscc.IncSCCAlg;
+import org.eclipse.incquery.runtime.base.itc.alg.misc.Tuple;
+import org.eclipse.incquery.runtime.base.itc.graphimpl.Graph;
+import org.junit.Test;
+
+/**
+ * Compares the tuples enumerated by {@link IncSCCAlg#getTcRelationIterator()} with the closure computed by a
+ * breadth-first search from each node.
+ *
+ * @author Tamas Szabo
+ */
+public class IncSCCTcRelationIteratorTestCase {
+
+	private static final int NODE_COUNT = 30;
+	private static final int EDGE_COUNT = 45;
+
+	/**
+	 * @return the pairs of nodes connected by a path of at least one edge
+	 */
+	private static Set<Tuple<Integer>> computeClosure(Graph<Integer> graph) {
+		Set<Tuple<Integer>> closure = new HashSet<Tuple<Integer>>();
+		for (Integer source : graph.getAllNodes()) {
+			Set<Integer> visited = new HashSet<Integer>();
+			LinkedList<Integer> queue = new LinkedList<Integer>();
+			queue.add(source);
+			while (!queue.isEmpty()) {
+				List<Integer> targets = graph.getTargetNodes(queue.removeFirst());
+				if (targets != null) {
+					for (Integer target : targets) {
+						if (visited.add(target)) {
+							closure.add(new Tuple<Integer>(source, target));
+							queue.add(target);
+						}
+					}
+				}
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * Enumerates the iterator, checking that no tuple is returned twice.
+	 */
+	private static Set<Tuple<Integer>> iterate(IncSCCAlg<Integer> alg) {
+		Set<Tuple<Integer>> tuples = new HashSet<Tuple<Integer>>();
+		Iterator<Tuple<Integer>> iterator = alg.getTcRelationIterator();
+		while (iterator.hasNext()) {
+			Tuple<Integer> tuple = iterator.next();
+			if (!tuples.add(tuple)) {
+				fail("Duplicate tuple " + tuple);
+			}
+		}
+		return tuples;
+	}
+
+	@Test
+	public void randomGraphsEnumerated() {
+		for (long seed = 0; seed < 10; seed++) {
+			Random random = new Random(seed);
+			Graph<Integer> graph = new Graph<Integer>();
+			IncSCCAlg<Integer> alg = new IncSCCAlg<Integer>(graph);
+			for (int i = 0; i < NODE_COUNT; i++) {
+				graph.insertNode(i);
+			}
+
+			Set<Tuple<Integer>> edges = new HashSet<Tuple<Integer>>();
+			while (edges.size() < EDGE_COUNT) {
+				Tuple<Integer> edge = new Tuple<Integer>(random.nextInt(NODE_COUNT), random.nextInt(NODE_COUNT));
+				if (edges.add(edge)) {
+					graph.insertEdge(edge.getSource(), edge.getTarget());
+					assertEquals(computeClosure(graph), iterate(alg));
+				}
+			}
+			for (Tuple<Integer> edge : edges) {
+				graph.deleteEdge(edge.getSource(), edge.getTarget());
+				assertEquals(computeClosure(graph), iterate(alg));
+			}
+		}
+	}
+
+	@Test
+	public void selfLoopsEnumerated() {
+		Graph<Integer> graph = new Graph<Integer>();
+		for (int i = 0; i < 3; i++) {
+			graph.insertNode(i);
+		}
+		graph.insertEdge(0, 0);
+		graph.insertEdge(0, 1);
+		IncSCCAlg<Integer> alg = new IncSCCAlg<Integer>(graph);
+
+		Set<Tuple<Integer>> expected = new HashSet<Tuple<Integer>>();
+		expected.add(new Tuple<Integer>(0, 0));
+		expected.add(new Tuple<Integer>(0, 1));
+		assertEquals(expected, iterate(alg));
+		assertEquals(expected, alg.getTcRelation());
+	}
+
+	@Test
+	public void emptyRelationEnumerated() {
+		Graph<Integer> graph = new Graph<Integer>();
+		graph.insertNode(0);
+		IncSCCAlg<Integer> alg = new IncSCCAlg<Integer>(graph);
+
+		Iterator<Tuple<Integer>> iterator = alg.getTcRelationIterator();
+		assertFalse(iterator.hasNext());
+		try {
+			iterator.next();
+			fail("Exhausted iterator returned an element");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void removalUnsupported() {
+		Graph<Integer> graph = new Graph<Integer>();
+		graph.insertNode(0);
+		graph.insertNode(1);
+		graph.insertEdge(0, 1);
+		IncSCCAlg<Integer> alg = new IncSCCAlg<Integer>(graph);
+
+		Iterator<Tuple<Integer>> iterator = alg.getTcRelationIterator();
+		iterator.next();
+		iterator.remove();
+	}
+
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.incquery.runtime.base.core.CompactMap;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+
+/**
+ * Compares {@link CompactMap} with a {@link HashMap} below, at and beyond the size where it switches from array to hash
+ * based storage, both directly and as the rows of a table.
+ *
+ * @author Gabor Bergmann
+ */
+public class CompactMapTest {
+
+    private static CompactMap<Integer, String> filled(int count) {
+        CompactMap<Integer, String> map = new CompactMap<Integer, String>();
+        for (int i = 0; i < count; i++) {
+            assertNull(map.put(i, "v" + i));
+        }
+        return map;
+    }
+
+    private static Map<Integer, String> expected(int count) {
+        Map<Integer, String> expected = new HashMap<Integer, String>();
+        for (int i = 0; i < count; i++) {
+            expected.put(i, "v" + i);
+        }
+        return expected;
+    }
+
+    /**
+     * Checks the size, the lookup and the iteration of the map.
+     */
+    private static void assertContents(Map<Integer, String> expected, CompactMap<Integer, String> map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.isEmpty(), map.isEmpty());
+        for (Entry<Integer, String> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Map<Integer, String> iterated = new HashMap<Integer, String>();
+        for (Entry<Integer, String> entry : map.entrySet()) {
+            assertNull("Duplicate key " + entry.getKey(), iterated.put(entry.getKey(), entry.getValue()));
+        }
+        assertEquals(expected, iterated);
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    @Test
+    public void storageSwitchedBeyondArrayLimit() {
+        CompactMap<Integer, String> map = new CompactMap<Integer, String>();
+        for (int i = 0; i <= CompactMap.ARRAY_LIMIT + 1; i++) {
+            assertContents(expected(i), map);
+            assertFalse(map.containsKey(i));
+            assertNull(map.put(i, "v" + i));
+            assertEquals("v" + i, map.put(i, "v" + i));
+        }
+        assertContents(expected(CompactMap.ARRAY_LIMIT + 2), map);
+    }
+
+    @Test
+    public void valuesReplaced() {
+        for (int count : new int[] { CompactMap.ARRAY_LIMIT, CompactMap.ARRAY_LIMIT + 1 }) {
+            CompactMap<Integer, String> map = filled(count);
+            Map<Integer, String> expected = expected(count);
+            assertEquals("v0", map.put(0, "w0"));
+            expected.put(0, "w0");
+            for (Entry<Integer, String> entry : map.entrySet()) {
+                if (entry.getKey() == 1) {
+                    assertEquals("v1", entry.setValue("w1"));
+                }
+            }
+            expected.put(1, "w1");
+            assertContents(expected, map);
+        }
+    }
+
+    @Test
+    public void removedFromArrayAndHashMap() {
+        for (int count : new int[] { CompactMap.ARRAY_LIMIT, CompactMap.ARRAY_LIMIT + 1 }) {
+            CompactMap<Integer, String> map = filled(count);
+            Map<Integer, String> expected = expected(count);
+
+            for (Integer removed : new Integer[] { 0, count / 2, count - 1 }) {
+                assertEquals("v" + removed, map.remove(removed));
+                assertNull(map.remove(removed));
+                expected.remove(removed);
+                assertContents(expected, map);
+            }
+            map.clear();
+            assertContents(new HashMap<Integer, String>(), map);
+        }
+    }
+
+    @Test
+    public void removedByIterator() {
+        for (int count : new int[] { CompactMap.ARRAY_LIMIT, CompactMap.ARRAY_LIMIT + 1 }) {
+            CompactMap<Integer, String> map = filled(count);
+            Map<Integer, String> expected = expected(count);
+
+            // removing every even key moves later entries to the removed positions
+            Iterator<Integer> iterator = map.keySet().iterator();
+            int visited = 0;
+            while (iterator.hasNext()) {
+                Integer key = iterator.next();
+                visited++;
+                if (key % 2 == 0) {
+                    iterator.remove();
+                    expected.remove(key);
+                }
+            }
+            assertEquals(count, visited);
+            assertContents(expected, map);
+        }
+    }
+
+    @Test
+    public void storageSwitchDetectedByIterator() {
+        CompactMap<Integer, String> map = filled(CompactMap.ARRAY_LIMIT);
+        Iterator<Entry<Integer, String>> iterator = map.entrySet().iterator();
+        Entry<Integer, String> entry = iterator.next();
+        // the remaining entries are moved to a hash map
+        map.put(CompactMap.ARRAY_LIMIT, "v");
+        try {
+            iterator.hasNext();
+            fail("Iteration ended silently after the storage switch");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+        try {
+            entry.setValue("w");
+            fail("Value set in a stale entry");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void nullRejected() {
+        CompactMap<Integer, String> map = filled(1);
+        assertFalse(map.containsKey(null));
+        assertNull(map.get(null));
+        assertNull(map.remove(null));
+        try {
+            map.put(null, "v");
+            fail("Null key added");
+        } catch (NullPointerException e) {
+            // expected
+        }
+        try {
+            map.put(2, null);
+            fail("Null value added");
+        } catch (NullPointerException e) {
+            // expected
+        }
+        assertContents(expected(1), map);
+    }
+
+    @Test
+    public void rowsOfTable() {
+        Table<Integer, Integer, String> table = Tables.newCustomTable(new HashMap<Integer, Map<Integer, String>>(),
+                new Supplier<Map<Integer, String>>() {
+                    @Override
+                    public Map<Integer, String> get() {
+                        return new CompactMap<Integer, String>();
+                    }
+                });
+        Table<Integer, Integer, String> expected = HashBasedTable.create();
+        for (int row = 0; row < 4; row++) {
+            // rows below, at and beyond the array limit
+            for (int column = 0; column < CompactMap.ARRAY_LIMIT * row / 2 + 1; column++) {
+                table.put(row, column, row + ":" + column);
+                expected.put(row, column, row + ":" + column);
+            }
+        }
+        assertEquals(expected, table);
+        assertEquals(expected.column(1), table.column(1));
+
+        for (int row = 0; row < 4; row++) {
+            table.remove(row, 0);
+            expected.remove(row, 0);
+        }
+        // the emptied first row is removed
+        assertFalse(table.containsRow(0));
+        assertEquals(expected, table);
+        table.column(1).clear();
+        expected.column(1).clear();
+        assertEquals(expected, table);
+        assertEquals(expected.rowKeySet(), table.rowKeySet());
+    }
+
+}
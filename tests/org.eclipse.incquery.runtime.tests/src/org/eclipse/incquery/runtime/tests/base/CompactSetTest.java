@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.base.core.CompactSet;
+import org.junit.Test;
+
+/**
+ * Compares {@link CompactSet} with a {@link HashSet} below, at and beyond the size where it switches from array to hash
+ * based storage.
+ *
+ * @author Gabor Bergmann
+ */
+public class CompactSetTest {
+
+    private static CompactSet<Integer> filled(int count) {
+        CompactSet<Integer> set = new CompactSet<Integer>();
+        for (int i = 0; i < count; i++) {
+            assertTrue(set.add(i));
+        }
+        return set;
+    }
+
+    private static Set<Integer> expected(int count) {
+        Set<Integer> expected = new HashSet<Integer>();
+        for (int i = 0; i < count; i++) {
+            expected.add(i);
+        }
+        return expected;
+    }
+
+    /**
+     * Checks the size, the lookup and the iteration of the set.
+     */
+    private static void assertContents(Set<Integer> expected, CompactSet<Integer> set) {
+        assertEquals(expected.size(), set.size());
+        for (Integer element : expected) {
+            assertTrue(set.contains(element));
+        }
+        Set<Integer> iterated = new HashSet<Integer>();
+        for (Integer element : set) {
+            assertTrue("Duplicate element " + element, iterated.add(element));
+        }
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void storageSwitchedBeyondArrayLimit() {
+        CompactSet<Integer> set = new CompactSet<Integer>();
+        for (int i = 0; i <= CompactSet.ARRAY_LIMIT + 1; i++) {
+            assertContents(expected(i), set);
+            assertFalse(set.contains(i));
+            assertTrue(set.add(i));
+            assertFalse(set.add(i));
+        }
+        assertContents(expected(CompactSet.ARRAY_LIMIT + 2), set);
+    }
+
+    @Test
+    public void firstMiddleAndLastRemovedFromArray() {
+        CompactSet<Integer> set = filled(CompactSet.ARRAY_LIMIT);
+        Set<Integer> expected = expected(CompactSet.ARRAY_LIMIT);
+
+        for (Integer removed : new Integer[] { 0, CompactSet.ARRAY_LIMIT / 2, CompactSet.ARRAY_LIMIT - 1 }) {
+            assertTrue(set.remove(removed));
+            assertFalse(set.remove(removed));
+            expected.remove(removed);
+            assertContents(expected, set);
+        }
+        // the freed positions are reused
+        assertTrue(set.add(CompactSet.ARRAY_LIMIT));
+        expected.add(CompactSet.ARRAY_LIMIT);
+        assertContents(expected, set);
+    }
+
+    @Test
+    public void removedFromHashSet() {
+        CompactSet<Integer> set = filled(CompactSet.ARRAY_LIMIT + 1);
+        Set<Integer> expected = expected(CompactSet.ARRAY_LIMIT + 1);
+
+        for (int i = 0; i < CompactSet.ARRAY_LIMIT; i++) {
+            assertTrue(set.remove(i));
+            expected.remove(i);
+            assertContents(expected, set);
+        }
+        assertTrue(set.add(0));
+        expected.add(0);
+        assertContents(expected, set);
+    }
+
+    @Test
+    public void clearedBackToArray() {
+        CompactSet<Integer> set = filled(CompactSet.ARRAY_LIMIT + 1);
+        set.clear();
+        assertContents(new HashSet<Integer>(), set);
+
+        set.add(1);
+        Iterator<Integer> iterator = set.iterator();
+        iterator.next();
+        set.add(2);
+        try {
+            iterator.next();
+            fail("Array based iterator did not detect modification");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void removedByIterator() {
+        for (int count : new int[] { CompactSet.ARRAY_LIMIT, CompactSet.ARRAY_LIMIT + 1 }) {
+            CompactSet<Integer> set = filled(count);
+            Set<Integer> expected = expected(count);
+
+            // removing every even element moves later elements to the removed positions
+            Set<Integer> visited = new HashSet<Integer>();
+            Iterator<Integer> iterator = set.iterator();
+            while (iterator.hasNext()) {
+                Integer element = iterator.next();
+                assertTrue("Duplicate element " + element, visited.add(element));
+                if (element % 2 == 0) {
+                    iterator.remove();
+                    expected.remove(element);
+                }
+            }
+            assertEquals(expected(count), visited);
+            assertContents(expected, set);
+        }
+    }
+
+    @Test
+    public void iteratorRemovalRejected() {
+        CompactSet<Integer> set = filled(2);
+        Iterator<Integer> iterator = set.iterator();
+        try {
+            iterator.remove();
+            fail("Removed before next");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        iterator.next();
+        iterator.remove();
+        try {
+            iterator.remove();
+            fail("Removed twice");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        iterator.next();
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("Exhausted iterator returned an element");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void concurrentModificationDetected() {
+        CompactSet<Integer> set = filled(3);
+        Iterator<Integer> iterator = set.iterator();
+        iterator.next();
+        set.remove(2);
+        try {
+            iterator.next();
+            fail("Modification not detected");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void storageSwitchDetectedByIterator() {
+        CompactSet<Integer> set = filled(CompactSet.ARRAY_LIMIT);
+        Iterator<Integer> iterator = set.iterator();
+        iterator.next();
+        // the remaining elements are moved to a hash set
+        set.add(CompactSet.ARRAY_LIMIT);
+        try {
+            iterator.hasNext();
+            fail("Iteration ended silently after the storage switch");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void nullRejected() {
+        CompactSet<Integer> set = filled(1);
+        assertFalse(set.contains(null));
+        assertFalse(set.remove(null));
+        try {
+            set.add(null);
+            fail("Null element added");
+        } catch (NullPointerException e) {
+            // expected
+        }
+        assertContents(expected(1), set);
+    }
+
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.impl.DynamicEObjectImpl;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.base.api.BaseIndexOptions;
+import org.eclipse.incquery.runtime.base.api.IncQueryBaseFactory;
+import org.eclipse.incquery.runtime.base.api.IndexingProfile;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that derived features that can only be sampled are not indexed as {@link IndexingProfile#COUNT_ONLY}, so
+ * they can be resampled.
+ *
+ * @author Gabor Bergmann
+ */
+public class NavigationHelperIndexingProfileTest {
+
+    /**
+     * Indexes derived features that are not well-behaving, counting the values of all features by default.
+     */
+    private static final class SamplingOptions extends BaseIndexOptions {
+
+        SamplingOptions() {
+            this.traverseOnlyWellBehavingDerivedFeatures = false;
+            setDefaultIndexingProfile(IndexingProfile.COUNT_ONLY);
+        }
+    }
+
+    /**
+     * Returns the current value of {@link #label} for the derived feature, without notifications.
+     */
+    private class SampledNode extends DynamicEObjectImpl {
+
+        SampledNode(EClass eClass) {
+            super(eClass);
+        }
+
+        @Override
+        public Object eGet(EStructuralFeature feature, boolean resolve) {
+            if (feature == derived) {
+                return label;
+            }
+            return super.eGet(feature, resolve);
+        }
+    }
+
+    private EAttribute name;
+    private EAttribute derived;
+    private String label = "a";
+    private SampledNode instance;
+    private NavigationHelper navigationHelper;
+
+    @Before
+    public void setUp() throws Exception {
+        EcoreFactory factory = EcoreFactory.eINSTANCE;
+        EPackage ePackage = factory.createEPackage();
+        ePackage.setName("p");
+        ePackage.setNsURI("http://indexing.profile/test");
+        EClass node = factory.createEClass();
+        node.setName("Node");
+        name = factory.createEAttribute();
+        name.setName("name");
+        name.setEType(EcorePackage.Literals.ESTRING);
+        derived = factory.createEAttribute();
+        derived.setName("derived");
+        derived.setEType(EcorePackage.Literals.ESTRING);
+        derived.setDerived(true);
+        derived.setVolatile(true);
+        derived.setTransient(true);
+        derived.setChangeable(false);
+        node.getEStructuralFeatures().add(name);
+        node.getEStructuralFeatures().add(derived);
+        ePackage.getEClassifiers().add(node);
+
+        Resource resource = new ResourceSetImpl().createResource(URI.createURI("dummy:/model"));
+        instance = new SampledNode(node);
+        instance.eSet(name, "n");
+        resource.getContents().add(instance);
+
+        navigationHelper = IncQueryBaseFactory.getInstance().createNavigationHelper(resource, new SamplingOptions(),
+                Logger.getLogger(getClass()));
+        Set<EStructuralFeature> features = new HashSet<EStructuralFeature>();
+        features.add(name);
+        features.add(derived);
+        navigationHelper.registerEStructuralFeatures(features);
+    }
+
+    @After
+    public void tearDown() {
+        navigationHelper.dispose();
+    }
+
+    @Test
+    public void sampledFeatureIndexedForward() {
+        assertEquals(IndexingProfile.COUNT_ONLY, navigationHelper.getIndexingProfile(name));
+        assertEquals(IndexingProfile.FORWARD_ONLY, navigationHelper.getIndexingProfile(derived));
+        assertEquals(Collections.<Object> singleton("a"), navigationHelper.getFeatureTargets(instance, derived));
+    }
+
+    @Test
+    public void sampledFeatureResampled() {
+        label = "b";
+        navigationHelper.resampleDerivedFeatures();
+
+        assertEquals(Collections.<Object> singleton("b"), navigationHelper.getFeatureTargets(instance, derived));
+        assertTrue(navigationHelper.findByAttributeValue("a", derived).isEmpty());
+        assertEquals(Collections.singleton(instance), navigationHelper.findByAttributeValue("b", derived));
+        assertEquals(1, navigationHelper.countHoldersOfFeature(derived));
+    }
+
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.impl.DynamicEObjectImpl;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.base.api.BaseIndexOptions;
+import org.eclipse.incquery.runtime.base.api.IncQueryBaseFactory;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.eclipse.incquery.runtime.base.comprehension.WellbehavingDerivedFeatureRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Indexes a model of several resources with a parallel traversal, checking that derived features are only computed on
+ * the calling thread.
+ *
+ * @author Gabor Bergmann
+ */
+public class NavigationHelperParallelTraversalTest {
+
+    private static final int RESOURCE_COUNT = 10;
+    private static final int NODES_PER_RESOURCE = 5;
+
+    private EClass node;
+    private EAttribute name;
+    private EAttribute label;
+    private ResourceSet resourceSet;
+    private NavigationHelper navigationHelper;
+    /**
+     * The threads that computed the derived feature
+     */
+    private final Set<Thread> derivingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+
+    @Before
+    public void setUp() {
+        EcoreFactory factory = EcoreFactory.eINSTANCE;
+        EPackage ePackage = factory.createEPackage();
+        ePackage.setName("p");
+        ePackage.setNsURI("http://parallel.traversal/test");
+        node = factory.createEClass();
+        node.setName("Node");
+        name = factory.createEAttribute();
+        name.setName("name");
+        name.setEType(EcorePackage.Literals.ESTRING);
+        label = factory.createEAttribute();
+        label.setName("label");
+        label.setEType(EcorePackage.Literals.ESTRING);
+        label.setDerived(true);
+        label.setVolatile(true);
+        label.setTransient(true);
+        label.setChangeable(false);
+        node.getEStructuralFeatures().add(name);
+        node.getEStructuralFeatures().add(label);
+        ePackage.getEClassifiers().add(node);
+        WellbehavingDerivedFeatureRegistry.registerWellbehavingDerivedFeature(label);
+
+        resourceSet = new ResourceSetImpl();
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            Resource resource = resourceSet.createResource(URI.createURI("dummy:/model" + i));
+            for (int j = 0; j < NODES_PER_RESOURCE; j++) {
+                EObject instance = new DerivingNode(node);
+                instance.eSet(name, "n" + i + "_" + j);
+                resource.getContents().add(instance);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (navigationHelper != null) {
+            navigationHelper.dispose();
+        }
+        WellbehavingDerivedFeatureRegistry.getContributedWellbehavingDerivedFeatures().remove(label);
+    }
+
+    /**
+     * Computes the label from the name, recording the computing thread.
+     */
+    private class DerivingNode extends DynamicEObjectImpl {
+
+        DerivingNode(EClass eClass) {
+            super(eClass);
+        }
+
+        @Override
+        public Object eGet(EStructuralFeature feature, boolean resolve) {
+            if (feature == label) {
+                derivingThreads.add(Thread.currentThread());
+                return ((String) eGet(name, resolve)).toUpperCase();
+            }
+            return super.eGet(feature, resolve);
+        }
+    }
+
+    @Test
+    public void derivedFeaturesComputedOnCallingThread() throws Exception {
+        BaseIndexOptions options = new BaseIndexOptions();
+        options.setTraversalThreadCount(2);
+        navigationHelper = IncQueryBaseFactory.getInstance().createNavigationHelper(resourceSet, options,
+                Logger.getLogger(getClass()));
+        Set<EStructuralFeature> features = new HashSet<EStructuralFeature>();
+        features.add(name);
+        features.add(label);
+        navigationHelper.registerEStructuralFeatures(features);
+
+        assertEquals(Collections.singleton(Thread.currentThread()), derivingThreads);
+        for (Resource resource : resourceSet.getResources()) {
+            for (EObject instance : resource.getContents()) {
+                String instanceName = (String) instance.eGet(name);
+                assertEquals(Collections.singleton(instance),
+                        navigationHelper.findByAttributeValue(instanceName, name));
+                assertEquals(Collections.singleton(instance),
+                        navigationHelper.findByAttributeValue(instanceName.toUpperCase(), label));
+            }
+        }
+    }
+
+    @Test
+    public void parallelTraversalMatchesSequential() throws Exception {
+        navigationHelper = IncQueryBaseFactory.getInstance().createNavigationHelper(resourceSet, new BaseIndexOptions(),
+                Logger.getLogger(getClass()));
+        navigationHelper.registerEClasses(Collections.singleton(node));
+        Set<EObject> sequential = new HashSet<EObject>(navigationHelper.getAllInstances(node));
+        navigationHelper.dispose();
+
+        BaseIndexOptions options = new BaseIndexOptions();
+        options.setTraversalThreadCount(3);
+        navigationHelper = IncQueryBaseFactory.getInstance().createNavigationHelper(resourceSet, options,
+                Logger.getLogger(getClass()));
+        navigationHelper.registerEClasses(Collections.singleton(node));
+
+        assertEquals(RESOURCE_COUNT * NODES_PER_RESOURCE, sequential.size());
+        assertEquals(sequential, navigationHelper.getAllInstances(node));
+    }
+
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.incquery.runtime.base.api.BaseIndexOptions;
+import org.eclipse.incquery.runtime.base.api.IncQueryBaseFactory;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Writes a snapshot of the base index of a model file and warm-starts a new index of the reloaded model from it.
+ *
+ * @author Gabor Bergmann
+ */
+public class NavigationHelperSnapshotTest {
+
+    private static final EClass ECLASS = EcorePackage.Literals.ECLASS;
+    private static final Set<EStructuralFeature> FEATURES = new HashSet<EStructuralFeature>();
+    static {
+        FEATURES.add(EcorePackage.Literals.ENAMED_ELEMENT__NAME);
+        FEATURES.add(EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        FEATURES.add(EcorePackage.Literals.EPACKAGE__ECLASSIFIERS);
+    }
+
+    private File modelFile;
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws Exception {
+        modelFile = File.createTempFile("model", ".xmi");
+        snapshotFile = File.createTempFile("model", ".snapshot");
+
+        EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        EClass a = EcoreFactory.eINSTANCE.createEClass();
+        a.setName("A");
+        EClass b = EcoreFactory.eINSTANCE.createEClass();
+        b.setName("B");
+        b.getESuperTypes().add(a);
+        ePackage.getEClassifiers().add(a);
+        ePackage.getEClassifiers().add(b);
+        Resource resource = newResourceSet().createResource(URI.createFileURI(modelFile.getAbsolutePath()));
+        resource.getContents().add(ePackage);
+        resource.save(null);
+    }
+
+    @After
+    public void tearDown() {
+        modelFile.delete();
+        snapshotFile.delete();
+    }
+
+    private ResourceSet newResourceSet() {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
+        return resourceSet;
+    }
+
+    private Resource load(ResourceSet resourceSet) {
+        return resourceSet.getResource(URI.createFileURI(modelFile.getAbsolutePath()), true);
+    }
+
+    private NavigationHelper createIndex(ResourceSet resourceSet, File snapshot) throws Exception {
+        BaseIndexOptions options = new BaseIndexOptions();
+        options.setWarmStartSnapshot(snapshot);
+        NavigationHelper navigationHelper = IncQueryBaseFactory.getInstance().createNavigationHelper(resourceSet,
+                options, Logger.getLogger(getClass()));
+        navigationHelper.registerEClasses(Collections.singleton(ECLASS));
+        navigationHelper.registerEStructuralFeatures(FEATURES);
+        return navigationHelper;
+    }
+
+    private EClass findClass(Resource resource, String name) {
+        return (EClass) ((EPackage) resource.getContents().get(0)).getEClassifier(name);
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        ResourceSet original = newResourceSet();
+        load(original);
+        NavigationHelper coldIndex = createIndex(original, null);
+        coldIndex.saveSnapshot(snapshotFile);
+        coldIndex.dispose();
+        assertTrue(snapshotFile.length() > 0);
+
+        ResourceSet reloaded = newResourceSet();
+        Resource resource = load(reloaded);
+        NavigationHelper warmIndex = createIndex(reloaded, snapshotFile);
+        EClass a = findClass(resource, "A");
+        EClass b = findClass(resource, "B");
+
+        assertEquals(new HashSet<EObject>(resource.getContents().get(0).eContents()),
+                warmIndex.getAllInstances(ECLASS));
+        assertEquals(Collections.<EObject> singleton(a),
+                warmIndex.getReferenceValues(b, EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        assertEquals(Collections.<EObject> singleton(b),
+                warmIndex.getInverseReferences(a, EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        assertEquals(Collections.<EObject> singleton(b),
+                warmIndex.findByAttributeValue("B", EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+
+        // the warm-started index is maintained incrementally as usual
+        b.getESuperTypes().clear();
+        assertTrue(warmIndex.getInverseReferences(a, EcorePackage.Literals.ECLASS__ESUPER_TYPES).isEmpty());
+        warmIndex.dispose();
+    }
+
+    @Test
+    public void outdatedSectionTraversed() throws Exception {
+        ResourceSet original = newResourceSet();
+        load(original);
+        NavigationHelper coldIndex = createIndex(original, null);
+        coldIndex.saveSnapshot(snapshotFile);
+        coldIndex.dispose();
+
+        ResourceSet reloaded = newResourceSet();
+        Resource resource = load(reloaded);
+        EClass a = findClass(resource, "A");
+        EClass b = findClass(resource, "B");
+        b.getESuperTypes().clear();
+        resource.setTimeStamp(resource.getTimeStamp() + 1);
+
+        NavigationHelper warmIndex = createIndex(reloaded, snapshotFile);
+        assertTrue(warmIndex.getInverseReferences(a, EcorePackage.Literals.ECLASS__ESUPER_TYPES).isEmpty());
+        warmIndex.dispose();
+    }
+
+    @Test
+    public void unreadableSnapshotIgnored() throws Exception {
+        ResourceSet resourceSet = newResourceSet();
+        Resource resource = load(resourceSet);
+        // the empty temp file is not a snapshot
+        NavigationHelper index = createIndex(resourceSet, snapshotFile);
+        assertEquals(Collections.<EObject> singleton(findClass(resource, "B")),
+                index.findByAttributeValue("B", EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+        index.dispose();
+    }
+
+}
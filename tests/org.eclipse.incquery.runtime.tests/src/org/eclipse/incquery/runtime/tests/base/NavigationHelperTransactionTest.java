@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.incquery.runtime.base.api.FeatureListener;
+import org.eclipse.incquery.runtime.base.api.IncQueryBaseFactory;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the buffering of feature value changes between {@link NavigationHelper#beginTransaction()} and
+ * {@link NavigationHelper#commitTransaction()}.
+ *
+ * @author Gabor Bergmann
+ */
+public class NavigationHelperTransactionTest {
+
+    private final EAttribute name = EcorePackage.Literals.ENAMED_ELEMENT__NAME;
+    private final List<String> events = new ArrayList<String>();
+
+    private EClass eClass;
+    private NavigationHelper navigationHelper;
+
+    @Before
+    public void setUp() throws Exception {
+        EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        eClass = EcoreFactory.eINSTANCE.createEClass();
+        eClass.setName("A");
+        ePackage.getEClassifiers().add(eClass);
+
+        navigationHelper = IncQueryBaseFactory.getInstance().createNavigationHelper(ePackage, false,
+                Logger.getLogger(getClass()));
+        navigationHelper.registerEStructuralFeatures(Collections.singleton(name));
+        navigationHelper.addFeatureListener(Collections.singleton(name), new FeatureListener() {
+            @Override
+            public void featureInserted(EObject host, EStructuralFeature feature, Object value) {
+                events.add("+" + value);
+            }
+
+            @Override
+            public void featureDeleted(EObject host, EStructuralFeature feature, Object value) {
+                events.add("-" + value);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        navigationHelper.dispose();
+    }
+
+    @Test
+    public void changesDeliveredOnCommit() {
+        navigationHelper.beginTransaction();
+        eClass.setName("B");
+        assertTrue(events.isEmpty());
+        assertEquals(Collections.singleton(eClass), navigationHelper.findByAttributeValue("A", name));
+
+        navigationHelper.commitTransaction();
+        assertEquals(2, events.size());
+        assertTrue(events.contains("-A"));
+        assertTrue(events.contains("+B"));
+        assertTrue(navigationHelper.findByAttributeValue("A", name).isEmpty());
+        assertEquals(Collections.singleton(eClass), navigationHelper.findByAttributeValue("B", name));
+    }
+
+    @Test
+    public void oppositeChangesCancelOut() {
+        navigationHelper.beginTransaction();
+        eClass.setName("B");
+        eClass.setName("A");
+        navigationHelper.commitTransaction();
+
+        assertTrue(events.isEmpty());
+        assertEquals(Collections.singleton(eClass), navigationHelper.findByAttributeValue("A", name));
+    }
+
+    @Test
+    public void onlyOutermostCommitFlushes() {
+        navigationHelper.beginTransaction();
+        navigationHelper.beginTransaction();
+        eClass.setName("B");
+        navigationHelper.commitTransaction();
+        assertTrue(events.isEmpty());
+
+        navigationHelper.commitTransaction();
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void changesOutsideTransactionsDeliveredImmediately() {
+        eClass.setName("B");
+        assertEquals(2, events.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void commitWithoutTransactionFails() {
+        navigationHelper.commitTransaction();
+    }
+
+}
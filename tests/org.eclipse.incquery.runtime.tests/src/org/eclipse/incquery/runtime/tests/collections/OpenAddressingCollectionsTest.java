@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Istvan Rath - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.rete.collections.OpenAddressingHashMap;
+import org.eclipse.incquery.runtime.rete.collections.OpenAddressingHashSet;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OpenAddressingHashMap} and {@link OpenAddressingHashSet}, comparing them against the
+ * {@link java.util} implementations under random insert/remove churn.
+ *
+ * @author istvanrath
+ *
+ */
+public class OpenAddressingCollectionsTest {
+
+    private static final int OPERATIONS = 200000;
+    private static final int KEY_RANGE = 5000;
+
+    /**
+     * Key with deliberately poor hash distribution, so that long probe sequences and wrap-around are exercised.
+     */
+    private static final class CollidingKey {
+        private final int id;
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 7;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CollidingKey && ((CollidingKey) obj).id == id;
+        }
+    }
+
+    @Test
+    public void testMapRandomChurn() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        Map<Integer, Integer> actual = new OpenAddressingHashMap<Integer, Integer>();
+        for (int i = 0; i < OPERATIONS; ++i) {
+            Integer key = random.nextInt(KEY_RANGE);
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, i), actual.put(key, i));
+            } else {
+                assertEquals(expected.remove(key), actual.remove(key));
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testSetRandomChurn() {
+        Random random = new Random(42);
+        Set<Integer> expected = new HashSet<Integer>();
+        Set<Integer> actual = new OpenAddressingHashSet<Integer>();
+        for (int i = 0; i < OPERATIONS; ++i) {
+            Integer element = random.nextInt(KEY_RANGE);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(element), actual.add(element));
+            } else {
+                assertEquals(expected.remove(element), actual.remove(element));
+            }
+        }
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testNullKeysAndValues() {
+        Map<Object, Object> map = new OpenAddressingHashMap<Object, Object>();
+        assertNull(map.put(null, "a"));
+        assertNull(map.put("b", null));
+        assertTrue(map.containsKey(null));
+        assertTrue(map.containsKey("b"));
+        assertTrue(map.containsValue(null));
+        assertEquals("a", map.remove(null));
+        assertFalse(map.containsKey(null));
+
+        Set<Object> set = new OpenAddressingHashSet<Object>();
+        assertTrue(set.add(null));
+        assertFalse(set.add(null));
+        assertTrue(set.contains(null));
+        assertTrue(set.remove(null));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testIteratorRemoveWithCollisions() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; ++round) {
+            Set<CollidingKey> expected = new HashSet<CollidingKey>();
+            Set<CollidingKey> actual = new OpenAddressingHashSet<CollidingKey>();
+            Map<CollidingKey, Integer> actualMap = new OpenAddressingHashMap<CollidingKey, Integer>();
+            for (int i = 0; i < 200; ++i) {
+                CollidingKey key = new CollidingKey(random.nextInt(1000));
+                expected.add(key);
+                actual.add(key);
+                actualMap.put(key, key.id);
+            }
+
+            Set<CollidingKey> original = new HashSet<CollidingKey>(expected);
+            Set<CollidingKey> seen = new HashSet<CollidingKey>();
+            for (Iterator<CollidingKey> it = actual.iterator(); it.hasNext();) {
+                CollidingKey key = it.next();
+                assertTrue(seen.add(key));
+                if (random.nextBoolean()) {
+                    it.remove();
+                    expected.remove(key);
+                }
+            }
+            assertEquals(original, seen);
+            assertEquals(expected, actual);
+
+            seen.clear();
+            for (Iterator<Map.Entry<CollidingKey, Integer>> it = actualMap.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<CollidingKey, Integer> entry = it.next();
+                assertTrue(seen.add(entry.getKey()));
+                assertEquals(entry.getKey().id, entry.getValue().intValue());
+                if (!expected.contains(entry.getKey()))
+                    it.remove();
+            }
+            assertEquals(original, seen);
+            assertEquals(expected, actualMap.keySet());
+        }
+    }
+
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.base.api.IncQueryBaseIndexChangeListener;
+import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.Context;
+import org.eclipse.incquery.runtime.evm.api.ExecutionSchema;
+import org.eclipse.incquery.runtime.evm.api.Job;
+import org.eclipse.incquery.runtime.evm.api.ParallelExecutor;
+import org.eclipse.incquery.runtime.evm.api.RuleSpecification;
+import org.eclipse.incquery.runtime.evm.api.TwoPhaseJob;
+import org.eclipse.incquery.runtime.evm.specific.ExecutionSchemas;
+import org.eclipse.incquery.runtime.evm.specific.Lifecycles;
+import org.eclipse.incquery.runtime.evm.specific.Rules;
+import org.eclipse.incquery.runtime.evm.specific.Schedulers;
+import org.eclipse.incquery.runtime.evm.specific.event.IncQueryActivationStateEnum;
+import org.eclipse.incquery.runtime.rete.util.Options;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Checks that in {@link Options#concurrentMatchAccess} mode, match retrieval on other threads neither observes
+ * partially propagated model changes nor deadlocks with base index change listeners or a {@link ParallelExecutor}
+ * scheduled at the end of the model changes, which wait for matches retrieved on worker threads.
+ *
+ * @author Gabor Bergmann
+ */
+public class ConcurrentMatchAccessTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern eClass(c : EClass) { EClass(c); }\n";
+
+    private static final int CHANGE_COUNT = 20;
+    private static final int TIMEOUT_SECONDS = 30;
+
+    /**
+     * Retrieves the matches on the worker thread; the effect records their number.
+     */
+    private class CountingJob<Match extends IPatternMatch> extends TwoPhaseJob<Match> {
+
+        CountingJob() {
+            super(IncQueryActivationStateEnum.APPEARED);
+        }
+
+        @Override
+        protected Runnable prepare(Activation<? extends Match> activation, Context context) {
+            final int count = matcher.countMatches();
+            return new Runnable() {
+                @Override
+                public void run() {
+                    observedByJobs.add(count);
+                }
+            };
+        }
+
+        @Override
+        protected void handleError(Activation<? extends Match> activation, Exception exception, Context context) {
+            errors.add(exception);
+        }
+    }
+
+    /**
+     * Retrieves the matches on a worker thread and waits for the result, as a scheduler firing on the worker threads
+     * would.
+     */
+    private final IncQueryBaseIndexChangeListener retrievingListener = new IncQueryBaseIndexChangeListener() {
+
+        @Override
+        public boolean onlyOnIndexChange() {
+            return true;
+        }
+
+        @Override
+        public void notifyChanged(boolean indexChanged) {
+            Future<Integer> count = workers.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return matcher.countMatches();
+                }
+            });
+            try {
+                observedByListener.add(count.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                errors.add(e);
+            }
+        }
+    };
+
+    private final List<Integer> observedByListener = Collections.synchronizedList(new ArrayList<Integer>());
+    private final List<Integer> observedByJobs = Collections.synchronizedList(new ArrayList<Integer>());
+    private final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+
+    private boolean originalConcurrentMatchAccess;
+    private EPackage ePackage;
+    private AdvancedIncQueryEngine engine;
+    private IncQueryMatcher<?> matcher;
+    private ExecutorService workers;
+    private ExecutorService threads;
+    private ExecutionSchema schema;
+
+    @Before
+    public void setUp() throws Exception {
+        originalConcurrentMatchAccess = Options.concurrentMatchAccess;
+        Options.concurrentMatchAccess = true;
+        IQuerySpecification<?> specification = PatternParsingUtil.parseSpecifications(PATTERNS).get("eClass");
+
+        ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+        matcher = engine.getMatcher(specification);
+        workers = Executors.newFixedThreadPool(4);
+        threads = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        if (schema != null) {
+            schema.dispose();
+        }
+        threads.shutdownNow();
+        workers.shutdownNow();
+        engine.dispose();
+        Options.concurrentMatchAccess = originalConcurrentMatchAccess;
+    }
+
+    private <Match extends IPatternMatch> RuleSpecification<Match> createRule(IncQueryMatcher<Match> matcher) {
+        Set<Job<Match>> jobs = Sets.newHashSet();
+        jobs.add(new CountingJob<Match>());
+        return Rules.newMatcherRuleSpecification(matcher, Lifecycles.getDefault(false, false), jobs);
+    }
+
+    /**
+     * A single model change adding a package with two classes.
+     */
+    private void addClassPair(int index) {
+        EPackage subPackage = EcoreFactory.eINSTANCE.createEPackage();
+        subPackage.setName("sub" + index);
+        for (int i = 0; i < 2; i++) {
+            EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+            eClass.setName("C" + index + "_" + i);
+            subPackage.getEClassifiers().add(eClass);
+        }
+        ePackage.getESubpackages().add(subPackage);
+    }
+
+    private static <T> T await(Future<T> future) throws InterruptedException, ExecutionException {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            fail("Model changes and match retrievals deadlocked");
+            return null;
+        }
+    }
+
+    /**
+     * Modifies the model while a reader thread retrieves matches, checking that no partial change is observed and
+     * nothing deadlocks.
+     */
+    private void modifyWhileReading() throws Exception {
+        final AtomicBoolean modifying = new AtomicBoolean(true);
+
+        Future<Integer> reader = threads.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                int reads = 0;
+                do {
+                    int count = matcher.countMatches();
+                    assertTrue("Partially propagated model change observed: " + count, count % 2 == 0);
+                    reads++;
+                } while (modifying.get());
+                return reads;
+            }
+        });
+        Future<?> modifier = threads.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < CHANGE_COUNT; i++) {
+                        addClassPair(i);
+                    }
+                } finally {
+                    modifying.set(false);
+                }
+            }
+        });
+
+        await(modifier);
+        assertTrue(await(reader) > 0);
+        assertTrue(errors.isEmpty());
+        assertEquals(2 * CHANGE_COUNT, matcher.countMatches());
+    }
+
+    @Test
+    public void readersAndChangeListenersDoNotDeadlock() throws Exception {
+        // the listener is notified at the end of each change
+        engine.getBaseIndex().addBaseIndexChangeListener(retrievingListener);
+
+        modifyWhileReading();
+        assertTrue(observedByListener.size() >= CHANGE_COUNT);
+        for (int count : observedByListener) {
+            assertTrue(count % 2 == 0);
+        }
+    }
+
+    @Test
+    public void readersAndParallelExecutorDoNotDeadlock() throws Exception {
+        // the parallel executor fires at the end of each change, its jobs retrieve matches
+        schema = ExecutionSchemas.createParallelIncQueryExecutionSchema(engine,
+                Schedulers.getIQBaseSchedulerFactory(engine), workers, ParallelExecutor.PARTITION_BY_ACTIVATION);
+        schema.addRule(createRule(matcher));
+
+        modifyWhileReading();
+        assertEquals(2 * CHANGE_COUNT, observedByJobs.size());
+        for (int count : observedByJobs) {
+            assertTrue(count % 2 == 0);
+        }
+    }
+
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IMatchChangeListener;
+import org.eclipse.incquery.runtime.api.IMatchChangeStream;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the batches delivered by the streams opened with
+ * {@link AdvancedIncQueryEngine#openMatchChangeStream(IncQueryMatcher, IMatchChangeListener, boolean, Executor, int)}
+ * .
+ *
+ * @author Gabor Bergmann
+ */
+public class MatchChangeStreamTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern eClass(c : EClass) { EClass(c); }\n";
+
+    /**
+     * Records each batch as the set of changes, "+name" for an appeared and "-name" for a disappeared class.
+     */
+    private static class RecordingListener implements IMatchChangeListener<IPatternMatch> {
+        final List<Set<String>> batches = new ArrayList<Set<String>>();
+
+        @Override
+        public void matchesChanged(Set<? extends IPatternMatch> appeared, Set<? extends IPatternMatch> disappeared) {
+            Set<String> batch = new HashSet<String>();
+            for (IPatternMatch match : appeared) {
+                batch.add("+" + ((ENamedElement) match.get("c")).getName());
+            }
+            for (IPatternMatch match : disappeared) {
+                batch.add("-" + ((ENamedElement) match.get("c")).getName());
+            }
+            batches.add(batch);
+        }
+    }
+
+    /**
+     * Runs the submitted tasks only when asked to, so that a batch can be kept in flight.
+     */
+    private static class QueuedExecutor implements Executor {
+        final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    private EPackage ePackage;
+    private AdvancedIncQueryEngine engine;
+    private IncQueryMatcher<?> matcher;
+    private RecordingListener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        IQuerySpecification<?> specification = PatternParsingUtil.parseSpecifications(PATTERNS).get("eClass");
+
+        ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        ePackage.getEClassifiers().add(createClass("A"));
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+        matcher = engine.getMatcher(specification);
+        listener = new RecordingListener();
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    private static EClass createClass(String name) {
+        EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+        eClass.setName(name);
+        return eClass;
+    }
+
+    private static Set<String> batch(String... changes) {
+        return new HashSet<String>(Arrays.asList(changes));
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> union = new HashSet<String>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    @Test
+    public void oppositeChangesCancelOut() {
+        QueuedExecutor executor = new QueuedExecutor();
+        engine.openMatchChangeStream(matcher, listener, false, executor, 100);
+
+        EClass x = createClass("X");
+        ePackage.getEClassifiers().add(x);
+        // the first batch is in flight, the following changes are coalesced
+        EClass y = createClass("Y");
+        ePackage.getEClassifiers().add(y);
+        ePackage.getEClassifiers().remove(y);
+        ePackage.getEClassifiers().remove(x);
+        ePackage.getEClassifiers().add(x);
+        assertTrue(listener.batches.isEmpty());
+
+        executor.runAll();
+        assertEquals(Arrays.asList(batch("+X")), listener.batches);
+
+        // nothing left to deliver
+        ePackage.getEClassifiers().add(createClass("Z"));
+        executor.runAll();
+        assertEquals(Arrays.asList(batch("+X"), batch("+Z")), listener.batches);
+    }
+
+    @Test
+    public void overflowDeliveredImmediately() {
+        RecordingListener unbounded = new RecordingListener();
+        engine.openMatchChangeStream(matcher, listener, false, null, 2);
+        engine.openMatchChangeStream(matcher, unbounded, false, null, 100);
+
+        // a single model update with three new classes
+        EPackage subPackage = EcoreFactory.eINSTANCE.createEPackage();
+        subPackage.setName("sub");
+        subPackage.getEClassifiers().add(createClass("X"));
+        subPackage.getEClassifiers().add(createClass("Y"));
+        subPackage.getEClassifiers().add(createClass("Z"));
+        ePackage.getESubpackages().add(subPackage);
+
+        assertEquals(1, unbounded.batches.size());
+        assertEquals(batch("+X", "+Y", "+Z"), unbounded.batches.get(0));
+        assertEquals(2, listener.batches.size());
+        assertEquals(2, listener.batches.get(0).size());
+        assertEquals(1, listener.batches.get(1).size());
+        assertEquals(batch("+X", "+Y", "+Z"), union(listener.batches.get(0), listener.batches.get(1)));
+    }
+
+    @Test
+    public void overflowCoalescedWhileBatchInFlight() {
+        QueuedExecutor executor = new QueuedExecutor();
+        engine.openMatchChangeStream(matcher, listener, false, executor, 2);
+
+        ePackage.getEClassifiers().add(createClass("X"));
+        // the batch of X is in flight when the buffer overflows
+        EPackage subPackage = EcoreFactory.eINSTANCE.createEPackage();
+        subPackage.setName("sub");
+        subPackage.getEClassifiers().add(createClass("Y"));
+        subPackage.getEClassifiers().add(createClass("Z"));
+        ePackage.getESubpackages().add(subPackage);
+        assertTrue(listener.batches.isEmpty());
+
+        // the overflow is delivered after the batch in flight, by the same task
+        executor.runAll();
+        assertEquals(Arrays.asList(batch("+X"), batch("+Y", "+Z")), listener.batches);
+    }
+
+    @Test
+    public void overflowDeliveredByExecutorWhenIdle() {
+        QueuedExecutor executor = new QueuedExecutor();
+        engine.openMatchChangeStream(matcher, listener, false, executor, 2);
+
+        EPackage subPackage = EcoreFactory.eINSTANCE.createEPackage();
+        subPackage.setName("sub");
+        subPackage.getEClassifiers().add(createClass("X"));
+        subPackage.getEClassifiers().add(createClass("Y"));
+        subPackage.getEClassifiers().add(createClass("Z"));
+        ePackage.getESubpackages().add(subPackage);
+        assertTrue(listener.batches.isEmpty());
+        // the overflow batch was submitted, the rest is delivered after it
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        assertEquals(2, listener.batches.size());
+        assertEquals(2, listener.batches.get(0).size());
+        assertEquals(batch("+X", "+Y", "+Z"), union(listener.batches.get(0), listener.batches.get(1)));
+    }
+
+    @Test
+    public void closedStreamNotDelivered() {
+        IMatchChangeStream stream = engine.openMatchChangeStream(matcher, listener, true, null, 100);
+        assertEquals(Arrays.asList(batch("+A")), listener.batches);
+
+        stream.close();
+        assertTrue(stream.isClosed());
+        ePackage.getEClassifiers().add(createClass("X"));
+        assertEquals(1, listener.batches.size());
+    }
+
+    @Test
+    public void closedStreamNotDeliveredByExecutor() {
+        QueuedExecutor executor = new QueuedExecutor();
+        IMatchChangeStream stream = engine.openMatchChangeStream(matcher, listener, false, executor, 100);
+        assertFalse(stream.isClosed());
+
+        ePackage.getEClassifiers().add(createClass("X"));
+        stream.close();
+        executor.runAll();
+        assertTrue(listener.batches.isEmpty());
+    }
+
+}
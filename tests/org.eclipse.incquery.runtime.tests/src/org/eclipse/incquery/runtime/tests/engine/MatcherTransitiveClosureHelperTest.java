@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Tamas Szabo, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Tamas Szabo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.base.itc.igraph.ITcObserver;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.eclipse.incquery.runtime.util.MatcherTransitiveClosureHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the closure maintained by {@link MatcherTransitiveClosureHelper} follows the match deltas of the
+ * supertype pattern as supertypes are added and removed.
+ *
+ * @author Tamas Szabo
+ */
+public class MatcherTransitiveClosureHelperTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern superType(sub : EClass, sup : EClass) { EClass.eSuperTypes(sub, sup); }\n";
+
+    /**
+     * Records the closure changes as "source->target" of the class names.
+     */
+    private static class RecordingObserver implements ITcObserver<EClass> {
+        final Set<String> inserted = new HashSet<String>();
+        final Set<String> deleted = new HashSet<String>();
+
+        @Override
+        public void tupleInserted(EClass source, EClass target) {
+            inserted.add(source.getName() + "->" + target.getName());
+        }
+
+        @Override
+        public void tupleDeleted(EClass source, EClass target) {
+            deleted.add(source.getName() + "->" + target.getName());
+        }
+    }
+
+    private EPackage ePackage;
+    private EClass a;
+    private EClass b;
+    private EClass c;
+    private AdvancedIncQueryEngine engine;
+    private MatcherTransitiveClosureHelper<EClass> helper;
+    private RecordingObserver observer;
+
+    @Before
+    public void setUp() throws Exception {
+        IQuerySpecification<?> specification = PatternParsingUtil.parseSpecifications(PATTERNS).get("superType");
+
+        ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        a = createClass("A");
+        b = createClass("B");
+        c = createClass("C");
+        // A -> B -> C before the helper is created
+        a.getESuperTypes().add(b);
+        b.getESuperTypes().add(c);
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+        helper = new MatcherTransitiveClosureHelper<EClass>(engine, engine.getMatcher(specification));
+        observer = new RecordingObserver();
+        helper.attachObserver(observer);
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.dispose();
+        }
+        engine.dispose();
+    }
+
+    private EClass createClass(String name) {
+        EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+        eClass.setName(name);
+        ePackage.getEClassifiers().add(eClass);
+        return eClass;
+    }
+
+    private static Set<String> tuples(String... tuples) {
+        return new HashSet<String>(Arrays.asList(tuples));
+    }
+
+    @Test
+    public void initialMatchesLoaded() {
+        assertTrue(helper.isReachable(a, c));
+        assertFalse(helper.isReachable(c, a));
+        assertEquals(new HashSet<EClass>(Arrays.asList(b, c)), helper.getAllReachableTargets(a));
+        assertEquals(new HashSet<EClass>(Arrays.asList(a, b)), helper.getAllReachableSources(c));
+        assertEquals(Arrays.asList(a, b, c), helper.getReachabilityPath(a, c));
+    }
+
+    @Test
+    public void closureExtendedOnAppearance() {
+        EClass d = createClass("D");
+        assertTrue(observer.inserted.isEmpty());
+
+        c.getESuperTypes().add(d);
+        assertEquals(tuples("A->D", "B->D", "C->D"), observer.inserted);
+        assertTrue(observer.deleted.isEmpty());
+        assertTrue(helper.isReachable(a, d));
+    }
+
+    @Test
+    public void closureShrunkOnDisappearance() {
+        b.getESuperTypes().remove(c);
+        assertEquals(tuples("A->C", "B->C"), observer.deleted);
+        assertTrue(observer.inserted.isEmpty());
+        // C is no longer a node of the graph
+        assertEquals(new HashSet<EClass>(Arrays.asList(b)), helper.getAllReachableTargets(a));
+    }
+
+    @Test
+    public void alternativePathKept() {
+        a.getESuperTypes().add(c);
+        // A -> C was already reachable through B
+        assertTrue(observer.inserted.isEmpty());
+
+        b.getESuperTypes().remove(c);
+        assertEquals(tuples("B->C"), observer.deleted);
+        assertTrue(helper.isReachable(a, c));
+    }
+
+    @Test
+    public void closureUpdatedOnRemovedClass() {
+        EClass d = createClass("D");
+        d.getESuperTypes().add(a);
+        assertEquals(tuples("D->A", "D->B", "D->C"), observer.inserted);
+
+        // the match disappears with the class
+        ePackage.getEClassifiers().remove(d);
+        assertEquals(tuples("D->A", "D->B", "D->C"), observer.deleted);
+        assertFalse(helper.getAllReachableSources(c).contains(d));
+    }
+
+    @Test
+    public void disposedHelperNotUpdated() {
+        helper.dispose();
+        helper = null;
+        c.getESuperTypes().add(createClass("D"));
+        assertTrue(observer.inserted.isEmpty());
+    }
+
+}
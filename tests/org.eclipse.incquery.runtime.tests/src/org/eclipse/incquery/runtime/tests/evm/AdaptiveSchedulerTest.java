@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.evm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IMatchProcessor;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.evm.api.ExecutionSchema;
+import org.eclipse.incquery.runtime.evm.api.Executor;
+import org.eclipse.incquery.runtime.evm.api.Job;
+import org.eclipse.incquery.runtime.evm.api.RuleSpecification;
+import org.eclipse.incquery.runtime.evm.api.Scheduler;
+import org.eclipse.incquery.runtime.evm.api.Scheduler.ISchedulerFactory;
+import org.eclipse.incquery.runtime.evm.specific.ExecutionSchemas;
+import org.eclipse.incquery.runtime.evm.specific.Jobs;
+import org.eclipse.incquery.runtime.evm.specific.Lifecycles;
+import org.eclipse.incquery.runtime.evm.specific.Rules;
+import org.eclipse.incquery.runtime.evm.specific.event.IncQueryActivationStateEnum;
+import org.eclipse.incquery.runtime.evm.specific.scheduler.AdaptiveScheduler;
+import org.eclipse.incquery.runtime.evm.specific.scheduler.AdaptiveScheduler.AdaptiveSchedulerFactory;
+import org.eclipse.incquery.runtime.evm.specific.scheduler.AdaptiveScheduler.Trigger;
+import org.eclipse.incquery.runtime.evm.update.UpdateCompleteProvider;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the triggers of {@link AdaptiveScheduler}, the scheduling of the updates received while the executor is
+ * scheduled and the statistics. The updates are sent by the test after each model change, and the schedulings handed
+ * off to the firing executor are run by the test thread, as if it was the UI thread.
+ *
+ * @author Abel Hegedus
+ */
+public class AdaptiveSchedulerTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern eClass(c : EClass) { EClass(c); }\n";
+
+    private static final long QUIET_PERIOD = 500;
+    /**
+     * Never elapses during a test.
+     */
+    private static final long LONG_PERIOD = 60000;
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * Sends the update complete events on request of the test.
+     */
+    private static class ManualUpdateCompleteProvider extends UpdateCompleteProvider {
+        void update() {
+            updateCompleted();
+        }
+    }
+
+    /**
+     * Collects the handed off schedulings until the test runs them.
+     */
+    private static class QueueingExecutor implements java.util.concurrent.Executor {
+        private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<Runnable>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        /**
+         * @return the number of schedulings run
+         */
+        int runPending() {
+            int count = 0;
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * @return true, if a scheduling was handed off within the given time and run
+         */
+        boolean runNext(long timeoutMillis) throws InterruptedException {
+            Runnable task = tasks.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (task == null) {
+                return false;
+            }
+            task.run();
+            return true;
+        }
+    }
+
+    /**
+     * Runs the schedulings on the calling thread, so the updates sent by the fired jobs arrive during the scheduling.
+     */
+    private static final java.util.concurrent.Executor DIRECT_EXECUTOR = new java.util.concurrent.Executor() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    private final List<Object> fired = new ArrayList<Object>();
+    private final ManualUpdateCompleteProvider provider = new ManualUpdateCompleteProvider();
+    private final QueueingExecutor firingExecutor = new QueueingExecutor();
+    private Runnable firingEffect;
+    private int classCount = 0;
+
+    private EPackage ePackage;
+    private AdvancedIncQueryEngine engine;
+    private IncQueryMatcher<?> matcher;
+    private ExecutionSchema schema;
+    private AdaptiveScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        IQuerySpecification<?> specification = PatternParsingUtil.parseSpecifications(PATTERNS).get("eClass");
+
+        ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+        matcher = engine.getMatcher(specification);
+    }
+
+    @After
+    public void tearDown() {
+        if (schema != null) {
+            schema.dispose();
+        }
+        engine.dispose();
+    }
+
+    /**
+     * Registering the scheduler counts as an update after a quiet period, it is handed off at once.
+     */
+    private void createSchema(long quietPeriod, long maxLatency, int maxPendingActivations,
+            java.util.concurrent.Executor firing) {
+        final AdaptiveSchedulerFactory factory = new AdaptiveSchedulerFactory(provider, quietPeriod, maxLatency,
+                maxPendingActivations, firing);
+        schema = ExecutionSchemas.createIncQueryExecutionSchema(engine, new ISchedulerFactory() {
+            @Override
+            public Scheduler prepareScheduler(Executor executor) {
+                scheduler = factory.prepareScheduler(executor);
+                return scheduler;
+            }
+        });
+        schema.addRule(createRule(matcher));
+    }
+
+    private <Match extends IPatternMatch> RuleSpecification<Match> createRule(IncQueryMatcher<Match> matcher) {
+        Job<Match> job = Jobs.newStatelessJob(IncQueryActivationStateEnum.APPEARED, new IMatchProcessor<Match>() {
+            @Override
+            public void process(Match match) {
+                fired.add(match);
+                if (firingEffect != null) {
+                    Runnable effect = firingEffect;
+                    firingEffect = null;
+                    effect.run();
+                }
+            }
+        });
+        return Rules.newMatcherRuleSpecification(matcher, Lifecycles.getDefault(false, false),
+                Collections.singleton(job));
+    }
+
+    /**
+     * A model change enabling a new activation, followed by its update complete event.
+     */
+    private void change() {
+        EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+        eClass.setName("C" + classCount++);
+        ePackage.getEClassifiers().add(eClass);
+        provider.update();
+    }
+
+    @Test
+    public void updateAfterQuietPeriodScheduledAtOnce() throws Exception {
+        createSchema(QUIET_PERIOD, LONG_PERIOD, 0, firingExecutor);
+        assertEquals(1, firingExecutor.runPending());
+        Thread.sleep(2 * QUIET_PERIOD);
+
+        change();
+        assertEquals(1, firingExecutor.runPending());
+        assertEquals(1, fired.size());
+        assertEquals(2, scheduler.getSchedulingCount(Trigger.IDLE));
+    }
+
+    @Test
+    public void burstScheduledAfterQuietPeriod() throws Exception {
+        createSchema(QUIET_PERIOD, LONG_PERIOD, 0, firingExecutor);
+        firingExecutor.runPending();
+
+        change();
+        change();
+        change();
+        assertEquals(0, firingExecutor.runPending());
+        assertTrue(fired.isEmpty());
+
+        assertTrue(firingExecutor.runNext(TIMEOUT));
+        assertEquals(3, fired.size());
+        assertEquals(1, scheduler.getSchedulingCount(Trigger.QUIET_PERIOD));
+    }
+
+    @Test
+    public void longBurstScheduledAfterMaxLatency() throws Exception {
+        createSchema(QUIET_PERIOD, 2 * QUIET_PERIOD, 0, firingExecutor);
+        firingExecutor.runPending();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        boolean scheduled = false;
+        while (!scheduled) {
+            assertTrue("The burst was not scheduled", System.currentTimeMillis() < deadline);
+            // the updates are more frequent than the quiet period
+            change();
+            scheduled = firingExecutor.runNext(QUIET_PERIOD / 5);
+        }
+        assertEquals(classCount, fired.size());
+        assertEquals(1, scheduler.getSchedulingCount(Trigger.MAX_LATENCY));
+        assertEquals(0, scheduler.getSchedulingCount(Trigger.QUIET_PERIOD));
+    }
+
+    @Test
+    public void pendingActivationsScheduledAtLimit() {
+        createSchema(LONG_PERIOD, LONG_PERIOD, 3, firingExecutor);
+        firingExecutor.runPending();
+
+        change();
+        change();
+        assertEquals(0, firingExecutor.runPending());
+        change();
+        assertEquals(1, firingExecutor.runPending());
+        assertEquals(3, fired.size());
+        assertEquals(1, scheduler.getSchedulingCount(Trigger.MAX_PENDING_ACTIVATIONS));
+    }
+
+    @Test
+    public void updateDuringSchedulingScheduledAgain() {
+        createSchema(LONG_PERIOD, LONG_PERIOD, 1, DIRECT_EXECUTOR);
+        firingEffect = new Runnable() {
+            @Override
+            public void run() {
+                // the trigger of this update is missed, since the executor is already scheduled
+                change();
+            }
+        };
+
+        change();
+        assertEquals(2, fired.size());
+        assertEquals(2, scheduler.getSchedulingCount(Trigger.MAX_PENDING_ACTIVATIONS));
+        assertEquals(1, scheduler.getLargestBatch());
+    }
+
+    @Test
+    public void statisticsCollected() {
+        createSchema(LONG_PERIOD, LONG_PERIOD, 3, firingExecutor);
+        firingExecutor.runPending();
+        change();
+        change();
+        change();
+        firingExecutor.runPending();
+        // collected, but not scheduled yet
+        change();
+        change();
+
+        assertEquals(6, scheduler.getUpdateCount());
+        assertEquals(2, scheduler.getSchedulingCount());
+        assertEquals(1, scheduler.getSchedulingCount(Trigger.IDLE));
+        assertEquals(1, scheduler.getSchedulingCount(Trigger.MAX_PENDING_ACTIVATIONS));
+        assertEquals(0, scheduler.getSchedulingCount(Trigger.QUIET_PERIOD));
+        assertEquals(0, scheduler.getSchedulingCount(Trigger.MAX_LATENCY));
+        assertEquals(3, scheduler.getLargestBatch());
+        assertEquals(2.0, scheduler.getAverageBatchSize(), 0);
+    }
+
+}
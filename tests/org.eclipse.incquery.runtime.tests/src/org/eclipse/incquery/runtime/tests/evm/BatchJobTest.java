@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.evm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IMatchProcessor;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.BatchJob;
+import org.eclipse.incquery.runtime.evm.api.Context;
+import org.eclipse.incquery.runtime.evm.api.ExecutionSchema;
+import org.eclipse.incquery.runtime.evm.api.Executor;
+import org.eclipse.incquery.runtime.evm.api.Job;
+import org.eclipse.incquery.runtime.evm.api.RuleInstance;
+import org.eclipse.incquery.runtime.evm.api.RuleSpecification;
+import org.eclipse.incquery.runtime.evm.api.Scheduler;
+import org.eclipse.incquery.runtime.evm.api.Scheduler.ISchedulerFactory;
+import org.eclipse.incquery.runtime.evm.specific.ExecutionSchemas;
+import org.eclipse.incquery.runtime.evm.specific.Jobs;
+import org.eclipse.incquery.runtime.evm.specific.Lifecycles;
+import org.eclipse.incquery.runtime.evm.specific.Rules;
+import org.eclipse.incquery.runtime.evm.specific.event.IncQueryActivationStateEnum;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Checks that the activations of a rule whose jobs are all {@link BatchJob}s are fired together, and that
+ * {@link RuleInstance#fireBatch} performs the state transitions of the whole batch before executing the jobs.
+ *
+ * @author Abel Hegedus
+ */
+public class BatchJobTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern eClass(c : EClass) { EClass(c); }\n";
+
+    private static final int CLASS_COUNT = 3;
+
+    /**
+     * Never ticks, the execution is started by the test.
+     */
+    private static final ISchedulerFactory MANUAL_SCHEDULER = new ISchedulerFactory() {
+        @Override
+        public Scheduler prepareScheduler(Executor executor) {
+            return new Scheduler(executor) {
+            };
+        }
+    };
+
+    /**
+     * Records the size of each executed batch, and whether the activations of the schema were already out of the
+     * fired state at that point.
+     */
+    private class RecordingBatchJob<Match extends IPatternMatch> extends BatchJob<Match> {
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        final List<Boolean> transitionsDone = new ArrayList<Boolean>();
+
+        RecordingBatchJob() {
+            super(IncQueryActivationStateEnum.APPEARED);
+        }
+
+        @Override
+        protected void executeBatch(Collection<? extends Activation<? extends Match>> activations, Context context) {
+            batchSizes.add(activations.size());
+            boolean fired = true;
+            for (Activation<? extends Match> activation : activations) {
+                fired &= IncQueryActivationStateEnum.FIRED.equals(activation.getState());
+            }
+            // none of the batch is left in the conflict set
+            for (Activation<?> activation : schema.getConflictingActivations()) {
+                fired &= !activations.contains(activation);
+            }
+            transitionsDone.add(fired);
+        }
+
+        @Override
+        protected void handleBatchError(Collection<? extends Activation<? extends Match>> activations,
+                Exception exception, Context context) {
+            errors.add(exception);
+        }
+    }
+
+    private final List<Exception> errors = new ArrayList<Exception>();
+
+    private AdvancedIncQueryEngine engine;
+    private IncQueryMatcher<?> matcher;
+    private ExecutionSchema schema;
+
+    @Before
+    public void setUp() throws Exception {
+        IQuerySpecification<?> specification = PatternParsingUtil.parseSpecifications(PATTERNS).get("eClass");
+
+        EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+            eClass.setName("C" + i);
+            ePackage.getEClassifiers().add(eClass);
+        }
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+        matcher = engine.getMatcher(specification);
+        schema = ExecutionSchemas.createIncQueryExecutionSchema(engine, MANUAL_SCHEDULER);
+    }
+
+    @After
+    public void tearDown() {
+        schema.dispose();
+        engine.dispose();
+    }
+
+    private static <Match extends IPatternMatch> RuleSpecification<Match> createRule(IncQueryMatcher<Match> matcher,
+            Job<Match>... jobs) {
+        Set<Job<Match>> jobSet = Sets.newHashSet(jobs);
+        return Rules.newMatcherRuleSpecification(matcher, Lifecycles.getDefault(false, false), jobSet);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <Match extends IPatternMatch> RecordingBatchJob<Match> addBatchRule(IncQueryMatcher<Match> matcher) {
+        RecordingBatchJob<Match> job = new RecordingBatchJob<Match>();
+        schema.addRule(createRule(matcher, job));
+        return job;
+    }
+
+    @Test
+    public void enabledActivationsFiredInOneBatch() {
+        RecordingBatchJob<?> job = addBatchRule(matcher);
+        schema.startUnscheduledExecution();
+
+        assertTrue(errors.isEmpty());
+        assertEquals(Arrays.asList(CLASS_COUNT), job.batchSizes);
+        assertEquals(Arrays.asList(true), job.transitionsDone);
+        assertTrue(schema.getConflictingActivations().isEmpty());
+        assertEquals(CLASS_COUNT, schema.getActivations(IncQueryActivationStateEnum.FIRED).size());
+    }
+
+    @Test
+    public void activationsInOtherStatesSkipped() {
+        checkActivationsInOtherStatesSkipped(matcher);
+    }
+
+    private <Match extends IPatternMatch> void checkActivationsInOtherStatesSkipped(IncQueryMatcher<Match> matcher) {
+        RecordingBatchJob<Match> job = new RecordingBatchJob<Match>();
+        @SuppressWarnings("unchecked")
+        RuleSpecification<Match> specification = createRule(matcher, job);
+        schema.addRule(specification);
+        List<Activation<Match>> activations = Lists.newArrayList(schema.getActivations(specification));
+        assertEquals(CLASS_COUNT, activations.size());
+        RuleInstance<Match> instance = activations.get(0).getInstance();
+
+        instance.fireBatch(Collections.singleton(activations.get(0)), IncQueryActivationStateEnum.APPEARED,
+                schema.getContext());
+        // the first activation is already fired
+        instance.fireBatch(activations, IncQueryActivationStateEnum.APPEARED, schema.getContext());
+        // nothing left in the given state, the job is not executed
+        instance.fireBatch(activations, IncQueryActivationStateEnum.APPEARED, schema.getContext());
+
+        assertTrue(errors.isEmpty());
+        assertEquals(Arrays.asList(1, CLASS_COUNT - 1), job.batchSizes);
+        assertEquals(Arrays.asList(true, true), job.transitionsDone);
+        for (Activation<Match> activation : activations) {
+            assertEquals(IncQueryActivationStateEnum.FIRED, activation.getState());
+        }
+    }
+
+    @Test
+    public void notBatchedWithOtherJobs() {
+        checkNotBatchedWithOtherJobs(matcher);
+    }
+
+    private <Match extends IPatternMatch> void checkNotBatchedWithOtherJobs(IncQueryMatcher<Match> matcher) {
+        final List<Match> processed = new ArrayList<Match>();
+        RecordingBatchJob<Match> job = new RecordingBatchJob<Match>();
+        Job<Match> processorJob = Jobs.newStatelessJob(IncQueryActivationStateEnum.APPEARED,
+                new IMatchProcessor<Match>() {
+                    @Override
+                    public void process(Match match) {
+                        processed.add(match);
+                    }
+                });
+        @SuppressWarnings("unchecked")
+        RuleSpecification<Match> specification = createRule(matcher, job, processorJob);
+        schema.addRule(specification);
+        schema.startUnscheduledExecution();
+
+        assertTrue(errors.isEmpty());
+        assertEquals(Arrays.asList(1, 1, 1), job.batchSizes);
+        assertEquals(CLASS_COUNT, processed.size());
+        assertEquals(CLASS_COUNT, schema.getActivations(IncQueryActivationStateEnum.FIRED).size());
+    }
+
+}
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.evm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IMatchProcessor;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.Job;
+import org.eclipse.incquery.runtime.evm.api.RuleEngine;
+import org.eclipse.incquery.runtime.evm.api.RuleSpecification;
+import org.eclipse.incquery.runtime.evm.api.resolver.ConflictResolver;
+import org.eclipse.incquery.runtime.evm.specific.Jobs;
+import org.eclipse.incquery.runtime.evm.specific.Lifecycles;
+import org.eclipse.incquery.runtime.evm.specific.RuleEngines;
+import org.eclipse.incquery.runtime.evm.specific.Rules;
+import org.eclipse.incquery.runtime.evm.specific.event.IncQueryActivationStateEnum;
+import org.eclipse.incquery.runtime.evm.specific.resolver.impl.IndexedHeapConflictSetImpl;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Checks the heap maintained by {@link IndexedHeapConflictSetImpl} as activations are added, removed and
+ * re-prioritized, by comparing the order in which the activations are returned with their priorities.
+ *
+ * @author Abel Hegedus
+ */
+public class IndexedHeapConflictSetTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern eClass(c : EClass) { EClass(c); }\n";
+
+    private static final int CLASS_COUNT = 8;
+
+    /**
+     * Takes the priorities from a map set by the test.
+     */
+    private static class TestConflictSet extends IndexedHeapConflictSetImpl {
+        final Map<Activation<?>, Integer> priorities = new HashMap<Activation<?>, Integer>();
+
+        @Override
+        protected int getPriority(Activation<?> activation) {
+            return priorities.get(activation);
+        }
+
+        boolean setPriority(Activation<?> activation, int priority) {
+            priorities.put(activation, priority);
+            return updatePriority(activation);
+        }
+
+        @Override
+        public ConflictResolver getConflictResolver() {
+            return null;
+        }
+    }
+
+    private AdvancedIncQueryEngine engine;
+    private RuleEngine ruleEngine;
+    private final List<Activation<?>> activations = new ArrayList<Activation<?>>();
+    private TestConflictSet conflictSet;
+
+    @Before
+    public void setUp() throws Exception {
+        IQuerySpecification<?> specification = PatternParsingUtil.parseSpecifications(PATTERNS).get("eClass");
+
+        EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+            eClass.setName("C" + i);
+            ePackage.getEClassifiers().add(eClass);
+        }
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+        ruleEngine = RuleEngines.createIncQueryRuleEngine(engine);
+        // the activations of the rule are only used as elements of the tested conflict set
+        activations.addAll(createActivations(engine.getMatcher(specification)));
+        assertEquals(CLASS_COUNT, activations.size());
+        conflictSet = new TestConflictSet();
+    }
+
+    @After
+    public void tearDown() {
+        ruleEngine.dispose();
+        engine.dispose();
+    }
+
+    private <Match extends IPatternMatch> Set<Activation<Match>> createActivations(IncQueryMatcher<Match> matcher) {
+        Set<Job<Match>> jobs = Sets.newHashSet();
+        jobs.add(Jobs.newStatelessJob(IncQueryActivationStateEnum.APPEARED, new IMatchProcessor<Match>() {
+            @Override
+            public void process(Match match) {
+            }
+        }));
+        RuleSpecification<Match> specification = Rules.newMatcherRuleSpecification(matcher,
+                Lifecycles.getDefault(false, false), jobs);
+        ruleEngine.addRule(specification);
+        return ruleEngine.getActivations(specification);
+    }
+
+    /**
+     * Adds the first activations with the given priorities, in order.
+     */
+    private void add(int... priorities) {
+        for (int i = 0; i < priorities.length; i++) {
+            conflictSet.priorities.put(activations.get(i), priorities[i]);
+            assertTrue(conflictSet.addActivation(activations.get(i)));
+        }
+    }
+
+    private Set<Activation<?>> activationsWithPriority(int priority) {
+        Set<Activation<?>> result = new HashSet<Activation<?>>();
+        for (Activation<?> activation : conflictSet.getConflictingActivations()) {
+            if (conflictSet.priorities.get(activation) == priority) {
+                result.add(activation);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the next activation until the conflict set is empty.
+     *
+     * @return the priorities of the removed activations in the order of removal
+     */
+    private List<Integer> drain() {
+        List<Integer> priorities = new ArrayList<Integer>();
+        Activation<?> next;
+        while ((next = conflictSet.getNextActivation()) != null) {
+            assertTrue(conflictSet.getNextActivations().contains(next));
+            priorities.add(conflictSet.priorities.get(next));
+            assertTrue(conflictSet.removeActivation(next));
+        }
+        assertTrue(conflictSet.getNextActivations().isEmpty());
+        assertTrue(conflictSet.getConflictingActivations().isEmpty());
+        return priorities;
+    }
+
+    @Test
+    public void lowestPriorityFirst() {
+        add(5, 3, 7, 1, 8, 2, 6, 4);
+        assertSame(activations.get(3), conflictSet.getNextActivation());
+        // already contained
+        assertFalse(conflictSet.addActivation(activations.get(3)));
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), drain());
+        assertNull(conflictSet.getNextActivation());
+    }
+
+    @Test
+    public void lastEntryRemoved() {
+        add(1, 2, 3, 4, 5, 6, 7, 8);
+        // the last added activation is the last leaf of the heap
+        assertTrue(conflictSet.removeActivation(activations.get(7)));
+        assertFalse(conflictSet.removeActivation(activations.get(7)));
+
+        assertEquals(CLASS_COUNT - 1, conflictSet.getConflictingActivations().size());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7), drain());
+    }
+
+    @Test
+    public void middleEntryRemovedLastMovedDown() {
+        add(1, 2, 3, 4, 5, 6, 7, 8);
+        // 8 takes the place of 2 and sinks below 4
+        assertTrue(conflictSet.removeActivation(activations.get(1)));
+
+        assertEquals(Arrays.asList(1, 3, 4, 5, 6, 7, 8), drain());
+    }
+
+    @Test
+    public void middleEntryRemovedLastMovedUp() {
+        add(1, 10, 2, 11, 12, 3, 4);
+        // 4 takes the place of 11 in the subtree of 10 and rises above it
+        assertTrue(conflictSet.removeActivation(activations.get(3)));
+
+        assertSame(activations.get(0), conflictSet.getNextActivation());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 10, 12), drain());
+    }
+
+    @Test
+    public void priorityDecreased() {
+        add(1, 2, 3, 4, 5, 6, 7, 8);
+        assertTrue(conflictSet.setPriority(activations.get(7), 0));
+        assertSame(activations.get(7), conflictSet.getNextActivation());
+        assertTrue(conflictSet.setPriority(activations.get(4), 3));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 3, 4, 6, 7), drain());
+    }
+
+    @Test
+    public void priorityIncreased() {
+        add(1, 2, 3, 4, 5, 6, 7, 8);
+        assertTrue(conflictSet.setPriority(activations.get(0), 9));
+        assertSame(activations.get(1), conflictSet.getNextActivation());
+        assertTrue(conflictSet.setPriority(activations.get(2), 5));
+
+        assertEquals(Arrays.asList(2, 4, 5, 5, 6, 7, 8, 9), drain());
+    }
+
+    @Test
+    public void priorityOfRemovedActivationNotUpdated() {
+        add(1, 2);
+        assertTrue(conflictSet.removeActivation(activations.get(0)));
+        assertFalse(conflictSet.setPriority(activations.get(0), 0));
+
+        assertSame(activations.get(1), conflictSet.getNextActivation());
+    }
+
+    @Test
+    public void tiesReturnedTogether() {
+        add(1, 2, 1, 3, 1, 1, 2, 4);
+        assertEquals(activationsWithPriority(1), conflictSet.getNextActivations());
+        assertEquals(4, conflictSet.getNextActivations().size());
+
+        assertTrue(conflictSet.removeActivation(activations.get(0)));
+        assertEquals(activationsWithPriority(1), conflictSet.getNextActivations());
+        assertEquals(3, conflictSet.getNextActivations().size());
+
+        // one tie is lost, another one gained
+        assertTrue(conflictSet.setPriority(activations.get(2), 2));
+        assertTrue(conflictSet.setPriority(activations.get(7), 1));
+        assertEquals(activationsWithPriority(1), conflictSet.getNextActivations());
+        assertEquals(3, conflictSet.getNextActivations().size());
+
+        assertTrue(conflictSet.removeActivation(activations.get(4)));
+        assertTrue(conflictSet.removeActivation(activations.get(5)));
+        assertTrue(conflictSet.removeActivation(activations.get(7)));
+        assertEquals(activationsWithPriority(2), conflictSet.getNextActivations());
+        assertEquals(3, conflictSet.getNextActivations().size());
+        assertEquals(Arrays.asList(2, 2, 2, 3), drain());
+    }
+
+}
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Abel Hegedus, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Abel Hegedus - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.evm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.evm.api.Activation;
+import org.eclipse.incquery.runtime.evm.api.Context;
+import org.eclipse.incquery.runtime.evm.api.ExecutionSchema;
+import org.eclipse.incquery.runtime.evm.api.Executor;
+import org.eclipse.incquery.runtime.evm.api.Job;
+import org.eclipse.incquery.runtime.evm.api.ParallelExecutor;
+import org.eclipse.incquery.runtime.evm.api.RuleSpecification;
+import org.eclipse.incquery.runtime.evm.api.Scheduler;
+import org.eclipse.incquery.runtime.evm.api.Scheduler.ISchedulerFactory;
+import org.eclipse.incquery.runtime.evm.api.TwoPhaseJob;
+import org.eclipse.incquery.runtime.evm.specific.ExecutionSchemas;
+import org.eclipse.incquery.runtime.evm.specific.Lifecycles;
+import org.eclipse.incquery.runtime.evm.specific.Rules;
+import org.eclipse.incquery.runtime.evm.specific.event.IncQueryActivationStateEnum;
+import org.eclipse.incquery.runtime.rete.util.Options;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Sets;
+
+/**
+ * Checks that the {@link ParallelExecutor} applies the effects of a round on the scheduling thread in the order of
+ * the selection, even if their computations finish in the opposite order, and that the computations can retrieve
+ * matches concurrently from an engine with {@link Options#concurrentMatchAccess}.
+ *
+ * @author Abel Hegedus
+ */
+public class ParallelExecutorTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern eClass(c : EClass) { EClass(c); }\n";
+
+    private static final int CLASS_COUNT = 5;
+
+    /**
+     * Never ticks, the execution is started by the test.
+     */
+    private static final ISchedulerFactory MANUAL_SCHEDULER = new ISchedulerFactory() {
+        @Override
+        public Scheduler prepareScheduler(Executor executor) {
+            return new Scheduler(executor) {
+            };
+        }
+    };
+
+    /**
+     * Computes the name of the class, but finishes only after the activation selected next in the same round has
+     * finished its computation; the effect records the name.
+     */
+    private class ReverseCompletionJob<Match extends IPatternMatch> extends TwoPhaseJob<Match> {
+
+        ReverseCompletionJob() {
+            super(IncQueryActivationStateEnum.APPEARED);
+        }
+
+        @Override
+        protected Runnable prepare(Activation<? extends Match> activation, Context context) {
+            final Thread preparingThread = Thread.currentThread();
+            final String name = ((ENamedElement) activation.getAtom().get("c")).getName();
+            int index = selected.indexOf(activation);
+            if (index + 1 < prepared.length) {
+                try {
+                    assertTrue("Computations did not run in parallel", prepared[index + 1].await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (completed) {
+                completed.add(name);
+            }
+            prepared[index].countDown();
+            return new Runnable() {
+                @Override
+                public void run() {
+                    assertFalse(preparingThread == Thread.currentThread());
+                    assertTrue(schedulingThread == Thread.currentThread());
+                    applied.add(name);
+                }
+            };
+        }
+
+        @Override
+        protected void handleError(Activation<? extends Match> activation, Exception exception, Context context) {
+            errors.add(exception);
+        }
+    }
+
+    /**
+     * Retrieves the matches and reads the model at the same time as the computations of the other activations of the
+     * round; the effect records what was read.
+     */
+    private class ConcurrentReadingJob<Match extends IPatternMatch> extends TwoPhaseJob<Match> {
+
+        ConcurrentReadingJob() {
+            super(IncQueryActivationStateEnum.APPEARED);
+        }
+
+        @Override
+        protected Runnable prepare(Activation<? extends Match> activation, Context context) {
+            try {
+                readingTogether.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException e) {
+                throw new IllegalStateException("Computations did not run in parallel", e);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Computations did not run in parallel", e);
+            }
+            final int count = matcher.countMatches();
+            final int classifiers = ((EClass) activation.getAtom().get("c")).getEPackage().getEClassifiers().size();
+            return new Runnable() {
+                @Override
+                public void run() {
+                    applied.add(count + "/" + classifiers);
+                }
+            };
+        }
+
+        @Override
+        protected void handleError(Activation<? extends Match> activation, Exception exception, Context context) {
+            errors.add(exception);
+        }
+    }
+
+    private final CyclicBarrier readingTogether = new CyclicBarrier(CLASS_COUNT);
+    private final List<Activation<?>> selected = Collections.synchronizedList(new ArrayList<Activation<?>>());
+    private final CountDownLatch[] prepared = new CountDownLatch[CLASS_COUNT];
+    private final List<String> completed = new ArrayList<String>();
+    private final List<String> applied = new ArrayList<String>();
+    private final List<Exception> errors = new ArrayList<Exception>();
+    private Thread schedulingThread;
+
+    /**
+     * Records the order of the selection, all activations are independent.
+     */
+    private final Function<Activation<?>, Object> recordingPartitioner = new Function<Activation<?>, Object>() {
+        @Override
+        public Object apply(Activation<?> activation) {
+            selected.add(activation);
+            return activation;
+        }
+    };
+
+    private boolean originalConcurrentMatchAccess;
+    private AdvancedIncQueryEngine engine;
+    private IncQueryMatcher<?> matcher;
+    private ExecutorService workers;
+    private ExecutionSchema schema;
+
+    @Before
+    public void setUp() throws Exception {
+        originalConcurrentMatchAccess = Options.concurrentMatchAccess;
+        Options.concurrentMatchAccess = true;
+        IQuerySpecification<?> specification = PatternParsingUtil.parseSpecifications(PATTERNS).get("eClass");
+
+        EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+            eClass.setName("C" + i);
+            ePackage.getEClassifiers().add(eClass);
+            prepared[i] = new CountDownLatch(1);
+        }
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+        matcher = engine.getMatcher(specification);
+        workers = Executors.newFixedThreadPool(CLASS_COUNT);
+        schema = ExecutionSchemas.createParallelIncQueryExecutionSchema(engine, MANUAL_SCHEDULER, workers,
+                recordingPartitioner);
+    }
+
+    @After
+    public void tearDown() {
+        schema.dispose();
+        workers.shutdownNow();
+        engine.dispose();
+        Options.concurrentMatchAccess = originalConcurrentMatchAccess;
+    }
+
+    /**
+     * @param reverseCompletion
+     *            true if the rule should have a {@link ReverseCompletionJob}, false if a {@link ConcurrentReadingJob}
+     */
+    private <Match extends IPatternMatch> RuleSpecification<Match> createRule(IncQueryMatcher<Match> matcher,
+            boolean reverseCompletion) {
+        Set<Job<Match>> jobs = Sets.newHashSet();
+        jobs.add(reverseCompletion ? new ReverseCompletionJob<Match>() : new ConcurrentReadingJob<Match>());
+        return Rules.newMatcherRuleSpecification(matcher, Lifecycles.getDefault(false, false), jobs);
+    }
+
+    @Test
+    public void effectsAppliedInSelectionOrder() {
+        schema.addRule(createRule(matcher, true));
+        schedulingThread = Thread.currentThread();
+        schema.startUnscheduledExecution();
+
+        assertTrue(errors.isEmpty());
+        assertEquals(CLASS_COUNT, selected.size());
+        List<String> selectedNames = new ArrayList<String>();
+        for (Activation<?> activation : selected) {
+            selectedNames.add(((ENamedElement) ((IPatternMatch) activation.getAtom()).get("c")).getName());
+        }
+        List<String> reversedNames = new ArrayList<String>(selectedNames);
+        Collections.reverse(reversedNames);
+        assertEquals(reversedNames, completed);
+        assertEquals(selectedNames, applied);
+        assertTrue(schema.getActivations(IncQueryActivationStateEnum.APPEARED).isEmpty());
+        assertEquals(CLASS_COUNT, schema.getActivations(IncQueryActivationStateEnum.FIRED).size());
+    }
+
+    @Test
+    public void computationsReadConcurrently() {
+        schema.addRule(createRule(matcher, false));
+        schema.startUnscheduledExecution();
+
+        assertTrue(errors.isEmpty());
+        assertEquals(Collections.nCopies(CLASS_COUNT, CLASS_COUNT + "/" + CLASS_COUNT), applied);
+        assertEquals(CLASS_COUNT, schema.getActivations(IncQueryActivationStateEnum.FIRED).size());
+    }
+
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.localsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IPatternMatch;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.localsearch.matcher.LocalSearchBackend;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Evaluates queries, including positive and negative pattern calls, with {@link LocalSearchBackend} and checks that
+ * the results follow the changes of the model.
+ *
+ * @author Zoltan Ujhelyi
+ */
+public class LocalSearchBackendTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern superType(sub : EClass, sup : EClass) { EClass.eSuperTypes(sub, sup); }\n"
+            + "pattern superTypeName(sub : EClass, name) { find superType(sub, sup); EClass.name(sup, name); }\n"
+            + "pattern rootClass(c : EClass) { EClass(c); neg find superType(c, _sup); }\n";
+
+    private Map<String, IQuerySpecification<?>> specifications;
+    private EClass a;
+    private EClass b;
+    private EClass c;
+    private AdvancedIncQueryEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        specifications = PatternParsingUtil.parseSpecifications(PATTERNS);
+
+        EcoreFactory factory = EcoreFactory.eINSTANCE;
+        EPackage ePackage = factory.createEPackage();
+        ePackage.setName("p");
+        a = factory.createEClass();
+        a.setName("A");
+        b = factory.createEClass();
+        b.setName("B");
+        b.getESuperTypes().add(a);
+        c = factory.createEClass();
+        c.setName("C");
+        ePackage.getEClassifiers().add(a);
+        ePackage.getEClassifiers().add(b);
+        ePackage.getEClassifiers().add(c);
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    private static <Match extends IPatternMatch> int countMatches(IncQueryMatcher<Match> matcher, Object... parameters) {
+        return matcher.countMatches(matcher.newMatch(parameters));
+    }
+
+    private static <Match extends IPatternMatch> Set<Object> getAllValues(IncQueryMatcher<Match> matcher,
+            String parameterName, Object... parameters) {
+        return matcher.getAllValues(parameterName, matcher.newMatch(parameters));
+    }
+
+    private void checkResults(IncQueryMatcher<?> superType, IncQueryMatcher<?> superTypeName,
+            IncQueryMatcher<?> rootClass) {
+        assertEquals(1, superType.countMatches());
+        assertEquals(Collections.<Object> singleton("A"), superTypeName.getAllValues("name"));
+        assertEquals(2, rootClass.countMatches());
+        assertEquals(1, countMatches(rootClass, c));
+
+        c.getESuperTypes().add(b);
+        assertEquals(2, superType.countMatches());
+        assertEquals(1, countMatches(superType, c, null));
+        assertEquals(Collections.<Object> singleton("B"), getAllValues(superTypeName, "name", c, null));
+        assertEquals(1, rootClass.countMatches());
+        assertEquals(0, countMatches(rootClass, c));
+
+        b.getESuperTypes().clear();
+        assertEquals(1, superType.countMatches());
+        assertEquals(Collections.<Object> singleton("B"), superTypeName.getAllValues("name"));
+        assertEquals(2, rootClass.countMatches());
+        assertEquals(1, countMatches(rootClass, b));
+    }
+
+    @Test
+    public void allQueriesBySearch() throws Exception {
+        for (IQuerySpecification<?> specification : specifications.values()) {
+            engine.setQueryBackend(specification, LocalSearchBackend.FACTORY);
+        }
+
+        checkResults(engine.getMatcher(specifications.get("superType")),
+                engine.getMatcher(specifications.get("superTypeName")),
+                engine.getMatcher(specifications.get("rootClass")));
+    }
+
+    @Test
+    public void calledQueryIncremental() throws Exception {
+        engine.setQueryBackend(specifications.get("superTypeName"), LocalSearchBackend.FACTORY);
+        engine.setQueryBackend(specifications.get("rootClass"), LocalSearchBackend.FACTORY);
+
+        checkResults(engine.getMatcher(specifications.get("superType")),
+                engine.getMatcher(specifications.get("superTypeName")),
+                engine.getMatcher(specifications.get("rootClass")));
+    }
+
+    @Test
+    public void concurrentRequestsEvaluatedSeparately() throws Exception {
+        for (IQuerySpecification<?> specification : specifications.values()) {
+            engine.setQueryBackend(specification, LocalSearchBackend.FACTORY);
+        }
+        final IncQueryMatcher<?> superTypeName = engine.getMatcher(specifications.get("superTypeName"));
+        final IncQueryMatcher<?> rootClass = engine.getMatcher(specifications.get("rootClass"));
+
+        // the searches of each thread would disturb each other if the search operations were shared
+        List<Callable<Void>> requests = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < 8; i++) {
+            requests.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int j = 0; j < 200; j++) {
+                        assertEquals(Collections.<Object> singleton("A"), superTypeName.getAllValues("name"));
+                        assertEquals(2, rootClass.countMatches());
+                        assertEquals(0, countMatches(rootClass, b));
+                    }
+                    return null;
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(requests.size());
+        try {
+            for (Future<Void> result : executor.invokeAll(requests)) {
+                // rethrows the failures of the threads
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void selectedBackendReturned() {
+        IQuerySpecification<?> superType = specifications.get("superType");
+        engine.setQueryBackend(superType, LocalSearchBackend.FACTORY);
+        assertSame(LocalSearchBackend.FACTORY, engine.getQueryBackend(superType));
+
+        engine.setQueryBackend(superType, null);
+        assertEquals(null, engine.getQueryBackend(superType));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void backendFixedOnceMatcherInitialized() throws Exception {
+        IQuerySpecification<?> superType = specifications.get("superType");
+        engine.getMatcher(superType);
+        engine.setQueryBackend(superType, LocalSearchBackend.FACTORY);
+    }
+
+}
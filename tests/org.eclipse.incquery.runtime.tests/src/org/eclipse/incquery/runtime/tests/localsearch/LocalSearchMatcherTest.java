@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.localsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+import org.eclipse.incquery.runtime.localsearch.exceptions.LocalSearchException;
+import org.eclipse.incquery.runtime.localsearch.matcher.ISearchContext;
+import org.eclipse.incquery.runtime.localsearch.matcher.LocalSearchMatcher;
+import org.eclipse.incquery.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.incquery.runtime.localsearch.operations.check.CheckOperation;
+import org.eclipse.incquery.runtime.localsearch.operations.check.NACOperation;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.ExtendOperation;
+import org.eclipse.incquery.runtime.localsearch.plan.SearchPlan;
+import org.eclipse.incquery.runtime.localsearch.plan.SearchPlanExecutor;
+import org.eclipse.incquery.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.incquery.runtime.matchers.planning.QueryPlannerException;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
+import org.junit.Test;
+
+/**
+ * Executes hand-written search plans over integers, checking the frame reusing iteration of
+ * {@link LocalSearchMatcher#iterateMatches(MatchingFrame)} and the reused frame of {@link NACOperation}.
+ *
+ * @author Zoltan Ujhelyi
+ */
+public class LocalSearchMatcherTest {
+
+    /**
+     * The operations of the tests do not access the model.
+     */
+    private static final ISearchContext CONTEXT = new ISearchContext() {
+
+        @Override
+        public NavigationHelper getBaseIndex() {
+            return null;
+        }
+
+        @Override
+        public IQueryResultProvider getResultProvider(PQuery query) throws QueryPlannerException {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    /**
+     * Binds a frame position to each value of a fixed list.
+     */
+    private static class IterateOverValues extends ExtendOperation<Integer> {
+
+        private final List<Integer> values;
+
+        IterateOverValues(int position, Integer... values) {
+            super(position);
+            this.values = Arrays.asList(values);
+        }
+
+        @Override
+        public void onInitialize(MatchingFrame frame, ISearchContext context) {
+            it = values.iterator();
+        }
+    }
+
+    /**
+     * Checks whether the value of a frame position is divisible by the value of another one.
+     */
+    private static class DivisibleCheck extends CheckOperation {
+
+        private final int dividendPosition;
+        private final int divisorPosition;
+        int executions = 0;
+
+        DivisibleCheck(int dividendPosition, int divisorPosition) {
+            this.dividendPosition = dividendPosition;
+            this.divisorPosition = divisorPosition;
+        }
+
+        @Override
+        protected boolean check(MatchingFrame frame) throws LocalSearchException {
+            executions++;
+            return (Integer) frame.getValue(dividendPosition) % (Integer) frame.getValue(divisorPosition) == 0;
+        }
+    }
+
+    private static LocalSearchMatcher matcher(int keySize, int frameSize, ISearchOperation... operations) {
+        SearchPlan plan = new SearchPlan();
+        plan.addOperations(operations);
+        return new LocalSearchMatcher(new SearchPlanExecutor(plan, CONTEXT), keySize, frameSize);
+    }
+
+    @Test
+    public void iterationReusesFrame() throws Exception {
+        LocalSearchMatcher matcher = matcher(1, 1, new IterateOverValues(0, 1, 2, 3));
+        MatchingFrame frame = matcher.editableMatchingFrame();
+
+        List<Object> values = new ArrayList<Object>();
+        Iterator<MatchingFrame> it = matcher.iterateMatches(frame);
+        while (it.hasNext()) {
+            MatchingFrame match = it.next();
+            assertSame(frame, match);
+            values.add(match.getValue(0));
+        }
+        assertEquals(Arrays.<Object> asList(1, 2, 3), values);
+    }
+
+    @Test
+    public void repeatedHasNextKeepsMatches() throws Exception {
+        DivisibleCheck check = new DivisibleCheck(0, 1);
+        LocalSearchMatcher matcher = matcher(2, 2, new IterateOverValues(0, 2, 3, 4), new IterateOverValues(1, 2),
+                check);
+
+        List<Object> values = new ArrayList<Object>();
+        Iterator<MatchingFrame> it = matcher.iterateMatches(matcher.editableMatchingFrame());
+        while (it.hasNext()) {
+            assertTrue(it.hasNext());
+            values.add(it.next().getValue(0));
+        }
+        assertFalse(it.hasNext());
+        assertEquals(Arrays.<Object> asList(2, 4), values);
+        // the search is not restarted by the repeated calls
+        assertEquals(3, check.executions);
+    }
+
+    @Test
+    public void copyingQueriesDoNotModifyInitialFrame() throws Exception {
+        LocalSearchMatcher matcher = matcher(1, 1, new IterateOverValues(0, 1, 2, 3));
+        MatchingFrame frame = matcher.editableMatchingFrame();
+
+        assertEquals(3, matcher.countMatches(frame));
+        assertEquals(3, matcher.getAllMatches(frame).size());
+        assertEquals(null, frame.getValue(0));
+    }
+
+    @Test
+    public void negativeApplicationConditionReusesFrame() throws Exception {
+        // divisible(x) : y in {2, 3}, x % y == 0
+        DivisibleCheck calledCheck = new DivisibleCheck(0, 1);
+        LocalSearchMatcher divisible = matcher(1, 2, new IterateOverValues(1, 2, 3), calledCheck);
+        // notDivisible(x) : x in {1, 5, 6, 7, 9, 25}, neg find divisible(x)
+        LocalSearchMatcher notDivisible = matcher(1, 1, new IterateOverValues(0, 1, 5, 6, 7, 9, 25),
+                new NACOperation(divisible, Collections.singletonMap(0, 0)));
+
+        List<Object> values = new ArrayList<Object>();
+        Iterator<MatchingFrame> it = notDivisible.iterateMatches(notDivisible.editableMatchingFrame());
+        while (it.hasNext()) {
+            values.add(it.next().getValue(0));
+        }
+        assertEquals(Arrays.<Object> asList(1, 5, 7, 25), values);
+        // the called search stops at its first match, so 6 is checked against 2 only
+        assertEquals(2 + 2 + 1 + 2 + 2 + 2, calledCheck.executions);
+    }
+
+}
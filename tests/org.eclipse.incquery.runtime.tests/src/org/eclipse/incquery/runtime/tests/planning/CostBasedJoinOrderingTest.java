@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.planning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.base.api.IncQueryBaseFactory;
+import org.eclipse.incquery.runtime.base.api.NavigationHelper;
+import org.eclipse.incquery.runtime.context.EMFPatternMatcherContext;
+import org.eclipse.incquery.runtime.matchers.planning.SubPlan;
+import org.eclipse.incquery.runtime.matchers.planning.operations.PJoin;
+import org.eclipse.incquery.runtime.matchers.psystem.PBody;
+import org.eclipse.incquery.runtime.matchers.psystem.PConstraint;
+import org.eclipse.incquery.runtime.matchers.psystem.basicenumerables.TypeBinary;
+import org.eclipse.incquery.runtime.rete.construction.quasitree.CostBasedQuasiTreeLayout;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that {@link CostBasedQuasiTreeLayout} starts with the join that is the cheapest on the current model: three
+ * edge types share a variable, and the first join that is not a mere check should involve the two smallest ones.
+ *
+ * @author Gabor Bergmann
+ */
+public class CostBasedJoinOrderingTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern classDetails(x : EClass, y, z, w) {\n"
+            + "  EClass.eSuperTypes(x, y);\n"
+            + "  EClass.eStructuralFeatures(x, z);\n"
+            + "  EClass.eOperations(x, w);\n"
+            + "}\n";
+
+    private static final int CLASS_COUNT = 10;
+
+    private final EcoreFactory factory = EcoreFactory.eINSTANCE;
+    private EPackage ePackage;
+    private EClass[] classes;
+    private NavigationHelper statistics;
+
+    @Before
+    public void setUp() {
+        ePackage = factory.createEPackage();
+        ePackage.setName("p");
+        classes = new EClass[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            classes[i] = factory.createEClass();
+            classes[i].setName("C" + i);
+            ePackage.getEClassifiers().add(classes[i]);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (statistics != null) {
+            statistics.dispose();
+        }
+    }
+
+    @Test
+    public void fewSuperTypesJoinedFirst() throws Exception {
+        classes[1].getESuperTypes().add(classes[0]);
+        for (EClass eClass : classes) {
+            for (int i = 0; i < 3; i++) {
+                eClass.getEStructuralFeatures().add(factory.createEAttribute());
+                eClass.getEOperations().add(factory.createEOperation());
+            }
+        }
+
+        Set<Object> firstJoin = planFirstJoin();
+
+        assertTrue(firstJoin.contains(EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+    }
+
+    @Test
+    public void manySuperTypesJoinedLast() throws Exception {
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            for (int j = 0; j < i; j++) {
+                classes[i].getESuperTypes().add(classes[j]);
+            }
+        }
+        classes[5].getEStructuralFeatures().add(factory.createEAttribute());
+        classes[5].getEOperations().add(factory.createEOperation());
+
+        Set<Object> firstJoin = planFirstJoin();
+
+        Set<Object> expected = new HashSet<Object>();
+        expected.add(EcorePackage.Literals.ECLASS__ESTRUCTURAL_FEATURES);
+        expected.add(EcorePackage.Literals.ECLASS__EOPERATIONS);
+        assertEquals(expected, firstJoin);
+    }
+
+    /**
+     * Plans the pattern with the current model as statistics.
+     *
+     * @return the edge types enforced by the first join that is not a check-only join
+     */
+    private Set<Object> planFirstJoin() throws Exception {
+        IQuerySpecification<?> specification = PatternParsingUtil.parseSpecifications(PATTERNS).get("classDetails");
+        statistics = IncQueryBaseFactory.getInstance().createNavigationHelper(ePackage, true,
+                Logger.getLogger(getClass()));
+        PBody body = specification.getDisjunctBodies().getBodies().iterator().next();
+        SubPlan plan = new CostBasedQuasiTreeLayout(statistics).plan(body, new EMFPatternMatcherContext());
+
+        SubPlan firstJoin = findFirstJoin(plan);
+        Set<Object> edgeTypes = new HashSet<Object>();
+        for (PConstraint constraint : firstJoin.getAllEnforcedConstraints()) {
+            if (constraint instanceof TypeBinary) {
+                edgeTypes.add(((TypeBinary) constraint).getSupplierKey());
+            }
+        }
+        return edgeTypes;
+    }
+
+    /**
+     * @return the deepest join of the plan that brings together new variables from both sides, or null if none
+     */
+    private SubPlan findFirstJoin(SubPlan plan) {
+        for (SubPlan parent : plan.getParentPlans()) {
+            SubPlan join = findFirstJoin(parent);
+            if (join != null) {
+                return join;
+            }
+        }
+        if (plan.getOperation() instanceof PJoin) {
+            Set<?> primary = plan.getParentPlans().get(0).getVisibleVariables();
+            Set<?> secondary = plan.getParentPlans().get(1).getVisibleVariables();
+            if (!primary.containsAll(secondary) && !secondary.containsAll(primary)) {
+                return plan;
+            }
+        }
+        return null;
+    }
+
+}
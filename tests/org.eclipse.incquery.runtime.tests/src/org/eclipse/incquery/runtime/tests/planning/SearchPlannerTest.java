@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.planning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.localsearch.matcher.ISearchContext;
+import org.eclipse.incquery.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.incquery.runtime.localsearch.MatchingFrame;
+import org.eclipse.incquery.runtime.localsearch.matcher.LocalSearchMatcher;
+import org.eclipse.incquery.runtime.localsearch.operations.check.CheckOperation;
+import org.eclipse.incquery.runtime.localsearch.operations.check.ConstantValueCheck;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.ExtendToConstant;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.ExtendToEStructuralFeatureSource;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.ExtendToEStructuralFeatureTarget;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.IterateOverEClassInstances;
+import org.eclipse.incquery.runtime.localsearch.operations.extend.IterateOverEStructuralFeatureInstances;
+import org.eclipse.incquery.runtime.localsearch.plan.SearchPlanner;
+import org.eclipse.incquery.runtime.matchers.psystem.PBody;
+import org.eclipse.incquery.runtime.matchers.psystem.PVariable;
+import org.eclipse.incquery.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Checks that the search plans of {@link SearchPlanner} start from the smallest extent of the current model.
+ *
+ * @author Zoltan Ujhelyi
+ */
+public class SearchPlannerTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern superType(x : EClass, y : EClass) { EClass.eSuperTypes(x, y); }\n"
+            + "pattern named(x : EClass) { EClass.name(x, \"C3\"); }\n";
+
+    private static final int CLASS_COUNT = 10;
+
+    private EClass[] classes;
+    private ISearchContext context;
+    private PBody body;
+    private PQuery namedQuery;
+
+    @Before
+    public void setUp() throws Exception {
+        EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("p");
+        classes = new EClass[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            classes[i] = EcoreFactory.eINSTANCE.createEClass();
+            classes[i].setName("C" + i);
+            ePackage.getEClassifiers().add(classes[i]);
+        }
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.createResource(URI.createURI("dummy:/model.ecore")).getContents().add(ePackage);
+
+        Map<String, IQuerySpecification<?>> specifications = PatternParsingUtil.parseSpecifications(PATTERNS);
+        body = specifications.get("superType").getDisjunctBodies().getBodies().iterator().next();
+        namedQuery = specifications.get("named");
+        context = new ISearchContext.SearchContext(resourceSet, Collections.singleton(EcorePackage.Literals.ECLASS),
+                Collections.<EDataType> emptySet(), new HashSet<EStructuralFeature>(Arrays.asList(
+                        EcorePackage.Literals.ECLASS__ESUPER_TYPES, EcorePackage.Literals.ENAMED_ELEMENT__NAME)));
+    }
+
+    @After
+    public void tearDown() {
+        context.getBaseIndex().dispose();
+    }
+
+    private List<ISearchOperation> plan(Set<PVariable> boundVariables) throws Exception {
+        return new SearchPlanner(context).plan(body, boundVariables).getOperations();
+    }
+
+    @Test
+    public void fewEdgesIteratedFirst() throws Exception {
+        classes[1].getESuperTypes().add(classes[0]);
+
+        List<ISearchOperation> operations = plan(Collections.<PVariable> emptySet());
+
+        assertTrue(operations.get(0) instanceof IterateOverEStructuralFeatureInstances);
+        for (ISearchOperation operation : operations.subList(1, operations.size())) {
+            assertTrue(operation instanceof CheckOperation);
+        }
+    }
+
+    @Test
+    public void manyEdgesNavigatedFromInstances() throws Exception {
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            for (int j = 0; j < i; j++) {
+                classes[i].getESuperTypes().add(classes[j]);
+            }
+        }
+
+        List<ISearchOperation> operations = plan(Collections.<PVariable> emptySet());
+
+        assertTrue(operations.get(0) instanceof IterateOverEClassInstances);
+        ISearchOperation extension = null;
+        for (ISearchOperation operation : operations.subList(1, operations.size())) {
+            assertTrue(!(operation instanceof IterateOverEClassInstances));
+            if (extension == null && !(operation instanceof CheckOperation)) {
+                extension = operation;
+            }
+        }
+        assertTrue(extension instanceof ExtendToEStructuralFeatureTarget
+                || extension instanceof ExtendToEStructuralFeatureSource);
+    }
+
+    @Test
+    public void boundParameterNavigated() throws Exception {
+        classes[1].getESuperTypes().add(classes[0]);
+        PVariable x = body.getSymbolicParameterVariables().get(0);
+
+        List<ISearchOperation> operations = plan(Collections.singleton(x));
+
+        boolean extended = false;
+        for (ISearchOperation operation : operations) {
+            assertTrue(!(operation instanceof IterateOverEClassInstances)
+                    && !(operation instanceof IterateOverEStructuralFeatureInstances));
+            extended |= operation instanceof ExtendToEStructuralFeatureTarget;
+        }
+        assertTrue(extended);
+    }
+
+    @Test
+    public void constantBoundFirst() throws Exception {
+        PBody namedBody = namedQuery.getDisjunctBodies().getBodies().iterator().next();
+
+        List<ISearchOperation> operations = new SearchPlanner(context).plan(namedBody,
+                Collections.<PVariable> emptySet()).getOperations();
+
+        assertTrue(operations.get(0) instanceof ExtendToConstant);
+        assertTrue(operations.get(1) instanceof ExtendToEStructuralFeatureSource);
+    }
+
+    @Test
+    public void constantChecked() throws Exception {
+        PBody namedBody = namedQuery.getDisjunctBodies().getBodies().iterator().next();
+        PVariable x = namedBody.getSymbolicParameterVariables().get(0);
+
+        List<ISearchOperation> operations = new SearchPlanner(context).plan(namedBody, Collections.singleton(x))
+                .getOperations();
+
+        boolean checked = false;
+        for (ISearchOperation operation : operations) {
+            checked |= operation instanceof ConstantValueCheck;
+        }
+        assertTrue(checked);
+    }
+
+    @Test
+    public void constantMatched() throws Exception {
+        LocalSearchMatcher matcher = new SearchPlanner(context).createMatcher(namedQuery,
+                Collections.<Integer> emptySet());
+
+        List<MatchingFrame> matches = Lists.newArrayList(matcher.getAllMatches());
+        assertEquals(1, matches.size());
+        assertEquals(classes[3], matches.get(0).getValue(0));
+    }
+
+    @Test
+    public void plansDoNotShareOperations() throws Exception {
+        SearchPlanner planner = new SearchPlanner(context);
+        List<ISearchOperation> first = planner.plan(body, Collections.<PVariable> emptySet()).getOperations();
+        List<ISearchOperation> second = planner.plan(body, Collections.<PVariable> emptySet()).getOperations();
+
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertNotSame(first.get(i), second.get(i));
+            assertEquals(first.get(i).getClass(), second.get(i).getClass());
+        }
+    }
+
+}
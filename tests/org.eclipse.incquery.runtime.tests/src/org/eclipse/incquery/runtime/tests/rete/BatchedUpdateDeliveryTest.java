@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.rete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
+import org.eclipse.incquery.runtime.rete.index.DefaultIndexerListener;
+import org.eclipse.incquery.runtime.rete.index.GenericProjectionIndexer;
+import org.eclipse.incquery.runtime.rete.misc.SimpleReceiver;
+import org.eclipse.incquery.runtime.rete.network.Direction;
+import org.eclipse.incquery.runtime.rete.network.Network;
+import org.eclipse.incquery.runtime.rete.network.ReteContainer;
+import org.eclipse.incquery.runtime.rete.single.UniquenessEnforcerNode;
+import org.eclipse.incquery.runtime.rete.util.Options;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the delta cancellation and bulk delivery of {@link Options#batchedUpdateDelivery}, and the bulk processing
+ * of the delivered batches.
+ *
+ * @author Gabor Bergmann
+ */
+public class BatchedUpdateDeliveryTest {
+
+    /**
+     * Records the deliveries it receives; single updates are recorded as batches of one.
+     */
+    private static class RecordingReceiver extends SimpleReceiver {
+        final List<Direction> directions = new ArrayList<Direction>();
+        final List<List<Tuple>> batches = new ArrayList<List<Tuple>>();
+
+        RecordingReceiver(ReteContainer reteContainer) {
+            super(reteContainer);
+        }
+
+        @Override
+        public void update(Direction direction, Tuple updateElement) {
+            directions.add(direction);
+            batches.add(Arrays.asList(updateElement));
+        }
+
+        @Override
+        public void batchUpdate(Direction direction, Collection<Tuple> updateElements) {
+            directions.add(direction);
+            batches.add(new ArrayList<Tuple>(updateElements));
+        }
+    }
+
+    /**
+     * Records the notifications of an indexer as "direction signature elements change" strings; single updates are
+     * prefixed with "single".
+     */
+    private static class RecordingIndexerListener extends DefaultIndexerListener {
+        final List<String> notifications = new ArrayList<String>();
+        final boolean acceptsBatches;
+
+        RecordingIndexerListener(GenericProjectionIndexer indexer, boolean acceptsBatches) {
+            super(indexer);
+            this.acceptsBatches = acceptsBatches;
+            indexer.attachListener(this);
+        }
+
+        @Override
+        public void notifyIndexerUpdate(Direction direction, Tuple updateElement, Tuple signature, boolean change) {
+            notifications.add("single " + direction + " " + signature + " " + Arrays.asList(updateElement) + " "
+                    + change);
+        }
+
+        @Override
+        public void notifyIndexerBatchUpdate(Direction direction, Collection<Tuple> updateElements, Tuple signature,
+                boolean change) {
+            notifications.add(direction + " " + signature + " " + updateElements + " " + change);
+        }
+
+        @Override
+        public boolean acceptsBatchUpdates() {
+            return acceptsBatches;
+        }
+    }
+
+    private boolean originalBatchedDelivery;
+    private Network network;
+    private ReteContainer container;
+    private RecordingReceiver receiver;
+
+    private final Tuple a = new FlatTuple("a");
+    private final Tuple b = new FlatTuple("b");
+    private final Tuple c = new FlatTuple("c");
+
+    @Before
+    public void setUp() {
+        originalBatchedDelivery = Options.batchedUpdateDelivery;
+        Options.batchedUpdateDelivery = true;
+        network = new Network(0, null);
+        container = network.getHeadContainer();
+        receiver = new RecordingReceiver(container);
+    }
+
+    @After
+    public void tearDown() {
+        network.kill();
+        Options.batchedUpdateDelivery = originalBatchedDelivery;
+    }
+
+    @Test
+    public void oppositeUpdatesCancelOut() {
+        container.sendUpdateInternal(receiver, Direction.INSERT, a);
+        container.sendUpdateInternal(receiver, Direction.REVOKE, a);
+        container.flushUpdates();
+
+        assertTrue(receiver.batches.isEmpty());
+    }
+
+    @Test
+    public void remainingUpdatesDeliveredInBulkRevocationsFirst() {
+        container.sendUpdateInternal(receiver, Direction.INSERT, a);
+        container.sendUpdateInternal(receiver, Direction.INSERT, b);
+        container.sendUpdateInternal(receiver, Direction.REVOKE, c);
+        container.sendUpdateInternal(receiver, Direction.INSERT, c);
+        container.sendUpdateInternal(receiver, Direction.REVOKE, c);
+        container.flushUpdates();
+
+        assertEquals(Arrays.asList(Direction.REVOKE, Direction.INSERT), receiver.directions);
+        assertEquals(Arrays.asList(c), receiver.batches.get(0));
+        assertEquals(Arrays.asList(a, b), receiver.batches.get(1));
+    }
+
+    @Test
+    public void netCountsKeepMultiplicity() {
+        container.sendUpdateInternal(receiver, Direction.INSERT, a);
+        container.sendUpdateInternal(receiver, Direction.INSERT, a);
+        container.sendUpdateInternal(receiver, Direction.REVOKE, a);
+        container.sendUpdateInternal(receiver, Direction.INSERT, a);
+        container.flushUpdates();
+
+        assertEquals(Arrays.asList(Direction.INSERT), receiver.directions);
+        assertEquals(Arrays.asList(a, a), receiver.batches.get(0));
+    }
+
+    @Test
+    public void defaultBatchUpdateDeliversOneByOne() {
+        final List<Tuple> received = new ArrayList<Tuple>();
+        SimpleReceiver oneByOne = new SimpleReceiver(container) {
+            @Override
+            public void update(Direction direction, Tuple updateElement) {
+                assertEquals(Direction.INSERT, direction);
+                received.add(updateElement);
+            }
+        };
+        container.sendUpdateInternal(oneByOne, Direction.INSERT, a);
+        container.sendUpdateInternal(oneByOne, Direction.INSERT, b);
+        container.flushUpdates();
+
+        assertEquals(Arrays.asList(a, b), received);
+    }
+
+    @Test
+    public void uniquenessEnforcerPropagatesChangesInBulk() {
+        UniquenessEnforcerNode node = new UniquenessEnforcerNode(container, 1);
+        node.appendChild(receiver);
+        container.sendUpdateInternal(node, Direction.INSERT, a);
+        container.sendUpdateInternal(node, Direction.INSERT, a);
+        container.sendUpdateInternal(node, Direction.INSERT, b);
+        container.flushUpdates();
+
+        assertEquals(Arrays.asList(Direction.INSERT), receiver.directions);
+        assertEquals(Arrays.asList(a, b), receiver.batches.get(0));
+
+        // one copy of a remains
+        container.sendUpdateInternal(node, Direction.REVOKE, a);
+        container.flushUpdates();
+        assertEquals(1, receiver.batches.size());
+        assertTrue(node.getMemory().contains(a));
+    }
+
+    @Test
+    public void indexerNotifiesEachSignatureOnce() {
+        GenericProjectionIndexer indexer = new GenericProjectionIndexer(container, TupleMask.selectSingle(0, 2));
+        RecordingIndexerListener listener = new RecordingIndexerListener(indexer, true);
+        Tuple x1 = new FlatTuple("x", 1);
+        Tuple x2 = new FlatTuple("x", 2);
+        Tuple y1 = new FlatTuple("y", 1);
+
+        indexer.batchUpdate(Direction.INSERT, Arrays.asList(x1, y1, x2));
+        indexer.batchUpdate(Direction.REVOKE, Arrays.asList(x1));
+        indexer.batchUpdate(Direction.REVOKE, Arrays.asList(x2, y1));
+
+        assertEquals(Arrays.asList("INSERT " + new FlatTuple("x") + " " + Arrays.asList(x1, x2) + " true",
+                "INSERT " + new FlatTuple("y") + " " + Arrays.asList(y1) + " true",
+                "single REVOKE " + new FlatTuple("x") + " " + Arrays.asList(x1) + " false",
+                "REVOKE " + new FlatTuple("x") + " " + Arrays.asList(x2) + " true",
+                "REVOKE " + new FlatTuple("y") + " " + Arrays.asList(y1) + " true"), listener.notifications);
+        assertFalse(indexer.iterator().hasNext());
+    }
+
+    @Test
+    public void indexerNotifiesOneByOneIfAListenerRequiresIt() {
+        GenericProjectionIndexer indexer = new GenericProjectionIndexer(container, TupleMask.selectSingle(0, 2));
+        RecordingIndexerListener batchListener = new RecordingIndexerListener(indexer, true);
+        RecordingIndexerListener singleListener = new RecordingIndexerListener(indexer, false);
+        Tuple x1 = new FlatTuple("x", 1);
+        Tuple x2 = new FlatTuple("x", 2);
+
+        indexer.batchUpdate(Direction.INSERT, Arrays.asList(x1, x2));
+        indexer.batchUpdate(Direction.REVOKE, Arrays.asList(x1, x2));
+
+        List<String> expected = Arrays.asList("single INSERT " + new FlatTuple("x") + " " + Arrays.asList(x1) + " true",
+                "single INSERT " + new FlatTuple("x") + " " + Arrays.asList(x2) + " false",
+                "single REVOKE " + new FlatTuple("x") + " " + Arrays.asList(x1) + " false",
+                "single REVOKE " + new FlatTuple("x") + " " + Arrays.asList(x2) + " true");
+        assertEquals(expected, batchListener.notifications);
+        assertEquals(expected, singleListener.notifications);
+    }
+
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.rete;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.incquery.runtime.matchers.psystem.IExpressionEvaluator;
+import org.eclipse.incquery.runtime.matchers.psystem.IValueProvider;
+import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.rete.eval.CachedPredicateEvaluatorNode;
+import org.eclipse.incquery.runtime.rete.network.Direction;
+import org.eclipse.incquery.runtime.rete.network.Network;
+import org.eclipse.incquery.runtime.rete.util.Options;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the memoization of expression results by the evaluator nodes, see
+ * {@link Options#evaluationMemoizationCacheSize}.
+ *
+ * @author Gabor Bergmann
+ */
+public class EvaluationMemoizationTest {
+
+    /**
+     * check(name.length() > 1), counting its evaluations; tuples are (id, name, suffix)
+     */
+    private static class LongNameCheck implements IExpressionEvaluator {
+        private final List<String> parameterNames;
+        final List<Object> evaluatedNames = new ArrayList<Object>();
+
+        LongNameCheck(String... parameterNames) {
+            this.parameterNames = Arrays.asList(parameterNames);
+        }
+
+        @Override
+        public String getShortDescription() {
+            return "long name";
+        }
+
+        @Override
+        public Iterable<String> getInputParameterNames() {
+            return parameterNames;
+        }
+
+        @Override
+        public Object evaluateExpression(IValueProvider provider) throws Exception {
+            Object name = provider.getValue("name");
+            evaluatedNames.add(name);
+            return ((String) name).length() > 1;
+        }
+    }
+
+    private int originalCacheSize;
+    private Network network;
+    private final Map<String, Integer> parameterPositions = new HashMap<String, Integer>();
+
+    @Before
+    public void setUp() {
+        originalCacheSize = Options.evaluationMemoizationCacheSize;
+        network = new Network(0, null);
+        parameterPositions.put("id", 0);
+        parameterPositions.put("name", 1);
+        parameterPositions.put("suffix", 2);
+    }
+
+    @After
+    public void tearDown() {
+        network.kill();
+        Options.evaluationMemoizationCacheSize = originalCacheSize;
+    }
+
+    private CachedPredicateEvaluatorNode node(LongNameCheck check) {
+        return new CachedPredicateEvaluatorNode(network.getHeadContainer(), null, check, parameterPositions, 3);
+    }
+
+    private static Tuple tuple(int id, String name) {
+        return new FlatTuple(id, name, "");
+    }
+
+    private static List<Tuple> pull(CachedPredicateEvaluatorNode node) {
+        List<Tuple> result = new ArrayList<Tuple>();
+        node.pullInto(result);
+        return result;
+    }
+
+    @Test
+    public void memoizedByReferencedVariables() {
+        Options.evaluationMemoizationCacheSize = 10;
+        LongNameCheck check = new LongNameCheck("name");
+        CachedPredicateEvaluatorNode node = node(check);
+
+        node.update(Direction.INSERT, tuple(1, "ab"));
+        node.update(Direction.INSERT, tuple(2, "ab"));
+        node.update(Direction.INSERT, tuple(3, "a"));
+        node.update(Direction.INSERT, tuple(4, "a"));
+
+        assertEquals(Arrays.<Object> asList("ab", "a"), check.evaluatedNames);
+        assertEquals(2, node.getMemoizationHits());
+        assertEquals(2, node.getMemoizationMisses());
+        assertEquals(new HashSet<Tuple>(Arrays.asList(tuple(1, "ab"), tuple(2, "ab"))),
+                new HashSet<Tuple>(pull(node)));
+    }
+
+    @Test
+    public void memoizedByAllReferencedVariables() {
+        Options.evaluationMemoizationCacheSize = 10;
+        LongNameCheck check = new LongNameCheck("name", "suffix");
+        CachedPredicateEvaluatorNode node = node(check);
+
+        node.update(Direction.INSERT, new FlatTuple(1, "ab", "x"));
+        node.update(Direction.INSERT, new FlatTuple(2, "ab", "x"));
+        node.update(Direction.INSERT, new FlatTuple(3, "ab", "y"));
+
+        assertEquals(Arrays.<Object> asList("ab", "ab"), check.evaluatedNames);
+        assertEquals(1, node.getMemoizationHits());
+        assertEquals(2, node.getMemoizationMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsedResultEvicted() {
+        Options.evaluationMemoizationCacheSize = 2;
+        LongNameCheck check = new LongNameCheck("name");
+        CachedPredicateEvaluatorNode node = node(check);
+
+        node.update(Direction.INSERT, tuple(1, "a"));
+        node.update(Direction.INSERT, tuple(2, "b"));
+        // hit, "b" becomes the least recently used
+        node.update(Direction.INSERT, tuple(3, "a"));
+        // evicts "b"
+        node.update(Direction.INSERT, tuple(4, "c"));
+        node.update(Direction.INSERT, tuple(5, "a"));
+        node.update(Direction.INSERT, tuple(6, "b"));
+
+        assertEquals(Arrays.<Object> asList("a", "b", "c", "b"), check.evaluatedNames);
+        assertEquals(2, node.getMemoizationHits());
+        assertEquals(4, node.getMemoizationMisses());
+    }
+
+    @Test
+    public void revocationNotEvaluated() {
+        Options.evaluationMemoizationCacheSize = 10;
+        LongNameCheck check = new LongNameCheck("name");
+        CachedPredicateEvaluatorNode node = node(check);
+
+        node.update(Direction.INSERT, tuple(1, "ab"));
+        node.update(Direction.REVOKE, tuple(1, "ab"));
+        node.update(Direction.INSERT, tuple(1, "ab"));
+
+        assertEquals(Arrays.<Object> asList("ab"), check.evaluatedNames);
+        assertEquals(Arrays.asList(tuple(1, "ab")), pull(node));
+    }
+
+    @Test
+    public void clearedWithOutputCache() {
+        Options.evaluationMemoizationCacheSize = 10;
+        LongNameCheck check = new LongNameCheck("name");
+        CachedPredicateEvaluatorNode node = node(check);
+
+        node.update(Direction.INSERT, tuple(1, "ab"));
+        node.clear();
+        node.update(Direction.INSERT, tuple(2, "ab"));
+
+        assertEquals(Arrays.<Object> asList("ab", "ab"), check.evaluatedNames);
+        assertEquals(0, node.getMemoizationHits());
+        assertEquals(2, node.getMemoizationMisses());
+    }
+
+    @Test
+    public void notMemoizedByDefault() {
+        Options.evaluationMemoizationCacheSize = 0;
+        LongNameCheck check = new LongNameCheck("name");
+        CachedPredicateEvaluatorNode node = node(check);
+
+        node.update(Direction.INSERT, tuple(1, "ab"));
+        node.update(Direction.INSERT, tuple(2, "ab"));
+
+        assertEquals(Arrays.<Object> asList("ab", "ab"), check.evaluatedNames);
+        assertEquals(0, node.getMemoizationHits());
+        assertEquals(0, node.getMemoizationMisses());
+    }
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.rete;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.incquery.runtime.api.AdvancedIncQueryEngine;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.api.IncQueryMatcher;
+import org.eclipse.incquery.runtime.rete.util.Options;
+import org.eclipse.incquery.runtime.tests.util.PatternParsingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Builds patterns, including a pattern call and a negative pattern call, on an engine whose Rete network consists of
+ * several containers, so that the subnetworks of the patterns end up in different containers (starting with
+ * {@link Options#firstFreeContainer}) and are connected through the shared production nodes.
+ *
+ * @author Gabor Bergmann
+ */
+public class MultipleContainersTest {
+
+    private static final String PATTERNS = "package test\n"
+            + "import \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+            + "pattern superType(sub : EClass, sup : EClass) { EClass.eSuperTypes(sub, sup); }\n"
+            + "pattern superTypeName(sub : EClass, name) { find superType(sub, sup); EClass.name(sup, name); }\n"
+            + "pattern rootClass(c : EClass) { EClass(c); neg find superType(c, _sup); }\n";
+
+    private int originalContainers;
+    private AdvancedIncQueryEngine engine;
+
+    @Before
+    public void setUp() {
+        originalContainers = Options.numberOfLocalContainers;
+        Options.numberOfLocalContainers = 3;
+    }
+
+    @After
+    public void tearDown() {
+        if (engine != null) {
+            engine.dispose();
+        }
+        Options.numberOfLocalContainers = originalContainers;
+    }
+
+    @Test
+    public void patternsSpreadOverContainers() throws Exception {
+        Map<String, IQuerySpecification<?>> specifications = PatternParsingUtil.parseSpecifications(PATTERNS);
+
+        EcoreFactory factory = EcoreFactory.eINSTANCE;
+        EPackage ePackage = factory.createEPackage();
+        ePackage.setName("p");
+        EClass a = factory.createEClass();
+        a.setName("A");
+        EClass b = factory.createEClass();
+        b.setName("B");
+        b.getESuperTypes().add(a);
+        EClass c = factory.createEClass();
+        c.setName("C");
+        ePackage.getEClassifiers().add(a);
+        ePackage.getEClassifiers().add(b);
+        ePackage.getEClassifiers().add(c);
+        ResourceSet resourceSet = new ResourceSetImpl();
+        Resource resource = resourceSet.createResource(URI.createURI("dummy:/model.ecore"));
+        resource.getContents().add(ePackage);
+
+        engine = AdvancedIncQueryEngine.createUnmanagedEngine(resourceSet);
+        IncQueryMatcher<?> superType = engine.getMatcher(specifications.get("superType"));
+        IncQueryMatcher<?> superTypeName = engine.getMatcher(specifications.get("superTypeName"));
+        IncQueryMatcher<?> rootClass = engine.getMatcher(specifications.get("rootClass"));
+
+        assertEquals(1, superType.countMatches());
+        assertEquals(1, superTypeName.countMatches());
+        assertEquals(2, rootClass.countMatches());
+
+        c.getESuperTypes().add(b);
+        assertEquals(2, superType.countMatches());
+        assertEquals(2, superTypeName.countMatches());
+        assertEquals(1, rootClass.countMatches());
+
+        b.getESuperTypes().clear();
+        assertEquals(1, superType.countMatches());
+        assertEquals(1, superTypeName.countMatches());
+        assertEquals(2, rootClass.countMatches());
+    }
+
+}
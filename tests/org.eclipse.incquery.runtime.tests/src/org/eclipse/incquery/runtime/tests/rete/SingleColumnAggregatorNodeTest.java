@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.rete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
+import org.eclipse.incquery.runtime.rete.index.AggregatorNode;
+import org.eclipse.incquery.runtime.rete.index.AverageNode;
+import org.eclipse.incquery.runtime.rete.index.Indexer;
+import org.eclipse.incquery.runtime.rete.index.MaxNode;
+import org.eclipse.incquery.runtime.rete.index.MinNode;
+import org.eclipse.incquery.runtime.rete.index.SumNode;
+import org.eclipse.incquery.runtime.rete.misc.SimpleReceiver;
+import org.eclipse.incquery.runtime.rete.network.Direction;
+import org.eclipse.incquery.runtime.rete.network.Network;
+import org.eclipse.incquery.runtime.rete.network.ReteContainer;
+import org.eclipse.incquery.runtime.rete.single.UniquenessEnforcerNode;
+import org.eclipse.incquery.runtime.rete.util.Options;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the aggregates propagated by {@link SumNode}, {@link MinNode}, {@link MaxNode} and {@link AverageNode} as
+ * (group, id, value) tuples are inserted and revoked, comparing them with the aggregates of the whole groups.
+ *
+ * @author Gabor Bergmann
+ */
+public class SingleColumnAggregatorNodeTest {
+
+    /**
+     * Records the inserted and revoked tuples in the order of delivery.
+     */
+    private static class RecordingReceiver extends SimpleReceiver {
+        final List<Tuple> inserted = new ArrayList<Tuple>();
+        final List<Tuple> revoked = new ArrayList<Tuple>();
+
+        RecordingReceiver(ReteContainer reteContainer) {
+            super(reteContainer);
+        }
+
+        @Override
+        public void update(Direction direction, Tuple updateElement) {
+            (direction == Direction.INSERT ? inserted : revoked).add(updateElement);
+        }
+    }
+
+    private static final int VALUE_INDEX = 2;
+
+    private Network network;
+    private ReteContainer container;
+    private UniquenessEnforcerNode input;
+    private RecordingReceiver receiver;
+    private int nextId = 0;
+    private boolean originalBatchedDelivery;
+
+    @Before
+    public void setUp() {
+        originalBatchedDelivery = Options.batchedUpdateDelivery;
+        createNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        network.kill();
+        Options.batchedUpdateDelivery = originalBatchedDelivery;
+    }
+
+    private void createNetwork() {
+        network = new Network(0, null);
+        container = network.getHeadContainer();
+        input = new UniquenessEnforcerNode(container, 3);
+        receiver = new RecordingReceiver(container);
+    }
+
+    /**
+     * Replaces the network with one that delivers the updates in batches.
+     */
+    private void useBatchedDelivery() {
+        network.kill();
+        Options.batchedUpdateDelivery = true;
+        createNetwork();
+    }
+
+    private <T extends AggregatorNode> T connect(T aggregator) {
+        aggregator.initializeWith(input.constructIndex(TupleMask.selectSingle(0, 3)));
+        aggregator.appendChild(receiver);
+        return aggregator;
+    }
+
+    private Tuple insert(String group, Object value) {
+        Tuple tuple = new FlatTuple(group, nextId++, value);
+        input.update(Direction.INSERT, tuple);
+        container.flushUpdates();
+        return tuple;
+    }
+
+    private List<Tuple> insertAll(String group, Object... values) {
+        List<Tuple> tuples = new ArrayList<Tuple>();
+        for (Object value : values) {
+            tuples.add(new FlatTuple(group, nextId++, value));
+        }
+        input.batchUpdate(Direction.INSERT, tuples);
+        container.flushUpdates();
+        return tuples;
+    }
+
+    private void revokeAll(List<Tuple> tuples) {
+        input.batchUpdate(Direction.REVOKE, tuples);
+        container.flushUpdates();
+    }
+
+    private void revoke(Tuple tuple) {
+        input.update(Direction.REVOKE, tuple);
+        container.flushUpdates();
+    }
+
+    private static Tuple result(String group, Object aggregate) {
+        return new FlatTuple(group, aggregate);
+    }
+
+    private static Set<Tuple> pull(AggregatorNode aggregator) {
+        List<Tuple> contents = new ArrayList<Tuple>();
+        aggregator.pullInto(contents);
+        return new HashSet<Tuple>(contents);
+    }
+
+    private void assertLastUpdate(Tuple revoked, Tuple inserted) {
+        if (revoked != null) {
+            assertEquals(revoked, receiver.revoked.get(receiver.revoked.size() - 1));
+        }
+        if (inserted != null) {
+            assertEquals(inserted, receiver.inserted.get(receiver.inserted.size() - 1));
+        }
+    }
+
+    @Test
+    public void sumMaintained() {
+        SumNode sum = connect(new SumNode(container, VALUE_INDEX));
+
+        Tuple two = insert("g", 2);
+        assertLastUpdate(null, result("g", 2));
+        insert("g", 3);
+        assertLastUpdate(result("g", 2), result("g", 5));
+        Tuple other = insert("h", 7);
+        assertEquals(new HashSet<Tuple>(Arrays.asList(result("g", 5), result("h", 7))), pull(sum));
+
+        revoke(two);
+        assertLastUpdate(result("g", 5), result("g", 3));
+        int insertions = receiver.inserted.size();
+        revoke(other);
+        // the emptied group is only revoked
+        assertLastUpdate(result("h", 7), null);
+        assertEquals(insertions, receiver.inserted.size());
+        assertEquals(Collections.singleton(result("g", 3)), pull(sum));
+        // the outer indexer returns the aggregate of the empty group
+        Indexer outerIndexer = sum.getAggregatorOuterIndexer();
+        assertEquals(Collections.singleton(result("h", 0)), outerIndexer.get(new FlatTuple("h")));
+    }
+
+    @Test
+    public void sumWidenedByValueTypes() {
+        SumNode sum = connect(new SumNode(container, VALUE_INDEX));
+
+        insert("g", 1);
+        insert("g", 2L);
+        assertEquals(Collections.singleton(result("g", 3L)), pull(sum));
+        Tuple half = insert("g", 0.5);
+        assertEquals(Collections.singleton(result("g", 3.5)), pull(sum));
+        revoke(half);
+        // no floating point values are left in the group
+        assertEquals(Collections.singleton(result("g", 3L)), pull(sum));
+    }
+
+    @Test
+    public void minimumMaintainedWithDuplicates() {
+        MinNode min = connect(new MinNode(container, VALUE_INDEX));
+
+        Tuple five = insert("g", 5);
+        Tuple firstThree = insert("g", 3);
+        Tuple secondThree = insert("g", 3);
+        insert("g", 7);
+        assertEquals(Collections.singleton(result("g", 3)), pull(min));
+
+        revoke(firstThree);
+        assertEquals(Collections.singleton(result("g", 3)), pull(min));
+        revoke(secondThree);
+        assertLastUpdate(result("g", 3), result("g", 5));
+        revoke(five);
+        assertEquals(Collections.singleton(result("g", 7)), pull(min));
+    }
+
+    @Test
+    public void maximumMaintainedWithDuplicates() {
+        MaxNode max = connect(new MaxNode(container, VALUE_INDEX));
+
+        insert("g", 5);
+        Tuple firstNine = insert("g", 9);
+        Tuple secondNine = insert("g", 9);
+        assertEquals(Collections.singleton(result("g", 9)), pull(max));
+
+        revoke(secondNine);
+        assertEquals(Collections.singleton(result("g", 9)), pull(max));
+        revoke(firstNine);
+        assertLastUpdate(result("g", 9), result("g", 5));
+    }
+
+    @Test
+    public void emptyExtremumUndefined() {
+        MinNode min = connect(new MinNode(container, VALUE_INDEX));
+
+        Tuple only = insert("g", 4);
+        int insertions = receiver.inserted.size();
+        revoke(only);
+
+        assertLastUpdate(result("g", 4), null);
+        assertEquals(insertions, receiver.inserted.size());
+        assertTrue(pull(min).isEmpty());
+        Indexer outerIndexer = min.getAggregatorOuterIndexer();
+        assertNull(outerIndexer.get(new FlatTuple("g")));
+    }
+
+    @Test
+    public void averageMaintained() {
+        AverageNode average = connect(new AverageNode(container, VALUE_INDEX));
+
+        Tuple one = insert("g", 1);
+        insert("g", 2);
+        assertEquals(Collections.singleton(result("g", 1.5)), pull(average));
+        insert("g", 6);
+        assertLastUpdate(result("g", 1.5), result("g", 3.0));
+        revoke(one);
+        assertLastUpdate(result("g", 3.0), result("g", 4.0));
+    }
+
+    @Test
+    public void initialContentsAggregated() {
+        insert("g", 4);
+        insert("g", 8);
+        Tuple two = insert("h", 2);
+
+        AverageNode average = connect(new AverageNode(container, VALUE_INDEX));
+        assertEquals(new HashSet<Tuple>(Arrays.asList(result("g", 6.0), result("h", 2.0))), pull(average));
+
+        // the accumulators built on initialization are maintained afterwards
+        insert("g", 0);
+        assertLastUpdate(result("g", 6.0), result("g", 4.0));
+        revoke(two);
+        assertEquals(Collections.singleton(result("g", 4.0)), pull(average));
+    }
+
+    @Test
+    public void unchangedAggregateNotPropagated() {
+        MaxNode max = connect(new MaxNode(container, VALUE_INDEX));
+
+        Tuple nine = insert("g", 9);
+        insert("g", 5);
+        Tuple otherNine = insert("g", 9);
+        revoke(otherNine);
+        // only the first aggregate was propagated
+        assertEquals(Arrays.asList(result("g", 9)), receiver.inserted);
+        assertTrue(receiver.revoked.isEmpty());
+
+        revoke(nine);
+        assertLastUpdate(result("g", 9), result("g", 5));
+        assertEquals(Collections.singleton(result("g", 5)), pull(max));
+    }
+
+    @Test
+    public void batchUpdatesAccumulated() {
+        useBatchedDelivery();
+        SumNode sum = connect(new SumNode(container, VALUE_INDEX));
+
+        List<Tuple> first = insertAll("g", 1, 2, 3);
+        assertEquals(Collections.singleton(result("g", 6)), pull(sum));
+        List<Tuple> second = insertAll("g", 10, 20);
+        assertLastUpdate(result("g", 6), result("g", 36));
+        revokeAll(second);
+        assertEquals(Collections.singleton(result("g", 6)), pull(sum));
+
+        // the accumulator of the emptied group is not reused when the group is filled again
+        revokeAll(first);
+        assertTrue(pull(sum).isEmpty());
+        insert("g", 4);
+        assertEquals(Collections.singleton(result("g", 4)), pull(sum));
+        insertAll("g", 5, 6);
+        assertLastUpdate(result("g", 4), result("g", 15));
+    }
+
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.rete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.rete.misc.SimpleReceiver;
+import org.eclipse.incquery.runtime.rete.network.Direction;
+import org.eclipse.incquery.runtime.rete.network.Network;
+import org.eclipse.incquery.runtime.rete.network.ReteContainer;
+import org.eclipse.incquery.runtime.rete.single.TransitiveClosureNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the bulk initialization of {@link TransitiveClosureNode} and its incremental maintenance afterwards.
+ *
+ * @author Gabor Bergmann
+ */
+public class TransitiveClosureNodeTest {
+
+    /**
+     * Records the inserted and revoked tuples it receives.
+     */
+    private static class RecordingReceiver extends SimpleReceiver {
+        final Set<Tuple> inserted = new HashSet<Tuple>();
+        final Set<Tuple> revoked = new HashSet<Tuple>();
+
+        RecordingReceiver(ReteContainer reteContainer) {
+            super(reteContainer);
+        }
+
+        @Override
+        public void update(Direction direction, Tuple updateElement) {
+            (direction == Direction.INSERT ? inserted : revoked).add(updateElement);
+        }
+    }
+
+    private Network network;
+    private ReteContainer container;
+    private TransitiveClosureNode node;
+    private RecordingReceiver receiver;
+
+    @Before
+    public void setUp() {
+        network = new Network(0, null);
+        container = network.getHeadContainer();
+        node = new TransitiveClosureNode(container);
+        receiver = new RecordingReceiver(container);
+        node.appendChild(receiver);
+    }
+
+    @After
+    public void tearDown() {
+        network.kill();
+    }
+
+    private static Tuple edge(String source, String target) {
+        return new FlatTuple(source, target);
+    }
+
+    private static Set<Tuple> edges(String... sourcesAndTargets) {
+        Set<Tuple> edges = new HashSet<Tuple>();
+        for (int i = 0; i < sourcesAndTargets.length; i += 2) {
+            edges.add(edge(sourcesAndTargets[i], sourcesAndTargets[i + 1]));
+        }
+        return edges;
+    }
+
+    private Set<Tuple> pullContents() {
+        List<Tuple> contents = new ArrayList<Tuple>();
+        node.pullInto(contents);
+        Set<Tuple> result = new HashSet<Tuple>(contents);
+        // each tuple of the closure is pulled once
+        assertEquals(contents.size(), result.size());
+        return result;
+    }
+
+    @Test
+    public void reinitializedInBulk() {
+        // a -> b -> c <-> d
+        Collection<Tuple> initial = Arrays.asList(edge("a", "b"), edge("b", "c"), edge("c", "d"), edge("d", "c"));
+        node.reinitializeWith(initial);
+        container.flushUpdates();
+
+        assertTrue(receiver.inserted.isEmpty());
+        assertEquals(edges("a", "b", "a", "c", "a", "d", "b", "c", "b", "d", "c", "c", "c", "d", "d", "c", "d", "d"),
+                pullContents());
+    }
+
+    @Test
+    public void maintainedAfterReinitialization() {
+        node.reinitializeWith(Arrays.asList(edge("a", "b"), edge("b", "c")));
+
+        node.update(Direction.INSERT, edge("c", "d"));
+        container.flushUpdates();
+        assertEquals(edges("a", "d", "b", "d", "c", "d"), receiver.inserted);
+        assertTrue(receiver.revoked.isEmpty());
+
+        node.update(Direction.REVOKE, edge("a", "b"));
+        container.flushUpdates();
+        assertEquals(edges("a", "b", "a", "c", "a", "d"), receiver.revoked);
+        assertEquals(edges("b", "c", "b", "d", "c", "d"), pullContents());
+    }
+
+    @Test
+    public void reinitializationReplacesContents() {
+        node.update(Direction.INSERT, edge("x", "y"));
+        node.reinitializeWith(Arrays.asList(edge("a", "b")));
+        container.flushUpdates();
+
+        assertEquals(edges("a", "b"), pullContents());
+    }
+
+}
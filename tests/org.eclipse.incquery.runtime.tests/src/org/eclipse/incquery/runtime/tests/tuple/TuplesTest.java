@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Gabor Bergmann, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gabor Bergmann - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.tuple;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.incquery.runtime.matchers.tuple.FlatTuple;
+import org.eclipse.incquery.runtime.matchers.tuple.LeftInheritanceTuple;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuple;
+import org.eclipse.incquery.runtime.matchers.tuple.TupleMask;
+import org.eclipse.incquery.runtime.matchers.tuple.Tuples;
+import org.junit.Test;
+
+/**
+ * Checks that the arity-specialized tuples are interchangeable with {@link FlatTuple} and {@link LeftInheritanceTuple}.
+ * 
+ * @author Gabor Bergmann
+ */
+public class TuplesTest {
+
+    @Test
+    public void specializedTuplesEqualFlatTuples() {
+        for (int size = 0; size <= Tuples.MAX_SPECIALIZED_ARITY + 2; ++size) {
+            Object[] elements = new Object[size];
+            for (int i = 0; i < size; ++i)
+                elements[i] = "e" + i;
+            Tuple specialized = Tuples.flatTupleOf(elements);
+            Tuple flat = new FlatTuple(elements);
+
+            assertEquals(size, specialized.getSize());
+            assertEquals(flat, specialized);
+            assertEquals(specialized, flat);
+            assertEquals(flat.hashCode(), specialized.hashCode());
+            assertArrayEquals(elements, specialized.getElements());
+            for (int i = 0; i < size; ++i)
+                assertEquals(elements[i], specialized.get(i));
+        }
+        assertFalse(Tuples.flatTupleOf("a", "b").equals(Tuples.flatTupleOf("b", "a")));
+    }
+
+    @Test
+    public void maskTransformAndCombine() {
+        Tuple original = Tuples.flatTupleOf("a", "b", "c", "d", "e");
+        TupleMask mask = new TupleMask(new int[] { 3, 0 }, 5);
+        assertEquals(new FlatTuple("d", "a"), mask.transform(original));
+
+        Tuple left = Tuples.flatTupleOf("a", "b");
+        Tuple right = Tuples.flatTupleOf("b", "x");
+        Tuple combined = TupleMask.selectSingle(1, 2).combine(left, right, true, true);
+        assertEquals(new LeftInheritanceTuple(left, new Object[] { "x" }), combined);
+        assertTrue(combined.hashCode() == new FlatTuple("a", "b", "x").hashCode());
+
+        Tuple wide = Tuples.leftInheritanceTupleOf(original, "f");
+        assertTrue(wide instanceof LeftInheritanceTuple);
+        assertEquals(new FlatTuple("a", "b", "c", "d", "e", "f"), wide);
+    }
+
+}
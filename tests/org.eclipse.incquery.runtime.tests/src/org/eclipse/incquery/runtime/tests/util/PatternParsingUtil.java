@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2014, Zoltan Ujhelyi, Istvan Rath and Daniel Varro
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Zoltan Ujhelyi - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.incquery.runtime.tests.util;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.incquery.patternlanguage.emf.EMFPatternLanguagePlugin;
+import org.eclipse.incquery.patternlanguage.emf.EMFPatternLanguageStandaloneSetup;
+import org.eclipse.incquery.patternlanguage.emf.eMFPatternLanguage.PatternModel;
+import org.eclipse.incquery.patternlanguage.emf.specification.SpecificationBuilder;
+import org.eclipse.incquery.patternlanguage.patternLanguage.Pattern;
+import org.eclipse.incquery.runtime.api.IQuerySpecification;
+import org.eclipse.incquery.runtime.exception.IncQueryException;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.eclipse.xtext.util.StringInputStream;
+
+import com.google.common.collect.Maps;
+import com.google.inject.Injector;
+
+/**
+ * Parses query specifications from their textual form, for tests that need real patterns.
+ *
+ * @author Zoltan Ujhelyi
+ */
+public final class PatternParsingUtil {
+
+    private static Injector injector;
+
+    private PatternParsingUtil() {
+    }
+
+    private static synchronized Injector getInjector() {
+        if (injector == null) {
+            injector = new EMFPatternLanguageStandaloneSetup().createInjectorAndDoEMFRegistration();
+            EMFPatternLanguagePlugin.getInstance().addCompoundInjector(injector,
+                    EMFPatternLanguagePlugin.TEST_INJECTOR_PRIORITY);
+        }
+        return injector;
+    }
+
+    /**
+     * Parses the given pattern definitions and builds a specification for each of them.
+     *
+     * @param patterns
+     *            the text of a pattern file; it may import the Ecore metamodel by its nsURI
+     * @return the specifications by simple pattern name
+     */
+    public static Map<String, IQuerySpecification<?>> parseSpecifications(String patterns) throws IOException,
+            IncQueryException {
+        // make sure the Ecore metamodel is registered for the import
+        EcorePackage.eINSTANCE.eClass();
+        XtextResourceSet resourceSet = getInjector().getInstance(XtextResourceSet.class);
+        Resource resource = resourceSet.createResource(URI.createURI("dummy:/test.eiq"));
+        resource.load(new StringInputStream(patterns), null);
+        EcoreUtil.resolveAll(resource);
+        if (!resource.getErrors().isEmpty()) {
+            throw new IllegalArgumentException("Invalid patterns: " + resource.getErrors());
+        }
+
+        PatternModel model = (PatternModel) resource.getContents().get(0);
+        SpecificationBuilder builder = new SpecificationBuilder();
+        Map<String, IQuerySpecification<?>> result = Maps.newHashMap();
+        for (Pattern pattern : model.getPatterns()) {
+            result.put(pattern.getName(), builder.getOrCreateSpecification(pattern));
+        }
+        return result;
+    }
+}